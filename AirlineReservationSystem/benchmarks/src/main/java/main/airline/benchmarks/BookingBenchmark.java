@@ -0,0 +1,77 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Booking throughput. {@code uncontended} gives every benchmark thread its own
+ * flight; {@code contended} sends all threads at one hot flight. Run with
+ * {@code -t 1,2,4,8,...} to see how each scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class BookingBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int flights;
+
+    private FlightService flightService;
+    private ReservationService reservationService;
+    private Flight hotFlight;
+    private final AtomicInteger nextThread = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Effectively unlimited seats so a measurement never runs the inventory dry
+        flightService = Datasets.flightService(flights, Integer.MAX_VALUE);
+        hotFlight = flightService.findFlightByNumber(Datasets.flightNumber(0));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetReservations() {
+        // Fresh service per iteration keeps the booking history (and heap) bounded
+        reservationService = new ReservationService(flightService);
+    }
+
+    @State(Scope.Thread)
+    public static class Booker {
+        Flight ownFlight;
+        Passenger passenger;
+
+        @Setup(Level.Trial)
+        public void setUp(BookingBenchmark benchmark) {
+            int index = benchmark.nextThread.getAndIncrement();
+            ownFlight = benchmark.flightService.findFlightByNumber(
+                    Datasets.flightNumber(1 + index % (benchmark.flights - 1)));
+            passenger = new Passenger("T" + index, "Thread " + index, "t" + index + "@example.com", "555-0100");
+        }
+    }
+
+    @Benchmark
+    public Reservation uncontended(Booker booker) {
+        return reservationService.createReservation(booker.ownFlight, booker.passenger, 1);
+    }
+
+    @Benchmark
+    public Reservation contended(Booker booker) {
+        return reservationService.createReservation(hotFlight, booker.passenger, 1);
+    }
+
+    @Benchmark
+    public Reservation randomFlight(Booker booker) {
+        Flight flight = flightService.findFlightByNumber(
+                Datasets.flightNumber(ThreadLocalRandom.current().nextInt(flights)));
+        return reservationService.createReservation(flight, booker.passenger, 1);
+    }
+}
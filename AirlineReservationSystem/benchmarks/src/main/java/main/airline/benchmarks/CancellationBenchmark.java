@@ -0,0 +1,50 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Cancellation cost against a booking history of the given size. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class CancellationBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int reservations;
+
+    private ReservationService reservationService;
+    private String[] reservationIds;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        int flightCount = Math.max(1000, reservations / 100);
+        FlightService flightService = Datasets.flightService(flightCount, Integer.MAX_VALUE);
+        reservationService = new ReservationService(flightService);
+
+        List<Flight> flights = flightService.getAllFlights();
+        reservationIds = new String[reservations];
+        for (int i = 0; i < reservations; i++) {
+            Passenger passenger = new Passenger("P" + i, "Passenger " + i, "p" + i + "@example.com", "555-0100");
+            Reservation r = reservationService.createReservation(flights.get(i % flights.size()), passenger, 1);
+            reservationIds[i] = r.getReservationId();
+        }
+        cursor.set(0);
+    }
+
+    @Benchmark
+    public boolean cancelReservation() {
+        // Once every reservation is cancelled this measures the already-cancelled path
+        return reservationService.cancelReservation(reservationIds[Math.floorMod(cursor.getAndIncrement(), reservations)]);
+    }
+}
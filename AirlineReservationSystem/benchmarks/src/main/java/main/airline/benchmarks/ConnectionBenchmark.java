@@ -0,0 +1,41 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Itinerary;
+import main.airline.services.ConnectionPlanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Top-5 itineraries of up to three legs between two random airports, departing within one day. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ConnectionBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int flights;
+
+    private ConnectionPlanner planner;
+    private long scheduleMinutes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        planner = new ConnectionPlanner(Datasets.flightService(flights, 180));
+        scheduleMinutes = flights * 7L;
+    }
+
+    @Benchmark
+    public List<Itinerary> findItineraries() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int origin = random.nextInt(Datasets.AIRPORTS.length);
+        int destination = (origin + 1 + random.nextInt(Datasets.AIRPORTS.length - 1)) % Datasets.AIRPORTS.length;
+        LocalDateTime from = Datasets.EPOCH.plusMinutes(random.nextLong(scheduleMinutes));
+        return planner.findItineraries(Datasets.AIRPORTS[origin], Datasets.AIRPORTS[destination],
+                from, from.plusDays(1), 1, 3, 5);
+    }
+}
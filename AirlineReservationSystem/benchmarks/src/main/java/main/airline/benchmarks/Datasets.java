@@ -0,0 +1,67 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.services.FlightService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Deterministic synthetic schedules and booking histories shared by the benchmarks. */
+final class Datasets {
+    static final String[] AIRPORTS = {
+            "New York", "Los Angeles", "Chicago", "Miami", "San Francisco", "Seattle",
+            "Boston", "Denver", "Atlanta", "Dallas", "Houston", "Phoenix",
+            "Las Vegas", "Orlando", "Detroit", "Minneapolis", "Portland", "Austin",
+            "Nashville", "Charlotte"
+    };
+    static final LocalDateTime EPOCH = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private Datasets() { }
+
+    static String flightNumber(int i) {
+        return "F" + i;
+    }
+
+    static String origin(int i) {
+        return AIRPORTS[i % AIRPORTS.length];
+    }
+
+    static String destination(int i) {
+        // Never equal to origin: offset by 1..N-1
+        int offset = 1 + (i / AIRPORTS.length) % (AIRPORTS.length - 1);
+        return AIRPORTS[(i + offset) % AIRPORTS.length];
+    }
+
+    static List<Flight> flights(int count, int seatsPerFlight) {
+        List<Flight> flights = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime departure = EPOCH.plusMinutes(i * 7L);
+            flights.add(new Flight(flightNumber(i), origin(i), destination(i),
+                    departure, departure.plusMinutes(90 + i % 300), seatsPerFlight, 99.0 + i % 400));
+        }
+        return flights;
+    }
+
+    static FlightService flightService(int count, int seatsPerFlight) {
+        FlightService service = new FlightService();
+        for (Flight flight : flights(count, seatsPerFlight)) service.addFlight(flight);
+        return service;
+    }
+
+    static List<Reservation> reservations(List<Flight> flights, int count) {
+        Random random = new Random(42);
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Flight flight = flights.get(random.nextInt(flights.size()));
+            String passengerId = "P" + random.nextInt(Math.max(1, count / 3));
+            Passenger passenger = new Passenger(passengerId, "Passenger " + passengerId,
+                    passengerId.toLowerCase() + "@example.com", "555-0100");
+            reservations.add(new Reservation(String.format("RES-%08X", i), flight, passenger, 1 + i % 4));
+        }
+        return reservations;
+    }
+}
@@ -0,0 +1,174 @@
+package main.airline.benchmarks;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for the booking HTTP API. Each simulated client
+ * issues a mix of searches, bookings and history lookups back to back, the
+ * next request sent when the last one's response arrives. Requests are
+ * asynchronous, so clients cost no thread of their own and a few threads
+ * drive tens of thousands of them.
+ *
+ * <pre>
+ *   java -cp target/benchmarks.jar main.airline.benchmarks.HttpLoadGenerator \
+ *       --url http://localhost:8080 --clients 20000 --seconds 30 \
+ *       --origin "New York" --destination "Los Angeles" --flight AA123
+ * </pre>
+ *
+ * {@code --flight} takes a comma-separated list to spread bookings over
+ * several flights, e.g. over every node behind a cluster router.
+ */
+public class HttpLoadGenerator {
+    // Latency buckets: bucket i counts requests that took < 2^i microseconds
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile Throwable firstFailure;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "10000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        String origin = options.getOrDefault("origin", "New York");
+        String destination = options.getOrDefault("destination", "Los Angeles");
+        String[] flights = options.getOrDefault("flight", "AA123").split(",");
+
+        new HttpLoadGenerator().run(url, clients, seconds, origin, destination, flights);
+    }
+
+    private void run(String url, int clients, int seconds, String origin, String destination, String[] flights)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+        URI search = URI.create(url + "/flights?origin=" + encode(origin) + "&destination=" + encode(destination));
+        URI reservations = URI.create(url + "/reservations");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch finished = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            String passengerId = "LOAD-" + c;
+            URI history = URI.create(url + "/passengers/" + passengerId + "/reservations");
+            String booking = "{\"flightNumber\":\"" + flights[c % flights.length].trim() + "\",\"seats\":1,\"passengerId\":\"" + passengerId
+                    + "\",\"name\":\"Load " + c + "\",\"email\":\"load" + c + "@example.com\",\"phone\":\"555-0100\"}";
+            new Client(client, search, reservations, history, booking, deadline, finished).next();
+        }
+
+        finished.await(seconds + 60L, TimeUnit.SECONDS);
+        executor.shutdown();
+        report(clients, seconds);
+    }
+
+    /** One simulated client: sends its next request from the completion of the last. */
+    private final class Client {
+        private final HttpClient client;
+        private final URI search;
+        private final URI reservations;
+        private final URI history;
+        private final String booking;
+        private final long deadline;
+        private final CountDownLatch finished;
+
+        Client(HttpClient client, URI search, URI reservations, URI history, String booking, long deadline,
+               CountDownLatch finished) {
+            this.client = client;
+            this.search = search;
+            this.reservations = reservations;
+            this.history = history;
+            this.booking = booking;
+            this.deadline = deadline;
+            this.finished = finished;
+        }
+
+        void next() {
+            if (System.nanoTime() >= deadline) {
+                finished.countDown();
+                return;
+            }
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            HttpRequest request;
+            if (roll < 80) {
+                request = HttpRequest.newBuilder(search).GET().build();
+            } else if (roll < 95) {
+                request = HttpRequest.newBuilder(reservations)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(booking)).build();
+            } else {
+                request = HttpRequest.newBuilder(history).GET().build();
+            }
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                record(start, response, error);
+                next();
+            });
+        }
+    }
+
+    private void record(long start, HttpResponse<Void> response, Throwable error) {
+        if (error != null) {
+            if (firstFailure == null) firstFailure = error;
+            failed.increment();
+            return;
+        }
+        if (response.statusCode() >= 500) failed.increment();
+        else if (response.statusCode() >= 400) rejected.increment();
+        else completed.increment();
+        long micros = Math.max(1, (System.nanoTime() - start) / 1_000);
+        latency.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    private void report(int clients, int seconds) {
+        long ok = completed.sum();
+        long total = ok + rejected.sum();
+        System.out.printf("clients=%d duration=%ds ok=%d rejected(4xx)=%d failed=%d throughput=%.0f req/s%n",
+                clients, seconds, ok, rejected.sum(), failed.sum(), (double) total / seconds);
+        System.out.printf("latency p50<%dus p99<%dus p999<%dus%n",
+                percentile(0.50), percentile(0.99), percentile(0.999));
+        if (firstFailure != null) System.out.println("first failure: " + firstFailure);
+    }
+
+    private long percentile(double p) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += latency.get(i);
+        long target = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += latency.get(i);
+            if (seen >= target && total > 0) return 1L << i;
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].startsWith("--")) options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,122 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.utils.Journal;
+import main.airline.utils.MappedReservationStore;
+import main.airline.utils.RecordCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save/load throughput of each persistence path: the binary snapshot written by
+ * DataStorage.saveAllData, the legacy Java-serialization .dat format it
+ * replaced, opening the mapped reservation store, and one journal append.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int reservations;
+
+    private List<Flight> flights;
+    private List<Reservation> history;
+    private List<Passenger> passengers;
+    private Map<String, Flight> flightsByNumber;
+
+    private Path directory;
+    private Path snapshotFile;
+    private Path legacyFile;
+    private Path storeFile;
+    private Journal journal;
+    private Reservation sample;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        flights = Datasets.flights(Math.max(1000, reservations / 100), 180);
+        history = Datasets.reservations(flights, reservations);
+        Map<String, Passenger> unique = new HashMap<>();
+        for (Reservation r : history) unique.put(r.getPassenger().getId(), r.getPassenger());
+        passengers = new ArrayList<>(unique.values());
+        flightsByNumber = new HashMap<>();
+        for (Flight f : flights) flightsByNumber.put(f.getFlightNumber(), f);
+
+        directory = Files.createTempDirectory("airline-bench");
+        snapshotFile = directory.resolve("airline.db");
+        legacyFile = directory.resolve("reservations.dat");
+        storeFile = directory.resolve("reservations.store");
+
+        saveSnapshot();
+        saveLegacy();
+        try (MappedReservationStore store = new MappedReservationStore(storeFile, flightsByNumber::get)) {
+            for (Reservation r : history) store.add(r);
+        }
+        journal = new Journal(directory.resolve("journal.log"));
+        sample = history.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long saveSnapshot() throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(snapshotFile), 64 * 1024)) {
+            RecordCodec.write(out, flights, history, passengers);
+        }
+        return Files.size(snapshotFile);
+    }
+
+    @Benchmark
+    public RecordCodec.Snapshot loadSnapshot() throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshotFile), 64 * 1024)) {
+            return RecordCodec.read(in);
+        }
+    }
+
+    @Benchmark
+    public long saveLegacy() throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(legacyFile)))) {
+            out.writeObject(history);
+        }
+        return Files.size(legacyFile);
+    }
+
+    @Benchmark
+    public Object loadLegacy() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacyFile)))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public int openReservationStore() throws IOException {
+        try (MappedReservationStore store = new MappedReservationStore(storeFile, flightsByNumber::get)) {
+            return store.size();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean journalAppend() {
+        return journal.booked(sample);
+    }
+}
@@ -0,0 +1,74 @@
+package main.airline.benchmarks;
+
+import main.airline.api.ScheduleExporter;
+import main.airline.api.ScheduleImporter;
+import main.airline.models.Flight;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk schedule import (CSV and JSON) into an empty FlightService, and
+ * streaming export of the whole schedule to a discarding writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ScheduleFileBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int flights;
+
+    private Path directory;
+    private Path csvFile;
+    private Path jsonFile;
+    private ScheduleExporter exporter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        FlightService flightService = new FlightService();
+        for (Flight flight : Datasets.flights(flights, 180)) flightService.addFlight(flight);
+        exporter = new ScheduleExporter(flightService, new ReservationService(flightService));
+
+        directory = Files.createTempDirectory("airline-bench");
+        csvFile = directory.resolve("schedule.csv");
+        jsonFile = directory.resolve("schedule.json");
+        exporter.exportFlights(csvFile);
+        exporter.exportFlights(jsonFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(jsonFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long importCsv() {
+        return new ScheduleImporter(new FlightService()).importFile(csvFile).getImported();
+    }
+
+    @Benchmark
+    public long importJson() {
+        return new ScheduleImporter(new FlightService()).importFile(jsonFile).getImported();
+    }
+
+    @Benchmark
+    public long exportCsv() throws IOException {
+        return exporter.writeFlightsCsv(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public long exportJson() throws IOException {
+        return exporter.writeFlightsJson(Writer.nullWriter());
+    }
+}
@@ -0,0 +1,46 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Flight;
+import main.airline.services.FlightService;
+import main.airline.services.RouteSearchCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Route search (direct and cached) and flight-number lookup latency as the schedule grows. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class SearchBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int flights;
+
+    private FlightService flightService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        flightService = Datasets.flightService(flights, 180);
+    }
+
+    @Benchmark
+    public List<Flight> searchFlights() {
+        int i = ThreadLocalRandom.current().nextInt(flights);
+        return flightService.searchFlights(Datasets.origin(i), Datasets.destination(i));
+    }
+
+    @Benchmark
+    public RouteSearchCache.Result searchCached() {
+        int i = ThreadLocalRandom.current().nextInt(flights);
+        return flightService.searchCached(Datasets.origin(i), Datasets.destination(i), null);
+    }
+
+    @Benchmark
+    public Flight findFlightByNumber() {
+        return flightService.findFlightByNumber(Datasets.flightNumber(ThreadLocalRandom.current().nextInt(flights)));
+    }
+}
@@ -0,0 +1,83 @@
+package main.airline.benchmarks;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import main.airline.utils.ChangeLog;
+import main.airline.utils.JdbcConnectionPool;
+import main.airline.utils.JdbcStorage;
+import main.airline.utils.Journal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable booking throughput per storage backend: the file journal versus
+ * JdbcStorage on an embedded H2 database. Run with -t to see group commit
+ * amortise the fsync / transaction commit across threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class StorageBenchmark {
+    private static final int FLIGHTS = 1000;
+
+    @Param({"file", "jdbc"})
+    public String backend;
+
+    private Path directory;
+    private Closeable storage;
+    private FlightService flightService;
+    private ReservationService reservationService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("airline-storage-bench");
+        flightService = Datasets.flightService(FLIGHTS, 1_000_000_000);
+        reservationService = new ReservationService(flightService);
+
+        ChangeLog changeLog;
+        if (backend.equals("jdbc")) {
+            JdbcStorage jdbc = new JdbcStorage(new JdbcConnectionPool(
+                    "jdbc:h2:" + directory.resolve("airline").toAbsolutePath(), null, null, 4));
+            jdbc.load(new FlightService(), new ReservationService(new FlightService()));
+            for (Flight flight : flightService.getAllFlights()) jdbc.flightUpserted(flight);
+            storage = jdbc;
+            changeLog = jdbc;
+        } else {
+            Journal journal = new Journal(directory.resolve("journal.log"));
+            storage = journal;
+            changeLog = journal;
+        }
+        reservationService.setChangeLog(changeLog);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close();
+        try (var files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Reservation book() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Flight flight = flightService.findFlightByNumber(Datasets.flightNumber(random.nextInt(FLIGHTS)));
+        return reservationService.createReservation(flight,
+                new Passenger("P" + random.nextInt(100_000), "Name", "mail@example.com", "555-0100"), 1);
+    }
+}
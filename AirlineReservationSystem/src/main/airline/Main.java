@@ -1,34 +1,134 @@
 package main.airline;
 
+import main.airline.api.BookingHttpServer;
+import main.airline.api.ClusterRouter;
+import main.airline.api.ScheduleExporter;
+import main.airline.api.ScheduleImporter;
+import main.airline.models.FareClass;
 import main.airline.models.Flight;
+import main.airline.models.Itinerary;
 import main.airline.models.Passenger;
 import main.airline.models.Reservation;
+import main.airline.models.SeatMap;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.ConnectionPlanner;
 import main.airline.services.FlightService;
 import main.airline.services.ReservationService;
+import main.airline.services.RouteSearchCache;
+import main.airline.services.TypeaheadIndex;
+import main.airline.utils.ChangeFeed;
 import main.airline.utils.DataStorage;
+import main.airline.utils.Metrics;
+import main.airline.utils.StorageBackend;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class Main {
     private static final FlightService flightService = new FlightService();
     private static final ReservationService reservationService = new ReservationService(flightService);
+    private static final ConnectionPlanner connectionPlanner = new ConnectionPlanner(flightService);
+    private static final ChangeFeed changeFeed = new ChangeFeed();
+    private static final TypeaheadIndex typeahead = new TypeaheadIndex(flightService, reservationService);
     private static final Scanner scanner = new Scanner(System.in);
+    // How often the HTTP server checks whether the journal has grown enough to checkpoint
+    private static final long CHECKPOINT_POLL_MILLIS = 5_000;
+    private static StorageBackend storage;
 
     public static void main(String[] args) {
-        // Initialize sample files if missing
-        DataStorage.initializeSampleData();
+        // "--router <port> --nodes <url,url,...>" routes the HTTP API over a cluster of --http nodes; no local data
+        String routerPort = option(args, "--router");
+        if (routerPort != null) {
+            routeHttp(Integer.parseInt(routerPort), option(args, "--nodes"));
+            return;
+        }
+
+        // "--restore <folder>" replaces the local files with the newest backup in the folder
+        String restoreFolder = option(args, "--restore");
+        if (restoreFolder != null && !DataStorage.restoreBackup(restoreFolder)) return;
+
+        // "--jdbc <url>" keeps data in a database instead of the local files
+        loadData(option(args, "--jdbc"));
+
+        // "--http <port>" serves the HTTP/JSON API instead of the console menu
+        String httpPort = option(args, "--http");
+        if (httpPort != null) {
+            serveHttp(Integer.parseInt(httpPort));
+            return;
+        }
+        runConsole();
+    }
+
+    private static void loadData(String jdbcUrl) {
+        // Load persisted data, then persist every new change
+        storage = DataStorage.openStorage(jdbcUrl);
+        storage.load(flightService, reservationService);
+        flightService.setChangeLog(storage);
+        reservationService.setChangeLog(storage);
+        // Changes from here on are published for downstream consumers; loading is not a change
+        flightService.setChangeFeed(changeFeed);
+        reservationService.setChangeFeed(changeFeed);
+        typeahead.attach(changeFeed);
+        // Holds left pending at shutdown start counting down again
+        reservationService.resumeHolds();
+        // Waitlists loaded from storage promote again, now that promotions are persisted
+        reservationService.resumeWaitlists();
+    }
 
-        // ---- Load persisted data ----
-        for (Flight f : DataStorage.loadFlights()) {
-            if (f != null) flightService.addFlight(f);
+    private static String option(String[] args, String name) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) return args[i + 1];
         }
-        for (Reservation r : DataStorage.loadReservations()) {
-            if (r != null) reservationService.addReservationFromStorage(r);
+        return null;
+    }
+
+    private static void serveHttp(int port) {
+        BookingHttpServer server;
+        try {
+            server = new BookingHttpServer(port, flightService, reservationService, changeFeed, typeahead);
+        } catch (IOException e) {
+            System.err.println("Error starting HTTP server: " + e.getMessage());
+            return;
         }
-        // --------------------------------
+        // Bookings are journaled as they happen; the snapshot is rewritten once the journal grows large, and on shutdown
+        Thread checkpointer = new Thread(Main::checkpointWhenNeeded, "checkpoint");
+        checkpointer.setDaemon(true);
+        checkpointer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            checkpointer.interrupt();
+            changeFeed.close();
+            server.stop();
+            checkpoint();
+            closeStorage();
+        }));
+        server.start();
+        System.out.println("Booking API listening on port " + server.getPort());
+    }
 
+    private static void routeHttp(int port, String nodes) {
+        if (nodes == null || nodes.isBlank()) {
+            System.err.println("--router needs --nodes with the nodes' base URLs, e.g. http://127.0.0.1:8081,http://127.0.0.1:8082");
+            return;
+        }
+        ClusterRouter router;
+        try {
+            router = new ClusterRouter(port, List.of(nodes.split(",")));
+        } catch (IOException e) {
+            System.err.println("Error starting router: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(router::stop));
+        router.start();
+        System.out.println("Routing the booking API on port " + router.getPort() + " over " + nodes.split(",").length + " nodes");
+    }
+
+    private static void runConsole() {
         boolean running = true;
         while (running) {
             System.out.println("\nAirline Reservation System");
@@ -36,8 +136,9 @@ public class Main {
             System.out.println("2. Book a Flight");
             System.out.println("3. View Reservations");
             System.out.println("4. Cancel Reservation");
-            System.out.println("5. Admin Menu");
-            System.out.println("6. Exit");
+            System.out.println("5. Confirm Held Reservation");
+            System.out.println("6. Admin Menu");
+            System.out.println("7. Exit");
             System.out.print("Enter your choice: ");
 
             int choice = safeNextInt();
@@ -46,19 +147,42 @@ public class Main {
                 case 2 -> bookFlight();
                 case 3 -> viewReservations();
                 case 4 -> cancelReservation();
-                case 5 -> adminMenu();
-                case 6 -> {
+                case 5 -> confirmReservation();
+                case 6 -> adminMenu();
+                case 7 -> {
                     // ---- Save before exit ----
-                    List<Flight> flightsToSave = flightService.getAllFlights();
-                    List<Reservation> reservationsToSave = reservationService.getAllReservations();
-                    List<Passenger> passengersToSave = extractPassengers(reservationsToSave);
-                    DataStorage.saveAllData(flightsToSave, reservationsToSave, passengersToSave);
+                    checkpoint();
+                    closeStorage();
                     // ----------------------------
                     System.out.println("Thank you for using our system. Goodbye!");
                     running = false;
                 }
                 default -> System.out.println("Invalid choice. Please try again.");
             }
+            if (running && storage.needsCheckpoint()) checkpoint();
+        }
+    }
+
+    private static void checkpoint() {
+        storage.checkpoint(flightService, reservationService);
+    }
+
+    private static void checkpointWhenNeeded() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(CHECKPOINT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (storage.needsCheckpoint()) checkpoint();
+        }
+    }
+
+    private static void closeStorage() {
+        try {
+            storage.close();
+        } catch (IOException e) {
+            System.err.println("Error closing storage: " + e.getMessage());
         }
     }
 
@@ -78,13 +202,55 @@ public class Main {
         String origin = scanner.nextLine().trim();
         System.out.print("Enter destination: ");
         String destination = scanner.nextLine().trim();
+        System.out.print("Departure date (YYYY-MM-DD, blank for any): ");
+        String date = scanner.nextLine().trim();
 
-        List<Flight> flights = flightService.searchFlights(origin, destination);
-        if (flights.isEmpty()) {
-            System.out.println("No flights found for the given route.");
+        LocalDate day = null;
+        if (!date.isEmpty()) {
+            try {
+                day = LocalDate.parse(date);
+            } catch (DateTimeParseException e) {
+                System.out.println("Invalid date.");
+                return;
+            }
+        }
+        RouteSearchCache.Result result = flightService.searchCached(origin, destination, day);
+        if (result.getFlights().isEmpty()) {
+            System.out.println("No direct flights found for the given route.");
+            showConnections(origin, destination, day);
+            suggestAirports(origin);
+            suggestAirports(destination);
         } else {
             System.out.println("\nAvailable Flights:");
-            flights.forEach(System.out::println);
+            System.out.print(result.render("text", Main::formatFlights));
+        }
+    }
+
+    private static void suggestAirports(String typed) {
+        List<String> matches = typeahead.suggestAirports(typed, 5);
+        if (matches.isEmpty() || matches.stream().anyMatch(typed::equalsIgnoreCase)) return;
+        System.out.println("No airport named '" + typed + "'. Did you mean: " + String.join(", ", matches) + "?");
+    }
+
+    private static String formatFlights(List<Flight> flights) {
+        StringBuilder sb = new StringBuilder(flights.size() * 128);
+        for (Flight flight : flights) sb.append(flight).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    private static void showConnections(String origin, String destination, LocalDate day) {
+        List<Itinerary> itineraries;
+        if (day != null) {
+            itineraries = connectionPlanner.findItineraries(origin, destination, day, 1, 3, 5);
+        } else {
+            LocalDateTime now = LocalDateTime.now();
+            itineraries = connectionPlanner.findItineraries(origin, destination, now, now.plusDays(7), 1, 3, 5);
+        }
+        if (itineraries.isEmpty()) {
+            System.out.println("No connecting itineraries found either.");
+        } else {
+            System.out.println("\nConnecting Itineraries:");
+            itineraries.forEach(System.out::println);
         }
     }
 
@@ -106,12 +272,80 @@ public class Main {
             System.out.println("Seats must be greater than 0.");
             return;
         }
-        if (flight.getAvailableSeats() < seats) {
-            System.out.println("Not enough seats available. Only " + flight.getAvailableSeats() + " left.");
+        if (flight.getAvailableSeats() < seats || reservationService.hasWaitingRequests(flight.getFlightNumber())) {
+            if (flight.getAvailableSeats() < seats) {
+                System.out.println("Not enough seats available. Only " + flight.getAvailableSeats() + " left.");
+            } else {
+                System.out.println("Seats that come free on this flight go to its waitlist first.");
+            }
+            System.out.print("Join the waitlist for " + seats + " seat(s)? (y/n): ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("y")) joinWaitlist(flight, seats);
+            return;
+        }
+
+        SeatMap seatMap = reservationService.getSeatMap(flight);
+        List<String> seatNumbers = new ArrayList<>();
+        if (seatMap != null) {
+            System.out.println("\nSeat map (X = taken):");
+            System.out.print(seatMap.render());
+            System.out.print("Preferred seats, comma separated (blank to seat together): ");
+            String seatLine = scanner.nextLine().trim();
+            for (String seat : seatLine.split(",")) {
+                if (!seat.isBlank()) seatNumbers.add(seat.trim());
+            }
+        }
+        if (!seatNumbers.isEmpty() && seatNumbers.size() != seats) {
+            System.out.println("Please choose exactly " + seats + " seat(s).");
+            return;
+        }
+
+        Passenger passenger = readPassenger();
+        // Seats are held while the booking is reviewed, and released if it is not confirmed in time
+        Reservation reservation = seatNumbers.isEmpty()
+                ? reservationService.holdReservation(flight, passenger, seats)
+                : reservationService.holdReservation(flight, passenger, seatNumbers);
+
+        if (reservation != null) {
+            System.out.println("\nSeats held: " + reservation);
+            System.out.print("Confirm this reservation now? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                System.out.println("Reservation " + reservation.getReservationId() + " is held until "
+                        + reservationService.getHoldExpiry(reservation.getReservationId())
+                        + "; confirm it from the main menu before then.");
+            } else if (reservationService.confirmReservation(reservation.getReservationId())) {
+                System.out.println("Reservation " + reservation.getReservationId() + " confirmed!");
+            } else {
+                System.out.println("The hold has expired; please book again.");
+            }
+        } else if (!seatNumbers.isEmpty()) {
+            System.out.println("Failed to create reservation. The chosen seats may be taken or not exist.");
+        } else {
+            System.out.println("Failed to create reservation.");
+        }
+    }
+
+    private static void joinWaitlist(Flight flight, int seats) {
+        System.out.print("Fare class (First, Business, Premium Economy, Economy) [Economy]: ");
+        FareClass fareClass;
+        try {
+            fareClass = FareClass.parse(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
             return;
         }
+        Passenger passenger = readPassenger();
+        WaitlistEntry entry = reservationService.joinWaitlist(flight, passenger, seats, fareClass);
+        if (entry == null) {
+            System.out.println("The flight does not have " + seats + " seat(s).");
+        } else if (entry.getStatus() == WaitlistEntry.Status.PROMOTED) {
+            System.out.println("Seats came free; reservation " + entry.getReservationId() + " confirmed!");
+        } else {
+            System.out.println("Added to the waitlist as " + entry.getEntryId() + " (" + fareClass
+                    + "). You will be booked automatically when seats free up.");
+        }
+    }
 
-        // Passenger details
+    private static Passenger readPassenger() {
         System.out.println("\nEnter Passenger Details:");
         System.out.print("Passenger ID: ");
         String id = scanner.nextLine().trim();
@@ -121,16 +355,7 @@ public class Main {
         String email = scanner.nextLine().trim();
         System.out.print("Phone: ");
         String phone = scanner.nextLine().trim();
-
-        Passenger passenger = new Passenger(id, name, email, phone);
-        Reservation reservation = reservationService.createReservation(flight, passenger, seats);
-
-        if (reservation != null) {
-            System.out.println("\nReservation created successfully!");
-            System.out.println(reservation);
-        } else {
-            System.out.println("Failed to create reservation.");
-        }
+        return new Passenger(id, name, email, phone);
     }
 
     private static void viewReservations() {
@@ -140,6 +365,14 @@ public class Main {
         List<Reservation> reservations = reservationService.getReservationsByPassenger(passengerId);
         if (reservations.isEmpty()) {
             System.out.println("No reservations found for this passenger.");
+            // Perhaps a name or email rather than an id
+            List<Passenger> matches = typeahead.suggestPassengers(passengerId, 5);
+            if (!matches.isEmpty()) {
+                System.out.println("Passengers matching '" + passengerId + "':");
+                for (Passenger passenger : matches) {
+                    System.out.println("  " + passenger.getId() + "  " + passenger.getName() + "  " + passenger.getEmail());
+                }
+            }
         } else {
             System.out.println("\nYour Reservations:");
             reservations.forEach(System.out::println);
@@ -157,6 +390,17 @@ public class Main {
         }
     }
 
+    private static void confirmReservation() {
+        System.out.print("Enter reservation ID to confirm: ");
+        String reservationId = scanner.nextLine().trim();
+
+        if (reservationService.confirmReservation(reservationId)) {
+            System.out.println("Reservation confirmed.");
+        } else {
+            System.out.println("Reservation not found, already confirmed, or its hold has expired.");
+        }
+    }
+
     private static void adminMenu() {
         boolean inAdminMenu = true;
         while (inAdminMenu) {
@@ -166,7 +410,14 @@ public class Main {
             System.out.println("3. Update Flight");
             System.out.println("4. Delete Flight");
             System.out.println("5. View All Reservations");
-            System.out.println("6. Back to Main Menu");
+            System.out.println("6. View Flight Manifest");
+            System.out.println("7. Prune Departed Flights");
+            System.out.println("8. View Metrics");
+            System.out.println("9. Import Schedule File");
+            System.out.println("10. Export Flights");
+            System.out.println("11. Export Flight Manifest");
+            System.out.println("12. Back Up Data");
+            System.out.println("13. Back to Main Menu");
             System.out.print("Enter your choice: ");
 
             int choice = safeNextInt();
@@ -176,7 +427,14 @@ public class Main {
                 case 3 -> updateFlight();
                 case 4 -> deleteFlight();
                 case 5 -> viewAllReservations();
-                case 6 -> inAdminMenu = false;
+                case 6 -> viewFlightManifest();
+                case 7 -> pruneDepartedFlights();
+                case 8 -> System.out.println("\n" + Metrics.report());
+                case 9 -> importSchedule();
+                case 10 -> exportFlights();
+                case 11 -> exportManifest();
+                case 12 -> backupData();
+                case 13 -> inAdminMenu = false;
                 default -> System.out.println("Invalid choice. Please try again.");
             }
         }
@@ -207,8 +465,48 @@ public class Main {
         LocalDateTime arrival = LocalDateTime.parse(arrDate + "T" + arrTime);
 
         Flight flight = new Flight(flightNumber, origin, destination, departure, arrival, totalSeats, price);
-        flightService.addFlight(flight);
-        System.out.println("Flight added successfully!");
+        if (flightService.addFlight(flight)) {
+            System.out.println("Flight added successfully!");
+        } else {
+            System.out.println("Failed to add flight.");
+        }
+    }
+
+    private static void importSchedule() {
+        System.out.print("Schedule file (.csv or .json): ");
+        Path path = Path.of(scanner.nextLine().trim());
+        if (!Files.isRegularFile(path)) {
+            System.out.println("File not found.");
+            return;
+        }
+        ScheduleImporter.Result result = new ScheduleImporter(flightService).importFile(path);
+        System.out.println(result);
+    }
+
+    private static void exportFlights() {
+        System.out.print("Export to file (.csv or .json): ");
+        Path path = Path.of(scanner.nextLine().trim());
+        long count = new ScheduleExporter(flightService, reservationService).exportFlights(path);
+        if (count >= 0) System.out.println(count + " flights exported to " + path);
+    }
+
+    private static void exportManifest() {
+        System.out.print("Enter flight number: ");
+        String flightNumber = scanner.nextLine().trim();
+        if (flightService.findFlightByNumber(flightNumber) == null) {
+            System.out.println("Flight not found.");
+            return;
+        }
+        System.out.print("Export to file (.csv or .json): ");
+        Path path = Path.of(scanner.nextLine().trim());
+        long count = new ScheduleExporter(flightService, reservationService).exportManifest(flightNumber, path);
+        if (count >= 0) System.out.println(count + " reservations exported to " + path);
+    }
+
+    private static void backupData() {
+        System.out.print("Backup folder: ");
+        String folder = scanner.nextLine().trim();
+        if (storage.backup(folder, reservationService)) System.out.println("Backup written to " + folder);
     }
 
     private static void viewAllFlights() {
@@ -277,13 +575,26 @@ public class Main {
         }
     }
 
-    private static List<Passenger> extractPassengers(List<Reservation> reservations) {
-        Map<String, Passenger> map = new LinkedHashMap<>();
-        for (Reservation r : reservations) {
-            if (r != null && r.getPassenger() != null) {
-                map.put(r.getPassenger().getId(), r.getPassenger());
-            }
+    private static void viewFlightManifest() {
+        System.out.print("Enter flight number: ");
+        String flightNumber = scanner.nextLine().trim();
+
+        List<Reservation> reservations = reservationService.getReservationsByFlight(flightNumber);
+        if (reservations.isEmpty()) {
+            System.out.println("No reservations found for this flight.");
+        } else {
+            System.out.println("\nManifest for " + flightNumber + ":");
+            reservations.forEach(System.out::println);
         }
-        return new ArrayList<>(map.values());
+        List<WaitlistEntry> waitlist = reservationService.getWaitlist(flightNumber);
+        if (!waitlist.isEmpty()) {
+            System.out.println("\nWaitlist, next to be booked first:");
+            waitlist.forEach(System.out::println);
+        }
+    }
+
+    private static void pruneDepartedFlights() {
+        int pruned = flightService.pruneDepartedFlights(LocalDateTime.now());
+        System.out.println(pruned + " departed flight(s) removed from search.");
     }
 }
@@ -0,0 +1,612 @@
+package main.airline.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.airline.models.ChangeEvent;
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Itinerary;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.ConnectionPlanner;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import main.airline.services.RouteSearchCache;
+import main.airline.services.TypeaheadIndex;
+import main.airline.utils.ChangeFeed;
+import main.airline.utils.Metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP/JSON front end for the booking services.
+ *
+ * <pre>
+ *   GET    /flights?origin=..&amp;destination=..   route search (optional &amp;date=YYYY-MM-DD)
+ *   GET    /flights/{number}                    single flight
+ *   POST   /flights                             add or replace flights; body a JSON array in the schedule file format
+ *   GET    /itineraries?origin=..&amp;destination=..&amp;date=..
+ *                                               connections (optional &amp;seats, &amp;maxLegs, &amp;limit)
+ *   POST   /reservations                        book; body {flightNumber, seats, passengerId, name, email, phone}
+ *                                               or, for specific seats, seatNumbers: "12A,12B" instead of seats;
+ *                                               with hold: true the seats are only held until confirmed;
+ *                                               with waitlist: true a full flight, or one with requests
+ *                                               already waiting, waitlists the request (optional fareClass)
+ *                                               and answers 202
+ *   POST   /reservations/{id}/confirm           confirm a hold
+ *   GET    /reservations/{id}                   single reservation
+ *   GET    /reservations?from=..&amp;to=..          reservations with ids in [from, to), i.e. by booking time
+ *   DELETE /reservations/{id}                   cancel
+ *   GET    /passengers/{id}/reservations        passenger history
+ *   GET    /waitlist?flight=..                  a flight's waiting requests, next to be booked first
+ *   GET    /waitlist/{id}                       a waitlist request, with its reservation once booked
+ *   DELETE /waitlist/{id}                       withdraw a waiting request
+ *   GET    /suggest?q=..                        typeahead: airports, flight numbers and passengers matching
+ *                                               what has been typed (optional &amp;type=airports|flights|passengers, &amp;limit)
+ *   GET    /changes                             stream of change events, one JSON object per line
+ *                                               (optional &amp;from=sequence to replay buffered events)
+ *   GET    /metrics                             latency and counters, Prometheus text format
+ * </pre>
+ *
+ * Requests run on a fixed pool of {@code airline.http.threads} platform
+ * threads (default {@value #DEFAULT_REQUEST_THREADS}); more requests than
+ * that wait in a queue rather than starting ever more threads. Handlers
+ * block on storage, so the pool is far larger than the core count. The
+ * build targets Java 17, which has no virtual threads, so the pool size
+ * bounds how many requests are in flight at once.
+ *
+ * Change streams run on a pool of their own, one thread per open stream, and
+ * at most {@code airline.http.streams} (default {@value #DEFAULT_CHANGE_STREAMS})
+ * are open at once; further subscriptions are answered 503. So streams never
+ * tie up request threads. A stream asks the feed for the next batch only
+ * once the last one is written, so a slow reader falls behind (and is
+ * disconnected once the feed overwrites what it has not read) rather than
+ * slowing bookings.
+ *
+ * A schedule posted to /flights is imported as it arrives rather than read
+ * into memory first; a body larger than {@code airline.http.importLimit}
+ * bytes (default {@value #DEFAULT_IMPORT_LIMIT}) is cut off there and
+ * answered 413.
+ */
+public class BookingHttpServer {
+    private static final int BACKLOG = 16_384;
+    public static final int DEFAULT_REQUEST_THREADS = 200;
+    public static final int DEFAULT_CHANGE_STREAMS = 32;
+    public static final long DEFAULT_IMPORT_LIMIT = 256L << 20;
+
+    private final FlightService flightService;
+    private final ReservationService reservationService;
+    private final ConnectionPlanner connectionPlanner;
+    private final ChangeFeed changeFeed;
+    private final TypeaheadIndex typeahead;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ExecutorService streamExecutor;
+    private final Semaphore streamSlots;
+    private final long importLimit;
+
+    public BookingHttpServer(int port, FlightService flightService, ReservationService reservationService) throws IOException {
+        this(port, flightService, reservationService, null, null);
+    }
+
+    /**
+     * Serves {@code changeFeed} on /changes and {@code typeahead} on /suggest
+     * as well; either may be null, and its endpoint then answers 404.
+     */
+    public BookingHttpServer(int port, FlightService flightService, ReservationService reservationService,
+                             ChangeFeed changeFeed, TypeaheadIndex typeahead) throws IOException {
+        this.flightService = flightService;
+        this.reservationService = reservationService;
+        this.changeFeed = changeFeed;
+        this.typeahead = typeahead;
+        this.connectionPlanner = new ConnectionPlanner(flightService);
+        // Headers and body go out as separate writes; without TCP_NODELAY each response waits on delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newRequestExecutor();
+        int streams = Integer.getInteger("airline.http.streams", DEFAULT_CHANGE_STREAMS);
+        this.streamSlots = new Semaphore(streams);
+        ThreadPoolExecutor streamPool = new ThreadPoolExecutor(streams, streams, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        streamPool.allowCoreThreadTimeOut(true);
+        this.streamExecutor = streamPool;
+        this.importLimit = Long.getLong("airline.http.importLimit", DEFAULT_IMPORT_LIMIT);
+        server.setExecutor(executor);
+        server.createContext("/flights", this::handleFlights);
+        server.createContext("/itineraries", this::handleItineraries);
+        server.createContext("/reservations", this::handleReservations);
+        server.createContext("/passengers", this::handlePassengers);
+        server.createContext("/waitlist", this::handleWaitlist);
+        server.createContext("/suggest", this::handleSuggest);
+        server.createContext("/changes", this::handleChanges);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    /**
+     * The pool request handlers run on: {@code airline.http.threads} threads
+     * (default {@value #DEFAULT_REQUEST_THREADS}) with a queue for the rest.
+     * Idle threads exit after a minute and are started again on demand.
+     */
+    public static ExecutorService newRequestExecutor() {
+        int threads = Integer.getInteger("airline.http.threads", DEFAULT_REQUEST_THREADS);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        // Open streams wait for events indefinitely; interrupting them ends each one
+        streamExecutor.shutdownNow();
+    }
+
+    // ---- Handlers ----
+    private void handleFlights(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = segments(exchange);
+            if (path.length == 1 && exchange.getRequestMethod().equals("POST")) {
+                importFlights(exchange);
+            } else if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, Json.error("Method not allowed"));
+            } else if (path.length == 1) {
+                Map<String, String> query = query(exchange);
+                String origin = query.get("origin");
+                String destination = query.get("destination");
+                if (origin == null || destination == null) {
+                    send(exchange, 400, Json.error("origin and destination are required"));
+                    return;
+                }
+                String date = query.get("date");
+                RouteSearchCache.Result result = flightService.searchCached(origin, destination,
+                        date == null ? null : LocalDate.parse(date));
+                send(exchange, 200, result.render("json", Json::flights));
+            } else if (path.length == 2) {
+                Flight flight = flightService.findFlightByNumber(path[1]);
+                if (flight == null) send(exchange, 404, Json.error("Flight not found"));
+                else send(exchange, 200, Json.flight(flight));
+            } else {
+                send(exchange, 404, Json.error("Not found"));
+            }
+        } catch (DateTimeParseException e) {
+            send(exchange, 400, Json.error("Invalid date"));
+        } catch (RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+        }
+    }
+
+    private void importFlights(HttpExchange exchange) throws IOException {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null && Long.parseLong(declared) > importLimit) {
+            exchange.getRequestBody().close();
+            send(exchange, 413, Json.error("Schedule larger than " + importLimit + " bytes"));
+            return;
+        }
+        try (BoundedInputStream body = new BoundedInputStream(exchange.getRequestBody(), importLimit)) {
+            ScheduleImporter.Result result = new ScheduleImporter(flightService)
+                    .importJson(new InputStreamReader(body, StandardCharsets.UTF_8));
+            send(exchange, body.exceeded() ? 413 : result.isComplete() ? 200 : 400, Json.importResult(result));
+        }
+    }
+
+    private void handleItineraries(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, Json.error("Method not allowed"));
+                return;
+            }
+            Map<String, String> query = query(exchange);
+            String origin = query.get("origin");
+            String destination = query.get("destination");
+            String date = query.get("date");
+            if (origin == null || destination == null || date == null) {
+                send(exchange, 400, Json.error("origin, destination and date are required"));
+                return;
+            }
+            int seats = Integer.parseInt(query.getOrDefault("seats", "1"));
+            int maxLegs = Math.min(Integer.parseInt(query.getOrDefault("maxLegs", "3")), 4);
+            int limit = Math.min(Integer.parseInt(query.getOrDefault("limit", "5")), 50);
+            List<Itinerary> itineraries = connectionPlanner.findItineraries(origin, destination,
+                    LocalDate.parse(date), seats, maxLegs, limit);
+            send(exchange, 200, Json.itineraries(itineraries));
+        } catch (DateTimeParseException e) {
+            send(exchange, 400, Json.error("Invalid date"));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, Json.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+        }
+    }
+
+    private void handleReservations(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = segments(exchange);
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("POST")) {
+                book(exchange);
+            } else if (path.length == 1 && method.equals("GET")) {
+                Map<String, String> params = query(exchange);
+                if (params.get("from") == null && params.get("to") == null) {
+                    send(exchange, 400, Json.error("from or to is required"));
+                    return;
+                }
+                send(exchange, 200, Json.reservations(
+                        reservationService.findReservationsInIdRange(params.get("from"), params.get("to"))));
+            } else if (path.length == 2 && method.equals("GET")) {
+                Reservation reservation = reservationService.findReservationById(path[1]);
+                if (reservation == null) send(exchange, 404, Json.error("Reservation not found"));
+                else send(exchange, 200, Json.reservation(reservation));
+            } else if (path.length == 3 && path[2].equals("confirm") && method.equals("POST")) {
+                if (reservationService.confirmReservation(path[1])) {
+                    send(exchange, 200, Json.reservation(reservationService.findReservationById(path[1])));
+                } else {
+                    send(exchange, 409, Json.error("Reservation not found, already confirmed, or its hold expired"));
+                }
+            } else if (path.length == 2 && method.equals("DELETE")) {
+                if (reservationService.cancelReservation(path[1])) {
+                    send(exchange, 200, Json.reservation(reservationService.findReservationById(path[1])));
+                } else {
+                    send(exchange, 404, Json.error("Reservation not found or already cancelled"));
+                }
+            } else {
+                send(exchange, path.length <= 2 ? 405 : 404, Json.error("Not found"));
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, Json.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+        }
+    }
+
+    private void book(HttpExchange exchange) throws IOException {
+        Map<String, String> body = Json.parseObject(readBody(exchange));
+        String flightNumber = body.get("flightNumber");
+        String passengerId = body.get("passengerId");
+        if (flightNumber == null || passengerId == null) {
+            send(exchange, 400, Json.error("flightNumber and passengerId are required"));
+            return;
+        }
+        List<String> seatNumbers = new ArrayList<>();
+        for (String seat : body.getOrDefault("seatNumbers", "").split(",")) {
+            if (!seat.isBlank()) seatNumbers.add(seat.trim());
+        }
+        int seats = seatNumbers.isEmpty() ? Integer.parseInt(body.getOrDefault("seats", "1")) : seatNumbers.size();
+        if (seats <= 0) {
+            send(exchange, 400, Json.error("Seats must be greater than 0"));
+            return;
+        }
+
+        Flight flight = flightService.findFlightByNumber(flightNumber);
+        if (flight == null) {
+            send(exchange, 404, Json.error("Flight not found"));
+            return;
+        }
+        Passenger passenger = new Passenger(passengerId, body.get("name"), body.get("email"), body.get("phone"));
+        boolean hold = Boolean.parseBoolean(body.get("hold"));
+        Reservation reservation;
+        if (hold) {
+            reservation = seatNumbers.isEmpty()
+                    ? reservationService.holdReservation(flight, passenger, seats)
+                    : reservationService.holdReservation(flight, passenger, seatNumbers);
+        } else {
+            reservation = seatNumbers.isEmpty()
+                    ? reservationService.createReservation(flight, passenger, seats)
+                    : reservationService.createReservation(flight, passenger, seatNumbers);
+        }
+        if (reservation == null && seatNumbers.isEmpty() && Boolean.parseBoolean(body.get("waitlist"))
+                && (flight.getAvailableSeats() < seats || reservationService.hasWaitingRequests(flight.getFlightNumber()))) {
+            WaitlistEntry entry = reservationService.joinWaitlist(flight, passenger, seats,
+                    FareClass.parse(body.get("fareClass")));
+            if (entry == null) send(exchange, 409, Json.error("The flight does not have " + seats + " seats"));
+            else send(exchange, 202, Json.waitlistEntry(entry));
+        } else if (reservation == null) {
+            send(exchange, 409, Json.error(seatNumbers.isEmpty() ? "Not enough seats available"
+                    : "Seats not available: " + String.join(",", seatNumbers)));
+        } else {
+            send(exchange, 201, hold
+                    ? Json.hold(reservation, reservationService.getHoldExpiry(reservation.getReservationId()))
+                    : Json.reservation(reservation));
+        }
+    }
+
+    private void handlePassengers(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = segments(exchange);
+            if (path.length == 3 && path[2].equals("reservations") && exchange.getRequestMethod().equals("GET")) {
+                List<Reservation> reservations = reservationService.getReservationsByPassenger(path[1]);
+                send(exchange, 200, Json.reservations(reservations));
+            } else {
+                send(exchange, 404, Json.error("Not found"));
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+        }
+    }
+
+    private void handleWaitlist(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = segments(exchange);
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("GET")) {
+                String flightNumber = query(exchange).get("flight");
+                if (flightNumber == null) send(exchange, 400, Json.error("flight is required"));
+                else send(exchange, 200, Json.waitlist(reservationService.getWaitlist(flightNumber)));
+            } else if (path.length == 2 && method.equals("GET")) {
+                WaitlistEntry entry = reservationService.getWaitlistEntry(path[1]);
+                if (entry == null) send(exchange, 404, Json.error("Waitlist request not found"));
+                else send(exchange, 200, Json.waitlistEntry(entry));
+            } else if (path.length == 2 && method.equals("DELETE")) {
+                if (reservationService.leaveWaitlist(path[1])) {
+                    send(exchange, 200, Json.waitlistEntry(reservationService.getWaitlistEntry(path[1])));
+                } else {
+                    send(exchange, 404, Json.error("Waitlist request not found, already booked or withdrawn"));
+                }
+            } else {
+                send(exchange, path.length <= 2 ? 405 : 404, Json.error("Not found"));
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+        }
+    }
+
+    private void handleSuggest(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, Json.error("Method not allowed"));
+                return;
+            }
+            if (typeahead == null) {
+                send(exchange, 404, Json.error("No typeahead index"));
+                return;
+            }
+            Map<String, String> params = query(exchange);
+            String q = params.get("q");
+            if (q == null) {
+                send(exchange, 400, Json.error("q is required"));
+                return;
+            }
+            String type = params.get("type");
+            int limit = Math.min(Integer.parseInt(params.getOrDefault("limit", String.valueOf(TypeaheadIndex.DEFAULT_LIMIT))), 100);
+            send(exchange, 200, Json.suggestions(
+                    type == null || type.equals("airports") ? typeahead.suggestAirports(q, limit) : null,
+                    type == null || type.equals("flights") ? typeahead.suggestFlightNumbers(q, limit) : null,
+                    type == null || type.equals("passengers") ? typeahead.suggestPassengers(q, limit) : null));
+        } catch (NumberFormatException e) {
+            send(exchange, 400, Json.error("Invalid limit"));
+        } catch (RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+        }
+    }
+
+    private void handleChanges(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, Json.error("Method not allowed"));
+            return;
+        }
+        if (changeFeed == null) {
+            send(exchange, 404, Json.error("No change feed"));
+            return;
+        }
+        long from;
+        try {
+            String raw = query(exchange).get("from");
+            from = raw == null ? changeFeed.getNextSequence() : Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            send(exchange, 400, Json.error("Invalid from"));
+            return;
+        }
+        if (!streamSlots.tryAcquire()) {
+            send(exchange, 503, Json.error("Too many change streams open"));
+            return;
+        }
+        ChangeStream stream = new ChangeStream();
+        try {
+            changeFeed.subscribe(stream, from);
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            // The stream continues on its own pool and this request thread goes back to serving requests
+            streamExecutor.execute(() -> stream(exchange, stream));
+        } catch (IOException | RejectedExecutionException e) {
+            // The client went away, or the server is stopping
+            stream.cancel();
+            streamSlots.release();
+            exchange.close();
+        }
+    }
+
+    private void stream(HttpExchange exchange, ChangeStream stream) {
+        try (OutputStream out = exchange.getResponseBody()) {
+            stream.writeTo(out);
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            stream.cancel();
+            streamSlots.release();
+        }
+    }
+
+    /** Subscriber that hands batches to the request thread, requesting one more after each is written. */
+    private static final class ChangeStream implements Flow.Subscriber<List<ChangeEvent>> {
+        private static final Object COMPLETE = new Object();
+
+        // Holds at most one batch and one terminal signal, since only one batch is ever requested
+        private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ChangeEvent> batch) {
+            signals.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            signals.add(error);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(COMPLETE);
+        }
+
+        @SuppressWarnings("unchecked")
+        void writeTo(OutputStream out) throws IOException {
+            try {
+                for (Object signal = signals.take(); signal != COMPLETE; signal = signals.take()) {
+                    if (signal instanceof Throwable) {
+                        out.write((Json.error(((Throwable) signal).getMessage()) + "\n").getBytes(StandardCharsets.UTF_8));
+                        return;
+                    }
+                    out.write(Json.changeEvents((List<ChangeEvent>) signal).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    subscription.request(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void cancel() {
+            Flow.Subscription subscription = this.subscription;
+            if (subscription != null) subscription.cancel();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, Json.error("Method not allowed"));
+            return;
+        }
+        byte[] bytes = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ---- Helpers ----
+    static String[] segments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String[] raw = path.replaceAll("^/+|/+$", "").split("/+");
+        for (int i = 0; i < raw.length; i++) raw[i] = URLDecoder.decode(raw[i], StandardCharsets.UTF_8);
+        return raw;
+    }
+
+    static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /** Request body that fails the read once more than {@code limit} bytes arrive. */
+    static final class BoundedInputStream extends FilterInputStream {
+        private final long limit;
+        private long remaining;
+        private boolean exceeded;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        boolean exceeded() {
+            return exceeded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) return atLimit();
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (remaining == 0) return atLimit();
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        // A body of exactly the limit ends here; one more byte means it is too large
+        private int atLimit() throws IOException {
+            if (super.read() < 0) return -1;
+            exceeded = true;
+            throw new IOException("Request body larger than " + limit + " bytes");
+        }
+    }
+
+    static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package main.airline.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.airline.utils.ConsistentHashRing;
+import main.airline.utils.TimeOrderedIdGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Front end for a cluster of booking nodes, each an ordinary {@code --http}
+ * process with its own storage. Flights, and with them their seat inventory,
+ * reservations and waitlists, are partitioned over the nodes by a
+ * {@link ConsistentHashRing} on flight number, so every booking and
+ * cancellation of a flight happens on one node and nodes share nothing.
+ * The router is stateless; several can run side by side.
+ *
+ * <ul>
+ *   <li>A flight's requests (its details, booking it, its waitlist) go to the
+ *       node that owns the flight number.</li>
+ *   <li>Reservation and waitlist ids carry the number of the node that made
+ *       them (node {@code i} of {@code n} must run with
+ *       {@code -Dairline.node=i -Dairline.nodes=n}), so
+ *       their requests go straight there; ids from elsewhere are tried on
+ *       each node in turn.</li>
+ *   <li>Route searches, passenger histories and id-range listings ask every
+ *       node at once and merge the answers.</li>
+ *   <li>{@code POST /flights} splits the schedule by owner.</li>
+ * </ul>
+ *
+ * Connecting itineraries can span partitions and are not served here; each
+ * node's {@code /metrics} is scraped directly.
+ */
+public class ClusterRouter {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Comparator<String> BY_DEPARTURE = Comparator
+            .comparing((String flight) -> Json.stringField(flight, "departureTime"), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(flight -> Json.stringField(flight, "flightNumber"), Comparator.nullsLast(Comparator.naturalOrder()));
+    private static final Comparator<String> BY_RESERVATION_ID = Comparator
+            .comparing((String reservation) -> Json.stringField(reservation, "reservationId"), Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final List<URI> nodes;
+    private final ConsistentHashRing ring;
+    private final HttpClient client;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Completes node responses; separate from the handlers, which block waiting for them
+    private final ExecutorService clientExecutor;
+
+    /** Routes to the given node base URLs; node {@code i} is the one started with {@code -Dairline.node=i}. */
+    public ClusterRouter(int port, List<String> nodeUrls) throws IOException {
+        if (nodeUrls.isEmpty()) throw new IllegalArgumentException("At least one node is required");
+        this.nodes = new ArrayList<>(nodeUrls.size());
+        for (String url : nodeUrls) nodes.add(URI.create(url.trim().replaceAll("/+$", "")));
+        this.ring = new ConsistentHashRing(nodes.size());
+        this.executor = BookingHttpServer.newRequestExecutor();
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .executor(clientExecutor)
+                .build();
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), 16_384);
+        server.setExecutor(executor);
+        server.createContext("/flights", this::handleFlights);
+        server.createContext("/itineraries", this::handleItineraries);
+        server.createContext("/reservations", this::handleReservations);
+        server.createContext("/passengers", this::handlePassengers);
+        server.createContext("/waitlist", this::handleWaitlist);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        clientExecutor.shutdown();
+    }
+
+    /** The node that owns a flight number. */
+    public int nodeFor(String flightNumber) {
+        return ring.nodeFor(flightNumber);
+    }
+
+    // ---- Handlers ----
+    private void handleFlights(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = BookingHttpServer.segments(exchange);
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("POST")) {
+                importFlights(exchange);
+            } else if (path.length == 1 && method.equals("GET")) {
+                gather(exchange, BY_DEPARTURE);
+            } else if (path.length == 2) {
+                forward(exchange, nodeFor(path[1]), null);
+            } else {
+                BookingHttpServer.send(exchange, 404, Json.error("Not found"));
+            }
+        } catch (RuntimeException e) {
+            BookingHttpServer.send(exchange, 502, Json.error(e.toString()));
+        }
+    }
+
+    private void handleItineraries(HttpExchange exchange) throws IOException {
+        BookingHttpServer.send(exchange, 501, Json.error("Connections can span partitions; search each leg with /flights"));
+    }
+
+    private void handleReservations(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = BookingHttpServer.segments(exchange);
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && method.equals("POST")) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                String flightNumber = Json.parseObject(new String(body, StandardCharsets.UTF_8)).get("flightNumber");
+                if (flightNumber == null) {
+                    BookingHttpServer.send(exchange, 400, Json.error("flightNumber and passengerId are required"));
+                    return;
+                }
+                forward(exchange, nodeFor(flightNumber), body);
+            } else if (path.length == 1 && method.equals("GET")) {
+                gather(exchange, BY_RESERVATION_ID);
+            } else {
+                forwardById(exchange, path[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            BookingHttpServer.send(exchange, 400, Json.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            BookingHttpServer.send(exchange, 502, Json.error(e.toString()));
+        }
+    }
+
+    private void handlePassengers(HttpExchange exchange) throws IOException {
+        try {
+            gather(exchange, BY_RESERVATION_ID);
+        } catch (RuntimeException e) {
+            BookingHttpServer.send(exchange, 502, Json.error(e.toString()));
+        }
+    }
+
+    private void handleWaitlist(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = BookingHttpServer.segments(exchange);
+            if (path.length == 1) {
+                String flightNumber = BookingHttpServer.query(exchange).get("flight");
+                if (flightNumber == null) BookingHttpServer.send(exchange, 400, Json.error("flight is required"));
+                else forward(exchange, nodeFor(flightNumber), null);
+            } else {
+                forwardById(exchange, path[1]);
+            }
+        } catch (RuntimeException e) {
+            BookingHttpServer.send(exchange, 502, Json.error(e.toString()));
+        }
+    }
+
+    // ---- Routing ----
+    // Sends the request to one node and relays its answer
+    private void forward(HttpExchange exchange, int node, byte[] body) throws IOException {
+        if (body == null) body = exchange.getRequestBody().readAllBytes();
+        HttpResponse<byte[]> response;
+        try {
+            response = call(node, exchange, body).join();
+        } catch (CompletionException e) {
+            unavailable(exchange, node, e);
+            return;
+        }
+        relay(exchange, response);
+    }
+
+    // Sends the request to the node named in the id; if that node does not know it, tries the others
+    private void forwardById(HttpExchange exchange, String id) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        int named = TimeOrderedIdGenerator.nodeOf(id);
+        HttpResponse<byte[]> notFound = null;
+        for (int attempt = -1; attempt < nodes.size(); attempt++) {
+            int node = attempt < 0 ? named : attempt;
+            if (node < 0 || node >= nodes.size() || (attempt >= 0 && node == named)) continue;
+            HttpResponse<byte[]> response;
+            try {
+                response = call(node, exchange, body).join();
+            } catch (CompletionException e) {
+                unavailable(exchange, node, e);
+                return;
+            }
+            if (response.statusCode() != 404) {
+                relay(exchange, response);
+                return;
+            }
+            notFound = response;
+        }
+        if (notFound != null) relay(exchange, notFound);
+        else BookingHttpServer.send(exchange, 404, Json.error("Not found"));
+    }
+
+    // Asks every node at once and merges their JSON arrays in the given order
+    private void gather(HttpExchange exchange, Comparator<String> order) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        List<CompletableFuture<HttpResponse<byte[]>>> calls = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) calls.add(call(node, exchange, body));
+
+        List<String> merged = new ArrayList<>();
+        for (int node = 0; node < nodes.size(); node++) {
+            HttpResponse<byte[]> response;
+            try {
+                response = calls.get(node).join();
+            } catch (CompletionException e) {
+                unavailable(exchange, node, e);
+                return;
+            }
+            if (response.statusCode() != 200) {
+                relay(exchange, response);
+                return;
+            }
+            merged.addAll(Json.elements(new String(response.body(), StandardCharsets.UTF_8)));
+        }
+        merged.sort(order);
+        BookingHttpServer.send(exchange, 200, "[" + String.join(",", merged) + "]");
+    }
+
+    // Splits a schedule by owning node and posts each part there
+    private void importFlights(HttpExchange exchange) throws IOException {
+        List<String> flights = Json.elements(BookingHttpServer.readBody(exchange));
+        List<List<String>> parts = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) parts.add(new ArrayList<>());
+        long rejected = 0;
+        for (String flight : flights) {
+            String flightNumber = Json.stringField(flight, "flightNumber");
+            if (flightNumber == null || flightNumber.isBlank()) rejected++;
+            else parts.get(nodeFor(flightNumber)).add(flight);
+        }
+
+        List<CompletableFuture<HttpResponse<byte[]>>> calls = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) {
+            byte[] part = ("[" + String.join(",", parts.get(node)) + "]").getBytes(StandardCharsets.UTF_8);
+            calls.add(parts.get(node).isEmpty() ? null : call(node, exchange, part));
+        }
+        long imported = 0;
+        boolean complete = true;
+        for (int node = 0; node < nodes.size(); node++) {
+            if (calls.get(node) == null) continue;
+            HttpResponse<byte[]> response;
+            try {
+                response = calls.get(node).join();
+            } catch (CompletionException e) {
+                unavailable(exchange, node, e);
+                return;
+            }
+            Map<String, String> result = Json.parseObject(new String(response.body(), StandardCharsets.UTF_8));
+            imported += Long.parseLong(result.getOrDefault("imported", "0"));
+            rejected += Long.parseLong(result.getOrDefault("rejected", "0"));
+            complete &= Boolean.parseBoolean(result.get("complete"));
+        }
+        BookingHttpServer.send(exchange, complete ? 200 : 400,
+                "{\"imported\":" + imported + ",\"rejected\":" + rejected + ",\"complete\":" + complete + "}");
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> call(int node, HttpExchange exchange, byte[] body) {
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        URI target = URI.create(nodes.get(node) + exchange.getRequestURI().getRawPath() + (rawQuery == null ? "" : "?" + rawQuery));
+        HttpRequest.Builder request = HttpRequest.newBuilder(target).timeout(TIMEOUT)
+                .method(exchange.getRequestMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        if (body.length > 0) request.header("Content-Type", "application/json");
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static void relay(HttpExchange exchange, HttpResponse<byte[]> response) throws IOException {
+        byte[] bytes = response.body();
+        exchange.getResponseHeaders().set("Content-Type",
+                response.headers().firstValue("Content-Type").orElse("application/json; charset=utf-8"));
+        exchange.sendResponseHeaders(response.statusCode(), bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void unavailable(HttpExchange exchange, int node, CompletionException e) throws IOException {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        BookingHttpServer.send(exchange, 502, Json.error("Node " + node + " (" + nodes.get(node) + ") unavailable: " + cause));
+    }
+}
@@ -0,0 +1,138 @@
+package main.airline.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV support for schedule files: a field writer and a
+ * streaming record reader. Fields containing commas, quotes or line breaks
+ * are quoted, with embedded quotes doubled.
+ */
+public class Csv {
+    private static final int BUFFER_CHARS = 8192;
+
+    private Csv() { }
+
+    /** Appends {@code value} as one field, quoted if needed; null is written as an empty field. */
+    static void appendField(StringBuilder sb, String value) {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /** Reads one record at a time, so arbitrarily long files are parsed in constant memory. */
+    public static class RecordReader implements Closeable {
+        private final java.io.Reader source;
+        private final char[] buffer = new char[BUFFER_CHARS];
+        private int index;
+        private int limit;
+        private long line = 1;
+        private long recordLine;
+
+        public RecordReader(java.io.Reader source) {
+            this.source = source;
+        }
+
+        /**
+         * The next record's fields, or null at the end of the input. Blank
+         * lines are skipped; a quoted field may span lines.
+         */
+        public List<String> next() throws IOException {
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                endOfLine(c);
+                c = read();
+            }
+            if (c < 0) return null;
+            recordLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder(32);
+            while (true) {
+                if (c == '"' && field.length() == 0) {
+                    readQuoted(field);
+                    c = read();
+                    continue;
+                }
+                if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c < 0) {
+                    if (c >= 0) endOfLine(c);
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        /** Line number on which the last record returned by {@link #next} started. */
+        public long getLine() {
+            return recordLine;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        private void readQuoted(StringBuilder field) throws IOException {
+            long start = line;
+            while (true) {
+                int c = read();
+                if (c < 0) throw new IOException("Unterminated quoted field starting on line " + start);
+                if (c == '"') {
+                    if (peek() != '"') return;
+                    read();
+                } else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                    line++;
+                }
+                field.append((char) c);
+            }
+        }
+
+        // Consumes the rest of a line break that started with c
+        private void endOfLine(int c) throws IOException {
+            if (c == '\r' && peek() == '\n') read();
+            line++;
+        }
+
+        private int read() throws IOException {
+            if (index == limit && !fill()) return -1;
+            return buffer[index++];
+        }
+
+        private int peek() throws IOException {
+            if (index == limit && !fill()) return -1;
+            return buffer[index];
+        }
+
+        private boolean fill() throws IOException {
+            int read;
+            do {
+                read = source.read(buffer);
+            } while (read == 0);
+            index = 0;
+            limit = Math.max(0, read);
+            return limit > 0;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package main.airline.api;
+
+import main.airline.models.ChangeEvent;
+import main.airline.models.Flight;
+import main.airline.models.Itinerary;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP API and schedule files: writers for the
+ * models, a flat-object reader, and a streaming reader for long sequences of
+ * flat objects.
+ */
+public class Json {
+    private static final int BUFFER_CHARS = 8192;
+
+    private Json() { }
+
+    public static String flight(Flight f) {
+        StringBuilder sb = new StringBuilder(192);
+        appendFlight(sb, f);
+        return sb.toString();
+    }
+
+    public static String flights(List<Flight> flights) {
+        StringBuilder sb = new StringBuilder(64 + flights.size() * 192).append('[');
+        for (int i = 0; i < flights.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendFlight(sb, flights.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String reservation(Reservation r) {
+        StringBuilder sb = new StringBuilder(192);
+        appendReservation(sb, r);
+        return sb.toString();
+    }
+
+    /** A newly placed hold, with the time it expires unless confirmed. */
+    public static String hold(Reservation r, LocalDateTime expiresAt) {
+        StringBuilder sb = new StringBuilder(256);
+        appendReservation(sb, r);
+        sb.setLength(sb.length() - 1);
+        sb.append(",\"holdExpiresAt\":");
+        appendString(sb, expiresAt != null ? expiresAt.toString() : null);
+        return sb.append('}').toString();
+    }
+
+    public static String reservations(List<Reservation> reservations) {
+        StringBuilder sb = new StringBuilder(64 + reservations.size() * 192).append('[');
+        for (int i = 0; i < reservations.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendReservation(sb, reservations.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String waitlistEntry(WaitlistEntry e) {
+        StringBuilder sb = new StringBuilder(192);
+        appendWaitlistEntry(sb, e);
+        return sb.toString();
+    }
+
+    public static String waitlist(List<WaitlistEntry> entries) {
+        StringBuilder sb = new StringBuilder(64 + entries.size() * 192).append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendWaitlistEntry(sb, entries.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String itineraries(List<Itinerary> itineraries) {
+        StringBuilder sb = new StringBuilder(64 + itineraries.size() * 512).append('[');
+        for (int i = 0; i < itineraries.size(); i++) {
+            Itinerary itinerary = itineraries.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"stops\":").append(itinerary.getStops());
+            sb.append(",\"durationMinutes\":").append(itinerary.getDuration().toMinutes());
+            sb.append(",\"price\":").append(itinerary.getPrice());
+            sb.append(",\"legs\":[");
+            List<Flight> legs = itinerary.getLegs();
+            for (int j = 0; j < legs.size(); j++) {
+                if (j > 0) sb.append(',');
+                appendFlight(sb, legs.get(j));
+            }
+            sb.append("]}");
+        }
+        return sb.append(']').toString();
+    }
+
+    /** A batch of change events as newline-delimited JSON, one object per line. */
+    public static String changeEvents(List<ChangeEvent> events) {
+        StringBuilder sb = new StringBuilder(events.size() * 320);
+        for (ChangeEvent event : events) {
+            appendChangeEvent(sb, event);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Typeahead matches; a null list is left out. */
+    public static String suggestions(List<String> airports, List<String> flightNumbers, List<Passenger> passengers) {
+        StringBuilder sb = new StringBuilder(256).append('{');
+        if (airports != null) appendStrings(sb.append("\"airports\":"), airports);
+        if (flightNumbers != null) {
+            if (sb.length() > 1) sb.append(',');
+            appendStrings(sb.append("\"flights\":"), flightNumbers);
+        }
+        if (passengers != null) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("\"passengers\":[");
+            for (int i = 0; i < passengers.size(); i++) {
+                Passenger p = passengers.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"passengerId\":");
+                appendString(sb, p.getId());
+                sb.append(",\"name\":");
+                appendString(sb, p.getName());
+                sb.append(",\"email\":");
+                appendString(sb, p.getEmail());
+                sb.append('}');
+            }
+            sb.append(']');
+        }
+        return sb.append('}').toString();
+    }
+
+    public static String importResult(ScheduleImporter.Result result) {
+        return "{\"imported\":" + result.getImported() + ",\"rejected\":" + result.getRejected()
+                + ",\"complete\":" + result.isComplete() + "}";
+    }
+
+    public static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        appendString(sb, message);
+        return sb.append('}').toString();
+    }
+
+    static void appendFlight(StringBuilder sb, Flight f) {
+        sb.append("{\"flightNumber\":");
+        appendString(sb, f.getFlightNumber());
+        sb.append(",\"origin\":");
+        appendString(sb, f.getOrigin());
+        sb.append(",\"destination\":");
+        appendString(sb, f.getDestination());
+        sb.append(",\"departureTime\":");
+        appendString(sb, f.getDepartureTime() != null ? f.getDepartureTime().toString() : null);
+        sb.append(",\"arrivalTime\":");
+        appendString(sb, f.getArrivalTime() != null ? f.getArrivalTime().toString() : null);
+        sb.append(",\"totalSeats\":").append(f.getTotalSeats());
+        sb.append(",\"availableSeats\":").append(f.getAvailableSeats());
+        sb.append(",\"price\":").append(f.getPrice()).append('}');
+    }
+
+    static void appendChangeEvent(StringBuilder sb, ChangeEvent e) {
+        sb.append("{\"sequence\":").append(e.getSequence());
+        sb.append(",\"type\":");
+        appendString(sb, e.getType().name());
+        sb.append(",\"time\":");
+        appendString(sb, e.getTime().toString());
+        sb.append(",\"flightNumber\":");
+        appendString(sb, e.getFlightNumber());
+        Reservation reservation = e.getReservation();
+        Flight flight = reservation == null ? e.getFlight() : null;
+        if (reservation != null) {
+            sb.append(",\"reservation\":");
+            appendReservation(sb, reservation);
+        } else if (flight != null && e.getType() != ChangeEvent.Type.FLIGHT_DELETED) {
+            sb.append(",\"flight\":");
+            appendFlight(sb, flight);
+        }
+        sb.append('}');
+    }
+
+    static void appendWaitlistEntry(StringBuilder sb, WaitlistEntry e) {
+        sb.append("{\"waitlistId\":");
+        appendString(sb, e.getEntryId());
+        sb.append(",\"flightNumber\":");
+        appendString(sb, e.getFlightNumber());
+        sb.append(",\"passengerId\":");
+        appendString(sb, e.getPassenger() != null ? e.getPassenger().getId() : null);
+        sb.append(",\"seats\":").append(e.getSeats());
+        sb.append(",\"fareClass\":");
+        appendString(sb, e.getFareClass().name());
+        sb.append(",\"requestedAt\":");
+        appendString(sb, e.getRequestedAt().toString());
+        sb.append(",\"status\":");
+        appendString(sb, e.getStatus().name());
+        sb.append(",\"reservationId\":");
+        appendString(sb, e.getReservationId());
+        sb.append('}');
+    }
+
+    static void appendReservation(StringBuilder sb, Reservation r) {
+        sb.append("{\"reservationId\":");
+        appendString(sb, r.getReservationId());
+        sb.append(",\"flightNumber\":");
+        appendString(sb, r.getFlight() != null ? r.getFlight().getFlightNumber() : null);
+        sb.append(",\"passengerId\":");
+        appendString(sb, r.getPassenger() != null ? r.getPassenger().getId() : null);
+        sb.append(",\"passengerName\":");
+        appendString(sb, r.getPassenger() != null ? r.getPassenger().getName() : null);
+        sb.append(",\"seats\":").append(r.getSeats());
+        sb.append(",\"seatNumbers\":[");
+        List<String> seatNumbers = r.getSeatNumbers();
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendString(sb, seatNumbers.get(i));
+        }
+        sb.append(']');
+        sb.append(",\"confirmed\":").append(r.isConfirmed());
+        sb.append(",\"held\":").append(r.isHeld());
+        sb.append(",\"cancelled\":").append(r.isCancelled()).append('}');
+    }
+
+    private static void appendStrings(StringBuilder sb, List<String> values) {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendString(sb, values.get(i));
+        }
+        sb.append(']');
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * The top-level elements of a JSON array, as raw text, so responses can be
+     * merged without rebuilding their objects.
+     */
+    public static List<String> elements(String array) {
+        List<String> elements = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        boolean inString = false;
+        for (int i = 0; i < array.length(); i++) {
+            char c = array.charAt(i);
+            if (inString) {
+                if (c == '\\') i++;
+                else if (c == '"') inString = false;
+                continue;
+            }
+            if (depth == 1 && start < 0 && c != ',' && c != ']' && !Character.isWhitespace(c)) start = i;
+            switch (c) {
+                case '"' -> inString = true;
+                case '[', '{' -> depth++;
+                case ']', '}' -> {
+                    if (--depth == 0 && start >= 0) {
+                        elements.add(array.substring(start, i).trim());
+                        start = -1;
+                    }
+                }
+                case ',' -> {
+                    if (depth == 1 && start >= 0) {
+                        elements.add(array.substring(start, i).trim());
+                        start = -1;
+                    }
+                }
+                default -> { }
+            }
+        }
+        return elements;
+    }
+
+    /** A top-level string field of a raw JSON object, unescaped; null if it is absent or not a string. */
+    public static String stringField(String object, String name) {
+        int depth = 0;
+        for (int i = 0; i < object.length(); i++) {
+            char c = object.charAt(i);
+            if (c == '{' || c == '[') depth++;
+            else if (c == '}' || c == ']') depth--;
+            else if (c == '"') {
+                int end = endOfString(object, i);
+                if (depth == 1) {
+                    int colon = skipSpace(object, end + 1);
+                    if (colon < object.length() && object.charAt(colon) == ':') {
+                        int value = skipSpace(object, colon + 1);
+                        if (object.substring(i + 1, end).equals(name)) {
+                            return value < object.length() && object.charAt(value) == '"'
+                                    ? unescape(object.substring(value + 1, endOfString(object, value))) : null;
+                        }
+                    }
+                }
+                i = end;
+            }
+        }
+        return null;
+    }
+
+    // Index of the quote closing the string that opens at start
+    private static int endOfString(String text, int start) {
+        for (int i = start + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') i++;
+            else if (c == '"') return i;
+        }
+        return text.length();
+    }
+
+    private static int skipSpace(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static String unescape(String raw) {
+        if (raw.indexOf('\\') < 0) return raw;
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 == raw.length()) {
+                sb.append(c);
+                continue;
+            }
+            char e = raw.charAt(++i);
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (i + 4 < raw.length()) {
+                        sb.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                }
+                default -> sb.append(e);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses a flat JSON object of string, number, boolean or null values into
+     * their string forms. Nested objects and arrays are rejected.
+     */
+    public static Map<String, String> parseObject(String json) {
+        return readObject(new Reader(new StringReader(json), Math.max(1, Math.min(json.length(), BUFFER_CHARS))));
+    }
+
+    /**
+     * Reads flat objects one at a time from a stream holding either a JSON
+     * array of them or a sequence of them (e.g. one per line), so arbitrarily
+     * long inputs are parsed in constant memory.
+     */
+    public static class ObjectReader implements Closeable {
+        private final Reader in;
+        private final java.io.Reader source;
+        private boolean started;
+        private boolean inArray;
+        private boolean done;
+
+        public ObjectReader(java.io.Reader source) {
+            this.source = source;
+            this.in = new Reader(source, BUFFER_CHARS);
+        }
+
+        /**
+         * The next object, or null at the end of the input. Malformed input
+         * throws {@link IllegalArgumentException}, I/O errors
+         * {@link UncheckedIOException}.
+         */
+        public Map<String, String> next() {
+            if (done) return null;
+            in.skipWhitespace();
+            if (!started) {
+                started = true;
+                if (!in.atEnd() && in.peek() == '[') {
+                    in.next();
+                    inArray = true;
+                    in.skipWhitespace();
+                    if (in.peek() == ']') done = true;
+                }
+            } else if (inArray) {
+                char c = in.next();
+                if (c == ']') done = true;
+                else if (c != ',') throw new IllegalArgumentException("Expected ',' or ']' at " + (in.pos - 1));
+                in.skipWhitespace();
+            }
+            if (done || (!inArray && in.atEnd())) {
+                done = true;
+                return null;
+            }
+            return readObject(in);
+        }
+
+        /** Characters consumed so far, for locating errors. */
+        public long position() {
+            return in.pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    private static Map<String, String> readObject(Reader in) {
+        Map<String, String> result = new HashMap<>();
+        in.skipWhitespace();
+        in.expect('{');
+        in.skipWhitespace();
+        if (in.peek() == '}') {
+            in.next();
+            return result;
+        }
+        while (true) {
+            in.skipWhitespace();
+            String key = in.readString();
+            in.skipWhitespace();
+            in.expect(':');
+            in.skipWhitespace();
+            result.put(key, in.readValue());
+            in.skipWhitespace();
+            char c = in.next();
+            if (c == '}') return result;
+            if (c != ',') throw new IllegalArgumentException("Expected ',' or '}' at " + (in.pos - 1));
+        }
+    }
+
+    // Buffered character source; pos counts characters consumed, for error messages
+    private static class Reader {
+        private final java.io.Reader source;
+        private final char[] buffer;
+        private int index;
+        private int limit;
+        private long pos;
+
+        Reader(java.io.Reader source, int bufferChars) {
+            this.source = source;
+            this.buffer = new char[bufferChars];
+        }
+
+        boolean atEnd() {
+            if (index < limit) return false;
+            try {
+                int read;
+                do {
+                    read = source.read(buffer);
+                } while (read == 0);
+                index = 0;
+                limit = Math.max(0, read);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return limit == 0;
+        }
+
+        char peek() {
+            if (atEnd()) throw new IllegalArgumentException("Unexpected end of JSON");
+            return buffer[index];
+        }
+
+        char next() {
+            char c = peek();
+            index++;
+            pos++;
+            return c;
+        }
+
+        void expect(char c) {
+            if (next() != c) throw new IllegalArgumentException("Expected '" + c + "' at " + (pos - 1));
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(buffer[index])) {
+                index++;
+                pos++;
+            }
+        }
+
+        String readValue() {
+            char c = peek();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') throw new IllegalArgumentException("Nested values are not supported");
+            StringBuilder sb = new StringBuilder(16);
+            while (!atEnd() && ",}".indexOf(buffer[index]) < 0 && !Character.isWhitespace(buffer[index])) sb.append(next());
+            String literal = sb.toString();
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0) throw new IllegalArgumentException("Bad unicode escape at " + (pos - 1));
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                    }
+                    default -> sb.append(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package main.airline.api;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the schedule and flight manifests as CSV or JSON. Records are
+ * written one at a time as they are visited, so the schedule is never copied
+ * and memory use does not grow with the number of flights.
+ *
+ * Flight exports use the same fields as {@link ScheduleImporter} (plus
+ * availableSeats), so an exported schedule can be imported again.
+ */
+public class ScheduleExporter {
+    private static final String FLIGHT_HEADER =
+            "flightNumber,origin,destination,departureTime,arrivalTime,totalSeats,availableSeats,price";
+    private static final String MANIFEST_HEADER =
+            "reservationId,flightNumber,passengerId,passengerName,passengerEmail,passengerPhone,"
+                    + "seats,seatNumbers,confirmed,held,cancelled";
+
+    private final FlightService flightService;
+    private final ReservationService reservationService;
+
+    public ScheduleExporter(FlightService flightService, ReservationService reservationService) {
+        this.flightService = flightService;
+        this.reservationService = reservationService;
+    }
+
+    /** Writes every flight to a UTF-8 file, as JSON if its name ends in .json, .jsonl or .ndjson, CSV otherwise. Returns the count, or -1 on error. */
+    public long exportFlights(Path path) {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            return ScheduleImporter.isJson(path) ? writeFlightsJson(out) : writeFlightsCsv(out);
+        } catch (IOException e) {
+            System.err.println("Error exporting flights to " + path + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** Writes a flight's manifest (every reservation, including cancelled ones) to a file; returns the count, or -1 on error. */
+    public long exportManifest(String flightNumber, Path path) {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            return ScheduleImporter.isJson(path) ? writeManifestJson(flightNumber, out) : writeManifestCsv(flightNumber, out);
+        } catch (IOException e) {
+            System.err.println("Error exporting manifest to " + path + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public long writeFlightsCsv(Writer writer) throws IOException {
+        Writer out = buffered(writer);
+        out.write(FLIGHT_HEADER);
+        out.write('\n');
+        StringBuilder sb = new StringBuilder(192);
+        long[] count = new long[1];
+        forEachFlight(flight -> {
+            sb.setLength(0);
+            Csv.appendField(sb, flight.getFlightNumber());
+            sb.append(',');
+            Csv.appendField(sb, flight.getOrigin());
+            sb.append(',');
+            Csv.appendField(sb, flight.getDestination());
+            sb.append(',');
+            if (flight.getDepartureTime() != null) sb.append(flight.getDepartureTime());
+            sb.append(',');
+            if (flight.getArrivalTime() != null) sb.append(flight.getArrivalTime());
+            sb.append(',').append(flight.getTotalSeats());
+            sb.append(',').append(flight.getAvailableSeats());
+            sb.append(',').append(flight.getPrice()).append('\n');
+            out.append(sb);
+            count[0]++;
+        });
+        out.flush();
+        return count[0];
+    }
+
+    /** Writes the flights as a JSON array, one object per line. */
+    public long writeFlightsJson(Writer writer) throws IOException {
+        Writer out = buffered(writer);
+        out.write('[');
+        StringBuilder sb = new StringBuilder(192);
+        long[] count = new long[1];
+        forEachFlight(flight -> {
+            sb.setLength(0);
+            sb.append(count[0] == 0 ? "\n" : ",\n");
+            Json.appendFlight(sb, flight);
+            out.append(sb);
+            count[0]++;
+        });
+        out.write("\n]\n");
+        out.flush();
+        return count[0];
+    }
+
+    public long writeManifestCsv(String flightNumber, Writer writer) throws IOException {
+        Writer out = buffered(writer);
+        out.write(MANIFEST_HEADER);
+        out.write('\n');
+        StringBuilder sb = new StringBuilder(256);
+        List<Reservation> manifest = reservationService.getReservationsByFlight(flightNumber);
+        for (Reservation reservation : manifest) {
+            Passenger passenger = reservation.getPassenger();
+            sb.setLength(0);
+            Csv.appendField(sb, reservation.getReservationId());
+            sb.append(',');
+            Csv.appendField(sb, reservation.getFlight() != null ? reservation.getFlight().getFlightNumber() : null);
+            sb.append(',');
+            Csv.appendField(sb, passenger != null ? passenger.getId() : null);
+            sb.append(',');
+            Csv.appendField(sb, passenger != null ? passenger.getName() : null);
+            sb.append(',');
+            Csv.appendField(sb, passenger != null ? passenger.getEmail() : null);
+            sb.append(',');
+            Csv.appendField(sb, passenger != null ? passenger.getPhone() : null);
+            sb.append(',').append(reservation.getSeats()).append(',');
+            Csv.appendField(sb, String.join(" ", reservation.getSeatNumbers()));
+            sb.append(',').append(reservation.isConfirmed());
+            sb.append(',').append(reservation.isHeld());
+            sb.append(',').append(reservation.isCancelled()).append('\n');
+            out.append(sb);
+        }
+        out.flush();
+        return manifest.size();
+    }
+
+    /** Writes the manifest as a JSON array, one reservation per line. */
+    public long writeManifestJson(String flightNumber, Writer writer) throws IOException {
+        Writer out = buffered(writer);
+        out.write('[');
+        StringBuilder sb = new StringBuilder(256);
+        List<Reservation> manifest = reservationService.getReservationsByFlight(flightNumber);
+        for (int i = 0; i < manifest.size(); i++) {
+            sb.setLength(0);
+            sb.append(i == 0 ? "\n" : ",\n");
+            Json.appendReservation(sb, manifest.get(i));
+            out.append(sb);
+        }
+        out.write("\n]\n");
+        out.flush();
+        return manifest.size();
+    }
+
+    private interface FlightWriter {
+        void write(Flight flight) throws IOException;
+    }
+
+    // Streams the schedule straight from the flight index; I/O errors end the walk
+    private void forEachFlight(FlightWriter writer) throws IOException {
+        try {
+            flightService.forEachFlight(flight -> {
+                try {
+                    writer.write(flight);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Writer buffered(Writer writer) {
+        return writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+}
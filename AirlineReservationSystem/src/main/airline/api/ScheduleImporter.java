@@ -0,0 +1,224 @@
+package main.airline.api;
+
+import main.airline.models.Flight;
+import main.airline.services.FlightService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk loader for schedule files. Rows are parsed one at a time and handed to
+ * {@link FlightService#addFlights} in batches, so a file of any size is loaded
+ * in constant memory and each batch is persisted with a single durable write.
+ *
+ * CSV files need a header row; JSON files hold an array of flat objects, or
+ * one object per line. Both use the field names of the JSON API:
+ * flightNumber, origin, destination, departureTime, arrivalTime (ISO-8601
+ * local date-times), totalSeats and price. Names are matched ignoring case
+ * and underscores, and other fields (such as availableSeats in an export) are
+ * ignored. A flight replaces any existing flight with the same number.
+ */
+public class ScheduleImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    // Only the first few bad rows are reported individually
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final String[] REQUIRED_FIELDS = {
+            "flightNumber", "origin", "destination", "departureTime", "arrivalTime", "totalSeats", "price"
+    };
+
+    /** Outcome of an import. */
+    public static class Result {
+        private final long imported;
+        private final long rejected;
+        private final boolean complete;
+
+        Result(long imported, long rejected, boolean complete) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.complete = complete;
+        }
+
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+
+        /** False if reading stopped early; the flights imported before that point are kept. */
+        public boolean isComplete() { return complete; }
+
+        @Override
+        public String toString() {
+            return imported + " flights imported, " + rejected + " rows rejected"
+                    + (complete ? "" : " (import stopped early)");
+        }
+    }
+
+    private final FlightService flightService;
+    private final int batchSize;
+
+    public ScheduleImporter(FlightService flightService) {
+        this(flightService, DEFAULT_BATCH_SIZE);
+    }
+
+    public ScheduleImporter(FlightService flightService, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be greater than 0");
+        this.flightService = flightService;
+        this.batchSize = batchSize;
+    }
+
+    /** Imports a UTF-8 file: JSON if its name ends in .json, .jsonl or .ndjson, CSV otherwise. */
+    public Result importFile(Path path) {
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return isJson(path) ? importJson(in) : importCsv(in);
+        } catch (IOException e) {
+            System.err.println("Error reading schedule file " + path + ": " + e.getMessage());
+            return new Result(0, 0, false);
+        }
+    }
+
+    public Result importCsv(Reader source) {
+        Batch batch = new Batch();
+        Csv.RecordReader in = new Csv.RecordReader(source);
+        try {
+            List<String> header = in.next();
+            if (header == null) return batch.finish(true);
+            String[] names = new String[header.size()];
+            for (int i = 0; i < names.length; i++) {
+                String name = header.get(i);
+                // Drop a UTF-8 byte order mark left on the first column name
+                if (i == 0 && name.startsWith("\uFEFF")) name = name.substring(1);
+                names[i] = fieldKey(name);
+            }
+            for (String required : REQUIRED_FIELDS) {
+                if (!List.of(names).contains(fieldKey(required))) {
+                    System.err.println("Schedule file is missing the " + required + " column");
+                    return batch.finish(false);
+                }
+            }
+
+            Map<String, String> row = new HashMap<>();
+            List<String> fields;
+            while ((fields = in.next()) != null) {
+                row.clear();
+                for (int i = 0; i < names.length && i < fields.size(); i++) row.put(names[i], fields.get(i));
+                batch.add(row, "line " + in.getLine());
+            }
+            return batch.finish(true);
+        } catch (IOException e) {
+            System.err.println("Error reading schedule: " + e.getMessage());
+            return batch.finish(false);
+        }
+    }
+
+    public Result importJson(Reader source) {
+        Batch batch = new Batch();
+        Json.ObjectReader in = new Json.ObjectReader(source);
+        try {
+            long record = 0;
+            Map<String, String> object;
+            while ((object = in.next()) != null) {
+                Map<String, String> row = new HashMap<>();
+                for (Map.Entry<String, String> field : object.entrySet()) row.put(fieldKey(field.getKey()), field.getValue());
+                batch.add(row, "record " + ++record);
+            }
+            return batch.finish(true);
+        } catch (IllegalArgumentException e) {
+            // A JSON syntax error leaves no safe place to resume from
+            System.err.println("Malformed schedule JSON near character " + in.position() + ": " + e.getMessage());
+            return batch.finish(false);
+        } catch (UncheckedIOException e) {
+            System.err.println("Error reading schedule: " + e.getCause().getMessage());
+            return batch.finish(false);
+        }
+    }
+
+    static boolean isJson(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    private static String fieldKey(String name) {
+        return name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /** Parses one row; throws IllegalArgumentException naming the bad field. */
+    private static Flight toFlight(Map<String, String> row) {
+        String flightNumber = text(row, "flightNumber");
+        if (flightNumber.isEmpty()) throw new IllegalArgumentException("flightNumber is empty");
+        LocalDateTime departure = time(row, "departureTime");
+        LocalDateTime arrival = time(row, "arrivalTime");
+        if (arrival.isBefore(departure)) throw new IllegalArgumentException("arrivalTime is before departureTime");
+        int totalSeats;
+        double price;
+        try {
+            totalSeats = Integer.parseInt(text(row, "totalSeats"));
+            price = Double.parseDouble(text(row, "price"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad number: " + e.getMessage());
+        }
+        if (totalSeats < 0) throw new IllegalArgumentException("totalSeats is negative");
+        if (!(price >= 0)) throw new IllegalArgumentException("price is negative or not a number");
+        return new Flight(flightNumber, text(row, "origin"), text(row, "destination"), departure, arrival, totalSeats, price);
+    }
+
+    private static String text(Map<String, String> row, String field) {
+        String value = row.get(fieldKey(field));
+        if (value == null) throw new IllegalArgumentException("missing " + field);
+        return value.trim();
+    }
+
+    private static LocalDateTime time(Map<String, String> row, String field) {
+        try {
+            // Accept "2024-05-01 08:30" as well as the ISO "2024-05-01T08:30"
+            return LocalDateTime.parse(text(row, field).replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("bad " + field + " '" + row.get(fieldKey(field)) + "'");
+        }
+    }
+
+    // Accumulates parsed flights and hands them to the flight service batchSize at a time
+    private final class Batch {
+        private List<Flight> flights = new ArrayList<>(batchSize);
+        private long imported;
+        private long rejected;
+
+        void add(Map<String, String> row, String where) {
+            Flight flight;
+            try {
+                flight = toFlight(row);
+            } catch (IllegalArgumentException e) {
+                if (rejected++ < MAX_REPORTED_ERRORS) System.err.println("Skipping schedule " + where + ": " + e.getMessage());
+                return;
+            }
+            flights.add(flight);
+            if (flights.size() >= batchSize) flush();
+        }
+
+        Result finish(boolean complete) {
+            flush();
+            if (rejected > MAX_REPORTED_ERRORS) {
+                System.err.println((rejected - MAX_REPORTED_ERRORS) + " more schedule rows skipped");
+            }
+            return new Result(imported, rejected, complete);
+        }
+
+        private void flush() {
+            if (flights.isEmpty()) return;
+            int added = flightService.addFlights(flights);
+            imported += added;
+            // Rows that would shrink a flight below the seats already sold on it
+            rejected += flights.size() - added;
+            // The change log may still refer to the last batch, so start a fresh list
+            flights = new ArrayList<>(batchSize);
+        }
+    }
+}
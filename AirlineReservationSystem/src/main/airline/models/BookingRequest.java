@@ -0,0 +1,21 @@
+package main.airline.models;
+
+/** One passenger's part of a group booking: which flight and how many seats. */
+public class BookingRequest {
+    private final Flight flight;
+    private final Passenger passenger;
+    private final int seats;
+
+    public BookingRequest(Flight flight, Passenger passenger, int seats) {
+        this.flight = flight; this.passenger = passenger; this.seats = seats;
+    }
+
+    public Flight getFlight() { return flight; }
+    public Passenger getPassenger() { return passenger; }
+    public int getSeats() { return seats; }
+
+    @Override public String toString() {
+        return "BookingRequest{flight=" + (flight != null ? flight.getFlightNumber() : "N/A") +
+                ", passenger=" + (passenger != null ? passenger.getId() : "N/A") + ", seats=" + seats + "}";
+    }
+}
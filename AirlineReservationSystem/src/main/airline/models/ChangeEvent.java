@@ -0,0 +1,71 @@
+package main.airline.models;
+
+import java.time.Instant;
+
+/**
+ * One change to the schedule or the bookings, as published on the change
+ * feed. Sequence numbers count up from 0 in the order the changes were
+ * published and restart with the process; a consumer that sees a gap has
+ * missed events.
+ *
+ * An event does not change once made: it takes one read-only snapshot of the
+ * flight or reservation as it was when published, since the live objects
+ * keep changing (seat counts, a later cancellation). The getters return that
+ * snapshot itself; it cannot be modified, so every subscriber sees the same.
+ */
+public class ChangeEvent {
+    public enum Type {
+        /** A reservation was made, confirmed or as a hold; see {@link Reservation#isHeld()}. */
+        BOOKED,
+        /** A hold was confirmed. */
+        CONFIRMED,
+        /** A reservation was cancelled, or a hold expired; its seats are back on sale. */
+        CANCELLED,
+        /** A flight was added or replaced. */
+        FLIGHT_UPDATED,
+        FLIGHT_DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Instant time;
+    private final String flightNumber;
+    // Snapshot of the flight as changed, or as it was before a deletion; null for booking events
+    private final Flight flight;
+    // Snapshot of the reservation as changed, with its flight and passenger; null for flight events
+    private final Reservation reservation;
+
+    /** Takes snapshots of {@code flight} and {@code reservation} as they are now. */
+    public ChangeEvent(long sequence, Type type, Instant time, String flightNumber, Flight flight, Reservation reservation) {
+        this.sequence = sequence;
+        this.type = type;
+        this.time = time;
+        this.flightNumber = flightNumber;
+        this.flight = flight != null ? flight.snapshot() : null;
+        this.reservation = snapshot(reservation);
+    }
+
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public Instant getTime() { return time; }
+    public String getFlightNumber() { return flightNumber; }
+    /** The flight as it was when the event was published; read-only. */
+    public Flight getFlight() { return flight; }
+    /** The reservation, with its flight and passenger, as it was when the event was published; read-only. */
+    public Reservation getReservation() { return reservation; }
+
+    private static Reservation snapshot(Reservation reservation) {
+        if (reservation == null) return null;
+        Flight flight = reservation.getFlight();
+        Passenger passenger = reservation.getPassenger();
+        return Reservation.readOnly(reservation.getReservationId(), flight != null ? flight.snapshot() : null,
+                passenger != null ? passenger.snapshot() : null, reservation.getSeats(), reservation.getSeatNumbers(),
+                reservation.isConfirmed(), reservation.isCancelled(), reservation.wasHeld());
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + flightNumber
+                + (reservation != null ? " " + reservation.getReservationId() : "");
+    }
+}
@@ -0,0 +1,18 @@
+package main.airline.models;
+
+import java.util.Locale;
+
+/** Fare classes, highest first; waitlisted requests are promoted in this order. */
+public enum FareClass {
+    FIRST, BUSINESS, PREMIUM_ECONOMY, ECONOMY;
+
+    /** Parses a name such as "business" or "Premium Economy"; blank means ECONOMY. */
+    public static FareClass parse(String name) {
+        if (name == null || name.isBlank()) return ECONOMY;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown fare class: " + name);
+        }
+    }
+}
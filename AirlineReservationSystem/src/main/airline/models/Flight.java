@@ -1,57 +1,200 @@
 package main.airline.models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import main.airline.utils.Metrics;
+import main.airline.utils.SymbolTable;
+
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+/**
+ * A scheduled flight. Airports are interned, so every flight from the same
+ * airport shares one name, and times are kept as whole minutes since
+ * 1970-01-01T00:00; the getters rebuild the usual values.
+ */
 public class Flight implements Serializable {
     private static final long serialVersionUID = 1L;
+    // The serialized form still has the original fields; see writeObject/readObject
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("flightNumber", String.class),
+            new ObjectStreamField("origin", String.class),
+            new ObjectStreamField("destination", String.class),
+            new ObjectStreamField("departureTime", LocalDateTime.class),
+            new ObjectStreamField("arrivalTime", LocalDateTime.class),
+            new ObjectStreamField("totalSeats", int.class),
+            new ObjectStreamField("availableSeats", int.class),
+            new ObjectStreamField("price", double.class),
+    };
+
+    /** The epoch minute of a missing time; it sorts after every real one. */
+    public static final int NO_TIME = Integer.MAX_VALUE;
+    private static final SymbolTable AIRPORTS = new SymbolTable();
+
+    // CAS access to availableSeats; keeps the field a plain int so the serialized form is unchanged
+    private static final AtomicIntegerFieldUpdater<Flight> AVAILABLE_SEATS =
+            AtomicIntegerFieldUpdater.newUpdater(Flight.class, "availableSeats");
+    private static final AtomicReferenceFieldUpdater<Flight, SeatMap> SEAT_MAP =
+            AtomicReferenceFieldUpdater.newUpdater(Flight.class, SeatMap.class, "seatMap");
 
     private String flightNumber;
-    private String origin;
-    private String destination;
-    private LocalDateTime departureTime;
-    private LocalDateTime arrivalTime;
+    // Codes in AIRPORTS
+    private int origin;
+    private int destination;
+    private int departureMinute;
+    private int arrivalMinute;
     private int totalSeats;
-    private int availableSeats;
+    private volatile int availableSeats;
     private double price;
+    // Built on first booking from the reservations; never serialized
+    private transient volatile SeatMap seatMap;
+    // Set on snapshots, e.g. in change events, which must look the same to every reader
+    private transient boolean readOnly;
 
     public Flight(String flightNumber, String origin, String destination,
                   LocalDateTime departureTime, LocalDateTime arrivalTime,
                   int totalSeats, double price) {
         this.flightNumber = flightNumber;
-        this.origin = origin;
-        this.destination = destination;
-        this.departureTime = departureTime;
-        this.arrivalTime = arrivalTime;
+        this.origin = AIRPORTS.code(origin);
+        this.destination = AIRPORTS.code(destination);
+        this.departureMinute = toEpochMinute(departureTime);
+        this.arrivalMinute = toEpochMinute(arrivalTime);
         this.totalSeats = totalSeats;
         this.availableSeats = totalSeats;
         this.price = price;
     }
 
+    private Flight(Flight source) {
+        this.flightNumber = source.flightNumber;
+        this.origin = source.origin;
+        this.destination = source.destination;
+        this.departureMinute = source.departureMinute;
+        this.arrivalMinute = source.arrivalMinute;
+        this.totalSeats = source.totalSeats;
+        this.availableSeats = source.availableSeats;
+        this.price = source.price;
+    }
+
+    /** A read-only copy of the flight as it is now, without its seat map; seat changes on it throw. */
+    public Flight snapshot() {
+        Flight copy = new Flight(this);
+        copy.readOnly = true;
+        return copy;
+    }
+
     public String getFlightNumber() { return flightNumber; }
-    public String getOrigin() { return origin; }
-    public String getDestination() { return destination; }
-    public LocalDateTime getDepartureTime() { return departureTime; }
-    public LocalDateTime getArrivalTime() { return arrivalTime; }
+    public String getOrigin() { return AIRPORTS.symbol(origin); }
+    public String getDestination() { return AIRPORTS.symbol(destination); }
+    public LocalDateTime getDepartureTime() { return fromEpochMinute(departureMinute); }
+    public LocalDateTime getArrivalTime() { return fromEpochMinute(arrivalMinute); }
+    /** Departure as minutes since 1970-01-01T00:00, or {@link #NO_TIME}; cheaper to compare than the time itself. */
+    public int getDepartureMinute() { return departureMinute; }
+    public int getArrivalMinute() { return arrivalMinute; }
     public int getTotalSeats() { return totalSeats; }
     public int getAvailableSeats() { return availableSeats; }
     public double getPrice() { return price; }
 
-    public void setAvailableSeats(int availableSeats) { this.availableSeats = availableSeats; }
+    public boolean isReadOnly() { return readOnly; }
+
+    public void setAvailableSeats(int availableSeats) {
+        checkWritable();
+        this.availableSeats = availableSeats;
+    }
+
+    /** The seat map, or null if none has been attached yet. */
+    public SeatMap getSeatMap() { return seatMap; }
+
+    /** Attaches {@code map} unless another map got there first; returns the map now in use. */
+    public SeatMap attachSeatMap(SeatMap map) {
+        checkWritable();
+        return SEAT_MAP.compareAndSet(this, null, map) ? map : seatMap;
+    }
+
+    /**
+     * Atomically takes {@code seats} seats from the inventory.
+     * Either all requested seats are reserved or none are.
+     */
+    public boolean tryReserve(int seats) {
+        checkWritable();
+        if (seats <= 0) return false;
+        while (true) {
+            int current = availableSeats;
+            if (current < seats) return false;
+            if (AVAILABLE_SEATS.compareAndSet(this, current, current - seats)) return true;
+            Metrics.SEAT_CONTENTION_RETRIES.increment();
+        }
+    }
+
+    /** Atomically returns {@code seats} seats to the inventory, never exceeding total capacity. */
+    public void release(int seats) {
+        checkWritable();
+        if (seats <= 0) return;
+        while (true) {
+            int current = availableSeats;
+            // Compared as a difference: current + seats can overflow for a huge release
+            int next = seats >= totalSeats - current ? totalSeats : current + seats;
+            if (next == current || AVAILABLE_SEATS.compareAndSet(this, current, next)) return;
+        }
+    }
 
     public boolean bookSeat() {
-        if (availableSeats > 0) { availableSeats--; return true; }
-        return false;
+        return tryReserve(1);
     }
 
     public void cancelSeat() {
-        if (availableSeats < totalSeats) { availableSeats++; }
+        release(1);
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("Flight " + flightNumber + " is a read-only snapshot");
+    }
+
+    /** Minutes since 1970-01-01T00:00 of {@code time}, dropping any seconds; {@link #NO_TIME} for null. */
+    public static int toEpochMinute(LocalDateTime time) {
+        if (time == null) return NO_TIME;
+        long minute = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+        if (minute < Integer.MIN_VALUE || minute >= NO_TIME) throw new IllegalArgumentException("Time out of range: " + time);
+        return (int) minute;
+    }
+
+    public static LocalDateTime fromEpochMinute(int minute) {
+        return minute == NO_TIME ? null : LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("flightNumber", flightNumber);
+        fields.put("origin", getOrigin());
+        fields.put("destination", getDestination());
+        fields.put("departureTime", getDepartureTime());
+        fields.put("arrivalTime", getArrivalTime());
+        fields.put("totalSeats", totalSeats);
+        fields.put("availableSeats", availableSeats);
+        fields.put("price", price);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        flightNumber = (String) fields.get("flightNumber", null);
+        origin = AIRPORTS.code((String) fields.get("origin", null));
+        destination = AIRPORTS.code((String) fields.get("destination", null));
+        departureMinute = toEpochMinute((LocalDateTime) fields.get("departureTime", null));
+        arrivalMinute = toEpochMinute((LocalDateTime) fields.get("arrivalTime", null));
+        totalSeats = fields.get("totalSeats", 0);
+        availableSeats = fields.get("availableSeats", 0);
+        price = fields.get("price", 0.0);
     }
 
     @Override
     public String toString() {
         return String.format("Flight %s: %s to %s | Dep: %s | Arr: %s | Seats: %d/%d | Price: $%.2f",
-                flightNumber, origin, destination, departureTime, arrivalTime,
+                flightNumber, getOrigin(), getDestination(), getDepartureTime(), getArrivalTime(),
                 availableSeats, totalSeats, price);
     }
 }
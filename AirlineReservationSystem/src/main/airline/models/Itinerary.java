@@ -0,0 +1,54 @@
+package main.airline.models;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/** One or more connecting flights from an origin to a destination. */
+public class Itinerary {
+    private final List<Flight> legs;
+
+    public Itinerary(List<Flight> legs) {
+        this.legs = Collections.unmodifiableList(legs);
+    }
+
+    public List<Flight> getLegs() { return legs; }
+    public int getStops() { return legs.size() - 1; }
+    public String getOrigin() { return legs.get(0).getOrigin(); }
+    public String getDestination() { return legs.get(legs.size() - 1).getDestination(); }
+    public LocalDateTime getDepartureTime() { return legs.get(0).getDepartureTime(); }
+    public LocalDateTime getArrivalTime() { return legs.get(legs.size() - 1).getArrivalTime(); }
+
+    public Duration getDuration() {
+        return Duration.between(getDepartureTime(), getArrivalTime());
+    }
+
+    public double getPrice() {
+        double total = 0;
+        for (Flight leg : legs) total += leg.getPrice();
+        return total;
+    }
+
+    /** Seats that can be booked on every leg. */
+    public int getAvailableSeats() {
+        int seats = Integer.MAX_VALUE;
+        for (Flight leg : legs) seats = Math.min(seats, leg.getAvailableSeats());
+        return seats;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder route = new StringBuilder(getOrigin());
+        StringBuilder flights = new StringBuilder();
+        for (Flight leg : legs) {
+            route.append(" -> ").append(leg.getDestination());
+            if (flights.length() > 0) flights.append(", ");
+            flights.append(leg.getFlightNumber());
+        }
+        Duration duration = getDuration();
+        return String.format("%s | %s | Dep: %s | Arr: %s | %dh%02dm | Stops: %d | $%.2f",
+                route, flights, getDepartureTime(), getArrivalTime(),
+                duration.toHours(), duration.toMinutesPart(), getStops(), getPrice());
+    }
+}
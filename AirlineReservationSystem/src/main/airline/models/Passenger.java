@@ -9,6 +9,8 @@ public class Passenger implements Serializable {
     private String name;
     private String email;
     private String phone;
+    // Set on snapshots, e.g. in change events, which must look the same to every reader
+    private transient boolean readOnly;
 
     public Passenger(String id, String name, String email, String phone) {
         this.id = id; this.name = name; this.email = email; this.phone = phone;
@@ -18,10 +20,33 @@ public class Passenger implements Serializable {
     public String getName() { return name; }
     public String getEmail() { return email; }
     public String getPhone() { return phone; }
+    public boolean isReadOnly() { return readOnly; }
 
-    public void setName(String name) { this.name = name; }
-    public void setEmail(String email) { this.email = email; }
-    public void setPhone(String phone) { this.phone = phone; }
+    /** A read-only copy of the passenger as they are now; its setters throw. */
+    public Passenger snapshot() {
+        Passenger copy = new Passenger(id, name, email, phone);
+        copy.readOnly = true;
+        return copy;
+    }
+
+    public void setName(String name) {
+        checkWritable();
+        this.name = name;
+    }
+
+    public void setEmail(String email) {
+        checkWritable();
+        this.email = email;
+    }
+
+    public void setPhone(String phone) {
+        checkWritable();
+        this.phone = phone;
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("Passenger " + id + " is a read-only snapshot");
+    }
 
     @Override public String toString() {
         return "Passenger{id='" + id + "', name='" + name + "', email='" + email + "', phone='" + phone + "'}";
@@ -1,7 +1,16 @@
 package main.airline.models;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * A booking. Reservations returned by the booking service are read-only
+ * snapshots (see {@link #readOnly}); the service's stores keep the real
+ * state, so such a copy is confirmed or cancelled through the service and
+ * read again to see later changes.
+ */
 public class Reservation implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -9,8 +18,14 @@ public class Reservation implements Serializable {
     private Flight flight;
     private Passenger passenger;
     private int seats;
-    private boolean confirmed;
-    private boolean cancelled;
+    // Assigned seat labels; null for reservations made before seats were assigned
+    private ArrayList<String> seatNumbers;
+    private volatile boolean confirmed;
+    private volatile boolean cancelled;
+    // An unconfirmed hold that is cancelled automatically if not confirmed in time
+    private volatile boolean held;
+    // Set on snapshots handed out by the service, whose mutators would change nothing but the copy
+    private transient boolean readOnly;
 
     public Reservation(String reservationId, Flight flight, Passenger passenger, int seats) {
         this.reservationId = reservationId;
@@ -21,16 +36,86 @@ public class Reservation implements Serializable {
         this.cancelled = false;
     }
 
+    public Reservation(String reservationId, Flight flight, Passenger passenger, int seats, List<String> seatNumbers) {
+        this(reservationId, flight, passenger, seats);
+        this.seatNumbers = seatNumbers == null || seatNumbers.isEmpty() ? null : new ArrayList<>(seatNumbers);
+    }
+
+    /**
+     * A read-only reservation in the given state, as handed out by the
+     * booking service. Its mutators throw {@link UnsupportedOperationException}.
+     */
+    public static Reservation readOnly(String reservationId, Flight flight, Passenger passenger, int seats,
+                                       List<String> seatNumbers, boolean confirmed, boolean cancelled, boolean held) {
+        Reservation reservation = new Reservation(reservationId, flight, passenger, seats, seatNumbers);
+        reservation.confirmed = confirmed;
+        reservation.cancelled = cancelled;
+        reservation.held = held;
+        reservation.readOnly = true;
+        return reservation;
+    }
+
     public String getReservationId() { return reservationId; }
     public Flight getFlight() { return flight; }
     public Passenger getPassenger() { return passenger; }
     public int getSeats() { return seats; }
+    public List<String> getSeatNumbers() {
+        return seatNumbers == null ? Collections.emptyList() : Collections.unmodifiableList(seatNumbers);
+    }
 
     public boolean isConfirmed() { return confirmed; }
     public boolean isCancelled() { return cancelled; }
+    /** True while this is a hold still waiting to be confirmed. */
+    public boolean isHeld() { return held && !confirmed && !cancelled; }
+    public boolean wasHeld() { return held; }
+    /** True for a snapshot handed out by the booking service; change it through the service instead. */
+    public boolean isReadOnly() { return readOnly; }
+
+    public void confirmReservation() {
+        checkWritable();
+        this.confirmed = true;
+    }
+
+    public void cancelReservation() {
+        checkWritable();
+        this.cancelled = true;
+    }
 
-    public void confirmReservation() { this.confirmed = true; }
-    public void cancelReservation() { this.cancelled = true; }
+    public void holdReservation() {
+        checkWritable();
+        this.held = true;
+    }
+
+    /** Confirms unless cancelled or already confirmed; races with {@link #markCancelled} and {@link #markExpired}. */
+    public synchronized boolean markConfirmed() {
+        checkWritable();
+        if (confirmed || cancelled) return false;
+        confirmed = true;
+        return true;
+    }
+
+    /** Cancels an unconfirmed hold; does nothing once it has been confirmed. */
+    public synchronized boolean markExpired() {
+        checkWritable();
+        if (!isHeld()) return false;
+        cancelled = true;
+        return true;
+    }
+
+    /** Cancels unless already cancelled; only one of several racing callers gets {@code true}. */
+    public synchronized boolean markCancelled() {
+        checkWritable();
+        if (cancelled) return false;
+        cancelled = true;
+        return true;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Reservation " + reservationId
+                    + " is a read-only copy; confirm or cancel it through ReservationService");
+        }
+    }
 
     @Override
     public String toString() {
@@ -38,7 +123,9 @@ public class Reservation implements Serializable {
                 (flight != null ? flight.getFlightNumber() : "N/A") +
                 ", passenger=" + (passenger != null ? passenger.getName() : "N/A") +
                 ", seats=" + seats +
+                (seatNumbers != null ? ", seatNumbers=" + seatNumbers : "") +
                 ", confirmed=" + confirmed +
+                (held && !confirmed ? ", held=true" : "") +
                 ", cancelled=" + cancelled + "}";
     }
 }
@@ -0,0 +1,125 @@
+package main.airline.models;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cabin and row arrangement for a flight of a given size. Layouts are immutable
+ * and shared by every flight with the same number of seats.
+ *
+ * Aircraft with at least {@value #WIDEBODY_SEATS} seats get a few business rows
+ * (AC DF) followed by economy rows (ABC DEF); smaller ones are all AB CD. The
+ * last row may be partial. Seats are labelled row number plus letter, e.g. "12C".
+ *
+ * In a {@link SeatMap} every row owns one byte of the occupancy bitset (bit i =
+ * i-th seat from the window on the left), so a row never spans two words.
+ * Flights larger than any aircraft ({@value #MAX_SEATS} seats) have no layout
+ * and are sold by seat count only.
+ */
+public final class SeatLayout {
+    public enum Cabin { BUSINESS, ECONOMY }
+
+    public static final int MAX_SEATS = 1_000;
+    static final int ROW_BITS = 8;
+    private static final int WIDEBODY_SEATS = 60;
+    // One business row for every 40 seats on the aircraft
+    private static final int SEATS_PER_BUSINESS_ROW = 40;
+    private static final String NARROW_LETTERS = "ABCD";
+    private static final String BUSINESS_LETTERS = "ACDF";
+    private static final String ECONOMY_LETTERS = "ABCDEF";
+
+    private static final Map<Integer, SeatLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private final int totalSeats;
+    private final int businessRows;
+    // firstSeat[r] is the seat index of row r's first seat; firstSeat[rows] == totalSeats
+    private final int[] firstSeat;
+
+    private SeatLayout(int totalSeats) {
+        this.totalSeats = totalSeats;
+        this.businessRows = totalSeats >= WIDEBODY_SEATS ? Math.max(1, totalSeats / SEATS_PER_BUSINESS_ROW) : 0;
+        int rows = 0;
+        int seat = 0;
+        int[] starts = new int[totalSeats + 1];
+        while (seat < totalSeats) {
+            starts[rows] = seat;
+            seat += Math.min(letters(rows).length(), totalSeats - seat);
+            rows++;
+        }
+        starts[rows] = totalSeats;
+        this.firstSeat = Arrays.copyOf(starts, rows + 1);
+    }
+
+    /** Whether a flight with {@code totalSeats} seats can have a seat map. */
+    public static boolean fits(int totalSeats) {
+        return totalSeats <= MAX_SEATS;
+    }
+
+    /** The shared layout for a flight with {@code totalSeats} seats. */
+    public static SeatLayout forSeats(int totalSeats) {
+        if (!fits(totalSeats)) throw new IllegalArgumentException("No seat layout for " + totalSeats + " seats");
+        return LAYOUTS.computeIfAbsent(Math.max(0, totalSeats), SeatLayout::new);
+    }
+
+    public int getTotalSeats() { return totalSeats; }
+    public int getRows() { return firstSeat.length - 1; }
+
+    public Cabin cabin(int row) {
+        return row < businessRows ? Cabin.BUSINESS : Cabin.ECONOMY;
+    }
+
+    /** Number of seats in {@code row} (0-based). */
+    public int width(int row) {
+        return firstSeat[row + 1] - firstSeat[row];
+    }
+
+    /** Seat letters of {@code row}, including any missing from a partial last row. */
+    public String letters(int row) {
+        if (businessRows == 0) return NARROW_LETTERS;
+        return row < businessRows ? BUSINESS_LETTERS : ECONOMY_LETTERS;
+    }
+
+    /** Bit mask of {@code row}'s seats, as laid out in its byte. */
+    int rowMask(int row) {
+        return (1 << width(row)) - 1;
+    }
+
+    /** Mask of the seats on the left of the aisle; the rest of the row is on the right. */
+    int leftBlockMask(int row) {
+        return ((1 << (letters(row).length() / 2)) - 1) & rowMask(row);
+    }
+
+    /** Label such as "12C" for the seat at {@code column} of {@code row}. */
+    public String label(int row, int column) {
+        return (row + 1) + String.valueOf(letters(row).charAt(column));
+    }
+
+    /**
+     * Bit position of a seat label within the occupancy bitset, or -1 if the
+     * label does not name a seat on this layout.
+     */
+    int bitOf(String label) {
+        if (label == null) return -1;
+        String seat = label.trim().toUpperCase(Locale.ROOT);
+        int split = seat.length() - 1;
+        if (split < 1 || !Character.isDigit(seat.charAt(0))) return -1;
+        int row;
+        try {
+            row = Integer.parseInt(seat.substring(0, split)) - 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (row < 0 || row >= getRows()) return -1;
+        int column = letters(row).indexOf(seat.charAt(split));
+        if (column < 0 || column >= width(row)) return -1;
+        return row * ROW_BITS + column;
+    }
+
+    /** Canonical form of a seat label ("12c " becomes "12C"), or null if it is not a seat here. */
+    public String normalize(String label) {
+        int bit = bitOf(label);
+        return bit < 0 ? null : label(bit / ROW_BITS, bit % ROW_BITS);
+    }
+}
@@ -0,0 +1,177 @@
+package main.airline.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Seat occupancy of one flight, one bit per seat. Each row takes a byte of a
+ * {@code long[]} (see {@link SeatLayout}), so a 180-seat aircraft needs four
+ * words, and row and aisle-block searches are a few mask operations per row.
+ *
+ * Seat maps are built lazily, so flights nobody has booked cost only their
+ * (null) reference. The map tracks which seats are assigned; the flight's seat
+ * count stays the authority on how many may be sold.
+ */
+public class SeatMap {
+    private final SeatLayout layout;
+    private final long[] occupied;
+    private int free;
+
+    public SeatMap(SeatLayout layout) {
+        this.layout = layout;
+        this.occupied = new long[(layout.getRows() * SeatLayout.ROW_BITS + Long.SIZE - 1) / Long.SIZE];
+        this.free = layout.getTotalSeats();
+    }
+
+    public SeatLayout getLayout() { return layout; }
+
+    public synchronized int getFreeSeats() { return free; }
+
+    public synchronized boolean isOccupied(String label) {
+        int bit = layout.bitOf(label);
+        return bit >= 0 && (occupied[bit / Long.SIZE] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Assigns {@code count} free seats, as close together as possible: a run on
+     * one side of the aisle, else a run across the aisle, else the fewest
+     * consecutive rows that hold them. Returns the seat labels, or null if
+     * there are not enough free seats.
+     */
+    public synchronized List<String> assignAdjacent(int count) {
+        if (count <= 0 || count > free) return null;
+        int rows = layout.getRows();
+
+        for (int row = 0; row < rows; row++) {
+            int vacant = vacant(row);
+            int left = layout.leftBlockMask(row);
+            int starts = runStarts(vacant & left, count) | runStarts(vacant & ~left, count);
+            if (starts != 0) return take(row, runAt(starts, count), count);
+        }
+        for (int row = 0; row < rows; row++) {
+            int starts = runStarts(vacant(row), count);
+            if (starts != 0) return take(row, runAt(starts, count), count);
+        }
+
+        // Shortest window of rows with enough free seats between them
+        int bestFirst = -1;
+        int bestLast = rows;
+        int first = 0;
+        int available = 0;
+        for (int last = 0; last < rows; last++) {
+            available += Integer.bitCount(vacant(last));
+            while (available - Integer.bitCount(vacant(first)) >= count) {
+                available -= Integer.bitCount(vacant(first));
+                first++;
+            }
+            if (available >= count && last - first < bestLast - bestFirst) {
+                bestFirst = first;
+                bestLast = last;
+            }
+        }
+        List<String> seats = new ArrayList<>(count);
+        for (int row = bestFirst; seats.size() < count; row++) {
+            int vacant = vacant(row);
+            int mask = 0;
+            while (vacant != 0 && seats.size() + Integer.bitCount(mask) < count) {
+                mask |= Integer.lowestOneBit(vacant);
+                vacant &= vacant - 1;
+            }
+            seats.addAll(take(row, mask, Integer.bitCount(mask)));
+        }
+        return seats;
+    }
+
+    /**
+     * Holds exactly the given seats, all or none. Returns their canonical
+     * labels, or null if any label is not a seat on this aircraft, is
+     * repeated, or is already taken.
+     */
+    public synchronized List<String> hold(Collection<String> labels) {
+        if (labels == null || labels.isEmpty()) return null;
+        long[] wanted = new long[occupied.length];
+        for (String label : labels) {
+            int bit = layout.bitOf(label);
+            if (bit < 0) return null;
+            long mask = 1L << bit;
+            int word = bit / Long.SIZE;
+            if ((occupied[word] & mask) != 0 || (wanted[word] & mask) != 0) return null;
+            wanted[word] |= mask;
+        }
+        List<String> held = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            int bit = layout.bitOf(label);
+            occupied[bit / Long.SIZE] |= 1L << bit;
+            held.add(layout.label(bit / SeatLayout.ROW_BITS, bit % SeatLayout.ROW_BITS));
+        }
+        free -= held.size();
+        return held;
+    }
+
+    /** Frees the given seats; labels that are not held are ignored. */
+    public synchronized void release(Collection<String> labels) {
+        if (labels == null) return;
+        for (String label : labels) {
+            int bit = layout.bitOf(label);
+            if (bit < 0) continue;
+            long mask = 1L << bit;
+            int word = bit / Long.SIZE;
+            if ((occupied[word] & mask) == 0) continue;
+            occupied[word] &= ~mask;
+            free++;
+        }
+    }
+
+    /** A text seat chart, one line per row: X for taken seats, . for free ones. */
+    public synchronized String render() {
+        StringBuilder sb = new StringBuilder();
+        String letters = null;
+        for (int row = 0; row < layout.getRows(); row++) {
+            String rowLetters = layout.letters(row);
+            int aisle = rowLetters.length() / 2;
+            if (!rowLetters.equals(letters)) {
+                letters = rowLetters;
+                sb.append(layout.cabin(row)).append('\n');
+                sb.append("      ").append(rowLetters, 0, aisle).append(' ').append(rowLetters.substring(aisle)).append('\n');
+            }
+            sb.append(String.format("%4d  ", row + 1));
+            int taken = ~vacant(row);
+            for (int column = 0; column < layout.width(row); column++) {
+                if (column == aisle) sb.append(' ');
+                sb.append((taken & (1 << column)) != 0 ? 'X' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // ---- Bit helpers ----
+    private int vacant(int row) {
+        int shift = (row % (Long.SIZE / SeatLayout.ROW_BITS)) * SeatLayout.ROW_BITS;
+        int bits = (int) (occupied[row * SeatLayout.ROW_BITS / Long.SIZE] >>> shift) & 0xFF;
+        return ~bits & layout.rowMask(row);
+    }
+
+    private List<String> take(int row, int mask, int count) {
+        List<String> seats = new ArrayList<>(count);
+        int shift = (row % (Long.SIZE / SeatLayout.ROW_BITS)) * SeatLayout.ROW_BITS;
+        occupied[row * SeatLayout.ROW_BITS / Long.SIZE] |= (long) mask << shift;
+        for (int column = 0; column < layout.width(row); column++) {
+            if ((mask & (1 << column)) != 0) seats.add(layout.label(row, column));
+        }
+        free -= count;
+        return seats;
+    }
+
+    // Bit i is set where seats i .. i+count-1 are all set in vacant
+    private static int runStarts(int vacant, int count) {
+        int starts = vacant;
+        for (int i = 1; i < count && starts != 0; i++) starts &= vacant >>> i;
+        return starts;
+    }
+
+    private static int runAt(int starts, int count) {
+        return ((1 << count) - 1) << Integer.numberOfTrailingZeros(starts);
+    }
+}
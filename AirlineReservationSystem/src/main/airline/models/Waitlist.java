@@ -0,0 +1,72 @@
+package main.airline.models;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * One flight's waitlist: a binary heap ordered by fare class, then by time of
+ * request, so adding a request and promoting the next one are O(log n).
+ * The heap holds only waiting entries: a withdrawn one is taken out at once,
+ * which is O(n), so finished entries never pile up in it.
+ *
+ * Callers that book the head and then promote it lock the waitlist itself
+ * around both steps, so promotions on one flight happen one at a time and
+ * an entry cannot be withdrawn while it is being booked.
+ */
+public class Waitlist {
+    private static final Comparator<WaitlistEntry> PRIORITY = Comparator
+            .comparing(WaitlistEntry::getFareClass)
+            .thenComparingLong(WaitlistEntry::getSequence);
+
+    private final PriorityQueue<WaitlistEntry> queue = new PriorityQueue<>(PRIORITY);
+    // queue.size(), readable without the lock so bookings can check for waiting requests cheaply
+    private volatile int waiting;
+
+    public synchronized void add(WaitlistEntry entry) {
+        queue.add(entry);
+        waiting = queue.size();
+    }
+
+    /** The waiting entry to promote next, or null. */
+    public synchronized WaitlistEntry peek() {
+        return queue.peek();
+    }
+
+    /**
+     * Marks an entry of this list promoted to {@code reservationId} and takes
+     * it out; false if it was no longer waiting. O(log n) for the head.
+     */
+    public synchronized boolean promote(WaitlistEntry entry, String reservationId) {
+        if (!entry.markPromoted(reservationId)) return false;
+        queue.remove(entry);
+        waiting = queue.size();
+        return true;
+    }
+
+    /** Withdraws a waiting entry of this list; false if it was already promoted or withdrawn. */
+    public synchronized boolean withdraw(WaitlistEntry entry) {
+        if (!entry.markWithdrawn()) return false;
+        queue.remove(entry);
+        waiting = queue.size();
+        return true;
+    }
+
+    /** Entries still waiting. */
+    public int size() {
+        return waiting;
+    }
+
+    /** Whether no entry is waiting; does not take the lock. */
+    public boolean isEmpty() {
+        return waiting == 0;
+    }
+
+    /** Waiting entries in promotion order; O(n log n), for listings. */
+    public synchronized List<WaitlistEntry> getEntries() {
+        List<WaitlistEntry> entries = new ArrayList<>(queue);
+        entries.sort(PRIORITY);
+        return entries;
+    }
+}
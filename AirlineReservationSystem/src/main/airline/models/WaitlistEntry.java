@@ -0,0 +1,68 @@
+package main.airline.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * A request for seats on a full flight. It waits until cancellations free
+ * enough seats, when it is booked (promoted) as a confirmed reservation, or
+ * until the passenger withdraws it.
+ */
+public class WaitlistEntry {
+    public enum Status { WAITING, PROMOTED, WITHDRAWN }
+
+    private final String entryId;
+    private final String flightNumber;
+    private final Passenger passenger;
+    private final int seats;
+    private final FareClass fareClass;
+    private final LocalDateTime requestedAt;
+    // Order of arrival; breaks ties within a fare class
+    private final long sequence;
+    private Status status = Status.WAITING;
+    private String reservationId;
+
+    public WaitlistEntry(String entryId, String flightNumber, Passenger passenger, int seats,
+                         FareClass fareClass, LocalDateTime requestedAt, long sequence) {
+        this.entryId = entryId;
+        this.flightNumber = flightNumber;
+        this.passenger = passenger;
+        this.seats = seats;
+        this.fareClass = fareClass;
+        this.requestedAt = requestedAt;
+        this.sequence = sequence;
+    }
+
+    public String getEntryId() { return entryId; }
+    public String getFlightNumber() { return flightNumber; }
+    public Passenger getPassenger() { return passenger; }
+    public int getSeats() { return seats; }
+    public FareClass getFareClass() { return fareClass; }
+    public LocalDateTime getRequestedAt() { return requestedAt; }
+    public long getSequence() { return sequence; }
+    public synchronized Status getStatus() { return status; }
+    /** The reservation made when the entry was promoted; null until then. */
+    public synchronized String getReservationId() { return reservationId; }
+
+    /** Records the booking made for the entry; false if it is no longer waiting. */
+    public synchronized boolean markPromoted(String reservationId) {
+        if (status != Status.WAITING) return false;
+        this.status = Status.PROMOTED;
+        this.reservationId = reservationId;
+        return true;
+    }
+
+    /** Marks the entry withdrawn; false if it was already promoted or withdrawn. See {@link Waitlist#withdraw}. */
+    public synchronized boolean markWithdrawn() {
+        if (status != Status.WAITING) return false;
+        this.status = Status.WITHDRAWN;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{id='" + entryId + "', flight=" + flightNumber +
+                ", passenger=" + (passenger != null ? passenger.getName() : "N/A") +
+                ", seats=" + seats + ", fareClass=" + fareClass + ", status=" + getStatus() +
+                (reservationId != null ? ", reservation=" + reservationId : "") + "}";
+    }
+}
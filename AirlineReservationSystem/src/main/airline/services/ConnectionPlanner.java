@@ -0,0 +1,199 @@
+package main.airline.services;
+
+import main.airline.models.Flight;
+import main.airline.models.Itinerary;
+import main.airline.utils.Metrics;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Finds connecting itineraries by treating each flight as a time-dependent
+ * edge between two airports.
+ *
+ * The search is a best-first walk ordered by arrival time: partial
+ * itineraries are expanded only through flights that leave the connecting
+ * airport inside the [arrival + minimum connection, arrival + maximum layover]
+ * window, which is a range lookup on {@link FlightService#departuresFrom}.
+ *
+ * A label is only expanded through departures that fewer than {@code limit}
+ * earlier labels at the same airport could also take. An earlier label
+ * counts when it used no more legs (and, with as many, cost no more) and
+ * visited no airport the later one did not, because then anything the later
+ * label reaches, it reaches at least as well. Arriving earlier, it takes
+ * every connection the later one could, except the ones past the end of its
+ * own layover window. So a later label at a busy airport only adds the
+ * departures that open at the end of its window, and the work depends on
+ * the flights near the answer rather than on the size of the schedule.
+ */
+public class ConnectionPlanner {
+    public static final Duration DEFAULT_MIN_CONNECTION = Duration.ofMinutes(45);
+    public static final Duration DEFAULT_MAX_LAYOVER = Duration.ofHours(24);
+
+    private static final Comparator<Label> EARLIEST_ARRIVAL = Comparator
+            .comparingInt((Label l) -> l.flight.getArrivalMinute())
+            .thenComparingInt(l -> l.legs)
+            .thenComparingDouble(l -> l.price);
+
+    private final FlightService flightService;
+    private final Duration minConnection;
+    private final Duration maxLayover;
+
+    public ConnectionPlanner(FlightService flightService) {
+        this(flightService, DEFAULT_MIN_CONNECTION, DEFAULT_MAX_LAYOVER);
+    }
+
+    public ConnectionPlanner(FlightService flightService, Duration minConnection, Duration maxLayover) {
+        if (minConnection.isNegative() || maxLayover.compareTo(minConnection) < 0) {
+            throw new IllegalArgumentException("Maximum layover must not be shorter than the minimum connection");
+        }
+        this.flightService = flightService;
+        this.minConnection = minConnection;
+        this.maxLayover = maxLayover;
+    }
+
+    /** Itineraries whose first leg departs on {@code date} and has not departed yet. */
+    public List<Itinerary> findItineraries(String origin, String destination, LocalDate date,
+                                           int seats, int maxLegs, int limit) {
+        if (date == null) return Collections.emptyList();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay().minusNanos(1);
+        if (start.isBefore(now)) start = now;
+        if (start.isAfter(end)) return new ArrayList<>();
+        return findItineraries(origin, destination, start, end, seats, maxLegs, limit);
+    }
+
+    /**
+     * Up to {@code limit} itineraries of at most {@code maxLegs} flights, ordered
+     * by arrival time (then fewer legs, then lower price). The first leg departs
+     * in [earliestDeparture, latestDeparture]; every leg has at least
+     * {@code seats} seats available and no airport is visited twice.
+     */
+    public List<Itinerary> findItineraries(String origin, String destination,
+                                           LocalDateTime earliestDeparture, LocalDateTime latestDeparture,
+                                           int seats, int maxLegs, int limit) {
+        if (origin == null || destination == null || earliestDeparture == null || latestDeparture == null
+                || seats <= 0 || maxLegs <= 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String originKey = FlightService.airportKey(origin);
+        String destinationKey = FlightService.airportKey(destination);
+        List<Itinerary> results = new ArrayList<>(Math.min(limit, 16));
+        if (originKey.equals(destinationKey)) return results;
+        long start = System.nanoTime();
+
+        PriorityQueue<Label> frontier = new PriorityQueue<>(EARLIEST_ARRIVAL);
+        for (Flight flight : flightService.departuresFrom(origin, earliestDeparture, latestDeparture)) {
+            if (usable(flight, seats)) frontier.add(new Label(flight, null, originKey));
+        }
+
+        Map<String, List<Label>> expanded = new HashMap<>();
+        while (!frontier.isEmpty() && results.size() < limit) {
+            Label label = frontier.poll();
+            if (label.airport.equals(destinationKey)) {
+                results.add(label.toItinerary());
+                continue;
+            }
+            if (label.legs >= maxLegs) continue;
+
+            LocalDateTime arrival = label.flight.getArrivalTime();
+            LocalDateTime from = arrival.plus(minConnection);
+            LocalDateTime to = arrival.plus(maxLayover);
+            List<Label> before = expanded.computeIfAbsent(label.airport, airport -> new ArrayList<>());
+            LocalDateTime covered = coveredUntil(before, label, limit);
+            if (covered != null) {
+                if (!covered.isBefore(to)) continue;
+                if (!covered.isBefore(from)) from = covered.plusNanos(1);
+            }
+            before.add(label);
+
+            for (Flight next : flightService.departuresFrom(label.flight.getDestination(), from, to)) {
+                if (!usable(next, seats)) continue;
+                String nextAirport = FlightService.airportKey(next.getDestination());
+                if (label.visits(nextAirport)) continue;
+                if (!nextAirport.equals(destinationKey) && label.legs + 1 >= maxLegs) continue;
+                frontier.add(new Label(next, label, originKey));
+            }
+        }
+        Metrics.CONNECTION_SEARCH.recordSince(start);
+        return results;
+    }
+
+    /**
+     * The latest departure that {@code limit} of the labels already expanded
+     * at the same airport can take and that each does at least as well as
+     * {@code label}, or null if fewer than {@code limit} qualify. They arrived
+     * no later, so they cover every earlier departure in its window too.
+     */
+    private LocalDateTime coveredUntil(List<Label> expanded, Label label, int limit) {
+        if (expanded.size() < limit) return null;
+        PriorityQueue<LocalDateTime> latest = new PriorityQueue<>(limit + 1);
+        for (Label other : expanded) {
+            if (!other.dominates(label)) continue;
+            latest.add(other.flight.getArrivalTime().plus(maxLayover));
+            if (latest.size() > limit) latest.poll();
+        }
+        return latest.size() < limit ? null : latest.peek();
+    }
+
+    private static boolean usable(Flight flight, int seats) {
+        return flight.getArrivalMinute() != Flight.NO_TIME
+                && flight.getArrivalMinute() >= flight.getDepartureMinute()
+                && flight.getAvailableSeats() >= seats;
+    }
+
+    /** A partial itinerary ending with {@code flight}; shares its prefix with the label it extends. */
+    private static final class Label {
+        final Flight flight;
+        final Label previous;
+        final String airport;
+        final String origin;
+        final int legs;
+        final double price;
+
+        Label(Flight flight, Label previous, String origin) {
+            this.flight = flight;
+            this.previous = previous;
+            this.airport = FlightService.airportKey(flight.getDestination());
+            this.origin = origin;
+            this.legs = previous == null ? 1 : previous.legs + 1;
+            this.price = (previous == null ? 0 : previous.price) + flight.getPrice();
+        }
+
+        /**
+         * Whether every extension of {@code other} is matched by one of this
+         * label that ranks no lower at the same arrival time: no more legs (or
+         * as many at no higher price), and no airport visited that it avoided.
+         */
+        boolean dominates(Label other) {
+            if (legs > other.legs || (legs == other.legs && price > other.price)) return false;
+            for (Label l = this; l != null; l = l.previous) {
+                if (!other.visits(l.airport)) return false;
+            }
+            return true;
+        }
+
+        boolean visits(String airportKey) {
+            if (origin.equals(airportKey)) return true;
+            for (Label l = this; l != null; l = l.previous) {
+                if (l.airport.equals(airportKey)) return true;
+            }
+            return false;
+        }
+
+        Itinerary toItinerary() {
+            Flight[] legs = new Flight[this.legs];
+            int i = legs.length;
+            for (Label l = this; l != null; l = l.previous) legs[--i] = l.flight;
+            return new Itinerary(List.of(legs));
+        }
+    }
+}
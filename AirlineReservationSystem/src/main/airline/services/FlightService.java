@@ -1,65 +1,439 @@
 package main.airline.services;
 
+import main.airline.models.ChangeEvent;
 import main.airline.models.Flight;
+import main.airline.models.SeatMap;
+import main.airline.utils.ChangeFeed;
+import main.airline.utils.ChangeLog;
+import main.airline.utils.ConsistentHashRing;
+import main.airline.utils.Metrics;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Flight schedule. Lookups and searches are lock-free reads of concurrent
+ * indexes, so any number of booking threads can resolve flights in parallel.
+ * Schedule changes are rare admin operations and are serialised on the
+ * service so both indexes and the change log always change together, and
+ * so the change feed sees them in the order they were made.
+ *
+ * A flight that replaces one with the same number keeps the seats already
+ * sold on it (and its seat map while the seat count is unchanged); one with
+ * fewer seats than are sold is rejected. Seats are taken and returned through
+ * {@link #reserveSeats} and {@link #releaseSeats}, which hold a per-flight
+ * lock stripe shared while a replacement holds it exclusively, so no seat
+ * change can land on a flight after its seats were carried over.
+ */
 public class FlightService {
-    private List<Flight> flights;
+    // Departure time first (unscheduled flights last), flight number breaks ties
+    private static final Comparator<Flight> DEPARTURE_ORDER = Comparator
+            .comparingInt(Flight::getDepartureMinute)
+            .thenComparing(f -> numberKey(f.getFlightNumber()));
+    private static final int SEAT_LOCK_STRIPES = 64;
+
+    // Primary index: normalised flight number -> flight
+    private final Map<String, Flight> flightsByNumber;
+    // Secondary index: normalised "origin|destination" -> flights on that route, ordered by departure
+    private final Map<String, NavigableSet<Flight>> flightsByRoute;
+    // Secondary index: normalised origin -> flights leaving it, ordered by departure (for connections)
+    private final Map<String, NavigableSet<Flight>> departuresByAirport;
+    // Route searches, invalidated per route whenever one of its flights changes
+    private final RouteSearchCache searchCache = new RouteSearchCache(RouteSearchCache.DEFAULT_CAPACITY);
+    // Persistence for admin changes; null until storage is attached
+    private volatile ChangeLog changeLog;
+    // Change-data-capture stream for downstream consumers; null until one is attached
+    private volatile ChangeFeed changeFeed;
+    // Picked by flight number: seat changes take the read side, replacing a flight the write side
+    private final StampedLock[] seatLocks = new StampedLock[SEAT_LOCK_STRIPES];
 
     public FlightService() {
-        this.flights = new ArrayList<>();
+        this.flightsByNumber = new ConcurrentHashMap<>();
+        this.flightsByRoute = new ConcurrentHashMap<>();
+        this.departuresByAirport = new ConcurrentHashMap<>();
+        for (int i = 0; i < SEAT_LOCK_STRIPES; i++) seatLocks[i] = new StampedLock();
         // Initialize with some sample flights
         initializeSampleFlights();
     }
 
     private void initializeSampleFlights() {
-        flights.add(new Flight("AA123", "New York", "Los Angeles", 
+        addSampleFlight(new Flight("AA123", "New York", "Los Angeles", 
                 LocalDateTime.of(2023, 12, 15, 8, 0), 
                 LocalDateTime.of(2023, 12, 15, 11, 0), 
                 150, 299.99));
-        flights.add(new Flight("DL456", "Chicago", "Miami", 
+        addSampleFlight(new Flight("DL456", "Chicago", "Miami", 
                 LocalDateTime.of(2023, 12, 16, 10, 30), 
                 LocalDateTime.of(2023, 12, 16, 13, 45), 
                 200, 249.99));
         // Add more sample flights as needed
     }
 
-    public void addFlight(Flight flight) {
-        flights.add(flight);
+    // A cluster node keeps only the sample flights it owns
+    private void addSampleFlight(Flight flight) {
+        if (ConsistentHashRing.ownedLocally(flight.getFlightNumber())) addFlight(flight);
+    }
+
+    /** Attaches the change log that every subsequent flight change is persisted to. */
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /** Attaches the feed that every subsequent flight change is published on. */
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Adds a flight, replacing any existing flight with the same number.
+     * Returns false if it would have fewer seats than the existing one has sold.
+     */
+    public synchronized boolean addFlight(Flight flight) {
+        if (flight == null || flight.getFlightNumber() == null) return false;
+        String refusal = replace(flightsByNumber.get(numberKey(flight.getFlightNumber())), flight, true);
+        if (refusal != null) {
+            System.err.println(refusal);
+            return false;
+        }
+        if (changeLog != null) changeLog.flightUpserted(flight);
+        publish(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+        return true;
+    }
+
+    /** Needed when loading from storage: adds or replaces a flight with its seat count as stored. */
+    public synchronized void addFlightFromStorage(Flight flight) {
+        if (flight == null || flight.getFlightNumber() == null) return;
+        replace(flightsByNumber.get(numberKey(flight.getFlightNumber())), flight, false);
     }
 
+    /**
+     * Adds a batch of flights as one change, replacing existing flights with
+     * the same numbers (later entries win). The batch is persisted as a unit,
+     * so bulk loads pay for one durable write per batch rather than per flight.
+     * Returns the number of flights added; flights with fewer seats than are
+     * already sold on the flight they would replace are skipped.
+     */
+    public synchronized int addFlights(List<Flight> flights) {
+        List<Flight> added = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            if (flight == null || flight.getFlightNumber() == null) continue;
+            Flight previous = flightsByNumber.get(numberKey(flight.getFlightNumber()));
+            if (replace(previous, flight, true) != null) continue;
+            added.add(flight);
+        }
+        if (changeLog != null && !added.isEmpty()) changeLog.flightsUpserted(added);
+        for (Flight flight : added) publish(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+        return added.size();
+    }
+
+    /**
+     * Visits every flight without copying the schedule, in no particular
+     * order. Flights changed during the walk may or may not be seen.
+     */
+    public void forEachFlight(Consumer<? super Flight> action) {
+        flightsByNumber.values().forEach(action);
+    }
+
+    /** All flights, ordered by flight number. */
     public List<Flight> getAllFlights() {
-        return new ArrayList<>(flights);
+        List<Flight> all = new ArrayList<>(flightsByNumber.values());
+        all.sort(Comparator.comparing(Flight::getFlightNumber, String.CASE_INSENSITIVE_ORDER));
+        return all;
     }
 
     public Flight findFlightByNumber(String flightNumber) {
-        return flights.stream()
-                .filter(f -> f.getFlightNumber().equalsIgnoreCase(flightNumber))
-                .findFirst()
-                .orElse(null);
+        if (flightNumber == null) return null;
+        return flightsByNumber.get(numberKey(flightNumber));
+    }
+
+    /**
+     * Takes {@code seats} seats, all or nothing, on the flight scheduled under
+     * this number and returns that flight; null if there is none or it has
+     * too few seats left.
+     */
+    public Flight reserveSeats(String flightNumber, int seats) {
+        if (flightNumber == null) return null;
+        String key = numberKey(flightNumber);
+        StampedLock lock = seatLock(key);
+        long stamp = lock.readLock();
+        try {
+            Flight flight = flightsByNumber.get(key);
+            return flight != null && flight.tryReserve(seats) ? flight : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
+    /**
+     * Returns {@code seats} seats to the flight scheduled under this number,
+     * which is the one that took them over if it was replaced meanwhile.
+     * Returns that flight, or null if it has been deleted.
+     */
+    public Flight releaseSeats(String flightNumber, int seats) {
+        if (flightNumber == null) return null;
+        String key = numberKey(flightNumber);
+        StampedLock lock = seatLock(key);
+        long stamp = lock.readLock();
+        try {
+            Flight flight = flightsByNumber.get(key);
+            if (flight != null) flight.release(seats);
+            return flight;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Every flight on the route, ordered by departure time. */
     public List<Flight> searchFlights(String origin, String destination) {
-        return flights.stream()
-                .filter(f -> f.getOrigin().equalsIgnoreCase(origin) && 
-                           f.getDestination().equalsIgnoreCase(destination))
-                .collect(Collectors.toList());
+        if (origin == null || destination == null) return Collections.emptyList();
+        long start = System.nanoTime();
+        NavigableSet<Flight> matches = flightsByRoute.get(routeKey(origin, destination));
+        List<Flight> result = matches == null ? new ArrayList<>() : new ArrayList<>(matches);
+        Metrics.SEARCH.recordSince(start);
+        return result;
+    }
+
+    /**
+     * Cached form of {@link #searchFlights} (date {@code null}) or
+     * {@link #searchFlightsOnDate}, for repeated lookups of the same routes.
+     */
+    public RouteSearchCache.Result searchCached(String origin, String destination, LocalDate date) {
+        String key = origin == null || destination == null ? null : routeKey(origin, destination);
+        // Unknown routes are not cached, so arbitrary lookups cannot grow the cache's route table
+        if (key == null || !flightsByRoute.containsKey(key)) {
+            return new RouteSearchCache.Result(new ArrayList<>(), 0, null);
+        }
+        return searchCache.get(key, date, () -> date == null
+                ? searchFlights(origin, destination)
+                : searchFlightsOnDate(origin, destination, date));
+    }
+
+    /** Drops cached searches covering this flight's route; called when its schedule or seats change. */
+    void flightChanged(Flight flight) {
+        searchCache.invalidate(routeKey(flight.getOrigin(), flight.getDestination()));
+    }
+
+    /** Flights on the route departing on the given date that have not yet departed. */
+    public List<Flight> searchFlightsOnDate(String origin, String destination, LocalDate date) {
+        if (date == null) return Collections.emptyList();
+        return searchFlightsBetween(origin, destination, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Flights on the route departing in [from, to), ordered by departure.
+     * Flights that have already departed are skipped. O(log n + k).
+     */
+    public List<Flight> searchFlightsBetween(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+        if (origin == null || destination == null || from == null || to == null) return Collections.emptyList();
+        long startNanos = System.nanoTime();
+        List<Flight> result = new ArrayList<>();
+        NavigableSet<Flight> route = flightsByRoute.get(routeKey(origin, destination));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from.isBefore(now) ? now : from;
+        if (route != null && start.isBefore(to)) {
+            result.addAll(route.subSet(probe(start), true, probe(to), false));
+        }
+        Metrics.SEARCH.recordSince(startNanos);
+        return result;
+    }
+
+    /** The next {@code count} departures on the route with at least {@code minSeats} seats left. */
+    public List<Flight> nextDepartures(String origin, String destination, int count, int minSeats) {
+        if (origin == null || destination == null || count <= 0) return Collections.emptyList();
+        NavigableSet<Flight> route = flightsByRoute.get(routeKey(origin, destination));
+        if (route == null) return new ArrayList<>();
+
+        List<Flight> result = new ArrayList<>(Math.min(count, 16));
+        Iterator<Flight> upcoming = route.tailSet(probe(LocalDateTime.now()), true).iterator();
+        while (upcoming.hasNext() && result.size() < count) {
+            Flight flight = upcoming.next();
+            if (flight.getDepartureMinute() == Flight.NO_TIME) break;
+            if (flight.getAvailableSeats() >= minSeats) result.add(flight);
+        }
+        return result;
+    }
+
+    /** Live view of flights leaving {@code origin} that depart in [from, to], ordered by departure. */
+    public NavigableSet<Flight> departuresFrom(String origin, LocalDateTime from, LocalDateTime to) {
+        if (origin == null || from == null || to == null || to.isBefore(from)) return Collections.emptyNavigableSet();
+        NavigableSet<Flight> departures = departuresByAirport.get(airportKey(origin));
+        if (departures == null) return Collections.emptyNavigableSet();
+        return Collections.unmodifiableNavigableSet(
+                departures.subSet(probe(from), true, probe(to.plusNanos(1)), false));
+    }
+
+    /**
+     * Drops flights that departed before {@code cutoff} from the route index so
+     * searches stop walking them. They stay reachable by flight number, since
+     * existing reservations still refer to them.
+     */
+    public synchronized int pruneDepartedFlights(LocalDateTime cutoff) {
+        int pruned = 0;
+        for (Map.Entry<String, NavigableSet<Flight>> entry : flightsByRoute.entrySet()) {
+            NavigableSet<Flight> departed = entry.getValue().headSet(probe(cutoff), false);
+            pruned += departed.size();
+            if (departed.isEmpty()) continue;
+            departed.clear();
+            searchCache.invalidate(entry.getKey());
+            dropIfEmpty(flightsByRoute, entry.getKey());
+        }
+        for (Map.Entry<String, NavigableSet<Flight>> entry : departuresByAirport.entrySet()) {
+            entry.getValue().headSet(probe(cutoff), false).clear();
+            dropIfEmpty(departuresByAirport, entry.getKey());
+        }
+        return pruned;
+    }
+
+    public synchronized boolean updateFlight(Flight updatedFlight) {
+        if (updatedFlight == null || updatedFlight.getFlightNumber() == null) return false;
+        Flight existing = flightsByNumber.get(numberKey(updatedFlight.getFlightNumber()));
+        if (existing == null) return false;
+        String refusal = replace(existing, updatedFlight, true);
+        if (refusal != null) {
+            System.err.println(refusal);
+            return false;
+        }
+        if (changeLog != null) changeLog.flightUpserted(updatedFlight);
+        publish(ChangeEvent.Type.FLIGHT_UPDATED, updatedFlight);
+        return true;
+    }
+
+    public synchronized boolean deleteFlight(String flightNumber) {
+        if (flightNumber == null) return false;
+        Flight removed = flightsByNumber.remove(numberKey(flightNumber));
+        if (removed == null) return false;
+        unindexRoute(removed);
+        flightChanged(removed);
+        if (changeLog != null) changeLog.flightDeleted(removed.getFlightNumber());
+        publish(ChangeEvent.Type.FLIGHT_DELETED, removed);
+        return true;
+    }
+
+    /**
+     * Runs {@code action} while no flight is being added, replaced or deleted,
+     * holding such changes back until it returns. Keep the action short.
+     */
+    public synchronized <T> T whileUnchanged(Supplier<T> action) {
+        return action.get();
     }
 
-    public boolean updateFlight(Flight updatedFlight) {
-        for (int i = 0; i < flights.size(); i++) {
-            if (flights.get(i).getFlightNumber().equalsIgnoreCase(updatedFlight.getFlightNumber())) {
-                flights.set(i, updatedFlight);
-                return true;
+    /**
+     * Puts {@code flight} in place of {@code previous} (null if there is none),
+     * first carrying over the seats sold on it if {@code keepSeats}. Returns
+     * why the flight was refused, changing nothing, or null once it is in place.
+     */
+    private String replace(Flight previous, Flight flight, boolean keepSeats) {
+        String key = numberKey(flight.getFlightNumber());
+        StampedLock lock = seatLock(key);
+        long stamp = lock.writeLock();
+        try {
+            if (keepSeats && previous != null) {
+                String refusal = takeOverSeats(previous, flight);
+                if (refusal != null) return refusal;
             }
+            flightsByNumber.put(key, flight);
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        return false;
+        if (previous != null) {
+            unindexRoute(previous);
+            flightChanged(previous);
+        }
+        indexRoute(flight);
+        flightChanged(flight);
+        return null;
+    }
+
+    /**
+     * Carries the seats sold on {@code previous} over to {@code flight}, which
+     * is about to replace it, and its seat map too if the seat count is the
+     * same. Returns why not, changing nothing, if {@code flight} has fewer
+     * seats than are sold; null otherwise. Call with the flight's seat lock
+     * held exclusively, so the count cannot change until the flight is replaced.
+     */
+    private static String takeOverSeats(Flight previous, Flight flight) {
+        if (previous == flight) return null;
+        int sold = previous.getTotalSeats() - previous.getAvailableSeats();
+        if (flight.getTotalSeats() < sold) {
+            return "Flight " + flight.getFlightNumber() + " cannot have " + flight.getTotalSeats()
+                    + " seats: " + sold + " are already booked";
+        }
+        flight.setAvailableSeats(flight.getTotalSeats() - sold);
+        SeatMap seatMap = previous.getSeatMap();
+        if (seatMap != null && flight.getTotalSeats() == previous.getTotalSeats()) flight.attachSeatMap(seatMap);
+        return null;
+    }
+
+    private StampedLock seatLock(String key) {
+        return seatLocks[key.hashCode() & (SEAT_LOCK_STRIPES - 1)];
+    }
+
+    private void publish(ChangeEvent.Type type, Flight flight) {
+        ChangeFeed changeFeed = this.changeFeed;
+        if (changeFeed != null) changeFeed.flightChanged(type, flight);
+    }
+
+    // ---- Index maintenance ----
+    private void indexRoute(Flight flight) {
+        index(flightsByRoute, routeKey(flight.getOrigin(), flight.getDestination()), flight);
+        index(departuresByAirport, airportKey(flight.getOrigin()), flight);
+    }
+
+    private void unindexRoute(Flight flight) {
+        unindex(flightsByRoute, routeKey(flight.getOrigin(), flight.getDestination()), flight);
+        unindex(departuresByAirport, airportKey(flight.getOrigin()), flight);
+    }
+
+    // Adding and removing under the map's per-key lock, so a set emptied and dropped by one
+    // replacement never swallows a flight another replacement is adding under the same key
+    private static void index(Map<String, NavigableSet<Flight>> index, String key, Flight flight) {
+        index.compute(key, (k, flights) -> {
+            if (flights == null) flights = new ConcurrentSkipListSet<>(DEPARTURE_ORDER);
+            flights.add(flight);
+            return flights;
+        });
+    }
+
+    private static void unindex(Map<String, NavigableSet<Flight>> index, String key, Flight flight) {
+        index.computeIfPresent(key, (k, flights) -> {
+            flights.remove(flight);
+            return flights.isEmpty() ? null : flights;
+        });
+    }
+
+    private static void dropIfEmpty(Map<String, NavigableSet<Flight>> index, String key) {
+        index.computeIfPresent(key, (k, flights) -> flights.isEmpty() ? null : flights);
+    }
+
+    // Search bound that sorts before every real flight departing at the same time. Flights keep
+    // whole minutes, so a time within a minute rounds up: only later minutes are at or after it
+    private static Flight probe(LocalDateTime time) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        if (minute.isBefore(time)) minute = minute.plusMinutes(1);
+        return new Flight("", null, null, minute, minute, 0, 0);
+    }
+
+    static String numberKey(String flightNumber) {
+        return flightNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    static String routeKey(String origin, String destination) {
+        return airportKey(origin) + "|" + airportKey(destination);
     }
 
-    public boolean deleteFlight(String flightNumber) {
-        return flights.removeIf(f -> f.getFlightNumber().equalsIgnoreCase(flightNumber));
+    static String airportKey(String airport) {
+        return String.valueOf(airport).trim().toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
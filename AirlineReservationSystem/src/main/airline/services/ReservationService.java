@@ -1,75 +1,688 @@
 package main.airline.services;
 
+import main.airline.models.BookingRequest;
+import main.airline.models.ChangeEvent;
+import main.airline.models.FareClass;
 import main.airline.models.Flight;
 import main.airline.models.Passenger;
 import main.airline.models.Reservation;
+import main.airline.models.SeatLayout;
+import main.airline.models.SeatMap;
+import main.airline.models.Waitlist;
+import main.airline.models.WaitlistEntry;
+import main.airline.utils.ChangeFeed;
+import main.airline.utils.ChangeGate;
+import main.airline.utils.ChangeLog;
+import main.airline.utils.IdGenerator;
+import main.airline.utils.LruCache;
+import main.airline.utils.Metrics;
+import main.airline.utils.ReservationStore;
+import main.airline.utils.ReservationTable;
+import main.airline.utils.TimeOrderedIdGenerator;
+import main.airline.utils.TimerWheel;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+/**
+ * Thread-safe booking service. There is no service-wide lock: seats are taken
+ * with a CAS on the flight's own counter, so bookings on different flights
+ * never contend, and reservations are recorded in a {@link ReservationStore}
+ * with concurrent indexes: a compact {@link ReservationTable} on the heap
+ * unless storage attaches a mapped store.
+ * A booking either reserves its seats and records the reservation, or
+ * releases the seats again and fails.
+ *
+ * Each booking is also given seat numbers from the flight's {@link SeatMap}:
+ * the seat count is taken first, so the map never assigns more seats than
+ * were sold, and the map's seats are returned if the booking fails. Flights
+ * too large for a seat layout are sold by count only.
+ *
+ * A booking is either confirmed outright or placed as a hold, which keeps its
+ * seats until it is confirmed and is cancelled automatically once the hold
+ * period passes. Hold expiry runs on a {@link TimerWheel}, so a pending hold
+ * costs one timer entry and confirming it is an O(1) cancel. Cancelling, by
+ * the customer or by expiry, puts the seats back on sale.
+ *
+ * A request that finds its flight full can join the flight's {@link Waitlist}.
+ * Whenever a cancellation or expiry gives seats back, the same change books
+ * waiting requests in priority order for as long as the next one fits, so
+ * promotion costs O(log n) per request booked and nothing ever rescans.
+ * While a flight has waiting requests it takes no other bookings, so seats
+ * that come free always go to the waitlist before they go on sale.
+ * Joining, withdrawing and promotion are persisted like bookings; an entry
+ * leaves the service's maps once it is promoted or withdrawn, and its outcome
+ * stays visible for a while in a bounded cache of finished entries.
+ *
+ * Once a {@link ChangeFeed} is attached, every booking, confirmation and
+ * cancellation is published on it after it is persisted.
+ *
+ * Reservations returned by the service are read-only snapshots of the
+ * reservation when it was read ({@link Reservation#readOnly}): confirm or
+ * cancel one with {@link #confirmReservation} or {@link #cancelReservation}
+ * and look it up again to see the change. Their passengers are copies too.
+ */
 public class ReservationService {
-    private final List<Reservation> reservations;
+    public static final Duration DEFAULT_HOLD_DURATION = Duration.ofMinutes(15);
+    // Machine number in generated ids (system property airline.node), so ids from different machines never clash
+    private static final int NODE = Integer.getInteger("airline.node", 0);
+    private static final Duration HOLD_TICK = Duration.ofSeconds(1);
+    // Promoted and withdrawn waitlist entries kept so their outcome can still be looked up
+    private static final int FINISHED_WAITLIST_ENTRIES = 10_000;
+
+    /** Expiry timer of a pending hold. */
+    private static final class PendingHold {
+        final TimerWheel.Timeout timeout;
+        final LocalDateTime expiresAt;
+
+        PendingHold(TimerWheel.Timeout timeout, LocalDateTime expiresAt) {
+            this.timeout = timeout;
+            this.expiresAt = expiresAt;
+        }
+    }
+
     private final FlightService flightService;
+    // Persistence for booking changes; null until storage is attached
+    private volatile ChangeLog changeLog;
+    // Change-data-capture stream for downstream consumers; null until one is attached
+    private volatile ChangeFeed changeFeed;
+    // Reservation history and its indexes; reservations read from it are read-only copies
+    private volatile ReservationStore store;
+    private volatile IdGenerator idGenerator = new TimeOrderedIdGenerator("RES-", NODE);
+    // Normalised flight number -> its waitlist, created by the first request
+    private final Map<String, Waitlist> waitlists = new ConcurrentHashMap<>();
+    // Normalised entry id -> entry, while it waits
+    private final Map<String, WaitlistEntry> waitlistEntries = new ConcurrentHashMap<>();
+    // Normalised entry id -> recently promoted or withdrawn entry; older ones are forgotten
+    private final LruCache<String, WaitlistEntry> finishedWaitlistEntries = new LruCache<>(FINISHED_WAITLIST_ENTRIES);
+    private final IdGenerator waitlistIds = new TimeOrderedIdGenerator("WL-", NODE);
+    private final AtomicLong waitlistSequence = new AtomicLong();
+    // Set while storage is loading waitlists, so replayed cancellations do not promote anyone; see resumeWaitlists
+    private volatile boolean waitlistsPaused;
+    // Normalised reservation id -> expiry of each hold not yet confirmed, cancelled or expired
+    private final Map<String, PendingHold> pendingHolds = new ConcurrentHashMap<>();
+    private final TimerWheel holdTimers = new TimerWheel("hold-expiry", HOLD_TICK);
+    private volatile Duration holdDuration = DEFAULT_HOLD_DURATION;
+    // Every booking change runs inside the gate, so a backup can find a moment when none is half-persisted
+    private final ChangeGate changeGate = new ChangeGate();
 
     public ReservationService(FlightService flightService) {
-        this.reservations = new ArrayList<>();
         this.flightService = flightService;
+        this.store = new ReservationTable(flightService::findFlightByNumber);
+    }
+
+    /** Attaches the change log that every subsequent booking change is persisted to. */
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /** Attaches the feed that every subsequent booking change is published on. */
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
     }
 
+    /** Switches the service to another store, e.g. a mapped one; call before any reservations are added. Null keeps the heap table. */
+    public void setStore(ReservationStore store) {
+        if (store != null) this.store = store;
+    }
+
+    /** Replaces the source of new reservation ids; ids must be unique and at most 23 bytes. */
+    public void setIdGenerator(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /** How long new holds (and holds resumed after a restart) last before they expire. */
+    public void setHoldDuration(Duration holdDuration) {
+        if (holdDuration.isNegative() || holdDuration.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive");
+        }
+        this.holdDuration = holdDuration;
+    }
+
+    /** Books and confirms {@code seats} seats, seated together where the flight has room. */
     public Reservation createReservation(Flight flight, Passenger passenger, int seats) {
+        return book(flight, passenger, seats, null, false);
+    }
+
+    /** Books and confirms exactly the given seats (labels such as "12C"); fails if any is taken or does not exist. */
+    public Reservation createReservation(Flight flight, Passenger passenger, List<String> seatNumbers) {
+        if (seatNumbers == null || seatNumbers.isEmpty()) return null;
+        return book(flight, passenger, seatNumbers.size(), seatNumbers, false);
+    }
+
+    /** Holds {@code seats} seats until {@link #confirmReservation} is called or the hold expires. */
+    public Reservation holdReservation(Flight flight, Passenger passenger, int seats) {
+        return book(flight, passenger, seats, null, true);
+    }
+
+    /** Holds exactly the given seats until {@link #confirmReservation} is called or the hold expires. */
+    public Reservation holdReservation(Flight flight, Passenger passenger, List<String> seatNumbers) {
+        if (seatNumbers == null || seatNumbers.isEmpty()) return null;
+        return book(flight, passenger, seatNumbers.size(), seatNumbers, true);
+    }
+
+    private Reservation book(Flight flight, Passenger passenger, int seats, List<String> seatNumbers, boolean hold) {
+        long start = System.nanoTime();
+        Reservation reservation = changeGate.change(() -> reserve(flight, passenger, seats, seatNumbers, hold, null));
+        Metrics.BOOKING.recordSince(start);
+        if (reservation == null) {
+            Metrics.BOOKINGS_FAILED.increment();
+        } else if (hold) {
+            Metrics.HOLDS_PLACED.increment();
+        } else {
+            Metrics.seatsSold(reservation.getFlight().getFlightNumber(), seats);
+        }
+        return reservation;
+    }
+
+    /** Books the seats; {@code promoting} is the waitlist entry being booked, persisted with the booking, or null. */
+    private Reservation reserve(Flight flight, Passenger passenger, int seats, List<String> seatNumbers, boolean hold,
+                                WaitlistEntry promoting) {
         if (flight == null || passenger == null) return null;
         if (seats <= 0) return null;
+        // Seats freed on a flight with a waitlist belong to the waiting requests
+        if (promoting == null && hasWaitingRequests(flight.getFlightNumber())) return null;
 
-        Flight managedFlight = flightService.findFlightByNumber(flight.getFlightNumber());
+        // All-or-nothing; no separate availability check to race against
+        Flight managedFlight = flightService.reserveSeats(flight.getFlightNumber(), seats);
         if (managedFlight == null) return null;
 
-        if (managedFlight.getAvailableSeats() < seats) return null;
+        SeatMap seatMap = getSeatMap(managedFlight);
+        List<String> assigned;
+        if (seatMap == null) assigned = seatNumbers == null ? List.of() : null;
+        else assigned = seatNumbers == null ? seatMap.assignAdjacent(seats) : seatMap.hold(seatNumbers);
+        if (assigned == null) {
+            flightService.releaseSeats(managedFlight.getFlightNumber(), seats);
+            return null;
+        }
+        Reservation reservation = Reservation.readOnly(idGenerator.nextId(), managedFlight, passenger, seats, assigned,
+                !hold, false, hold);
+
+        // Undo the seat change if the reservation cannot be recorded
+        if (!record(reservation)) {
+            if (seatMap != null) seatMap.release(assigned);
+            flightService.releaseSeats(managedFlight.getFlightNumber(), seats);
+            return null;
+        }
+        // A booking that cannot be made durable is not made at all
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog != null && !(promoting != null ? changeLog.promoted(promoting, reservation)
+                : changeLog.booked(reservation))) {
+            unrecord(reservation);
+            if (seatMap != null) seatMap.release(assigned);
+            flightService.releaseSeats(managedFlight.getFlightNumber(), seats);
+            return null;
+        }
+        if (hold) armHold(reservation.getReservationId());
+        flightService.flightChanged(managedFlight);
+        publish(ChangeEvent.Type.BOOKED, reservation);
+        return reservation;
+    }
+
+    /**
+     * Books a group in one operation. Each distinct flight is resolved once and
+     * the group's total seats on it are taken in a single atomic step. Either
+     * every reservation is created, or none is and all seats are returned
+     * (returns null).
+     */
+    public List<Reservation> createReservations(List<BookingRequest> batch) {
+        long start = System.nanoTime();
+        List<Reservation> created = changeGate.change(() -> reserveGroup(batch));
+        Metrics.GROUP_BOOKING.recordSince(start);
+        if (created == null) {
+            Metrics.BOOKINGS_FAILED.increment();
+        } else {
+            for (Reservation reservation : created) {
+                Metrics.seatsSold(reservation.getFlight().getFlightNumber(), reservation.getSeats());
+            }
+        }
+        return created;
+    }
 
-        String reservationId = "RES-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        Reservation reservation = new Reservation(reservationId, managedFlight, passenger, seats);
+    private List<Reservation> reserveGroup(List<BookingRequest> batch) {
+        if (batch == null || batch.isEmpty()) return null;
 
-        for (int i = 0; i < seats; i++) managedFlight.bookSeat();
+        Map<String, Integer> seatsByFlight = new LinkedHashMap<>();
+        for (BookingRequest request : batch) {
+            if (request == null || request.getFlight() == null || request.getPassenger() == null) return null;
+            if (request.getSeats() <= 0) return null;
+            if (hasWaitingRequests(request.getFlight().getFlightNumber())) return null;
+            seatsByFlight.merge(key(request.getFlight().getFlightNumber()), request.getSeats(), Math::addExact);
+        }
 
-        reservations.add(reservation);
-        return reservation;
+        // Reserve flight by flight; give back earlier flights if a later one is short or unknown
+        Map<String, Flight> flights = new LinkedHashMap<>();
+        Map<String, Integer> reserved = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : seatsByFlight.entrySet()) {
+            Flight managedFlight = flightService.reserveSeats(entry.getKey(), entry.getValue());
+            if (managedFlight == null) {
+                releaseAll(reserved);
+                return null;
+            }
+            flights.put(entry.getKey(), managedFlight);
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+
+        // Each request is seated together; the group as a whole may be spread out
+        List<Reservation> created = new ArrayList<>(batch.size());
+        for (BookingRequest request : batch) {
+            Flight managedFlight = flights.get(key(request.getFlight().getFlightNumber()));
+            SeatMap seatMap = getSeatMap(managedFlight);
+            List<String> assigned = seatMap == null ? List.of() : seatMap.assignAdjacent(request.getSeats());
+            Reservation reservation = assigned == null ? null : Reservation.readOnly(idGenerator.nextId(), managedFlight,
+                    request.getPassenger(), request.getSeats(), assigned, true, false, false);
+            if (reservation == null || !record(reservation)) {
+                if (seatMap != null && assigned != null) seatMap.release(assigned);
+                rollBack(created);
+                releaseAll(reserved);
+                return null;
+            }
+            created.add(reservation);
+        }
+
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog != null && !changeLog.booked(created)) {
+            rollBack(created);
+            releaseAll(reserved);
+            return null;
+        }
+        for (Flight managedFlight : flights.values()) flightService.flightChanged(managedFlight);
+        for (Reservation reservation : created) publish(ChangeEvent.Type.BOOKED, reservation);
+        return created;
+    }
+
+    private void rollBack(List<Reservation> recorded) {
+        for (Reservation reservation : recorded) {
+            unrecord(reservation);
+            SeatMap seatMap = reservation.getFlight().getSeatMap();
+            if (seatMap != null) seatMap.release(reservation.getSeatNumbers());
+        }
+    }
+
+    private void releaseAll(Map<String, Integer> seatsByFlight) {
+        for (Map.Entry<String, Integer> entry : seatsByFlight.entrySet()) {
+            flightService.releaseSeats(entry.getKey(), entry.getValue());
+        }
     }
 
     public List<Reservation> getAllReservations() {
-        return new ArrayList<>(reservations);
+        return store.readAll();
+    }
+
+    /** Seats held by reservations that are not cancelled, by flight number. */
+    public Map<String, Integer> countBookedSeats() {
+        return store.countBookedSeats();
     }
 
+    /** The reservation as it is now, read-only; null if unknown. */
     public Reservation findReservationById(String reservationId) {
         if (reservationId == null) return null;
-        return reservations.stream()
-                .filter(r -> reservationId.equalsIgnoreCase(r.getReservationId()))
-                .findFirst()
-                .orElse(null);
+        return store.get(reservationId);
+    }
+
+    /**
+     * Reservations with ids in [fromId, toId), in id order; a null bound is
+     * open. Ids are time-ordered, so this is a scan by booking time, e.g.
+     * from {@link TimeOrderedIdGenerator#firstIdAt} of one instant to another.
+     */
+    public List<Reservation> findReservationsInIdRange(String fromId, String toId) {
+        return store.findByIdRange(fromId, toId);
     }
 
     public boolean cancelReservation(String reservationId) {
+        long start = System.nanoTime();
+        boolean cancelled = changeGate.change(() -> cancel(reservationId));
+        Metrics.CANCELLATION.recordSince(start);
+        if (!cancelled) Metrics.CANCELLATIONS_FAILED.increment();
+        return cancelled;
+    }
+
+    private boolean cancel(String reservationId) {
+        Reservation reservation = findReservationById(reservationId);
+        if (reservation == null) return false;
+
+        // Exactly one of several racing cancellations wins
+        if (!store.markCancelled(reservation.getReservationId())) return false;
+        // A cancellation that cannot be made durable is not made at all
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog != null && !changeLog.cancelled(reservation)) {
+            store.unmarkCancelled(reservation.getReservationId());
+            return false;
+        }
+        reservation = store.get(reservation.getReservationId());
+        disarmHold(reservation.getReservationId());
+        publish(ChangeEvent.Type.CANCELLED, reservation);
+        releaseSeats(reservation);
+        return true;
+    }
+
+    /**
+     * Confirms a hold (or an older unconfirmed booking). Returns false if the
+     * reservation is unknown, cancelled, already confirmed, or its hold expired.
+     */
+    public boolean confirmReservation(String reservationId) {
+        return changeGate.change(() -> confirm(reservationId));
+    }
+
+    private boolean confirm(String reservationId) {
+        Reservation reservation = findReservationById(reservationId);
+        if (reservation == null) return false;
+
+        // Confirmation and expiry race on the same flags; only one of them wins
+        if (!store.markConfirmed(reservation.getReservationId())) return false;
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog != null && !changeLog.confirmed(reservation)) {
+            store.unmarkConfirmed(reservation.getReservationId());
+            return false;
+        }
+        reservation = store.get(reservation.getReservationId());
+        disarmHold(reservation.getReservationId());
+        publish(ChangeEvent.Type.CONFIRMED, reservation);
+        if (reservation.wasHeld()) {
+            Metrics.HOLDS_CONFIRMED.increment();
+            if (reservation.getFlight() != null) {
+                Metrics.seatsSold(reservation.getFlight().getFlightNumber(), reservation.getSeats());
+            }
+        }
+        if (reservation.getFlight() != null) flightService.flightChanged(reservation.getFlight());
+        return true;
+    }
+
+    /**
+     * Runs {@code action} at a moment when no booking, cancellation,
+     * confirmation or expiry is in progress, holding new ones back until it
+     * returns. Keep the action short.
+     */
+    public <T> T whileQuiescent(Supplier<T> action) {
+        return changeGate.exclusive(action);
+    }
+
+    /** When the reservation's hold expires, or null if it is not a pending hold. */
+    public LocalDateTime getHoldExpiry(String reservationId) {
+        if (reservationId == null) return null;
+        PendingHold pending = pendingHolds.get(key(reservationId));
+        return pending == null ? null : pending.expiresAt;
+    }
+
+    /** Number of holds waiting to be confirmed. */
+    public int getPendingHoldCount() {
+        return pendingHolds.size();
+    }
+
+    /**
+     * Starts expiry timers for the pending holds loaded from storage. Expiry
+     * times are not persisted, so each gets a full hold period from now.
+     */
+    public void resumeHolds() {
+        for (String reservationId : store.findPendingHolds()) armHold(reservationId);
+    }
+
+    /**
+     * Lets the waitlists loaded from storage promote again, and books the
+     * requests that seats have come free for meanwhile. Call once storage has
+     * loaded and the change log is attached.
+     */
+    public void resumeWaitlists() {
+        waitlistsPaused = false;
+        for (Waitlist waitlist : waitlists.values()) {
+            WaitlistEntry head = waitlist.peek();
+            Flight flight = head != null ? flightService.findFlightByNumber(head.getFlightNumber()) : null;
+            if (flight == null) continue;
+            changeGate.change(() -> {
+                promoteWaitlisted(flight);
+                return null;
+            });
+        }
+    }
+
+    private void armHold(String reservationId) {
+        Duration duration = holdDuration;
+        TimerWheel.Timeout timeout = holdTimers.schedule(duration, () -> expire(reservationId));
+        pendingHolds.put(key(reservationId), new PendingHold(timeout, LocalDateTime.now().plus(duration)));
+    }
+
+    private void disarmHold(String reservationId) {
+        PendingHold pending = pendingHolds.remove(key(reservationId));
+        if (pending != null) pending.timeout.cancel();
+    }
+
+    // Runs on the timer wheel's thread
+    private void expire(String reservationId) {
+        pendingHolds.remove(key(reservationId));
+        changeGate.change(() -> expireHold(reservationId));
+    }
+
+    private boolean expireHold(String reservationId) {
         Reservation reservation = findReservationById(reservationId);
         if (reservation == null) return false;
 
-        if (!reservation.isCancelled()) {
-            reservation.cancelReservation();
+        if (!store.markExpired(reservation.getReservationId())) return false;
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog != null && !changeLog.cancelled(reservation)) {
+            // Still held; try again after another hold period
+            store.unmarkCancelled(reservation.getReservationId());
+            armHold(reservation.getReservationId());
+            return false;
+        }
+        reservation = store.get(reservation.getReservationId());
+        publish(ChangeEvent.Type.CANCELLED, reservation);
+        releaseSeats(reservation);
+        Metrics.HOLDS_EXPIRED.increment();
+        return true;
+    }
+
+    /** Puts a cancelled reservation's seats back on sale; seat numbers first, so the map never runs ahead of the count. */
+    private void releaseSeats(Reservation reservation) {
+        if (reservation.getFlight() == null) return;
+        String flightNumber = reservation.getFlight().getFlightNumber();
+        Flight current = flightService.findFlightByNumber(flightNumber);
+        if (current == null) return;
+        SeatMap seatMap = current.getSeatMap();
+        if (seatMap != null) seatMap.release(reservation.getSeatNumbers());
+        Flight flight = flightService.releaseSeats(flightNumber, reservation.getSeats());
+        if (flight == null) return;
+        flightService.flightChanged(flight);
+        promoteWaitlisted(flight);
+    }
+
+    /**
+     * Puts a request for {@code seats} seats on the flight's waitlist, to be
+     * booked (confirmed) once enough seats are free and no request ahead of it
+     * is waiting: one in a higher fare class, or in the same class and made
+     * earlier. If seats are free already, it is booked before this returns.
+     * Returns null if the flight is unknown or has fewer seats than requested.
+     */
+    public WaitlistEntry joinWaitlist(Flight flight, Passenger passenger, int seats, FareClass fareClass) {
+        if (flight == null || passenger == null || seats <= 0) return null;
+        Flight managedFlight = flightService.findFlightByNumber(flight.getFlightNumber());
+        if (managedFlight == null || seats > managedFlight.getTotalSeats()) return null;
+
+        WaitlistEntry entry = new WaitlistEntry(waitlistIds.nextId(), managedFlight.getFlightNumber(), passenger, seats,
+                fareClass != null ? fareClass : FareClass.ECONOMY, LocalDateTime.now(), waitlistSequence.getAndIncrement());
+        boolean joined = changeGate.change(() -> {
+            // A request that cannot be made durable is not taken
+            ChangeLog changeLog = this.changeLog;
+            if (changeLog != null && !changeLog.waitlisted(entry)) return false;
+            addWaitlistEntry(entry);
+            // Seats may have come free since the caller found the flight full
+            promoteWaitlisted(managedFlight);
             return true;
+        });
+        if (!joined) return null;
+        Metrics.WAITLIST_JOINED.increment();
+        return entry;
+    }
+
+    /** A waiting request, or one promoted or withdrawn recently; null if unknown or long finished. */
+    public WaitlistEntry getWaitlistEntry(String entryId) {
+        if (entryId == null) return null;
+        WaitlistEntry entry = waitlistEntries.get(key(entryId));
+        return entry != null ? entry : finishedWaitlistEntries.get(key(entryId));
+    }
+
+    /** Withdraws a waiting request; false if it is unknown, already booked or already withdrawn. */
+    public boolean leaveWaitlist(String entryId) {
+        if (entryId == null) return false;
+        WaitlistEntry entry = waitlistEntries.get(key(entryId));
+        if (entry == null) return false;
+        Waitlist waitlist = waitlists.get(key(entry.getFlightNumber()));
+        if (waitlist == null) return false;
+        return changeGate.change(() -> {
+            // The waitlist's lock keeps a promotion of the entry from running in between
+            synchronized (waitlist) {
+                if (entry.getStatus() != WaitlistEntry.Status.WAITING) return false;
+                ChangeLog changeLog = this.changeLog;
+                if (changeLog != null && !changeLog.waitlistWithdrawn(entry)) return false;
+                if (!waitlist.withdraw(entry)) return false;
+                finishWaitlistEntry(entry);
+                return true;
+            }
+        });
+    }
+
+    /** Every waiting request, in no particular order, e.g. for a snapshot. */
+    public List<WaitlistEntry> getWaitingEntries() {
+        return new ArrayList<>(waitlistEntries.values());
+    }
+
+    /** Needed when loading from storage: a request that was still waiting. Promotions stay paused until {@link #resumeWaitlists}. */
+    public void addWaitlistEntryFromStorage(WaitlistEntry entry) {
+        if (entry == null || entry.getStatus() != WaitlistEntry.Status.WAITING) return;
+        if (waitlistEntries.containsKey(key(entry.getEntryId()))) return;
+        waitlistsPaused = true;
+        waitlistSequence.accumulateAndGet(entry.getSequence() + 1, Math::max);
+        addWaitlistEntry(entry);
+    }
+
+    /** Needed when loading from storage: a waiting request was booked as {@code reservationId}. */
+    public void promoteWaitlistEntryFromStorage(String entryId, String reservationId) {
+        if (entryId == null) return;
+        WaitlistEntry entry = waitlistEntries.get(key(entryId));
+        if (entry == null) return;
+        Waitlist waitlist = waitlists.get(key(entry.getFlightNumber()));
+        if (waitlist != null && waitlist.promote(entry, reservationId)) finishWaitlistEntry(entry);
+    }
+
+    private void addWaitlistEntry(WaitlistEntry entry) {
+        waitlistEntries.put(key(entry.getEntryId()), entry);
+        waitlists.computeIfAbsent(key(entry.getFlightNumber()), k -> new Waitlist()).add(entry);
+    }
+
+    private void finishWaitlistEntry(WaitlistEntry entry) {
+        finishedWaitlistEntries.put(key(entry.getEntryId()), entry);
+        waitlistEntries.remove(key(entry.getEntryId()));
+    }
+
+    /** Whether requests are waiting for seats on the flight; bookings are refused until they are served. */
+    public boolean hasWaitingRequests(String flightNumber) {
+        if (flightNumber == null) return false;
+        Waitlist waitlist = waitlists.get(key(flightNumber));
+        return waitlist != null && !waitlist.isEmpty();
+    }
+
+    /** The flight's waiting requests, next to be promoted first. */
+    public List<WaitlistEntry> getWaitlist(String flightNumber) {
+        if (flightNumber == null) return Collections.emptyList();
+        Waitlist waitlist = waitlists.get(key(flightNumber));
+        return waitlist == null ? Collections.emptyList() : waitlist.getEntries();
+    }
+
+    /**
+     * Books waiting requests in priority order while the next one fits. A
+     * request that does not fit holds up those behind it, so a large party is
+     * not passed over forever by smaller ones. Runs inside the change that
+     * freed the seats.
+     */
+    private void promoteWaitlisted(Flight flight) {
+        if (waitlistsPaused) return;
+        Waitlist waitlist = waitlists.get(key(flight.getFlightNumber()));
+        if (waitlist == null) return;
+        synchronized (waitlist) {
+            for (WaitlistEntry next = waitlist.peek(); next != null; next = waitlist.peek()) {
+                if (flight.getAvailableSeats() < next.getSeats()) return;
+                Reservation reservation = reserve(flight, next.getPassenger(), next.getSeats(), null, false, next);
+                if (reservation == null) return;
+                waitlist.promote(next, reservation.getReservationId());
+                finishWaitlistEntry(next);
+                Metrics.WAITLIST_PROMOTED.increment();
+                Metrics.seatsSold(flight.getFlightNumber(), next.getSeats());
+            }
         }
-        return false;
     }
 
+    /** A passenger's reservations, oldest first, as read-only snapshots. */
     public List<Reservation> getReservationsByPassenger(String passengerId) {
         if (passengerId == null) return Collections.emptyList();
-        return reservations.stream()
-                .filter(r -> r.getPassenger() != null &&
-                        passengerId.equalsIgnoreCase(r.getPassenger().getId()))
-                .collect(Collectors.toList());
+        return store.findByPassenger(passengerId);
+    }
+
+    /** All reservations (including cancelled ones) made on a flight, i.e. its manifest. */
+    public List<Reservation> getReservationsByFlight(String flightNumber) {
+        if (flightNumber == null) return Collections.emptyList();
+        return store.findByFlight(flightNumber);
+    }
+
+    /**
+     * The flight's seat map, built on first use from the seats held by its
+     * active reservations; null if the flight is too large for a seat layout.
+     */
+    public SeatMap getSeatMap(Flight flight) {
+        SeatMap seatMap = flight.getSeatMap();
+        if (seatMap != null) return seatMap;
+        if (!SeatLayout.fits(flight.getTotalSeats())) return null;
+        seatMap = new SeatMap(SeatLayout.forSeats(flight.getTotalSeats()));
+        for (Reservation reservation : getReservationsByFlight(flight.getFlightNumber())) {
+            if (!reservation.isCancelled() && !reservation.getSeatNumbers().isEmpty()) {
+                seatMap.hold(reservation.getSeatNumbers());
+            }
+        }
+        return flight.attachSeatMap(seatMap);
     }
 
     /** Needed by Main.java when loading from file */
     public void addReservationFromStorage(Reservation reservation) {
-        if (reservation != null) reservations.add(reservation);
+        if (reservation == null || !record(reservation)) return;
+        // Seat maps already built must see the seats; the rest pick them up when built
+        Flight flight = reservation.getFlight();
+        SeatMap seatMap = flight != null ? flight.getSeatMap() : null;
+        if (seatMap != null && !reservation.isCancelled() && !reservation.getSeatNumbers().isEmpty()) {
+            seatMap.hold(reservation.getSeatNumbers());
+        }
+    }
+
+    private boolean record(Reservation reservation) {
+        try {
+            return store.add(reservation);
+        } catch (IOException e) {
+            System.err.println("Error storing reservation " + reservation.getReservationId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Rolls back a reservation recorded by a failed booking. The heap table
+     * drops it; the append-only mapped store can only mark it cancelled.
+     */
+    private void unrecord(Reservation reservation) {
+        store.discard(reservation.getReservationId());
+    }
+
+    private void publish(ChangeEvent.Type type, Reservation reservation) {
+        ChangeFeed changeFeed = this.changeFeed;
+        if (changeFeed != null) changeFeed.reservationChanged(type, reservation);
+    }
+
+    private static String key(String id) {
+        return id.trim().toUpperCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,92 @@
+package main.airline.services;
+
+import main.airline.models.Flight;
+import main.airline.utils.LruCache;
+import main.airline.utils.Metrics;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache of route searches, keyed by route and optional date.
+ *
+ * Each route has a version that is bumped whenever a flight on it is added,
+ * updated, deleted, booked or cancelled; an entry is only served while its
+ * route is still at the version it was computed under, so a change on one
+ * route never invalidates another. Dated results also lapse when their first
+ * flight departs, since searches leave departed flights out.
+ */
+public class RouteSearchCache {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    /** A cached search: the flights plus any renderings of them made so far. */
+    public static class Result {
+        private final List<Flight> flights;
+        private final long version;
+        private final LocalDateTime validUntil;
+        private final Map<String, String> renderings = new ConcurrentHashMap<>(4);
+
+        Result(List<Flight> flights, long version, LocalDateTime validUntil) {
+            this.flights = Collections.unmodifiableList(flights);
+            this.version = version;
+            this.validUntil = validUntil;
+        }
+
+        public List<Flight> getFlights() { return flights; }
+
+        /** The flights rendered by {@code renderer}, computed once per format while the entry lives. */
+        public String render(String format, Function<List<Flight>, String> renderer) {
+            return renderings.computeIfAbsent(format, f -> renderer.apply(flights));
+        }
+    }
+
+    private final LruCache<String, Result> entries;
+    private final Map<String, AtomicLong> routeVersions = new ConcurrentHashMap<>();
+
+    public RouteSearchCache(int capacity) {
+        this.entries = new LruCache<>(capacity, Metrics.SEARCH_CACHE_EVICTIONS);
+    }
+
+    Result get(String routeKey, LocalDate date, Supplier<List<Flight>> loader) {
+        AtomicLong version = routeVersions.computeIfAbsent(routeKey, k -> new AtomicLong());
+        long current = version.get();
+        String key = date == null ? routeKey : routeKey + "|" + date;
+
+        Result cached = entries.get(key);
+        if (cached != null && cached.version == current
+                && (cached.validUntil == null || LocalDateTime.now().isBefore(cached.validUntil))) {
+            Metrics.SEARCH_CACHE_HITS.increment();
+            return cached;
+        }
+        Metrics.SEARCH_CACHE_MISSES.increment();
+
+        List<Flight> flights = loader.get();
+        // Results are ordered by departure, so the first flight is the first to drop out
+        LocalDateTime validUntil = date != null && !flights.isEmpty() ? flights.get(0).getDepartureTime() : null;
+        Result fresh = new Result(flights, current, validUntil);
+        // Skip the insert if the route changed while loading; the result may already be stale
+        if (version.get() == current) entries.put(key, fresh);
+        return fresh;
+    }
+
+    void invalidate(String routeKey) {
+        AtomicLong version = routeVersions.get(routeKey);
+        if (version == null) return;
+        version.incrementAndGet();
+        Metrics.SEARCH_CACHE_INVALIDATIONS.increment();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
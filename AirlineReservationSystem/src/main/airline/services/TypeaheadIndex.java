@@ -0,0 +1,207 @@
+package main.airline.services;
+
+import main.airline.models.ChangeEvent;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.utils.ChangeFeed;
+import main.airline.utils.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Typeahead over airports, flight numbers and passengers: names that start
+ * with what has been typed so far, or nearly do (a typo or two, depending on
+ * how much has been typed). Matching ignores case and repeated spaces.
+ *
+ * Each kind has its own {@link PrefixTrie}. Airports are indexed by name,
+ * flights by number, and passengers by name, each word of it, and email.
+ * The index follows the services through their {@link ChangeFeed}, so it
+ * stays current without adding work to the booking path; a subscription cut
+ * off for falling behind rebuilds the index from the services and carries on.
+ */
+public class TypeaheadIndex implements Flow.Subscriber<List<ChangeEvent>> {
+    public static final int DEFAULT_LIMIT = 10;
+
+    private final FlightService flightService;
+    private final ReservationService reservationService;
+    private final PrefixTrie<String> airports = new PrefixTrie<>();
+    private final PrefixTrie<String> flightNumbers = new PrefixTrie<>();
+    // Values are passenger ids
+    private final PrefixTrie<String> passengers = new PrefixTrie<>();
+
+    // Guarded by this: what each indexed flight contributes, so a replaced or deleted flight can be taken out
+    private final Map<String, Flight> indexedFlights = new HashMap<>();
+    // Guarded by this: flights using each airport (by normalised name); the name leaves the index with the last one
+    private final Map<String, Integer> airportUse = new HashMap<>();
+    // Guarded by this: normalised airport name -> the name as indexed
+    private final Map<String, String> airportNames = new HashMap<>();
+    // Passenger id -> details as indexed; passengers stay once seen, as their reservations do
+    private final Map<String, Passenger> passengersById = new ConcurrentHashMap<>();
+    private volatile ChangeFeed changeFeed;
+
+    public TypeaheadIndex(FlightService flightService, ReservationService reservationService) {
+        this.flightService = flightService;
+        this.reservationService = reservationService;
+    }
+
+    /**
+     * Indexes the current flights and passengers and keeps following
+     * {@code changeFeed}. Subscribes before reading the services, so no
+     * change made meanwhile is missed.
+     */
+    public void attach(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+        changeFeed.subscribe(this);
+        rebuild();
+    }
+
+    /** Re-reads every flight and reservation from the services. */
+    public synchronized void rebuild() {
+        airports.clear();
+        flightNumbers.clear();
+        passengers.clear();
+        indexedFlights.clear();
+        airportUse.clear();
+        airportNames.clear();
+        passengersById.clear();
+        flightService.forEachFlight(this::addFlight);
+        for (Reservation reservation : reservationService.getAllReservations()) addPassenger(reservation.getPassenger());
+    }
+
+    /** Airport names matching {@code query}, as first written in the schedule. */
+    public List<String> suggestAirports(String query, int limit) {
+        String term = normalise(query);
+        return term.isEmpty() ? new ArrayList<>() : airports.search(term, maxEdits(term), limit);
+    }
+
+    public List<String> suggestFlightNumbers(String query, int limit) {
+        String term = normalise(query);
+        return term.isEmpty() ? new ArrayList<>() : flightNumbers.search(term, maxEdits(term), limit);
+    }
+
+    /** Passengers with a name word or email matching {@code query}, with the details of their latest booking. */
+    public List<Passenger> suggestPassengers(String query, int limit) {
+        String term = normalise(query);
+        List<Passenger> found = new ArrayList<>();
+        if (term.isEmpty()) return found;
+        for (String passengerId : passengers.search(term, maxEdits(term), limit)) {
+            Passenger passenger = passengersById.get(passengerId);
+            if (passenger != null) found.add(passenger);
+        }
+        return found;
+    }
+
+    // ---- Change feed ----
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        // Index updates are cheap; the feed batches whatever piles up meanwhile
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized void onNext(List<ChangeEvent> batch) {
+        for (ChangeEvent event : batch) {
+            switch (event.getType()) {
+                case BOOKED -> addPassenger(event.getReservation().getPassenger());
+                case FLIGHT_UPDATED -> addFlight(event.getFlight());
+                case FLIGHT_DELETED -> removeFlight(event.getFlightNumber());
+                default -> { }
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        // Fell behind and missed changes: start over from the services
+        ChangeFeed changeFeed = this.changeFeed;
+        if (changeFeed != null) attach(changeFeed);
+    }
+
+    @Override
+    public void onComplete() {
+        // The feed closed at shutdown
+    }
+
+    // ---- Index maintenance (guarded by this) ----
+    private void addFlight(Flight flight) {
+        if (flight == null || flight.getFlightNumber() == null) return;
+        String key = normalise(flight.getFlightNumber());
+        Flight previous = indexedFlights.put(key, flight);
+        if (previous == null) flightNumbers.add(key, flight.getFlightNumber());
+        useAirport(flight.getOrigin(), 1);
+        useAirport(flight.getDestination(), 1);
+        if (previous != null) {
+            useAirport(previous.getOrigin(), -1);
+            useAirport(previous.getDestination(), -1);
+        }
+    }
+
+    private void removeFlight(String flightNumber) {
+        if (flightNumber == null) return;
+        String key = normalise(flightNumber);
+        Flight previous = indexedFlights.remove(key);
+        if (previous == null) return;
+        flightNumbers.remove(key, previous.getFlightNumber());
+        useAirport(previous.getOrigin(), -1);
+        useAirport(previous.getDestination(), -1);
+    }
+
+    private void useAirport(String name, int delta) {
+        if (name == null) return;
+        String key = normalise(name);
+        if (key.isEmpty()) return;
+        Integer uses = airportUse.merge(key, delta, Integer::sum);
+        if (uses == 1 && delta > 0) {
+            airportNames.put(key, name);
+            airports.add(key, name);
+        } else if (uses <= 0) {
+            airportUse.remove(key);
+            String indexed = airportNames.remove(key);
+            if (indexed != null) airports.remove(key, indexed);
+        }
+    }
+
+    private void addPassenger(Passenger passenger) {
+        if (passenger == null || passenger.getId() == null) return;
+        Passenger snapshot = new Passenger(passenger.getId(), passenger.getName(), passenger.getEmail(), passenger.getPhone());
+        Passenger previous = passengersById.put(passenger.getId(), snapshot);
+        if (previous != null) {
+            if (sameTerms(previous, snapshot)) return;
+            for (String term : terms(previous)) passengers.remove(term, previous.getId());
+        }
+        for (String term : terms(snapshot)) passengers.add(term, snapshot.getId());
+    }
+
+    private static boolean sameTerms(Passenger a, Passenger b) {
+        return normalise(a.getName()).equals(normalise(b.getName())) && normalise(a.getEmail()).equals(normalise(b.getEmail()));
+    }
+
+    private static List<String> terms(Passenger passenger) {
+        List<String> terms = new ArrayList<>(4);
+        String name = normalise(passenger.getName());
+        if (!name.isEmpty()) {
+            // The whole name, so "mary ann" finds Mary Ann Smith, and each word, so "smith" does
+            terms.add(name);
+            if (name.indexOf(' ') > 0) terms.addAll(List.of(name.split(" ")));
+        }
+        String email = normalise(passenger.getEmail());
+        if (!email.isEmpty()) terms.add(email);
+        return terms;
+    }
+
+    // Short queries must match exactly; one typo from 4 characters, two from 8
+    private static int maxEdits(String term) {
+        return term.length() < 4 ? 0 : term.length() < 8 ? 1 : 2;
+    }
+
+    private static String normalise(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
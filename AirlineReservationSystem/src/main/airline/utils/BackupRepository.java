@@ -0,0 +1,325 @@
+package main.airline.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed backup repository. Files are cut into chunks of at most
+ * {@link #CHUNK_BYTES}; each chunk is stored once, under the SHA-256 of its
+ * contents, so a backup only writes the chunks that no earlier backup wrote.
+ * Chunks are hashed and compressed on a pool of worker threads.
+ *
+ * A backup is recorded in a text manifest listing each file's chunks and
+ * ending with a checksum of the manifest itself:
+ * <pre>
+ * root/chunks/ab/abcdef...   1 method byte (0 stored, 1 deflated), then the data
+ * root/manifests/20240501-083000-123.manifest
+ * </pre>
+ * Restoring verifies the manifest and every chunk before anything is replaced.
+ */
+public class BackupRepository implements Closeable {
+    public static final int CHUNK_BYTES = 1 << 20;
+    private static final String MAGIC = "airline-backup 1";
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+    private static final DateTimeFormatter MANIFEST_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /** A chunk of a backed-up file. */
+    public static final class Chunk {
+        final String hash;
+        final int length;
+
+        Chunk(String hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        public int getLength() { return length; }
+    }
+
+    /** A backed-up file: its name, size, modification time and chunks in order. */
+    public static final class FileEntry {
+        final String name;
+        final long size;
+        final long lastModified;
+        final List<Chunk> chunks;
+
+        public FileEntry(String name, long size, long lastModified, List<Chunk> chunks) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.chunks = chunks;
+        }
+
+        public String getName() { return name; }
+        public long getSize() { return size; }
+        public long getLastModified() { return lastModified; }
+        public List<Chunk> getChunks() { return chunks; }
+    }
+
+    private final Path root;
+    private final Path chunks;
+    private final Path manifests;
+    private final ExecutorService workers;
+    // Bounds the chunks queued or in progress, and so the memory they hold
+    private final Semaphore inFlight;
+    private final LongAdder chunksWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    public BackupRepository(Path root) throws IOException {
+        this.root = root;
+        this.chunks = root.resolve("chunks");
+        this.manifests = root.resolve("manifests");
+        Files.createDirectories(chunks);
+        Files.createDirectories(manifests);
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.inFlight = new Semaphore(2 * threads);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "backup-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path getRoot() { return root; }
+
+    /** Chunks written (not already present) and their compressed bytes, since this repository was opened. */
+    public long getChunksWritten() { return chunksWritten.sum(); }
+    public long getBytesWritten() { return bytesWritten.sum(); }
+
+    /**
+     * Stores {@code data[0, length)} as a chunk unless an identical one is
+     * already stored. Hashing, compression and writing happen on a worker;
+     * the caller must not touch {@code data} again. Blocks while too many
+     * chunks are in flight.
+     */
+    public Future<Chunk> put(byte[] data, int length) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            return workers.submit(() -> {
+                try {
+                    return store(data, length);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /** Writes a manifest for {@code files} and returns its id. */
+    public String commit(List<FileEntry> files) throws IOException {
+        StringBuilder sb = new StringBuilder(MAGIC).append('\n');
+        for (FileEntry file : files) {
+            sb.append("file ").append(file.name).append(' ').append(file.size).append(' ').append(file.lastModified).append('\n');
+            for (Chunk chunk : file.chunks) sb.append("chunk ").append(chunk.hash).append(' ').append(chunk.length).append('\n');
+        }
+        String checksum = hex(sha256(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        sb.append("end ").append(checksum).append('\n');
+
+        String id = LocalDateTime.now().format(MANIFEST_NAME);
+        // Two backups in the same millisecond would otherwise share a name
+        while (Files.exists(manifests.resolve(id + ".manifest"))) id = id + "a";
+        Path target = manifests.resolve(id + ".manifest");
+        Path temp = manifests.resolve(id + ".manifest.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) channel.write(bytes);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return id;
+    }
+
+    /** Id of the newest manifest, or null if there is none. */
+    public String latestId() throws IOException {
+        try (Stream<Path> files = Files.list(manifests)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".manifest"))
+                    .map(name -> name.substring(0, name.length() - ".manifest".length()))
+                    .max(Comparator.naturalOrder())
+                    .orElse(null);
+        }
+    }
+
+    /** Reads and verifies a manifest; throws IOException if it is missing or damaged. */
+    public List<FileEntry> readManifest(String id) throws IOException {
+        List<String> lines = Files.readAllLines(manifests.resolve(id + ".manifest"), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(MAGIC)) throw new IOException("Not a backup manifest: " + id);
+        String last = lines.get(lines.size() - 1);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines.size() - 1; i++) content.append(lines.get(i)).append('\n');
+        if (!last.equals("end " + hex(sha256(content.toString().getBytes(StandardCharsets.UTF_8))))) {
+            throw new IOException("Backup manifest " + id + " is damaged");
+        }
+
+        List<FileEntry> files = new ArrayList<>();
+        List<Chunk> chunkList = null;
+        for (int i = 1; i < lines.size() - 1; i++) {
+            String[] parts = lines.get(i).split(" ");
+            if (parts[0].equals("file")) {
+                chunkList = new ArrayList<>();
+                files.add(new FileEntry(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]), chunkList));
+            } else if (parts[0].equals("chunk") && chunkList != null) {
+                chunkList.add(new Chunk(parts[1], Integer.parseInt(parts[2])));
+            } else {
+                throw new IOException("Unexpected line in backup manifest " + id + ": " + lines.get(i));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Rebuilds {@code file} at {@code target}, checking every chunk against its
+     * hash. Uncompressed chunks are verified in place and copied with
+     * {@link FileChannel#transferTo}.
+     */
+    public void restore(FileEntry file, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Inflater inflater = new Inflater();
+            byte[] data = new byte[CHUNK_BYTES];
+            try {
+                for (Chunk chunk : file.chunks) {
+                    Path path = chunkPath(chunk.hash);
+                    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                        ByteBuffer method = ByteBuffer.allocate(1);
+                        if (in.read(method, 0) != 1) throw new IOException("Backup chunk " + chunk.hash + " is empty");
+                        if (method.get(0) == STORED) {
+                            if (in.size() - 1 != chunk.length) throw damaged(chunk);
+                            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 1, chunk.length);
+                            MessageDigest digest = digest();
+                            digest.update(mapped);
+                            if (!hex(digest.digest()).equals(chunk.hash)) throw damaged(chunk);
+                            long position = 1;
+                            while (position < 1 + chunk.length) position += in.transferTo(position, 1 + chunk.length - position, out);
+                        } else {
+                            int length = inflate(in, inflater, data);
+                            if (length != chunk.length || !hex(sha256(data, length)).equals(chunk.hash)) throw damaged(chunk);
+                            ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+                            while (buffer.hasRemaining()) out.write(buffer);
+                        }
+                    } catch (NoSuchFileException e) {
+                        throw new IOException("Backup chunk " + chunk.hash + " is missing");
+                    }
+                }
+            } finally {
+                inflater.end();
+            }
+            if (out.size() != file.size) throw new IOException("Restored " + file.name + " has the wrong size");
+            out.force(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    private Chunk store(byte[] data, int length) throws IOException {
+        String hash = hex(sha256(data, length));
+        Path path = chunkPath(hash);
+        if (Files.exists(path)) return new Chunk(hash, length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed = new byte[length + 1];
+        int size;
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            size = deflater.deflate(compressed, 1, length);
+            // Store data that does not shrink as it is
+            if (!deflater.finished()) size = -1;
+        } finally {
+            deflater.end();
+        }
+        if (size < 0) {
+            compressed[0] = STORED;
+            System.arraycopy(data, 0, compressed, 1, length);
+            size = length;
+        } else {
+            compressed[0] = DEFLATED;
+        }
+
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(hash + "." + Thread.currentThread().getId() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(compressed, 0, size + 1);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        // Another worker may have stored the same chunk meanwhile; either copy will do
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        chunksWritten.increment();
+        bytesWritten.add(size + 1);
+        return new Chunk(hash, length);
+    }
+
+    private static int inflate(FileChannel in, Inflater inflater, byte[] data) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate((int) in.size() - 1);
+        while (compressed.hasRemaining() && in.read(compressed, 1 + compressed.position()) > 0) { }
+        inflater.reset();
+        inflater.setInput(compressed.array());
+        try {
+            int length = 0;
+            while (!inflater.finished() && length < data.length) {
+                int read = inflater.inflate(data, length, data.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += read;
+            }
+            return inflater.finished() ? length : -1;
+        } catch (DataFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path chunkPath(String hash) {
+        return chunks.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static IOException damaged(Chunk chunk) {
+        return new IOException("Backup chunk " + chunk.hash + " is damaged");
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        return sha256(data, data.length);
+    }
+
+    private static byte[] sha256(byte[] data, int length) {
+        MessageDigest digest = digest();
+        digest.update(data, 0, length);
+        return digest.digest();
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
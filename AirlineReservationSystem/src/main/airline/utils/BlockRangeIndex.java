@@ -0,0 +1,64 @@
+package main.airline.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Smallest and largest key in each block of {@value #BLOCK_SLOTS}
+ * consecutive slots, for range scans over keys that mostly arrive in order,
+ * such as time-ordered reservation ids. A scan visits only the blocks whose
+ * bounds overlap the range; a key out of order merely widens its block.
+ * Two strings per block is all it keeps.
+ */
+final class BlockRangeIndex {
+    static final int BLOCK_SLOTS = 1024;
+    private static final int PAGE_BLOCKS = 1024;
+    private static final int[] NO_BLOCKS = new int[0];
+
+    // Per page, the minimum and maximum key of each block, interleaved; paged so it grows without copying
+    private final AtomicReferenceArray<AtomicReferenceArray<String>> pages =
+            new AtomicReferenceArray<>(Integer.MAX_VALUE / BLOCK_SLOTS / PAGE_BLOCKS + 1);
+
+    /** Widens the bounds of {@code slot}'s block to take in {@code key}. */
+    void include(int slot, String key) {
+        int block = slot / BLOCK_SLOTS;
+        AtomicReferenceArray<String> page = page(block / PAGE_BLOCKS);
+        int min = 2 * (block % PAGE_BLOCKS);
+        for (String current = page.get(min); current == null || key.compareTo(current) < 0; current = page.get(min)) {
+            if (page.compareAndSet(min, current, key)) break;
+        }
+        for (String current = page.get(min + 1); current == null || key.compareTo(current) > 0; current = page.get(min + 1)) {
+            if (page.compareAndSet(min + 1, current, key)) break;
+        }
+    }
+
+    /** Blocks of slots below {@code slotLimit} that may hold a key in [from, to), in slot order; a null bound is open. */
+    int[] blocksOverlapping(String from, String to, int slotLimit) {
+        int blockCount = (slotLimit + BLOCK_SLOTS - 1) / BLOCK_SLOTS;
+        int[] blocks = NO_BLOCKS;
+        int count = 0;
+        for (int block = 0; block < blockCount; block++) {
+            AtomicReferenceArray<String> page = pages.get(block / PAGE_BLOCKS);
+            if (page == null) {
+                block += PAGE_BLOCKS - 1 - block % PAGE_BLOCKS;
+                continue;
+            }
+            String min = page.get(2 * (block % PAGE_BLOCKS));
+            String max = page.get(2 * (block % PAGE_BLOCKS) + 1);
+            if (min == null || max == null) continue;
+            if ((to != null && min.compareTo(to) >= 0) || (from != null && max.compareTo(from) < 0)) continue;
+            if (count == blocks.length) blocks = Arrays.copyOf(blocks, Math.max(8, count * 2));
+            blocks[count++] = block;
+        }
+        return Arrays.copyOf(blocks, count);
+    }
+
+    private AtomicReferenceArray<String> page(int index) {
+        AtomicReferenceArray<String> page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new AtomicReferenceArray<>(2 * PAGE_BLOCKS));
+            page = pages.get(index);
+        }
+        return page;
+    }
+}
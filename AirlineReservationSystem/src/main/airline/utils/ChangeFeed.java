@@ -0,0 +1,227 @@
+package main.airline.utils;
+
+import main.airline.models.ChangeEvent;
+import main.airline.models.Flight;
+import main.airline.models.Reservation;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Change-data-capture stream: the services publish every flight and booking
+ * change here, and downstream consumers (billing, notifications, analytics)
+ * subscribe as {@link Flow.Subscriber}s of event batches.
+ *
+ * Events go into a bounded ring buffer. Publishing claims a sequence number
+ * with one atomic increment and stores the event in its slot; it never
+ * waits, so a slow consumer cannot hold up a booking. Each subscription
+ * keeps its own cursor into the ring and is drained on the executor, one
+ * batch of up to {@code maxBatch} consecutive events per requested item, so
+ * {@link Flow.Subscription#request} counts batches. A subscriber that falls
+ * more than the ring's capacity behind has lost events: it gets
+ * {@link Flow.Subscriber#onError} with a {@link IllegalStateException}
+ * naming the first lost sequence, and can resubscribe and resynchronise from
+ * the services. Events are not persisted; sequences restart with the process.
+ */
+public class ChangeFeed implements Flow.Publisher<List<ChangeEvent>>, Closeable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final int mask;
+    private final int maxBatch;
+    private final Executor executor;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, ForkJoinPool.commonPool());
+    }
+
+    /** {@code capacity} is rounded up to a power of two; deliveries run on {@code executor}. */
+    public ChangeFeed(int capacity, int maxBatch, Executor executor) {
+        if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        if (maxBatch <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBatch = maxBatch;
+        this.executor = executor;
+    }
+
+    /** Publishes a flight change. */
+    public void flightChanged(ChangeEvent.Type type, Flight flight) {
+        publish(type, flight.getFlightNumber(), flight, null);
+    }
+
+    /** Publishes a booking change. */
+    public void reservationChanged(ChangeEvent.Type type, Reservation reservation) {
+        Flight flight = reservation.getFlight();
+        publish(type, flight != null ? flight.getFlightNumber() : null, null, reservation);
+    }
+
+    private void publish(ChangeEvent.Type type, String flightNumber, Flight flight, Reservation reservation) {
+        if (closed) return;
+        long sequence = nextSequence.getAndIncrement();
+        ring.setRelease(slot(sequence), new ChangeEvent(sequence, type, Instant.now(), flightNumber, flight, reservation));
+        Metrics.CHANGE_EVENTS_PUBLISHED.increment();
+        for (FeedSubscription subscription : subscriptions) subscription.signal();
+    }
+
+    /** Sequence number the next event will get. */
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    /** Subscribes from the next event published. */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<ChangeEvent>> subscriber) {
+        subscribe(subscriber, nextSequence.get());
+    }
+
+    /**
+     * Subscribes from event {@code fromSequence}, replaying the events since
+     * then that are still in the ring; if some have been overwritten the
+     * subscriber gets {@code onError} once it requests.
+     */
+    public void subscribe(Flow.Subscriber<? super List<ChangeEvent>> subscriber, long fromSequence) {
+        if (subscriber == null) throw new NullPointerException("subscriber");
+        FeedSubscription subscription = new FeedSubscription(subscriber,
+                Math.max(0, Math.min(fromSequence, nextSequence.get())));
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        // Closed while subscribing; the drain sees it and completes
+        if (closed) subscription.signal();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /** Stops publishing; subscribers complete once they have received the events already published. */
+    @Override
+    public void close() {
+        closed = true;
+        for (FeedSubscription subscription : subscriptions) subscription.signal();
+    }
+
+    private int slot(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    /** One subscriber's cursor and demand. Delivery runs on the executor, at most one drain at a time. */
+    private final class FeedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super List<ChangeEvent>> subscriber;
+        // Next sequence to deliver; only touched by the drain
+        private long cursor;
+        // Batches requested and not yet delivered; Long.MAX_VALUE is unbounded
+        private final AtomicLong demand = new AtomicLong();
+        // Signals not yet handled; the drain is scheduled on the transition from 0
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        FeedSubscription(Flow.Subscriber<? super List<ChangeEvent>> subscriber, long cursor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Request must be positive: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (cancelled) return;
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    // Executor shut down: nothing can deliver any more
+                    cancel();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (!cancelled) {
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+                if (demand.get() == 0) return;
+                long sequence = cursor;
+                List<ChangeEvent> batch = null;
+                while (batch == null || batch.size() < maxBatch) {
+                    ChangeEvent event = ring.getAcquire(slot(sequence));
+                    // Not published yet, or still the previous lap's event
+                    if (event == null || event.getSequence() < sequence) break;
+                    if (event.getSequence() > sequence) {
+                        Metrics.CHANGE_FEED_OVERRUNS.increment();
+                        fail(new IllegalStateException("Change feed subscriber fell behind; events from #"
+                                + sequence + " were overwritten"));
+                        return;
+                    }
+                    if (batch == null) batch = new ArrayList<>(Math.min(maxBatch, 64));
+                    batch.add(event);
+                    sequence++;
+                }
+                if (batch == null) {
+                    // Caught up; a sequence claimed but not yet stored stops the drain until its publisher signals
+                    if (closed && sequence >= nextSequence.get()) {
+                        cancel();
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                cursor = sequence;
+                if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                try {
+                    subscriber.onNext(batch);
+                } catch (Throwable t) {
+                    // A subscriber that throws is treated as gone
+                    cancel();
+                    System.err.println("Change feed subscriber failed: " + t);
+                    return;
+                }
+            }
+        }
+
+        private void fail(Throwable error) {
+            cancel();
+            subscriber.onError(error);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package main.airline.utils;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets changes run concurrently while occasionally giving one thread a moment
+ * with no change in progress, e.g. to capture a consistent backup of files
+ * that a change writes one after another.
+ *
+ * Changes take the read side of one of several locks, picked by thread, so
+ * they do not all contend on one lock word; the exclusive side takes every
+ * lock. Changes must not nest.
+ */
+public class ChangeGate {
+    private static final int STRIPES = 16;
+
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+
+    public ChangeGate() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new StampedLock();
+    }
+
+    /** Runs a change; waits while an exclusive action is running. */
+    public <T> T change(Supplier<T> change) {
+        StampedLock stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+        long stamp = stripe.readLock();
+        try {
+            return change.get();
+        } finally {
+            stripe.unlockRead(stamp);
+        }
+    }
+
+    /** Waits for the changes in progress to finish, then runs {@code action} before letting new ones start. */
+    public <T> T exclusive(Supplier<T> action) {
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) stamps[i] = stripes[i].writeLock();
+        try {
+            return action.get();
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) stripes[i].unlockWrite(stamps[i]);
+        }
+    }
+}
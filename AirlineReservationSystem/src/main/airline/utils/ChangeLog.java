@@ -0,0 +1,41 @@
+package main.airline.utils;
+
+import main.airline.models.Flight;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+
+import java.util.List;
+
+/**
+ * Receives every flight, booking and waitlist change made through the services.
+ * Each call returns once the change is durable, or {@code false} if it could
+ * not be persisted.
+ */
+public interface ChangeLog {
+    boolean flightUpserted(Flight flight);
+
+    /** A bulk schedule load; persisted all-or-nothing. */
+    boolean flightsUpserted(List<Flight> flights);
+
+    boolean flightDeleted(String flightNumber);
+
+    boolean booked(Reservation reservation);
+
+    /** A group booking; persisted all-or-nothing. */
+    boolean booked(List<Reservation> reservations);
+
+    /** A cancellation, including a hold that expired; the reservation's seats go back on sale. */
+    boolean cancelled(Reservation reservation);
+
+    /** A hold was confirmed. */
+    boolean confirmed(Reservation reservation);
+
+    /** A request joined a flight's waitlist. */
+    boolean waitlisted(WaitlistEntry entry);
+
+    /** A waiting request was withdrawn. */
+    boolean waitlistWithdrawn(WaitlistEntry entry);
+
+    /** A waiting request was booked as {@code reservation}; persisted together with the booking. */
+    boolean promoted(WaitlistEntry entry, Reservation reservation);
+}
@@ -0,0 +1,89 @@
+package main.airline.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Maps keys (flight numbers) to one of {@code n} nodes by consistent hashing:
+ * each node owns {@value #POINTS_PER_NODE} points on a 64-bit ring, and a key
+ * belongs to the node of the first point at or after the key's hash. Adding a
+ * node takes over about 1/(n+1) of the keys and leaves the rest where they
+ * were. Keys are normalised like flight numbers (trimmed, upper case), so
+ * every spelling of a number lands on the same node.
+ *
+ * The ring is immutable; lookups are a binary search over a sorted long[].
+ */
+public final class ConsistentHashRing {
+    private static final int POINTS_PER_NODE = 128;
+    // Set on a cluster node: the cluster's size (system property airline.nodes) and this node's number (airline.node)
+    private static final int CLUSTER_NODES = Integer.getInteger("airline.nodes", 0);
+    private static final int CLUSTER_NODE = Integer.getInteger("airline.node", 0);
+    private static final ConsistentHashRing CLUSTER = CLUSTER_NODES > 0 ? new ConsistentHashRing(CLUSTER_NODES) : null;
+
+    private final long[] points;
+    private final int[] owners;
+    private final int nodeCount;
+
+    public ConsistentHashRing(int nodeCount) {
+        if (nodeCount <= 0) throw new IllegalArgumentException("A ring needs at least one node");
+        this.nodeCount = nodeCount;
+        long[] hashes = new long[nodeCount * POINTS_PER_NODE];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int point = 0; point < POINTS_PER_NODE; point++) {
+                hashes[node * POINTS_PER_NODE + point] = hash("node-" + node + "#" + point);
+            }
+        }
+        // Sort the points, carrying each one's node along
+        long[][] pairs = new long[hashes.length][];
+        for (int i = 0; i < hashes.length; i++) pairs[i] = new long[] {hashes[i], i / POINTS_PER_NODE};
+        Arrays.sort(pairs, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        this.points = new long[pairs.length];
+        this.owners = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            points[i] = pairs[i][0];
+            owners[i] = (int) pairs[i][1];
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /** The node (0 to n-1) that owns {@code key}. */
+    public int nodeFor(String key) {
+        long hash = hash(key.trim().toUpperCase(Locale.ROOT));
+        int low = 0;
+        int high = points.length;
+        // First point at or after the hash, wrapping round to the start
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    /**
+     * Whether this process should hold {@code key}: always outside a cluster,
+     * and on a cluster node only if the node owns it. Used to seed each node
+     * with its own share of the sample flights.
+     */
+    public static boolean ownedLocally(String key) {
+        return CLUSTER == null || CLUSTER.nodeFor(key) == CLUSTER_NODE;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then a 64-bit finaliser so similar keys spread over the ring
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
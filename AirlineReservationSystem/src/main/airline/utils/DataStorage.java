@@ -3,66 +3,277 @@ package main.airline.utils;
 import main.airline.models.Flight;
 import main.airline.models.Passenger;
 import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 public class DataStorage {
     private static final String FLIGHTS_FILE = "flights.dat";
     private static final String RESERVATIONS_FILE = "reservations.dat";
     private static final String PASSENGERS_FILE = "passengers.dat";
+    private static final String SNAPSHOT_FILE = "airline.db";
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final String RESERVATION_STORE_FILE = "reservations.store";
+    // Compact the journal into a fresh snapshot once it grows past this size
+    private static final long COMPACTION_THRESHOLD_BYTES = 4L * 1024 * 1024;
+    private static final int DEFAULT_JDBC_POOL_SIZE = 4;
+    // A backup's pre-copy rounds stop once a round leaves no more than this many store regions changed
+    private static final int QUIET_REGIONS = 8;
+    private static final int MAX_PRECOPY_ROUNDS = 3;
 
-    // Save all data
-    public static void saveAllData(List<Flight> flights, List<Reservation> reservations, List<Passenger> passengers) {
-        saveFlights(flights);
-        saveReservations(reservations);
-        savePassengers(passengers);
+    // A backup must not see a checkpoint replace the snapshot or truncate the journal
+    private static final Object CHECKPOINT_LOCK = new Object();
+    // The last backup of the open reservation store; the next one to the same folder can skip unchanged regions
+    private static MappedReservationStore baselineStore;
+    private static Path baselineRoot;
+    private static String baselineId;
+
+    /**
+     * Opens the configured storage backend: the database at {@code jdbcUrl}
+     * (credentials from the airline.jdbc.user / airline.jdbc.password system
+     * properties, pool size from airline.jdbc.poolSize), or the local files
+     * when no URL is given.
+     */
+    public static StorageBackend openStorage(String jdbcUrl) {
+        if (jdbcUrl == null || jdbcUrl.isBlank()) return new FileStorage();
+        JdbcConnectionPool pool = new JdbcConnectionPool(jdbcUrl,
+                System.getProperty("airline.jdbc.user"), System.getProperty("airline.jdbc.password"),
+                Integer.getInteger("airline.jdbc.poolSize", DEFAULT_JDBC_POOL_SIZE));
+        return new JdbcStorage(pool);
+    }
+
+    // Save all data; false if the snapshot could not be written
+    public static boolean saveAllData(List<Flight> flights, List<Reservation> reservations, List<Passenger> passengers) {
+        return saveAllData(flights, reservations, passengers, List.of());
+    }
+
+    // Save all data including the requests still waitlisted; false if the snapshot could not be written
+    public static boolean saveAllData(List<Flight> flights, List<Reservation> reservations, List<Passenger> passengers,
+                                      List<WaitlistEntry> waitlist) {
+        // Write to a temp file and rename so a crash never leaves a half-written snapshot
+        long start = System.nanoTime();
+        Path target = Paths.get(SNAPSHOT_FILE);
+        Path temp = Paths.get(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp.toFile());
+             BufferedOutputStream out = new BufferedOutputStream(fos, 64 * 1024)) {
+            RecordCodec.write(out, flights, reservations, passengers, waitlist);
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Error saving data to " + SNAPSHOT_FILE + ": " + e.getMessage());
+            return false;
+        }
+        try {
+            long bytes = Files.size(temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Metrics.SNAPSHOT_SAVE.recordSince(start);
+            Metrics.SNAPSHOT_BYTES_WRITTEN.add(bytes);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data to " + SNAPSHOT_FILE + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Load the snapshot; reservations share Flight/Passenger instances with the returned lists
+    public static RecordCodec.Snapshot loadSnapshot() {
+        File file = new File(SNAPSHOT_FILE);
+        if (!file.exists()) {
+            return new RecordCodec.Snapshot(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+
+        long start = System.nanoTime();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            RecordCodec.Snapshot snapshot = RecordCodec.read(in);
+            Metrics.SNAPSHOT_LOAD.recordSince(start);
+            Metrics.SNAPSHOT_BYTES_READ.add(file.length());
+            return snapshot;
+        } catch (IOException e) {
+            System.err.println("Error loading data from " + SNAPSHOT_FILE + ": " + e.getMessage());
+            return new RecordCodec.Snapshot(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+    }
+
+    /**
+     * Converts the legacy serialized .dat files into a binary snapshot. Each legacy
+     * reservation carries its own copy of its flight, so it is re-pointed at the
+     * listed flight with the same number where one exists.
+     */
+    public static boolean convertLegacyData() {
+        if (!new File(FLIGHTS_FILE).exists()) return false;
+
+        List<Flight> flights = loadFlights();
+        List<Reservation> legacyReservations = loadReservations();
+        List<Passenger> passengers = loadPassengers();
+
+        Map<String, Flight> flightsByNumber = new HashMap<>();
+        for (Flight f : flights) {
+            if (f != null) flightsByNumber.putIfAbsent(f.getFlightNumber(), f);
+        }
+        List<Reservation> reservations = new ArrayList<>(legacyReservations.size());
+        for (Reservation r : legacyReservations) {
+            if (r == null) continue;
+            Flight flight = r.getFlight();
+            if (flight != null) flight = flightsByNumber.getOrDefault(flight.getFlightNumber(), flight);
+            Reservation converted = new Reservation(r.getReservationId(), flight, r.getPassenger(), r.getSeats(),
+                    r.getSeatNumbers());
+            if (r.isConfirmed()) converted.confirmReservation();
+            if (r.isCancelled()) converted.cancelReservation();
+            reservations.add(converted);
+        }
+
+        saveAllData(flights, reservations, passengers);
+        System.out.println("Converted legacy data files to " + SNAPSHOT_FILE + ".");
+        return true;
+    }
+
+    // Journal operations
+    public static Journal openJournal() {
+        try {
+            return new Journal(Paths.get(JOURNAL_FILE));
+        } catch (IOException e) {
+            System.err.println("Error opening journal " + JOURNAL_FILE + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Applies the journal tail on top of the snapshot already loaded into the services.
+     * Must run before the journal is attached to the services so replayed changes are not re-logged.
+     */
+    public static void recover(Journal journal, FlightService flightService, ReservationService reservationService) {
+        if (journal == null) return;
+        try {
+            int applied = journal.replay(new Journal.Replayer() {
+                @Override
+                public void flightUpserted(Flight flight) {
+                    flightService.addFlightFromStorage(flight);
+                }
+
+                @Override
+                public void flightDeleted(String flightNumber) {
+                    flightService.deleteFlight(flightNumber);
+                }
+
+                @Override
+                public void booked(Journal.Booking booking) {
+                    // Skip bookings already in the snapshot or store (logged after a checkpoint's capture, or a crash mid-checkpoint)
+                    if (reservationService.findReservationById(booking.reservationId) != null) return;
+                    Flight flight = flightService.findFlightByNumber(booking.flightNumber);
+                    if (flight == null) return;
+                    flight.tryReserve(booking.seats);
+                    Reservation reservation = new Reservation(booking.reservationId, flight, booking.passenger,
+                            booking.seats, booking.seatNumbers);
+                    if (booking.confirmed) reservation.confirmReservation();
+                    if (booking.held) reservation.holdReservation();
+                    reservationService.addReservationFromStorage(reservation);
+                }
+
+                @Override
+                public void waitlisted(WaitlistEntry entry) {
+                    reservationService.addWaitlistEntryFromStorage(entry);
+                }
+
+                @Override
+                public void waitlistWithdrawn(String entryId) {
+                    reservationService.leaveWaitlist(entryId);
+                }
+
+                @Override
+                public void promoted(String entryId, Journal.Booking booking) {
+                    booked(booking);
+                    reservationService.promoteWaitlistEntryFromStorage(entryId, booking.reservationId);
+                }
+
+                @Override
+                public void cancelled(String reservationId) {
+                    reservationService.cancelReservation(reservationId);
+                }
+
+                @Override
+                public void confirmed(String reservationId) {
+                    reservationService.confirmReservation(reservationId);
+                }
+            });
+            if (applied > 0) System.out.println("Recovered " + applied + " journal entries.");
+        } catch (IOException e) {
+            System.err.println("Error replaying journal " + JOURNAL_FILE + ": " + e.getMessage());
+        }
+    }
+
+    // Reservation store operations
+    public static MappedReservationStore openReservationStore(Function<String, Flight> flightResolver) {
+        try {
+            return new MappedReservationStore(Paths.get(RESERVATION_STORE_FILE), flightResolver);
+        } catch (IOException e) {
+            System.err.println("Error opening reservation store " + RESERVATION_STORE_FILE + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static boolean needsCompaction(Journal journal) {
+        return journal != null && journal.size() >= COMPACTION_THRESHOLD_BYTES;
+    }
+
+    /**
+     * Writes a full snapshot and then discards the journal entries it now
+     * covers: those before {@code journalPosition}, the journal's durable
+     * size when the state was read. Later entries are kept for recovery.
+     */
+    public static void checkpoint(Journal journal, long journalPosition, List<Flight> flights,
+                                  List<Reservation> reservations, List<Passenger> passengers, List<WaitlistEntry> waitlist) {
+        synchronized (CHECKPOINT_LOCK) {
+            if (!saveAllData(flights, reservations, passengers, waitlist)) return;
+            if (journal == null) return;
+            try {
+                journal.discardBefore(journalPosition);
+            } catch (IOException e) {
+                System.err.println("Error compacting journal " + JOURNAL_FILE + ": " + e.getMessage());
+            }
+        }
     }
 
     // Load all data
     public static void loadAllData(List<Flight> flights, List<Reservation> reservations, List<Passenger> passengers) {
-        List<Flight> loadedFlights = loadFlights();
-        List<Reservation> loadedReservations = loadReservations();
-        List<Passenger> loadedPassengers = loadPassengers();
+        RecordCodec.Snapshot snapshot = loadSnapshot();
 
         flights.clear();
         reservations.clear();
         passengers.clear();
 
-        flights.addAll(loadedFlights);
-        reservations.addAll(loadedReservations);
-        passengers.addAll(loadedPassengers);
+        flights.addAll(snapshot.flights);
+        reservations.addAll(snapshot.reservations);
+        passengers.addAll(snapshot.passengers);
     }
 
-    // Flight operations
+    // Legacy (Java serialization) readers, used only by convertLegacyData
     public static List<Flight> loadFlights() {
         return loadData(FLIGHTS_FILE);
     }
 
-    private static void saveFlights(List<Flight> flights) {
-        saveData(FLIGHTS_FILE, flights);
-    }
-
-    // Reservation operations
     public static List<Reservation> loadReservations() {
         return loadData(RESERVATIONS_FILE);
     }
 
-    private static void saveReservations(List<Reservation> reservations) {
-        saveData(RESERVATIONS_FILE, reservations);
-    }
-
-    // Passenger operations
     public static List<Passenger> loadPassengers() {
         return loadData(PASSENGERS_FILE);
     }
 
-    private static void savePassengers(List<Passenger> passengers) {
-        saveData(PASSENGERS_FILE, passengers);
-    }
-
-    // Generic save/load methods
+    // Generic legacy loader
     @SuppressWarnings("unchecked")
     private static <T> List<T> loadData(String filename) {
         File file = new File(filename);
@@ -78,19 +289,12 @@ public class DataStorage {
         }
     }
 
-    private static <T> void saveData(String filename, List<T> data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(data);
-        } catch (IOException e) {
-            System.err.println("Error saving data to " + filename + ": " + e.getMessage());
-        }
-    }
-
     // Initialize sample data if no files exist
     public static void initializeSampleData() {
-        if (new File(FLIGHTS_FILE).exists() && 
-            new File(RESERVATIONS_FILE).exists() && 
-            new File(PASSENGERS_FILE).exists()) {
+        if (new File(SNAPSHOT_FILE).exists()) {
+            return;
+        }
+        if (convertLegacyData()) {
             return;
         }
 
@@ -98,12 +302,10 @@ public class DataStorage {
         List<Passenger> samplePassengers = new ArrayList<>();
         List<Reservation> sampleReservations = new ArrayList<>();
 
-        saveFlights(sampleFlights);
-        savePassengers(samplePassengers);
-        saveReservations(sampleReservations);
+        saveAllData(sampleFlights, sampleReservations, samplePassengers);
     }
 
-    private static List<Flight> createSampleFlights() {
+    static List<Flight> createSampleFlights() {
         List<Flight> flights = new ArrayList<>();
         
         // Sample flight 1
@@ -124,31 +326,248 @@ public class DataStorage {
             LocalDateTime.now().plusDays(3).withHour(9).withMinute(45), 
             180, 199.99));
             
+        // On a cluster node, only the flights it owns, so the router never sees one twice
+        flights.removeIf(flight -> !ConsistentHashRing.ownedLocally(flight.getFlightNumber()));
         return flights;
     }
 
-    // Backup and restore functionality
-    public static void backupData(String backupFolder) {
-        File folder = new File(backupFolder);
-        if (!folder.exists()) {
-            folder.mkdirs();
-        }
+    // Backup and restore
+    /**
+     * Backs up the snapshot, journal and reservation store into the
+     * {@link BackupRepository} at {@code backupFolder} and returns the
+     * backup's id, or null on error. Only chunks no earlier backup holds are
+     * written. Store regions that have not been written since this process's
+     * previous backup to the same folder are not even read, and an unchanged
+     * snapshot is not re-read, so the time taken follows the amount changed.
+     *
+     * Most of the store is copied while bookings go on; the regions they write
+     * meanwhile are copied again, and the last of them are captured together
+     * with the journal's length while {@code reservationService} holds off new
+     * changes, so the backup is one consistent point in time.
+     */
+    public static String backupData(String backupFolder, Journal journal, MappedReservationStore store,
+                                    ReservationService reservationService) {
+        long start = System.nanoTime();
+        synchronized (CHECKPOINT_LOCK) {
+            boolean incremental = store != null && store == baselineStore;
+            // Until this backup succeeds, the changes it collects from the store are not covered by one
+            baselineStore = null;
+            try (BackupRepository repository = new BackupRepository(Paths.get(backupFolder))) {
+                Path root = repository.getRoot().toAbsolutePath().normalize();
+                String previousId = repository.latestId();
+                incremental &= root.equals(baselineRoot) && previousId != null && previousId.equals(baselineId);
+                Map<String, BackupRepository.FileEntry> previous = new HashMap<>();
+                if (previousId != null) {
+                    try {
+                        for (BackupRepository.FileEntry file : repository.readManifest(previousId)) previous.put(file.getName(), file);
+                    } catch (IOException e) {
+                        System.err.println("Ignoring damaged backup " + previousId + ": " + e.getMessage());
+                        incremental = false;
+                    }
+                }
 
-        copyFile(FLIGHTS_FILE, backupFolder + "/flights_backup.dat");
-        copyFile(RESERVATIONS_FILE, backupFolder + "/reservations_backup.dat");
-        copyFile(PASSENGERS_FILE, backupFolder + "/passengers_backup.dat");
+                List<BackupRepository.FileEntry> files = new ArrayList<>();
+                Path snapshot = Paths.get(SNAPSHOT_FILE);
+                if (Files.exists(snapshot)) files.add(backupSnapshot(repository, snapshot, previous.get(SNAPSHOT_FILE)));
+
+                long journalLength;
+                if (store != null) {
+                    StoreCopy copy = new StoreCopy(repository, store,
+                            incremental ? previous.get(RESERVATION_STORE_FILE) : null);
+                    journalLength = copy.run(journal, reservationService);
+                    files.add(copy.finish());
+                } else {
+                    journalLength = reservationService.whileQuiescent(() -> journal == null ? -1 : journal.durableSize());
+                }
+                if (journal != null) {
+                    Path path = journal.getPath();
+                    files.add(new BackupRepository.FileEntry(JOURNAL_FILE, journalLength, Files.getLastModifiedTime(path).toMillis(),
+                            await(putFile(repository, path, journalLength))));
+                }
+
+                String id = repository.commit(files);
+                if (store != null) {
+                    baselineStore = store;
+                    baselineRoot = root;
+                    baselineId = id;
+                }
+                Metrics.BACKUP.recordSince(start);
+                Metrics.BACKUP_BYTES_WRITTEN.add(repository.getBytesWritten());
+                return id;
+            } catch (IOException e) {
+                System.err.println("Error creating backup in " + backupFolder + ": " + e.getMessage());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Backup interrupted");
+                return null;
+            }
+        }
     }
 
-    private static void copyFile(String sourcePath, String destPath) {
-        try (InputStream in = new FileInputStream(sourcePath);
-             OutputStream out = new FileOutputStream(destPath)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = in.read(buffer)) > 0) {
-                out.write(buffer, 0, length);
+    /**
+     * Replaces the snapshot, journal and reservation store with the newest
+     * backup in {@code backupFolder}. Every chunk is checked against its hash
+     * before any file is replaced, so a damaged backup changes nothing and
+     * returns false. Call before the storage is opened.
+     */
+    public static boolean restoreBackup(String backupFolder) {
+        Path folder = Paths.get(backupFolder);
+        if (!Files.isDirectory(folder.resolve("manifests"))) {
+            System.err.println("No backup found in " + backupFolder);
+            return false;
+        }
+        try (BackupRepository repository = new BackupRepository(folder)) {
+            String id = repository.latestId();
+            if (id == null) {
+                System.err.println("No backup found in " + backupFolder);
+                return false;
+            }
+            List<String> liveFiles = List.of(SNAPSHOT_FILE, JOURNAL_FILE, RESERVATION_STORE_FILE);
+            Map<String, Path> restored = new HashMap<>();
+            try {
+                for (BackupRepository.FileEntry file : repository.readManifest(id)) {
+                    if (!liveFiles.contains(file.getName())) throw new IOException("Unexpected file in backup: " + file.getName());
+                    Path temp = Paths.get(file.getName() + ".restore");
+                    restored.put(file.getName(), temp);
+                    repository.restore(file, temp);
+                }
+            } catch (IOException e) {
+                for (Path temp : restored.values()) Files.deleteIfExists(temp);
+                throw e;
             }
+            // A file the backup does not have did not exist then; a stale one must not be replayed
+            for (String name : liveFiles) {
+                Path temp = restored.get(name);
+                if (temp != null) {
+                    Files.move(temp, Paths.get(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.deleteIfExists(Paths.get(name));
+                }
+            }
+            System.out.println("Restored backup " + id + " from " + backupFolder);
+            return true;
         } catch (IOException e) {
-            System.err.println("Error creating backup: " + e.getMessage());
+            System.err.println("Error restoring backup from " + backupFolder + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // The snapshot only changes at a checkpoint, so an unchanged size and time means unchanged chunks
+    private static BackupRepository.FileEntry backupSnapshot(BackupRepository repository, Path path,
+                                                             BackupRepository.FileEntry previous)
+            throws IOException, InterruptedException {
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        if (previous != null && previous.getSize() == size && previous.getLastModified() == lastModified) return previous;
+        return new BackupRepository.FileEntry(SNAPSHOT_FILE, size, lastModified, await(putFile(repository, path, size)));
+    }
+
+    private static List<Future<BackupRepository.Chunk>> putFile(BackupRepository repository, Path path, long length)
+            throws IOException, InterruptedException {
+        List<Future<BackupRepository.Chunk>> chunks = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long position = 0; position < length; position += BackupRepository.CHUNK_BYTES) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BackupRepository.CHUNK_BYTES, length - position));
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, position + buffer.position()) < 0) throw new EOFException(path + " is shorter than expected");
+                }
+                chunks.add(repository.put(buffer.array(), buffer.capacity()));
+            }
+        }
+        return chunks;
+    }
+
+    private static List<BackupRepository.Chunk> await(List<Future<BackupRepository.Chunk>> futures)
+            throws IOException, InterruptedException {
+        List<BackupRepository.Chunk> chunks = new ArrayList<>(futures.size());
+        for (Future<BackupRepository.Chunk> future : futures) {
+            try {
+                chunks.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new IOException(e.getCause());
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Copies the reservation store into a backup as a header chunk followed by
+     * one chunk per region. Regions are copied in rounds while bookings go on,
+     * each round re-copying what the last one saw change, and the final round
+     * runs while the reservation service is quiescent.
+     */
+    private static final class StoreCopy {
+        private final BackupRepository repository;
+        private final MappedReservationStore store;
+        private final List<Future<BackupRepository.Chunk>> regions = new ArrayList<>();
+        private Future<BackupRepository.Chunk> header;
+        private long length;
+
+        // previous: this store's entry in the last backup, if no write since then has gone unrecorded
+        StoreCopy(BackupRepository repository, MappedReservationStore store, BackupRepository.FileEntry previous) {
+            this.repository = repository;
+            this.store = store;
+            if (previous != null) {
+                List<BackupRepository.Chunk> chunks = previous.getChunks();
+                for (int i = 1; i < chunks.size(); i++) regions.add(CompletableFuture.completedFuture(chunks.get(i)));
+            }
+        }
+
+        /** Copies the regions and returns the journal length that matches them. */
+        long run(Journal journal, ReservationService reservationService) throws InterruptedException {
+            BitSet changed = store.takeChangedRegions();
+            if (regions.isEmpty()) changed.set(0, store.regionCount());
+            for (int round = 0; round < MAX_PRECOPY_ROUNDS && changed.cardinality() > QUIET_REGIONS; round++) {
+                for (int region = changed.nextSetBit(0); region >= 0; region = changed.nextSetBit(region + 1)) {
+                    byte[] data = new byte[MappedReservationStore.REGION_BYTES];
+                    set(region, repository.put(data, store.readRegion(region, data)));
+                }
+                changed = store.takeChangedRegions();
+            }
+
+            // Copy the rest with bookings held off; compressing them can wait until they resume
+            BitSet remaining = changed;
+            Map<Integer, byte[]> finalCopies = new HashMap<>();
+            Map<Integer, Integer> finalLengths = new HashMap<>();
+            byte[][] headerBytes = new byte[1][];
+            long journalLength = reservationService.whileQuiescent(() -> {
+                remaining.or(store.takeChangedRegions());
+                for (int region = remaining.nextSetBit(0); region >= 0; region = remaining.nextSetBit(region + 1)) {
+                    byte[] data = new byte[MappedReservationStore.REGION_BYTES];
+                    finalLengths.put(region, store.readRegion(region, data));
+                    finalCopies.put(region, data);
+                }
+                headerBytes[0] = store.readHeader();
+                length = store.length();
+                return journal == null ? -1 : journal.durableSize();
+            });
+            for (Map.Entry<Integer, byte[]> copy : finalCopies.entrySet()) {
+                set(copy.getKey(), repository.put(copy.getValue(), finalLengths.get(copy.getKey())));
+            }
+            header = repository.put(headerBytes[0], headerBytes[0].length);
+            return journalLength;
+        }
+
+        BackupRepository.FileEntry finish() throws IOException, InterruptedException {
+            List<Future<BackupRepository.Chunk>> chunks = new ArrayList<>(regions.size() + 1);
+            chunks.add(header);
+            // Every slot up to the length is in a region that was marked when it was claimed
+            int count = (int) ((length - MappedReservationStore.HEADER_SIZE + MappedReservationStore.REGION_BYTES - 1)
+                    / MappedReservationStore.REGION_BYTES);
+            if (regions.size() < count) throw new IOException("Reservation store regions are missing from the backup");
+            chunks.addAll(regions.subList(0, count));
+            List<BackupRepository.Chunk> done = await(chunks);
+            long total = 0;
+            for (BackupRepository.Chunk chunk : done) total += chunk.getLength();
+            if (total != length) throw new IOException("Reservation store changed size during the backup");
+            return new BackupRepository.FileEntry(RESERVATION_STORE_FILE, length, System.currentTimeMillis(), done);
+        }
+
+        private void set(int region, Future<BackupRepository.Chunk> chunk) {
+            while (regions.size() <= region) regions.add(null);
+            regions.set(region, chunk);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package main.airline.utils;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default file backend: a binary snapshot of the schedule, a memory-mapped
+ * reservation store, and a journal of every change since the last snapshot.
+ * Waitlisted requests still waiting are kept in the snapshot.
+ */
+public class FileStorage implements StorageBackend {
+    private Journal journal;
+    private MappedReservationStore reservationStore;
+
+    @Override
+    public void load(FlightService flightService, ReservationService reservationService) {
+        // Initialize sample files if missing
+        DataStorage.initializeSampleData();
+
+        RecordCodec.Snapshot snapshot = DataStorage.loadSnapshot();
+        for (Flight f : snapshot.flights) {
+            if (f != null) flightService.addFlightFromStorage(f);
+        }
+        // Reservation history stays in the mapped store; older snapshot reservations migrate into it
+        reservationStore = DataStorage.openReservationStore(flightService::findFlightByNumber);
+        reservationService.setStore(reservationStore);
+        for (Reservation r : snapshot.reservations) {
+            if (r != null) reservationService.addReservationFromStorage(r);
+        }
+        for (WaitlistEntry entry : snapshot.waitlist) reservationService.addWaitlistEntryFromStorage(entry);
+        // Replay changes made since the last snapshot
+        journal = DataStorage.openJournal();
+        DataStorage.recover(journal, flightService, reservationService);
+        // Replay skips bookings already held and may reapply flights the snapshot covers, so count seats afresh
+        Map<String, Integer> booked = reservationService.countBookedSeats();
+        flightService.forEachFlight(flight -> flight.setAvailableSeats(
+                Math.max(0, flight.getTotalSeats() - booked.getOrDefault(flight.getFlightNumber(), 0))));
+    }
+
+    // Without a journal (it failed to open) changes are kept until the next checkpoint
+    @Override
+    public boolean flightUpserted(Flight flight) {
+        return journal == null || journal.flightUpserted(flight);
+    }
+
+    @Override
+    public boolean flightsUpserted(List<Flight> flights) {
+        return journal == null || journal.flightsUpserted(flights);
+    }
+
+    @Override
+    public boolean flightDeleted(String flightNumber) {
+        return journal == null || journal.flightDeleted(flightNumber);
+    }
+
+    @Override
+    public boolean booked(Reservation reservation) {
+        return journal == null || journal.booked(reservation);
+    }
+
+    @Override
+    public boolean booked(List<Reservation> reservations) {
+        return journal == null || journal.booked(reservations);
+    }
+
+    @Override
+    public boolean cancelled(Reservation reservation) {
+        return journal == null || journal.cancelled(reservation);
+    }
+
+    @Override
+    public boolean confirmed(Reservation reservation) {
+        return journal == null || journal.confirmed(reservation);
+    }
+
+    @Override
+    public boolean waitlisted(WaitlistEntry entry) {
+        return journal == null || journal.waitlisted(entry);
+    }
+
+    @Override
+    public boolean waitlistWithdrawn(WaitlistEntry entry) {
+        return journal == null || journal.waitlistWithdrawn(entry);
+    }
+
+    @Override
+    public boolean promoted(WaitlistEntry entry, Reservation reservation) {
+        return journal == null || journal.promoted(entry, reservation);
+    }
+
+    @Override
+    public boolean needsCheckpoint() {
+        return DataStorage.needsCompaction(journal);
+    }
+
+    // One at a time: a checkpoint's journal position is stale once another has compacted the journal
+    @Override
+    public synchronized void checkpoint(FlightService flightService, ReservationService reservationService) {
+        // Read the state and the journal position together, with no change half made; the journal
+        // keeps everything logged after that position, so changes made while the snapshot is written survive
+        Capture capture = reservationService.whileQuiescent(() -> flightService.whileUnchanged(() -> new Capture(
+                flightService.getAllFlights(),
+                reservationStore != null ? new ArrayList<>() : reservationService.getAllReservations(),
+                reservationService.getWaitingEntries(),
+                journal != null ? journal.durableSize() : 0)));
+        // Store must be durable before the journal entries covering it are dropped
+        if (reservationStore != null) reservationStore.sync();
+        DataStorage.checkpoint(journal, capture.journalPosition, capture.flights, capture.reservations,
+                extractPassengers(capture.reservations), capture.waitlist);
+    }
+
+    private static final class Capture {
+        final List<Flight> flights;
+        final List<Reservation> reservations;
+        final List<WaitlistEntry> waitlist;
+        final long journalPosition;
+
+        Capture(List<Flight> flights, List<Reservation> reservations, List<WaitlistEntry> waitlist, long journalPosition) {
+            this.flights = flights;
+            this.reservations = reservations;
+            this.waitlist = waitlist;
+            this.journalPosition = journalPosition;
+        }
+    }
+
+    @Override
+    public boolean backup(String backupFolder, ReservationService reservationService) {
+        return DataStorage.backupData(backupFolder, journal, reservationStore, reservationService) != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) journal.close();
+        if (reservationStore != null) reservationStore.close();
+    }
+
+    private static List<Passenger> extractPassengers(List<Reservation> reservations) {
+        Map<String, Passenger> map = new LinkedHashMap<>();
+        for (Reservation r : reservations) {
+            if (r != null && r.getPassenger() != null) {
+                map.put(r.getPassenger().getId(), r.getPassenger());
+            }
+        }
+        return new ArrayList<>(map.values());
+    }
+}
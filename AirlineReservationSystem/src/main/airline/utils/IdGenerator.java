@@ -0,0 +1,10 @@
+package main.airline.utils;
+
+/**
+ * Source of new reservation ids. Ids must be unique, and no longer than the
+ * mapped store's id field (23 bytes of UTF-8); {@link TimeOrderedIdGenerator}
+ * is the default.
+ */
+public interface IdGenerator {
+    String nextId();
+}
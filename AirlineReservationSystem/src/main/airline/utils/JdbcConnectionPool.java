@@ -0,0 +1,102 @@
+package main.airline.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size JDBC connection pool. Connections are opened lazily up to
+ * {@code maxSize}; callers beyond that wait for one to be released.
+ * Closed or broken connections are discarded and replaced on demand.
+ */
+public class JdbcConnectionPool implements AutoCloseable {
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final BlockingQueue<Connection> idle;
+    private final AtomicInteger open = new AtomicInteger();
+    private final int maxSize;
+    private volatile boolean closed;
+
+    public JdbcConnectionPool(String url, String user, String password, int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Pool size must be greater than 0");
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    public Connection acquire() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        Connection connection = idle.poll();
+        while (connection == null) {
+            int current = open.get();
+            if (current < maxSize) {
+                if (open.compareAndSet(current, current + 1)) return connect();
+                continue;
+            }
+            try {
+                connection = idle.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (connection == null) throw new SQLTimeoutException("Timed out waiting for a database connection");
+        }
+        if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+            discard(connection);
+            return acquire();
+        }
+        return connection;
+    }
+
+    /** Returns a connection to the pool; pass {@code broken} after an error that may have left it unusable. */
+    public void release(Connection connection, boolean broken) {
+        if (connection == null) return;
+        if (broken || closed) {
+            discard(connection);
+            return;
+        }
+        try {
+            if (!connection.getAutoCommit()) connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        if (!idle.offer(connection)) discard(connection);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) discard(connection);
+    }
+
+    private Connection connect() throws SQLException {
+        try {
+            return DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            open.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(Connection connection) {
+        open.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing database connection: " + e.getMessage());
+        }
+    }
+}
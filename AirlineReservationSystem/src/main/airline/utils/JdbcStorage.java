@@ -0,0 +1,596 @@
+package main.airline.utils;
+
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC backend (MySQL via the connector in lib/, or any database with the
+ * same SQL). Every change goes straight to the database, so there is nothing
+ * to checkpoint.
+ *
+ * Bookings and cancellations are group-committed like the journal: concurrent
+ * callers queue their change, one of them flushes the whole queue as
+ * prepared-statement batches in a single transaction, and each caller returns
+ * once its own change has committed. Seat counts are updated optimistically
+ * ({@code available_seats >= ?} in the WHERE clause), so a booking that the
+ * database cannot cover is rejected rather than overselling. Only bookings
+ * and cancellations move {@code available_seats}: a flight update shifts it
+ * by the change in total seats, and loading recounts it from the reservations.
+ * Waitlisted requests have a row while they wait; a promotion books the
+ * reservation and deletes the row in the same transaction.
+ */
+public class JdbcStorage implements StorageBackend {
+    private static final String CREATE_FLIGHTS =
+            "CREATE TABLE IF NOT EXISTS flights ("
+                    + "flight_number VARCHAR(32) NOT NULL PRIMARY KEY, "
+                    + "origin VARCHAR(128), destination VARCHAR(128), "
+                    + "departure_time DATETIME NULL, arrival_time DATETIME NULL, "
+                    + "total_seats INT NOT NULL, available_seats INT NOT NULL, "
+                    + "price DOUBLE NOT NULL, listed BOOLEAN NOT NULL)";
+    private static final String CREATE_RESERVATIONS =
+            "CREATE TABLE IF NOT EXISTS reservations ("
+                    + "seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "reservation_id VARCHAR(32) NOT NULL UNIQUE, "
+                    + "flight_number VARCHAR(32) NOT NULL, "
+                    + "passenger_id VARCHAR(64), passenger_name VARCHAR(255), "
+                    + "passenger_email VARCHAR(255), passenger_phone VARCHAR(64), "
+                    + "seats INT NOT NULL, confirmed BOOLEAN NOT NULL, cancelled BOOLEAN NOT NULL, "
+                    + "seat_numbers VARCHAR(1024), held BOOLEAN DEFAULT FALSE NOT NULL)";
+    private static final String CREATE_WAITLIST =
+            "CREATE TABLE IF NOT EXISTS waitlist ("
+                    + "entry_id VARCHAR(32) NOT NULL PRIMARY KEY, "
+                    + "flight_number VARCHAR(32) NOT NULL, "
+                    + "passenger_id VARCHAR(64), passenger_name VARCHAR(255), "
+                    + "passenger_email VARCHAR(255), passenger_phone VARCHAR(64), "
+                    + "seats INT NOT NULL, fare_class VARCHAR(16) NOT NULL, "
+                    + "requested_at DATETIME NULL, seq BIGINT NOT NULL)";
+
+    private static final String SELECT_FLIGHTS =
+            "SELECT flight_number, origin, destination, departure_time, arrival_time, "
+                    + "total_seats, available_seats, price, listed FROM flights";
+    private static final String SELECT_RESERVATIONS =
+            "SELECT reservation_id, flight_number, passenger_id, passenger_name, passenger_email, "
+                    + "passenger_phone, seats, confirmed, cancelled, seat_numbers, held FROM reservations ORDER BY seq";
+    private static final String SELECT_WAITLIST =
+            "SELECT entry_id, flight_number, passenger_id, passenger_name, passenger_email, passenger_phone, "
+                    + "seats, fare_class, requested_at, seq FROM waitlist ORDER BY seq";
+    // Seats already taken stay taken; available_seats is assigned first, so it sees the old total in every database
+    private static final String UPDATE_FLIGHT =
+            "UPDATE flights SET available_seats = available_seats + ? - total_seats, origin = ?, destination = ?, "
+                    + "departure_time = ?, arrival_time = ?, total_seats = ?, price = ?, listed = TRUE WHERE flight_number = ?";
+    private static final String INSERT_FLIGHT =
+            "INSERT INTO flights (origin, destination, departure_time, arrival_time, "
+                    + "total_seats, available_seats, price, listed, flight_number) VALUES (?, ?, ?, ?, ?, ?, ?, TRUE, ?)";
+    // Deleted flights stay in the table, since reservations still refer to them
+    private static final String UNLIST_FLIGHT = "UPDATE flights SET listed = FALSE WHERE flight_number = ?";
+    private static final String TAKE_SEATS =
+            "UPDATE flights SET available_seats = available_seats - ? WHERE flight_number = ? AND available_seats >= ?";
+    private static final String RETURN_SEATS =
+            "UPDATE flights SET available_seats = available_seats + ? WHERE flight_number = ?";
+    private static final String INSERT_RESERVATION =
+            "INSERT INTO reservations (reservation_id, flight_number, passenger_id, passenger_name, "
+                    + "passenger_email, passenger_phone, seats, confirmed, cancelled, seat_numbers, held) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CANCEL_RESERVATION =
+            "UPDATE reservations SET cancelled = TRUE WHERE reservation_id = ? AND cancelled = FALSE";
+    private static final String CONFIRM_RESERVATION =
+            "UPDATE reservations SET confirmed = TRUE WHERE reservation_id = ? AND cancelled = FALSE";
+    private static final String INSERT_WAITLIST_ENTRY =
+            "INSERT INTO waitlist (entry_id, flight_number, passenger_id, passenger_name, passenger_email, "
+                    + "passenger_phone, seats, fare_class, requested_at, seq) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_WAITLIST_ENTRY = "DELETE FROM waitlist WHERE entry_id = ?";
+
+    private enum Kind { BOOKING, CANCELLATION, CONFIRMATION, WAITLIST_JOIN, WAITLIST_WITHDRAWAL, PROMOTION }
+
+    /**
+     * A booking (one or a group), cancellation, confirmation or waitlist change
+     * waiting to be flushed. A promotion is a booking with its waitlist entry.
+     */
+    private static final class Change {
+        final Kind kind;
+        final List<Reservation> reservations;
+        final WaitlistEntry entry;
+        boolean ok = true;
+        boolean done;
+
+        Change(Kind kind, List<Reservation> reservations) {
+            this(kind, reservations, null);
+        }
+
+        Change(Kind kind, List<Reservation> reservations, WaitlistEntry entry) {
+            this.kind = kind;
+            this.reservations = reservations;
+            this.entry = entry;
+        }
+    }
+
+    private final JdbcConnectionPool pool;
+    private final Object lock = new Object();
+
+    // Group-commit state, guarded by lock
+    private List<Change> queue = new ArrayList<>();
+    private boolean flushing;
+
+    public JdbcStorage(JdbcConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void load(FlightService flightService, ReservationService reservationService) {
+        Connection connection = null;
+        boolean broken = false;
+        try {
+            connection = pool.acquire();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_FLIGHTS);
+                statement.execute(CREATE_RESERVATIONS);
+                statement.execute(CREATE_WAITLIST);
+            }
+
+            Map<String, Flight> flightsByNumber = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(SELECT_FLIGHTS)) {
+                while (rs.next()) {
+                    Flight flight = new Flight(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getObject(4, LocalDateTime.class), rs.getObject(5, LocalDateTime.class),
+                            rs.getInt(6), rs.getDouble(8));
+                    flight.setAvailableSeats(rs.getInt(7));
+                    flightsByNumber.put(flight.getFlightNumber(), flight);
+                    if (rs.getBoolean(9)) flightService.addFlightFromStorage(flight);
+                }
+            }
+            if (flightsByNumber.isEmpty()) {
+                for (Flight flight : DataStorage.createSampleFlights()) {
+                    if (upsertFlight(connection, flight)) flightService.addFlightFromStorage(flight);
+                }
+            }
+
+            Map<String, Passenger> passengersById = new HashMap<>();
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(1000);
+                try (ResultSet rs = statement.executeQuery(SELECT_RESERVATIONS)) {
+                    while (rs.next()) {
+                        String passengerId = rs.getString(3);
+                        Passenger passenger = passengersById.get(passengerId);
+                        if (passenger == null) {
+                            passenger = new Passenger(passengerId, rs.getString(4), rs.getString(5), rs.getString(6));
+                            passengersById.put(passengerId, passenger);
+                        }
+                        String seatNumbers = rs.getString(10);
+                        Reservation reservation = new Reservation(rs.getString(1),
+                                flightsByNumber.get(rs.getString(2)), passenger, rs.getInt(7),
+                                seatNumbers == null || seatNumbers.isEmpty() ? null : List.of(seatNumbers.split(",")));
+                        if (rs.getBoolean(8)) reservation.confirmReservation();
+                        if (rs.getBoolean(9)) reservation.cancelReservation();
+                        if (rs.getBoolean(11)) reservation.holdReservation();
+                        reservationService.addReservationFromStorage(reservation);
+                    }
+                }
+            }
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(SELECT_WAITLIST)) {
+                while (rs.next()) {
+                    String passengerId = rs.getString(3);
+                    Passenger passenger = passengersById.get(passengerId);
+                    if (passenger == null) passenger = new Passenger(passengerId, rs.getString(4), rs.getString(5), rs.getString(6));
+                    reservationService.addWaitlistEntryFromStorage(new WaitlistEntry(rs.getString(1), rs.getString(2),
+                            passenger, rs.getInt(7), FareClass.valueOf(rs.getString(8)),
+                            rs.getObject(9, LocalDateTime.class), rs.getLong(10)));
+                }
+            }
+        } catch (SQLException e) {
+            broken = true;
+            System.err.println("Error loading data from database: " + e.getMessage());
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    // ---- Flight changes (rare, written directly) ----
+    @Override
+    public boolean flightUpserted(Flight flight) {
+        Connection connection = null;
+        boolean broken = false;
+        try {
+            connection = pool.acquire();
+            return upsertFlight(connection, flight);
+        } catch (SQLException e) {
+            broken = true;
+            System.err.println("Error saving flight " + flight.getFlightNumber() + ": " + e.getMessage());
+            return false;
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    /** Writes the whole batch in one transaction: batched updates, then inserts for the flights that were new. */
+    @Override
+    public boolean flightsUpserted(List<Flight> flights) {
+        if (flights.isEmpty()) return true;
+        Connection connection = null;
+        boolean broken = false;
+        try {
+            connection = pool.acquire();
+            connection.setAutoCommit(false);
+            int[] updated;
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_FLIGHT)) {
+                for (Flight flight : flights) {
+                    bindFlightUpdate(update, flight);
+                    update.addBatch();
+                }
+                updated = update.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_FLIGHT)) {
+                boolean any = false;
+                for (int i = 0; i < updated.length; i++) {
+                    if (applied(updated[i])) continue;
+                    bindFlight(insert, flights.get(i));
+                    insert.addBatch();
+                    any = true;
+                }
+                if (any) insert.executeBatch();
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            broken = true;
+            System.err.println("Error saving " + flights.size() + " flights: " + e.getMessage());
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    System.err.println("Error rolling back database transaction: " + rollbackError.getMessage());
+                }
+            }
+            return false;
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    @Override
+    public boolean flightDeleted(String flightNumber) {
+        Connection connection = null;
+        boolean broken = false;
+        try {
+            connection = pool.acquire();
+            try (PreparedStatement ps = connection.prepareStatement(UNLIST_FLIGHT)) {
+                ps.setString(1, flightNumber);
+                ps.executeUpdate();
+            }
+            return true;
+        } catch (SQLException e) {
+            broken = true;
+            System.err.println("Error deleting flight " + flightNumber + ": " + e.getMessage());
+            return false;
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    private static boolean upsertFlight(Connection connection, Flight flight) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_FLIGHT)) {
+            bindFlightUpdate(update, flight);
+            if (update.executeUpdate() > 0) return true;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_FLIGHT)) {
+            bindFlight(insert, flight);
+            return insert.executeUpdate() > 0;
+        }
+    }
+
+    private static void bindFlightUpdate(PreparedStatement ps, Flight flight) throws SQLException {
+        ps.setInt(1, flight.getTotalSeats());
+        ps.setString(2, flight.getOrigin());
+        ps.setString(3, flight.getDestination());
+        ps.setObject(4, flight.getDepartureTime());
+        ps.setObject(5, flight.getArrivalTime());
+        ps.setInt(6, flight.getTotalSeats());
+        ps.setDouble(7, flight.getPrice());
+        ps.setString(8, flight.getFlightNumber());
+    }
+
+    private static void bindFlight(PreparedStatement ps, Flight flight) throws SQLException {
+        ps.setString(1, flight.getOrigin());
+        ps.setString(2, flight.getDestination());
+        ps.setObject(3, flight.getDepartureTime());
+        ps.setObject(4, flight.getArrivalTime());
+        ps.setInt(5, flight.getTotalSeats());
+        ps.setInt(6, flight.getAvailableSeats());
+        ps.setDouble(7, flight.getPrice());
+        ps.setString(8, flight.getFlightNumber());
+    }
+
+    // ---- Booking changes (group-committed) ----
+    @Override
+    public boolean booked(Reservation reservation) {
+        return submit(new Change(Kind.BOOKING, List.of(reservation)));
+    }
+
+    @Override
+    public boolean booked(List<Reservation> reservations) {
+        return submit(new Change(Kind.BOOKING, reservations));
+    }
+
+    @Override
+    public boolean cancelled(Reservation reservation) {
+        return submit(new Change(Kind.CANCELLATION, List.of(reservation)));
+    }
+
+    @Override
+    public boolean confirmed(Reservation reservation) {
+        return submit(new Change(Kind.CONFIRMATION, List.of(reservation)));
+    }
+
+    @Override
+    public boolean waitlisted(WaitlistEntry entry) {
+        return submit(new Change(Kind.WAITLIST_JOIN, List.of(), entry));
+    }
+
+    @Override
+    public boolean waitlistWithdrawn(WaitlistEntry entry) {
+        return submit(new Change(Kind.WAITLIST_WITHDRAWAL, List.of(), entry));
+    }
+
+    @Override
+    public boolean promoted(WaitlistEntry entry, Reservation reservation) {
+        return submit(new Change(Kind.PROMOTION, List.of(reservation), entry));
+    }
+
+    private boolean submit(Change change) {
+        // Once queued the change will be flushed, so keep waiting for its outcome even if interrupted
+        boolean interrupted = false;
+        List<Change> batch;
+        synchronized (lock) {
+            queue.add(change);
+            while (flushing && !change.done) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (change.done) {
+                if (interrupted) Thread.currentThread().interrupt();
+                return change.ok;
+            }
+            // Become the leader: flush everything queued so far in one transaction
+            flushing = true;
+            batch = queue;
+            queue = new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        flush(batch);
+        Metrics.JDBC_FLUSH.recordSince(start);
+
+        synchronized (lock) {
+            for (Change flushed : batch) flushed.done = true;
+            flushing = false;
+            lock.notifyAll();
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return change.ok;
+    }
+
+    private void flush(List<Change> batch) {
+        Connection connection = null;
+        boolean broken = false;
+        try {
+            connection = pool.acquire();
+            connection.setAutoCommit(false);
+
+            // Take seats first; a zero update count means the database could not cover the booking
+            List<Reservation> rows = new ArrayList<>();
+            List<Change> owners = new ArrayList<>();
+            for (Change change : batch) {
+                if (change.kind != Kind.BOOKING && change.kind != Kind.PROMOTION) continue;
+                for (Reservation reservation : change.reservations) {
+                    rows.add(reservation);
+                    owners.add(change);
+                }
+            }
+            int[] taken = new int[0];
+            if (!rows.isEmpty()) {
+                try (PreparedStatement ps = connection.prepareStatement(TAKE_SEATS)) {
+                    for (Reservation reservation : rows) {
+                        ps.setInt(1, reservation.getSeats());
+                        ps.setString(2, reservation.getFlight().getFlightNumber());
+                        ps.setInt(3, reservation.getSeats());
+                        ps.addBatch();
+                    }
+                    taken = ps.executeBatch();
+                }
+                for (int i = 0; i < taken.length; i++) {
+                    if (!applied(taken[i])) owners.get(i).ok = false;
+                }
+                // A group is all-or-nothing: give back what its other members took
+                try (PreparedStatement ps = connection.prepareStatement(RETURN_SEATS)) {
+                    boolean any = false;
+                    for (int i = 0; i < taken.length; i++) {
+                        if (owners.get(i).ok || !applied(taken[i])) continue;
+                        ps.setInt(1, rows.get(i).getSeats());
+                        ps.setString(2, rows.get(i).getFlight().getFlightNumber());
+                        ps.addBatch();
+                        any = true;
+                    }
+                    if (any) ps.executeBatch();
+                }
+                try (PreparedStatement ps = connection.prepareStatement(INSERT_RESERVATION)) {
+                    boolean any = false;
+                    for (int i = 0; i < rows.size(); i++) {
+                        if (!owners.get(i).ok) continue;
+                        bindReservation(ps, rows.get(i));
+                        ps.addBatch();
+                        any = true;
+                    }
+                    if (any) ps.executeBatch();
+                }
+            }
+
+            // Confirmations first: in memory a confirmation always precedes a cancellation of the same reservation
+            updateReservations(connection, CONFIRM_RESERVATION, batch, Kind.CONFIRMATION);
+            List<Change> cancelled = updateReservations(connection, CANCEL_RESERVATION, batch, Kind.CANCELLATION);
+            if (!cancelled.isEmpty()) {
+                try (PreparedStatement ps = connection.prepareStatement(RETURN_SEATS)) {
+                    for (Change change : cancelled) {
+                        Reservation reservation = change.reservations.get(0);
+                        ps.setInt(1, reservation.getSeats());
+                        ps.setString(2, reservation.getFlight().getFlightNumber());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            updateWaitlist(connection, batch);
+            connection.commit();
+        } catch (SQLException e) {
+            broken = true;
+            System.err.println("Error writing " + batch.size() + " changes to database: " + e.getMessage());
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    System.err.println("Error rolling back database transaction: " + rollbackError.getMessage());
+                }
+            }
+            for (Change change : batch) change.ok = false;
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    /**
+     * Runs {@code sql} (with the reservation id as its only parameter) as one
+     * batch for the changes of {@code kind}; returns the changes it applied to
+     * and marks the rest failed.
+     */
+    private static List<Change> updateReservations(Connection connection, String sql, List<Change> batch, Kind kind)
+            throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        for (Change change : batch) {
+            if (change.kind == kind) changes.add(change);
+        }
+        List<Change> applied = new ArrayList<>(changes.size());
+        if (changes.isEmpty()) return applied;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Change change : changes) {
+                ps.setString(1, change.reservations.get(0).getReservationId());
+                ps.addBatch();
+            }
+            int[] updated = ps.executeBatch();
+            for (int i = 0; i < updated.length; i++) {
+                if (applied(updated[i])) applied.add(changes.get(i));
+                else changes.get(i).ok = false;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Inserts the rows of requests that joined, then deletes those of the
+     * requests withdrawn and of the promotions whose booking went in. A
+     * withdrawal whose row is gone fails.
+     */
+    private static void updateWaitlist(Connection connection, List<Change> batch) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_WAITLIST_ENTRY)) {
+            boolean any = false;
+            for (Change change : batch) {
+                if (change.kind != Kind.WAITLIST_JOIN) continue;
+                bindWaitlistEntry(ps, change.entry);
+                ps.addBatch();
+                any = true;
+            }
+            if (any) ps.executeBatch();
+        }
+        List<Change> removals = new ArrayList<>();
+        for (Change change : batch) {
+            if (change.kind == Kind.WAITLIST_WITHDRAWAL || (change.kind == Kind.PROMOTION && change.ok)) removals.add(change);
+        }
+        if (removals.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement(DELETE_WAITLIST_ENTRY)) {
+            for (Change change : removals) {
+                ps.setString(1, change.entry.getEntryId());
+                ps.addBatch();
+            }
+            int[] deleted = ps.executeBatch();
+            for (int i = 0; i < deleted.length; i++) {
+                Change change = removals.get(i);
+                if (change.kind == Kind.WAITLIST_WITHDRAWAL && !applied(deleted[i])) change.ok = false;
+            }
+        }
+    }
+
+    private static boolean applied(int updateCount) {
+        return updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO;
+    }
+
+    private static void bindReservation(PreparedStatement ps, Reservation reservation) throws SQLException {
+        Passenger passenger = reservation.getPassenger();
+        ps.setString(1, reservation.getReservationId());
+        ps.setString(2, reservation.getFlight().getFlightNumber());
+        ps.setString(3, passenger != null ? passenger.getId() : null);
+        ps.setString(4, passenger != null ? passenger.getName() : null);
+        ps.setString(5, passenger != null ? passenger.getEmail() : null);
+        ps.setString(6, passenger != null ? passenger.getPhone() : null);
+        ps.setInt(7, reservation.getSeats());
+        ps.setBoolean(8, reservation.isConfirmed());
+        ps.setBoolean(9, reservation.isCancelled());
+        List<String> seatNumbers = reservation.getSeatNumbers();
+        ps.setString(10, seatNumbers.isEmpty() ? null : String.join(",", seatNumbers));
+        ps.setBoolean(11, reservation.wasHeld());
+    }
+
+    private static void bindWaitlistEntry(PreparedStatement ps, WaitlistEntry entry) throws SQLException {
+        Passenger passenger = entry.getPassenger();
+        ps.setString(1, entry.getEntryId());
+        ps.setString(2, entry.getFlightNumber());
+        ps.setString(3, passenger != null ? passenger.getId() : null);
+        ps.setString(4, passenger != null ? passenger.getName() : null);
+        ps.setString(5, passenger != null ? passenger.getEmail() : null);
+        ps.setString(6, passenger != null ? passenger.getPhone() : null);
+        ps.setInt(7, entry.getSeats());
+        ps.setString(8, entry.getFareClass().name());
+        ps.setObject(9, entry.getRequestedAt());
+        ps.setLong(10, entry.getSequence());
+    }
+
+    // ---- Lifecycle ----
+    @Override
+    public boolean needsCheckpoint() {
+        return false;
+    }
+
+    @Override
+    public void checkpoint(FlightService flightService, ReservationService reservationService) {
+        // Every change is already committed
+    }
+
+    @Override
+    public boolean backup(String backupFolder, ReservationService reservationService) {
+        System.err.println("Back up the database with its own tools; there are no local files to copy");
+        return false;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
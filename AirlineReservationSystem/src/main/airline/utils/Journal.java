@@ -0,0 +1,496 @@
+package main.airline.utils;
+
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of flight, booking and waitlist changes.
+ *
+ * Each record is framed as [length][crc32][type][payload]. Appends are
+ * group-committed: concurrent callers share one write + fsync, and each
+ * call returns only once its own record is durable.
+ */
+public class Journal implements ChangeLog, Closeable {
+    public enum Type {
+        FLIGHT_UPSERT, FLIGHT_BATCH, FLIGHT_DELETE, RESERVATION, RESERVATION_BATCH, CANCELLATION, CONFIRMATION,
+        WAITLIST_JOIN, WAITLIST_WITHDRAWAL, WAITLIST_PROMOTION
+    }
+
+    /** A booking as read back from the journal, before its flight is resolved. */
+    public static class Booking {
+        public final String reservationId;
+        public final String flightNumber;
+        public final Passenger passenger;
+        public final int seats;
+        public final List<String> seatNumbers;
+        public final boolean confirmed;
+        public final boolean held;
+
+        Booking(String reservationId, String flightNumber, Passenger passenger, int seats,
+                List<String> seatNumbers, boolean confirmed, boolean held) {
+            this.reservationId = reservationId;
+            this.flightNumber = flightNumber;
+            this.passenger = passenger;
+            this.seats = seats;
+            this.seatNumbers = seatNumbers;
+            this.confirmed = confirmed;
+            this.held = held;
+        }
+    }
+
+    /** Callbacks used while replaying the journal tail on startup. */
+    public interface Replayer {
+        void flightUpserted(Flight flight);
+        void flightDeleted(String flightNumber);
+        void booked(Booking booking);
+        void cancelled(String reservationId);
+        void confirmed(String reservationId);
+        void waitlisted(WaitlistEntry entry);
+        void waitlistWithdrawn(String entryId);
+        /** A waiting request was booked as {@code booking}. */
+        void promoted(String entryId, Booking booking);
+    }
+
+    private static final int FLAG_CONFIRMED = 1;
+    private static final int FLAG_HELD = 2;
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path path;
+    // Replaced when a checkpoint drops the records before a position; changed only while not flushing, under lock
+    private FileChannel channel;
+    private final Object lock = new Object();
+
+    /** Records queued for one group commit; an append waits until its batch is done. */
+    private static final class Batch {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        boolean done;
+        boolean ok;
+    }
+
+    // Group-commit state, guarded by lock
+    private Batch pending = new Batch();
+    private boolean flushing;
+    // Set when a failed write could not be rolled back, so the file may end in a torn record
+    private boolean broken;
+    private long size;
+
+    public Journal(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.READ);
+        this.size = channel.size();
+        channel.position(size);
+    }
+
+    public Path getPath() { return path; }
+
+    /** Bytes currently in the journal, used to decide when to compact. */
+    public long size() {
+        synchronized (lock) { return size + pending.records.size(); }
+    }
+
+    /** Bytes written and forced to disk; they always end on a record boundary. */
+    public long durableSize() {
+        synchronized (lock) { return size; }
+    }
+
+    // ---- Event appenders ----
+    @Override
+    public boolean flightUpserted(Flight flight) {
+        return append(Type.FLIGHT_UPSERT, out -> writeFlight(out, flight));
+    }
+
+    /** Logs a batch of flights as one record, so a bulk import costs one write + fsync per batch. */
+    @Override
+    public boolean flightsUpserted(List<Flight> flights) {
+        return append(Type.FLIGHT_BATCH, out -> {
+            out.writeInt(flights.size());
+            for (Flight flight : flights) writeFlight(out, flight);
+        });
+    }
+
+    @Override
+    public boolean flightDeleted(String flightNumber) {
+        return append(Type.FLIGHT_DELETE, out -> writeString(out, flightNumber));
+    }
+
+    @Override
+    public boolean booked(Reservation reservation) {
+        return append(Type.RESERVATION, out -> writeBooking(out, reservation));
+    }
+
+    /** Logs a group booking as one record, so recovery replays all of it or none of it. */
+    @Override
+    public boolean booked(List<Reservation> reservations) {
+        return append(Type.RESERVATION_BATCH, out -> {
+            out.writeInt(reservations.size());
+            for (Reservation reservation : reservations) writeBooking(out, reservation);
+        });
+    }
+
+    @Override
+    public boolean cancelled(Reservation reservation) {
+        return append(Type.CANCELLATION, out -> writeString(out, reservation.getReservationId()));
+    }
+
+    @Override
+    public boolean confirmed(Reservation reservation) {
+        return append(Type.CONFIRMATION, out -> writeString(out, reservation.getReservationId()));
+    }
+
+    @Override
+    public boolean waitlisted(WaitlistEntry entry) {
+        return append(Type.WAITLIST_JOIN, out -> writeWaitlistEntry(out, entry));
+    }
+
+    @Override
+    public boolean waitlistWithdrawn(WaitlistEntry entry) {
+        return append(Type.WAITLIST_WITHDRAWAL, out -> writeString(out, entry.getEntryId()));
+    }
+
+    /** Logs the promotion and its booking as one record, so recovery never sees one without the other. */
+    @Override
+    public boolean promoted(WaitlistEntry entry, Reservation reservation) {
+        return append(Type.WAITLIST_PROMOTION, out -> {
+            writeString(out, entry.getEntryId());
+            writeBooking(out, reservation);
+        });
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private boolean append(Type type, PayloadWriter writer) {
+        byte[] record;
+        try {
+            record = encode(type, writer);
+        } catch (IOException e) {
+            System.err.println("Error encoding journal record: " + e.getMessage());
+            return false;
+        }
+
+        // Once queued the record will be written, so keep waiting for its outcome even if interrupted
+        boolean interrupted = false;
+        Batch batch;
+        byte[] records;
+        long end;
+        synchronized (lock) {
+            if (broken) {
+                System.err.println("Journal " + path + " is unusable after an earlier write failure");
+                return false;
+            }
+            batch = pending;
+            batch.records.write(record, 0, record.length);
+            while (flushing && !batch.done) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (batch.done) {
+                if (interrupted) Thread.currentThread().interrupt();
+                return batch.ok;
+            }
+            // Become the leader: flush everything queued so far in one write + fsync
+            flushing = true;
+            records = batch.records.toByteArray();
+            end = size;
+            pending = new Batch();
+        }
+
+        // An interrupt would close the channel mid-write, so hold it back until the batch is written
+        interrupted |= Thread.interrupted();
+        boolean ok = true;
+        boolean rolledBack = true;
+        long start = System.nanoTime();
+        try {
+            writeFully(records);
+            Metrics.JOURNAL_FLUSH.recordSince(start);
+            Metrics.JOURNAL_BYTES_WRITTEN.add(records.length);
+        } catch (IOException e) {
+            System.err.println("Error writing journal " + path + ": " + e.getMessage());
+            ok = false;
+            rolledBack = rollBack(end);
+        }
+
+        synchronized (lock) {
+            if (ok) size += records.length;
+            if (!rolledBack) broken = true;
+            batch.ok = ok;
+            batch.done = true;
+            flushing = false;
+            lock.notifyAll();
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return ok;
+    }
+
+    /** Drops whatever part of a failed batch reached the file, so the next batch starts on a record boundary. */
+    private boolean rollBack(long end) {
+        try {
+            channel.truncate(end);
+            channel.position(end);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error rolling back journal " + path + " to byte " + end + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeFully(byte[] batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) channel.write(buffer);
+        channel.force(false);
+    }
+
+    private static byte[] encode(Type type, PayloadWriter writer) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeByte(type.ordinal());
+        writer.write(out);
+        out.flush();
+        byte[] payload = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer framed = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        framed.putInt(payload.length);
+        framed.putInt((int) crc.getValue());
+        framed.put(payload);
+        return framed.array();
+    }
+
+    /**
+     * Replays every intact record in order. A torn or corrupt tail (e.g. from a
+     * crash mid-write) is truncated so later appends start on a clean boundary.
+     */
+    public int replay(Replayer replayer) throws IOException {
+        synchronized (lock) {
+            int applied = 0;
+            long valid = 0;
+            channel.position(0);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel)));
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > channel.size()) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                apply(payload, replayer);
+                valid += HEADER_BYTES + length;
+                applied++;
+            }
+            if (valid < channel.size()) {
+                System.err.println("Truncating corrupt journal tail at byte " + valid);
+                channel.truncate(valid);
+            }
+            size = valid;
+            channel.position(valid);
+            return applied;
+        }
+    }
+
+    private static void apply(byte[] payload, Replayer replayer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= Type.values().length) throw new IOException("Unknown journal record type " + ordinal);
+        switch (Type.values()[ordinal]) {
+            case FLIGHT_UPSERT -> replayer.flightUpserted(readFlight(in));
+            case FLIGHT_BATCH -> {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) replayer.flightUpserted(readFlight(in));
+            }
+            case FLIGHT_DELETE -> replayer.flightDeleted(readString(in));
+            case RESERVATION -> replayer.booked(readBooking(in));
+            case RESERVATION_BATCH -> {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) replayer.booked(readBooking(in));
+            }
+            case CANCELLATION -> replayer.cancelled(readString(in));
+            case CONFIRMATION -> replayer.confirmed(readString(in));
+            case WAITLIST_JOIN -> replayer.waitlisted(readWaitlistEntry(in));
+            case WAITLIST_WITHDRAWAL -> replayer.waitlistWithdrawn(readString(in));
+            case WAITLIST_PROMOTION -> {
+                String entryId = readString(in);
+                replayer.promoted(entryId, readBooking(in));
+            }
+        }
+    }
+
+    /**
+     * Discards the records before byte {@code position} and keeps the rest;
+     * called once a snapshot covering them has been written. The position
+     * must be a {@link #durableSize()} taken while no change was being logged,
+     * so it is a record boundary and the records after it are exactly the
+     * changes the snapshot may have missed. Appends waiting for a group commit
+     * are not affected. The kept tail is copied to a new file that atomically
+     * replaces the journal, so a crash leaves either the old or the new one.
+     */
+    public void discardBefore(long position) throws IOException {
+        synchronized (lock) {
+            while (flushing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while compacting journal");
+                }
+            }
+            if (broken) throw new IOException("Journal " + path + " is unusable after an earlier write failure");
+            if (position <= 0) return;
+            if (position > size) throw new IOException("Journal position " + position + " is past its end " + size);
+            long keep = size - position;
+            if (keep == 0) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                size = 0;
+                return;
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (long copied = 0; copied < keep; ) copied += channel.transferTo(position + copied, keep - copied, out);
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            size = keep;
+            channel.position(size);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            channel.close();
+        }
+    }
+
+    // ---- Field codecs ----
+    private static void writeBooking(DataOutputStream out, Reservation reservation) throws IOException {
+        writeString(out, reservation.getReservationId());
+        writeString(out, reservation.getFlight().getFlightNumber());
+        writePassenger(out, reservation.getPassenger());
+        out.writeInt(reservation.getSeats());
+        List<String> seatNumbers = reservation.getSeatNumbers();
+        out.writeShort(seatNumbers.size());
+        for (String seat : seatNumbers) out.writeUTF(seat);
+        out.writeByte((reservation.isConfirmed() ? FLAG_CONFIRMED : 0) | (reservation.wasHeld() ? FLAG_HELD : 0));
+    }
+
+    private static Booking readBooking(DataInputStream in) throws IOException {
+        String reservationId = readString(in);
+        String flightNumber = readString(in);
+        Passenger passenger = readPassenger(in);
+        int seats = in.readInt();
+        int count = in.readUnsignedShort();
+        List<String> seatNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) seatNumbers.add(in.readUTF());
+        int flags = in.readUnsignedByte();
+        return new Booking(reservationId, flightNumber, passenger, seats, seatNumbers,
+                (flags & FLAG_CONFIRMED) != 0, (flags & FLAG_HELD) != 0);
+    }
+
+    private static void writeFlight(DataOutputStream out, Flight flight) throws IOException {
+        writeString(out, flight.getFlightNumber());
+        writeString(out, flight.getOrigin());
+        writeString(out, flight.getDestination());
+        writeString(out, flight.getDepartureTime() != null ? flight.getDepartureTime().toString() : null);
+        writeString(out, flight.getArrivalTime() != null ? flight.getArrivalTime().toString() : null);
+        out.writeInt(flight.getTotalSeats());
+        out.writeInt(flight.getAvailableSeats());
+        out.writeDouble(flight.getPrice());
+    }
+
+    private static Flight readFlight(DataInputStream in) throws IOException {
+        String number = readString(in);
+        String origin = readString(in);
+        String destination = readString(in);
+        String departure = readString(in);
+        String arrival = readString(in);
+        int totalSeats = in.readInt();
+        int availableSeats = in.readInt();
+        double price = in.readDouble();
+        Flight flight = new Flight(number, origin, destination,
+                departure != null ? LocalDateTime.parse(departure) : null,
+                arrival != null ? LocalDateTime.parse(arrival) : null,
+                totalSeats, price);
+        flight.setAvailableSeats(availableSeats);
+        return flight;
+    }
+
+    private static void writeWaitlistEntry(DataOutputStream out, WaitlistEntry entry) throws IOException {
+        writeString(out, entry.getEntryId());
+        writeString(out, entry.getFlightNumber());
+        writePassenger(out, entry.getPassenger());
+        out.writeInt(entry.getSeats());
+        writeString(out, entry.getFareClass().name());
+        writeString(out, entry.getRequestedAt() != null ? entry.getRequestedAt().toString() : null);
+        out.writeLong(entry.getSequence());
+    }
+
+    private static WaitlistEntry readWaitlistEntry(DataInputStream in) throws IOException {
+        String entryId = readString(in);
+        String flightNumber = readString(in);
+        Passenger passenger = readPassenger(in);
+        int seats = in.readInt();
+        FareClass fareClass = FareClass.valueOf(readString(in));
+        String requestedAt = readString(in);
+        long sequence = in.readLong();
+        return new WaitlistEntry(entryId, flightNumber, passenger, seats, fareClass,
+                requestedAt != null ? LocalDateTime.parse(requestedAt) : null, sequence);
+    }
+
+    private static void writePassenger(DataOutputStream out, Passenger passenger) throws IOException {
+        writeString(out, passenger.getId());
+        writeString(out, passenger.getName());
+        writeString(out, passenger.getEmail());
+        writeString(out, passenger.getPhone());
+    }
+
+    private static Passenger readPassenger(DataInputStream in) throws IOException {
+        return new Passenger(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,594 @@
+package main.airline.utils;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Reservation history kept in a memory-mapped file of fixed-width records.
+ *
+ * Only compact indexes live on the heap (reservation id -> slot, and
+ * passenger id / flight number -> slots, as {@link SlotIndex}es of int arrays);
+ * records are decoded into Reservation objects on demand. The file is mapped
+ * in fixed-size segments so it can grow past 2 GB.
+ *
+ * The store is safe for concurrent use without a store-wide lock: slots are
+ * claimed with an atomic counter, each record becomes visible only once its
+ * VALID flag is written, and flag updates lock one of a few stripes.
+ *
+ * Record layout ({@value #RECORD_SIZE} bytes):
+ * <pre>
+ *   byte  flags (confirmed, cancelled, held, valid)
+ *   int   seats
+ *   str   reservation id   (24)
+ *   str   flight number    (12)
+ *   str   passenger id     (24)
+ *   str   passenger name   (48)
+ *   str   passenger email  (64)
+ *   str   passenger phone  (20)
+ *   seats assigned seats     (59)
+ * </pre>
+ * Each str field is a length byte followed by UTF-8, truncated to fit. The
+ * seats field is a count byte followed by one short per seat (row number in
+ * the high 12 bits, letter in the low 4), room for {@value #INLINE_SEAT_NUMBERS}
+ * seats. A larger booking writes count byte 0xFF and a short seat count, and
+ * its seats fill the slots right after the record, {@value #CONTINUATION_SEAT_NUMBERS}
+ * per slot after a zero flags byte. Those continuation slots never become
+ * valid, so every scan passes over them.
+ *
+ * For incremental backups the store remembers which regions of
+ * {@value #REGION_RECORDS} records have been written since they were last
+ * collected (see {@link #takeChangedRegions}).
+ */
+public class MappedReservationStore implements ReservationStore, Closeable {
+    private static final int MAGIC = 0x41525352; // "ARSR"
+    private static final short VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 256;
+    private static final int RECORDS_PER_SEGMENT = 1 << 16;
+    private static final long SEGMENT_BYTES = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+
+    private static final int FLAG_CONFIRMED = 1;
+    private static final int FLAG_CANCELLED = 2;
+    private static final int FLAG_HELD = 4;
+    private static final int FLAG_VALID = 0x80;
+    private static final int LOCK_STRIPES = 64;
+    public static final int REGION_RECORDS = 4096;
+    public static final int REGION_BYTES = REGION_RECORDS * RECORD_SIZE;
+    private static final int NULL_LENGTH = 0xFF;
+
+    // Field offsets within a record
+    private static final int OFF_FLAGS = 0;
+    private static final int OFF_SEATS = 1;
+    private static final int OFF_ID = 5;
+    private static final int W_ID = 24;
+    private static final int OFF_FLIGHT = OFF_ID + W_ID;
+    private static final int W_FLIGHT = 12;
+    private static final int OFF_PASSENGER_ID = OFF_FLIGHT + W_FLIGHT;
+    private static final int W_PASSENGER_ID = 24;
+    private static final int OFF_NAME = OFF_PASSENGER_ID + W_PASSENGER_ID;
+    private static final int W_NAME = 48;
+    private static final int OFF_EMAIL = OFF_NAME + W_NAME;
+    private static final int W_EMAIL = 64;
+    private static final int OFF_PHONE = OFF_EMAIL + W_EMAIL;
+    private static final int W_PHONE = 20;
+    private static final int OFF_SEAT_NUMBERS = OFF_PHONE + W_PHONE;
+    private static final int INLINE_SEAT_NUMBERS = (RECORD_SIZE - OFF_SEAT_NUMBERS - 1) / 2;
+    private static final int SEATS_CONTINUED = 0xFF;
+    private static final int CONTINUATION_SEAT_NUMBERS = (RECORD_SIZE - 1) / 2;
+    private static final int MAX_SEAT_NUMBERS = 0xFFFF;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private final Object segmentLock = new Object();
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private final Function<String, Flight> flightResolver;
+
+    private final SlotIndex slotsById = new SlotIndex(slot -> key(readString(slot, OFF_ID)));
+    private final SlotIndex slotsByPassenger = new SlotIndex(slot -> key(readString(slot, OFF_PASSENGER_ID)));
+    private final SlotIndex slotsByFlight = new SlotIndex(slot -> key(readString(slot, OFF_FLIGHT)));
+    private final BlockRangeIndex idRanges = new BlockRangeIndex();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    // One bit per region written since takeChangedRegions last cleared it; sized for every possible slot
+    private final AtomicLongArray changedRegions = new AtomicLongArray((Integer.MAX_VALUE / REGION_RECORDS) / Long.SIZE + 1);
+
+    /**
+     * Opens (or creates) the store. Only the key fields are read
+     * to rebuild the indexes; flights are resolved through {@code flightResolver}
+     * when a record is decoded.
+     */
+    public MappedReservationStore(Path path, Function<String, Flight> flightResolver) throws IOException {
+        this.flightResolver = flightResolver;
+        for (int i = 0; i < LOCK_STRIPES; i++) stripes[i] = new Object();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_SIZE;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        if (fresh) {
+            header.putInt(0, MAGIC);
+            header.putShort(4, VERSION);
+            header.putShort(6, (short) RECORD_SIZE);
+            header.putInt(8, 0);
+        } else {
+            if (header.getInt(0) != MAGIC) throw new IOException("Not a reservation store: " + path);
+            if (header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE) {
+                throw new IOException("Unsupported reservation store layout: " + path);
+            }
+            int highWater = header.getInt(8);
+            for (int slot = 0; slot < highWater; slot++) {
+                // Slots claimed but never completed (crash, duplicate id) are skipped
+                if (!isValid(slot)) continue;
+                String id = readString(slot, OFF_ID);
+                if (id == null || !slotsById.addUnique(key(id), slot)) continue;
+                idRanges.include(slot, key(id));
+                indexSecondary(slot, readString(slot, OFF_PASSENGER_ID), readString(slot, OFF_FLIGHT));
+                size.incrementAndGet();
+            }
+            nextSlot.set(highWater);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean contains(String reservationId) {
+        return slotOf(reservationId) >= 0;
+    }
+
+    /** Appends a reservation unless one with the same id is already stored. */
+    @Override
+    public boolean add(Reservation reservation) throws IOException {
+        String id = reservation.getReservationId();
+        if (id == null || slotsById.find(key(id)) >= 0) return false;
+        Passenger passenger = reservation.getPassenger();
+        // Key fields are indexed, so they must round-trip exactly
+        checkFits("reservation id", id, W_ID);
+        checkFits("flight number", reservation.getFlight() != null ? reservation.getFlight().getFlightNumber() : null, W_FLIGHT);
+        checkFits("passenger id", passenger != null ? passenger.getId() : null, W_PASSENGER_ID);
+        short[] seatNumbers = encodeSeats(reservation.getSeatNumbers());
+        int continuations = continuationSlots(seatNumbers.length);
+
+        // A large booking claims the slots for its seats along with its own
+        int slot = nextSlot.getAndAdd(1 + continuations);
+        MappedByteBuffer segment = segmentFor(slot);
+        int base = offsetInSegment(slot);
+
+        segment.putInt(base + OFF_SEATS, reservation.getSeats());
+        writeString(segment, base + OFF_ID, W_ID, id);
+        writeString(segment, base + OFF_FLIGHT, W_FLIGHT,
+                reservation.getFlight() != null ? reservation.getFlight().getFlightNumber() : null);
+        writeString(segment, base + OFF_PASSENGER_ID, W_PASSENGER_ID, passenger != null ? passenger.getId() : null);
+        writeString(segment, base + OFF_NAME, W_NAME, passenger != null ? passenger.getName() : null);
+        writeString(segment, base + OFF_EMAIL, W_EMAIL, passenger != null ? passenger.getEmail() : null);
+        writeString(segment, base + OFF_PHONE, W_PHONE, passenger != null ? passenger.getPhone() : null);
+        writeSeats(segment, base + OFF_SEAT_NUMBERS, slot, seatNumbers);
+
+        idRanges.include(slot, key(id));
+        // Claim the id once the record holds it; a racing duplicate leaves this slot as a never-valid hole
+        if (!slotsById.addUnique(key(id), slot)) return false;
+        // Publish the record only after its bytes are in place
+        synchronized (stripe(slot)) {
+            segment.put(base + OFF_FLAGS, (byte) (flags(reservation) | FLAG_VALID));
+        }
+        synchronized (header) {
+            if (header.getInt(8) <= slot + continuations) header.putInt(8, slot + continuations + 1);
+        }
+        for (int i = 0; i <= continuations; i++) markChanged(slot + i);
+        indexSecondary(slot, passenger != null ? passenger.getId() : null,
+                reservation.getFlight() != null ? reservation.getFlight().getFlightNumber() : null);
+        size.incrementAndGet();
+        return true;
+    }
+
+    /** Rewrites the confirmed/cancelled flags of a stored reservation in place. */
+    public boolean updateFlags(Reservation reservation) {
+        int slot = slotOf(reservation.getReservationId());
+        if (slot < 0) return false;
+        MappedByteBuffer segment = segmentFor(slot);
+        int position = offsetInSegment(slot) + OFF_FLAGS;
+        synchronized (stripe(slot)) {
+            if ((segment.get(position) & FLAG_VALID) == 0) return false;
+            segment.put(position, (byte) (flags(reservation) | FLAG_VALID));
+        }
+        markChanged(slot);
+        return true;
+    }
+
+    /** Sets the cancelled flag; returns false if the reservation is unknown or already cancelled. */
+    @Override
+    public boolean markCancelled(String reservationId) {
+        return transition(reservationId, 0, FLAG_CANCELLED, FLAG_CANCELLED);
+    }
+
+    /** Sets the confirmed flag unless the reservation is cancelled or already confirmed. */
+    @Override
+    public boolean markConfirmed(String reservationId) {
+        return transition(reservationId, 0, FLAG_CONFIRMED | FLAG_CANCELLED, FLAG_CONFIRMED);
+    }
+
+    /** Cancels a hold that is still unconfirmed; returns false otherwise. */
+    @Override
+    public boolean markExpired(String reservationId) {
+        return transition(reservationId, FLAG_HELD, FLAG_CONFIRMED | FLAG_CANCELLED, FLAG_CANCELLED);
+    }
+
+    @Override
+    public boolean unmarkCancelled(String reservationId) {
+        return transition(reservationId, FLAG_CANCELLED, 0, 0, FLAG_CANCELLED);
+    }
+
+    @Override
+    public boolean unmarkConfirmed(String reservationId) {
+        return transition(reservationId, FLAG_CONFIRMED, FLAG_CANCELLED, 0, FLAG_CONFIRMED);
+    }
+
+    /** The store is append-only, so a discarded reservation stays on file, cancelled. */
+    @Override
+    public void discard(String reservationId) {
+        markCancelled(reservationId);
+    }
+
+    /** Ids of holds that are neither confirmed nor cancelled; scans only the flag bytes. */
+    @Override
+    public List<String> findPendingHolds() {
+        List<String> ids = new ArrayList<>();
+        int highWater = nextSlot.get();
+        for (int slot = 0; slot < highWater; slot++) {
+            int flags = segmentFor(slot).get(offsetInSegment(slot) + OFF_FLAGS);
+            if ((flags & (FLAG_VALID | FLAG_HELD | FLAG_CONFIRMED | FLAG_CANCELLED)) == (FLAG_VALID | FLAG_HELD)) {
+                ids.add(readString(slot, OFF_ID));
+            }
+        }
+        return ids;
+    }
+
+    /** Seats held by reservations that are not cancelled, per flight number; reads only the key fields. */
+    @Override
+    public Map<String, Integer> countBookedSeats() {
+        Map<String, Integer> booked = new HashMap<>();
+        int highWater = nextSlot.get();
+        for (int slot = 0; slot < highWater; slot++) {
+            MappedByteBuffer segment = segmentFor(slot);
+            int base = offsetInSegment(slot);
+            int flags = segment.get(base + OFF_FLAGS);
+            if ((flags & (FLAG_VALID | FLAG_CANCELLED)) != FLAG_VALID) continue;
+            String flightNumber = readString(slot, OFF_FLIGHT);
+            if (flightNumber != null) booked.merge(flightNumber, segment.getInt(base + OFF_SEATS), Integer::sum);
+        }
+        return booked;
+    }
+
+    // Atomically sets flags in a valid record whose requireSet bits are all set and requireClear bits all clear
+    private boolean transition(String reservationId, int requireSet, int requireClear, int set) {
+        return transition(reservationId, requireSet, requireClear, set, 0);
+    }
+
+    private boolean transition(String reservationId, int requireSet, int requireClear, int set, int clear) {
+        int slot = slotOf(reservationId);
+        if (slot < 0) return false;
+        MappedByteBuffer segment = segmentFor(slot);
+        int position = offsetInSegment(slot) + OFF_FLAGS;
+        synchronized (stripe(slot)) {
+            int flags = segment.get(position);
+            if ((flags & FLAG_VALID) == 0 || (flags & requireSet) != requireSet || (flags & requireClear) != 0) return false;
+            segment.put(position, (byte) ((flags | set) & ~clear));
+        }
+        markChanged(slot);
+        return true;
+    }
+
+    @Override
+    public Reservation get(String reservationId) {
+        int slot = slotOf(reservationId);
+        return slot < 0 ? null : decode(slot);
+    }
+
+    @Override
+    public List<Reservation> findByPassenger(String passengerId) {
+        if (passengerId == null) return Collections.emptyList();
+        return decodeAll(slotsByPassenger.findAll(key(passengerId)));
+    }
+
+    @Override
+    public List<Reservation> findByFlight(String flightNumber) {
+        if (flightNumber == null) return Collections.emptyList();
+        return decodeAll(slotsByFlight.findAll(key(flightNumber)));
+    }
+
+    private List<Reservation> decodeAll(int[] slots) {
+        List<Reservation> result = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            Reservation reservation = decode(slot);
+            if (reservation != null) result.add(reservation);
+        }
+        return result;
+    }
+
+    /** Reads only the id field of the slots in blocks whose id bounds overlap the range. */
+    @Override
+    public List<Reservation> findByIdRange(String fromId, String toId) {
+        String from = fromId == null ? null : key(fromId);
+        String to = toId == null ? null : key(toId);
+        int highWater = nextSlot.get();
+        List<Reservation> result = new ArrayList<>();
+        for (int block : idRanges.blocksOverlapping(from, to, highWater)) {
+            int end = Math.min(highWater, (block + 1) * BlockRangeIndex.BLOCK_SLOTS);
+            for (int slot = block * BlockRangeIndex.BLOCK_SLOTS; slot < end; slot++) {
+                if (!isValid(slot)) continue;
+                String id = key(readString(slot, OFF_ID));
+                if ((from != null && id.compareTo(from) < 0) || (to != null && id.compareTo(to) >= 0)) continue;
+                Reservation reservation = decode(slot);
+                if (reservation != null) result.add(reservation);
+            }
+        }
+        result.sort(Comparator.comparing(r -> key(r.getReservationId())));
+        return result;
+    }
+
+    /** Decodes every stored reservation; O(history), for admin listings only. */
+    @Override
+    public List<Reservation> readAll() {
+        int highWater = nextSlot.get();
+        List<Reservation> result = new ArrayList<>(highWater);
+        for (int slot = 0; slot < highWater; slot++) {
+            Reservation reservation = decode(slot);
+            if (reservation != null) result.add(reservation);
+        }
+        return result;
+    }
+
+    // ---- Change tracking, for incremental backups ----
+    /** Bytes in use: the header plus every slot claimed so far. */
+    public long length() {
+        return HEADER_SIZE + (long) nextSlot.get() * RECORD_SIZE;
+    }
+
+    /** Number of regions holding claimed slots; the last may be partly filled. */
+    public int regionCount() {
+        return (nextSlot.get() + REGION_RECORDS - 1) / REGION_RECORDS;
+    }
+
+    /** The regions written since the previous call, clearing their marks; writes that follow mark them again. */
+    public BitSet takeChangedRegions() {
+        int words = (regionCount() + Long.SIZE - 1) / Long.SIZE;
+        long[] taken = new long[words];
+        for (int i = 0; i < words; i++) {
+            if (changedRegions.get(i) != 0) taken[i] = changedRegions.getAndSet(i, 0);
+        }
+        return BitSet.valueOf(taken);
+    }
+
+    public byte[] readHeader() {
+        byte[] bytes = new byte[HEADER_SIZE];
+        synchronized (header) {
+            header.get(0, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Copies a region's claimed slots into {@code dst} (at least
+     * {@link #REGION_BYTES} long) and returns the number of bytes copied.
+     * Concurrent writes may or may not be seen; they mark the region changed.
+     */
+    public int readRegion(int region, byte[] dst) {
+        int first = region * REGION_RECORDS;
+        int slots = Math.max(0, Math.min(REGION_RECORDS, nextSlot.get() - first));
+        if (slots == 0) return 0;
+        segmentFor(first).get(offsetInSegment(first), dst, 0, slots * RECORD_SIZE);
+        return slots * RECORD_SIZE;
+    }
+
+    /** Forces all mapped pages to disk. */
+    public void sync() {
+        for (MappedByteBuffer segment : segments) segment.force();
+        synchronized (header) {
+            header.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    // ---- Internals ----
+    // Returns null for slots whose record has not been published yet
+    private Reservation decode(int slot) {
+        MappedByteBuffer segment = segmentFor(slot);
+        int base = offsetInSegment(slot);
+        int flags = segment.get(base + OFF_FLAGS);
+        if ((flags & FLAG_VALID) == 0) return null;
+        int seats = segment.getInt(base + OFF_SEATS);
+        String flightNumber = readString(slot, OFF_FLIGHT);
+        Passenger passenger = new Passenger(readString(slot, OFF_PASSENGER_ID), readString(slot, OFF_NAME),
+                readString(slot, OFF_EMAIL), readString(slot, OFF_PHONE));
+
+        return Reservation.readOnly(readString(slot, OFF_ID),
+                flightNumber != null ? flightResolver.apply(flightNumber) : null, passenger, seats,
+                decodeSeats(segment, base + OFF_SEAT_NUMBERS, slot), (flags & FLAG_CONFIRMED) != 0,
+                (flags & FLAG_CANCELLED) != 0, (flags & FLAG_HELD) != 0);
+    }
+
+    private boolean isValid(int slot) {
+        return (segmentFor(slot).get(offsetInSegment(slot) + OFF_FLAGS) & FLAG_VALID) != 0;
+    }
+
+    // Slot of a published record, or -1
+    private int slotOf(String reservationId) {
+        if (reservationId == null) return -1;
+        int slot = slotsById.find(key(reservationId));
+        return slot >= 0 && isValid(slot) ? slot : -1;
+    }
+
+    private void indexSecondary(int slot, String passengerId, String flightNumber) {
+        if (passengerId != null) slotsByPassenger.add(key(passengerId), slot);
+        if (flightNumber != null) slotsByFlight.add(key(flightNumber), slot);
+    }
+
+    private void markChanged(int slot) {
+        int region = slot / REGION_RECORDS;
+        long bit = 1L << (region % Long.SIZE);
+        int word = region / Long.SIZE;
+        // Most writes land in a region that is already marked
+        if ((changedRegions.get(word) & bit) == 0) changedRegions.accumulateAndGet(word, bit, (a, b) -> a | b);
+    }
+
+    private Object stripe(int slot) {
+        return stripes[slot & (LOCK_STRIPES - 1)];
+    }
+
+    // Segments are mapped lazily; mapping past the end of the file grows it
+    private MappedByteBuffer segmentFor(int slot) {
+        int index = slot / RECORDS_PER_SEGMENT;
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) return current[index];
+
+        synchronized (segmentLock) {
+            current = segments;
+            if (index < current.length) return current[index];
+            MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+            for (int i = current.length; i <= index; i++) {
+                long position = HEADER_SIZE + i * SEGMENT_BYTES;
+                try {
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_BYTES);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error mapping reservation store segment " + i, e);
+                }
+            }
+            segments = grown;
+            return grown[index];
+        }
+    }
+
+    private static int offsetInSegment(int slot) {
+        return (slot % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    private String readString(int slot, int fieldOffset) {
+        MappedByteBuffer segment = segmentFor(slot);
+        int position = offsetInSegment(slot) + fieldOffset;
+        int length = segment.get(position) & 0xFF;
+        if (length == NULL_LENGTH) return null;
+        byte[] bytes = new byte[length];
+        segment.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(MappedByteBuffer segment, int position, int width, String value) {
+        if (value == null) {
+            segment.put(position, (byte) NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, width - 1);
+        // Never cut a multi-byte character in half
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        segment.put(position, (byte) length);
+        segment.put(position + 1, bytes, 0, length);
+    }
+
+    private static void checkFits(String field, String value, int width) throws IOException {
+        if (value != null && value.getBytes(StandardCharsets.UTF_8).length > width - 1) {
+            throw new IOException("The " + field + " '" + value + "' is too long for the reservation store");
+        }
+    }
+
+    private static short[] encodeSeats(List<String> seatNumbers) throws IOException {
+        if (seatNumbers.size() > MAX_SEAT_NUMBERS) {
+            throw new IOException("At most " + MAX_SEAT_NUMBERS + " seats fit in one reservation store record");
+        }
+        short[] encoded = new short[seatNumbers.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            String seat = seatNumbers.get(i);
+            int split = seat.length() - 1;
+            int row;
+            try {
+                row = split > 0 ? Integer.parseInt(seat.substring(0, split)) : -1;
+            } catch (NumberFormatException e) {
+                row = -1;
+            }
+            int letter = split >= 0 ? seat.charAt(split) - 'A' : -1;
+            if (row <= 0 || row > 0xFFF || letter < 0 || letter > 0xF) {
+                throw new IOException("The seat '" + seat + "' cannot be stored in the reservation store");
+            }
+            encoded[i] = (short) (row << 4 | letter);
+        }
+        return encoded;
+    }
+
+    private static int continuationSlots(int seatCount) {
+        if (seatCount <= INLINE_SEAT_NUMBERS) return 0;
+        return (seatCount + CONTINUATION_SEAT_NUMBERS - 1) / CONTINUATION_SEAT_NUMBERS;
+    }
+
+    // Writes the seats field of the record in slot, and its continuation slots if the seats do not fit
+    private void writeSeats(MappedByteBuffer segment, int position, int slot, short[] seatNumbers) {
+        if (seatNumbers.length <= INLINE_SEAT_NUMBERS) {
+            segment.put(position, (byte) seatNumbers.length);
+            for (int i = 0; i < seatNumbers.length; i++) segment.putShort(position + 1 + 2 * i, seatNumbers[i]);
+            return;
+        }
+        segment.put(position, (byte) SEATS_CONTINUED);
+        segment.putShort(position + 1, (short) seatNumbers.length);
+        for (int i = 0; i < seatNumbers.length; i += CONTINUATION_SEAT_NUMBERS) {
+            int continuation = slot + 1 + i / CONTINUATION_SEAT_NUMBERS;
+            MappedByteBuffer target = segmentFor(continuation);
+            int base = offsetInSegment(continuation);
+            target.put(base + OFF_FLAGS, (byte) 0);
+            int end = Math.min(seatNumbers.length, i + CONTINUATION_SEAT_NUMBERS);
+            for (int j = i; j < end; j++) target.putShort(base + 1 + 2 * (j - i), seatNumbers[j]);
+        }
+    }
+
+    private List<String> decodeSeats(MappedByteBuffer segment, int position, int slot) {
+        int count = segment.get(position) & 0xFF;
+        if (count != SEATS_CONTINUED) {
+            List<String> seatNumbers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) seatNumbers.add(decodeSeat(segment.getShort(position + 1 + 2 * i)));
+            return seatNumbers;
+        }
+        count = segment.getShort(position + 1) & 0xFFFF;
+        List<String> seatNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int continuation = slot + 1 + i / CONTINUATION_SEAT_NUMBERS;
+            int offset = offsetInSegment(continuation) + 1 + 2 * (i % CONTINUATION_SEAT_NUMBERS);
+            seatNumbers.add(decodeSeat(segmentFor(continuation).getShort(offset)));
+        }
+        return seatNumbers;
+    }
+
+    private static String decodeSeat(short encoded) {
+        int seat = encoded & 0xFFFF;
+        return (seat >>> 4) + String.valueOf((char) ('A' + (seat & 0xF)));
+    }
+
+    private static int flags(Reservation reservation) {
+        return (reservation.isConfirmed() ? FLAG_CONFIRMED : 0) | (reservation.isCancelled() ? FLAG_CANCELLED : 0)
+                | (reservation.wasHeld() ? FLAG_HELD : 0);
+    }
+
+    private static String key(String id) {
+        return id.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,216 @@
+package main.airline.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide operation metrics: latency histograms for the booking, search
+ * and persistence paths plus lock-free counters. Hot paths only touch
+ * preallocated histograms and {@link LongAdder}s; the per-flight counter is
+ * allocated once, on a flight's first sale.
+ *
+ * {@link #report()} renders a human-readable table for the console and
+ * {@link #scrape()} the Prometheus text format for the HTTP endpoint.
+ */
+public class Metrics {
+    // Per-flight series exported; keeps a 100k-flight schedule from flooding a scrape
+    private static final int TOP_FLIGHTS = 50;
+    private static final long STARTED_NANOS = System.nanoTime();
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    public static final LatencyHistogram BOOKING = new LatencyHistogram("booking");
+    public static final LatencyHistogram GROUP_BOOKING = new LatencyHistogram("group_booking");
+    public static final LatencyHistogram CANCELLATION = new LatencyHistogram("cancellation");
+    public static final LatencyHistogram SEARCH = new LatencyHistogram("search");
+    public static final LatencyHistogram CONNECTION_SEARCH = new LatencyHistogram("connection_search");
+    public static final LatencyHistogram SNAPSHOT_SAVE = new LatencyHistogram("snapshot_save");
+    public static final LatencyHistogram SNAPSHOT_LOAD = new LatencyHistogram("snapshot_load");
+    public static final LatencyHistogram JOURNAL_FLUSH = new LatencyHistogram("journal_flush");
+    public static final LatencyHistogram JDBC_FLUSH = new LatencyHistogram("jdbc_flush");
+    public static final LatencyHistogram BACKUP = new LatencyHistogram("backup");
+
+    private static final LatencyHistogram[] HISTOGRAMS = {
+            BOOKING, GROUP_BOOKING, CANCELLATION, SEARCH, CONNECTION_SEARCH,
+            SNAPSHOT_SAVE, SNAPSHOT_LOAD, JOURNAL_FLUSH, JDBC_FLUSH, BACKUP
+    };
+
+    public static final LongAdder BOOKINGS_FAILED = new LongAdder();
+    public static final LongAdder CANCELLATIONS_FAILED = new LongAdder();
+    public static final LongAdder SEAT_CONTENTION_RETRIES = new LongAdder();
+    public static final LongAdder SEATS_SOLD = new LongAdder();
+    public static final LongAdder SNAPSHOT_BYTES_WRITTEN = new LongAdder();
+    public static final LongAdder SNAPSHOT_BYTES_READ = new LongAdder();
+    public static final LongAdder JOURNAL_BYTES_WRITTEN = new LongAdder();
+    public static final LongAdder BACKUP_BYTES_WRITTEN = new LongAdder();
+    public static final LongAdder SEARCH_CACHE_HITS = new LongAdder();
+    public static final LongAdder SEARCH_CACHE_MISSES = new LongAdder();
+    public static final LongAdder SEARCH_CACHE_EVICTIONS = new LongAdder();
+    public static final LongAdder SEARCH_CACHE_INVALIDATIONS = new LongAdder();
+    public static final LongAdder HOLDS_PLACED = new LongAdder();
+    public static final LongAdder HOLDS_CONFIRMED = new LongAdder();
+    public static final LongAdder HOLDS_EXPIRED = new LongAdder();
+    public static final LongAdder WAITLIST_JOINED = new LongAdder();
+    public static final LongAdder WAITLIST_PROMOTED = new LongAdder();
+    public static final LongAdder CHANGE_EVENTS_PUBLISHED = new LongAdder();
+    public static final LongAdder CHANGE_FEED_OVERRUNS = new LongAdder();
+
+    private static final Map<String, LongAdder> SEATS_SOLD_BY_FLIGHT = new ConcurrentHashMap<>();
+
+    private Metrics() { }
+
+    public static void seatsSold(String flightNumber, int seats) {
+        SEATS_SOLD.add(seats);
+        LongAdder perFlight = SEATS_SOLD_BY_FLIGHT.get(flightNumber);
+        if (perFlight == null) perFlight = SEATS_SOLD_BY_FLIGHT.computeIfAbsent(flightNumber, k -> new LongAdder());
+        perFlight.add(seats);
+    }
+
+    public static long seatsSold(String flightNumber) {
+        LongAdder perFlight = SEATS_SOLD_BY_FLIGHT.get(flightNumber);
+        return perFlight == null ? 0 : perFlight.sum();
+    }
+
+    public static double uptimeSeconds() {
+        return (System.nanoTime() - STARTED_NANOS) / 1e9;
+    }
+
+    /** Human-readable dump for the admin console. */
+    public static String report() {
+        double uptimeHours = Math.max(uptimeSeconds() / 3600.0, 1e-9);
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append(String.format(Locale.ROOT, "Uptime: %.1f s%n%n", uptimeSeconds()));
+        sb.append(String.format(Locale.ROOT, "%-18s %10s %10s %10s %10s %10s%n",
+                "Operation", "Count", "p50 (us)", "p99 (us)", "p999 (us)", "Max (us)"));
+        for (LatencyHistogram h : HISTOGRAMS) {
+            sb.append(String.format(Locale.ROOT, "%-18s %10d %10.1f %10.1f %10.1f %10.1f%n",
+                    h.getName(), h.getCount(), h.percentile(0.50) / 1e3, h.percentile(0.99) / 1e3,
+                    h.percentile(0.999) / 1e3, h.getMaxNanos() / 1e3));
+        }
+        sb.append(String.format(Locale.ROOT, "%nFailed bookings: %d%nFailed cancellations: %d%n"
+                        + "Seat contention retries: %d%nSeats sold: %d (%.1f/hour)%n",
+                BOOKINGS_FAILED.sum(), CANCELLATIONS_FAILED.sum(), SEAT_CONTENTION_RETRIES.sum(),
+                SEATS_SOLD.sum(), SEATS_SOLD.sum() / uptimeHours));
+        sb.append(String.format(Locale.ROOT, "Snapshot bytes written/read: %d / %d%nJournal bytes written: %d%n"
+                        + "Backup bytes written: %d%n",
+                SNAPSHOT_BYTES_WRITTEN.sum(), SNAPSHOT_BYTES_READ.sum(), JOURNAL_BYTES_WRITTEN.sum(),
+                BACKUP_BYTES_WRITTEN.sum()));
+        long lookups = SEARCH_CACHE_HITS.sum() + SEARCH_CACHE_MISSES.sum();
+        sb.append(String.format(Locale.ROOT, "Search cache: %d hits, %d misses (%.1f%% hit rate), "
+                        + "%d evictions, %d invalidations%n",
+                SEARCH_CACHE_HITS.sum(), SEARCH_CACHE_MISSES.sum(),
+                lookups == 0 ? 0.0 : 100.0 * SEARCH_CACHE_HITS.sum() / lookups,
+                SEARCH_CACHE_EVICTIONS.sum(), SEARCH_CACHE_INVALIDATIONS.sum()));
+        sb.append(String.format(Locale.ROOT, "Seat holds: %d placed, %d confirmed, %d expired%n",
+                HOLDS_PLACED.sum(), HOLDS_CONFIRMED.sum(), HOLDS_EXPIRED.sum()));
+        sb.append(String.format(Locale.ROOT, "Waitlist: %d joined, %d promoted%n",
+                WAITLIST_JOINED.sum(), WAITLIST_PROMOTED.sum()));
+        sb.append(String.format(Locale.ROOT, "Change feed: %d events published, %d subscribers overrun%n",
+                CHANGE_EVENTS_PUBLISHED.sum(), CHANGE_FEED_OVERRUNS.sum()));
+
+        List<Map.Entry<String, Long>> top = topFlights();
+        if (!top.isEmpty()) {
+            sb.append(String.format(Locale.ROOT, "%nTop flights by seats sold:%n"));
+            for (Map.Entry<String, Long> entry : top) {
+                sb.append(String.format(Locale.ROOT, "  %-10s %8d (%.1f/hour)%n",
+                        entry.getKey(), entry.getValue(), entry.getValue() / uptimeHours));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Prometheus text exposition format. */
+    public static String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# TYPE airline_operation_latency_seconds summary\n");
+        for (LatencyHistogram h : HISTOGRAMS) {
+            for (double q : QUANTILES) {
+                sb.append("airline_operation_latency_seconds{operation=\"").append(h.getName())
+                        .append("\",quantile=\"").append(q).append("\"} ")
+                        .append(seconds(h.percentile(q))).append('\n');
+            }
+            sb.append("airline_operation_latency_seconds_sum{operation=\"").append(h.getName()).append("\"} ")
+                    .append(seconds(h.getSumNanos())).append('\n');
+            sb.append("airline_operation_latency_seconds_count{operation=\"").append(h.getName()).append("\"} ")
+                    .append(h.getCount()).append('\n');
+        }
+        counter(sb, "airline_bookings_failed_total", BOOKINGS_FAILED);
+        counter(sb, "airline_cancellations_failed_total", CANCELLATIONS_FAILED);
+        counter(sb, "airline_seat_contention_retries_total", SEAT_CONTENTION_RETRIES);
+        counter(sb, "airline_seats_sold_total", SEATS_SOLD);
+        counter(sb, "airline_snapshot_bytes_written_total", SNAPSHOT_BYTES_WRITTEN);
+        counter(sb, "airline_snapshot_bytes_read_total", SNAPSHOT_BYTES_READ);
+        counter(sb, "airline_journal_bytes_written_total", JOURNAL_BYTES_WRITTEN);
+        counter(sb, "airline_backup_bytes_written_total", BACKUP_BYTES_WRITTEN);
+        counter(sb, "airline_search_cache_hits_total", SEARCH_CACHE_HITS);
+        counter(sb, "airline_search_cache_misses_total", SEARCH_CACHE_MISSES);
+        counter(sb, "airline_search_cache_evictions_total", SEARCH_CACHE_EVICTIONS);
+        counter(sb, "airline_search_cache_invalidations_total", SEARCH_CACHE_INVALIDATIONS);
+        counter(sb, "airline_holds_placed_total", HOLDS_PLACED);
+        counter(sb, "airline_holds_confirmed_total", HOLDS_CONFIRMED);
+        counter(sb, "airline_holds_expired_total", HOLDS_EXPIRED);
+        counter(sb, "airline_waitlist_joined_total", WAITLIST_JOINED);
+        counter(sb, "airline_waitlist_promoted_total", WAITLIST_PROMOTED);
+        counter(sb, "airline_change_events_published_total", CHANGE_EVENTS_PUBLISHED);
+        counter(sb, "airline_change_feed_overruns_total", CHANGE_FEED_OVERRUNS);
+
+        sb.append("# TYPE airline_flight_seats_sold_total counter\n");
+        for (Map.Entry<String, Long> entry : topFlights()) {
+            sb.append("airline_flight_seats_sold_total{flight=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+        sb.append("# TYPE airline_uptime_seconds gauge\n");
+        sb.append("airline_uptime_seconds ").append(uptimeSeconds()).append('\n');
+        return sb.toString();
+    }
+
+    /** Clears every histogram and counter, e.g. between benchmark runs. */
+    public static void reset() {
+        for (LatencyHistogram h : HISTOGRAMS) h.reset();
+        BOOKINGS_FAILED.reset();
+        CANCELLATIONS_FAILED.reset();
+        SEAT_CONTENTION_RETRIES.reset();
+        SEATS_SOLD.reset();
+        SNAPSHOT_BYTES_WRITTEN.reset();
+        SNAPSHOT_BYTES_READ.reset();
+        JOURNAL_BYTES_WRITTEN.reset();
+        BACKUP_BYTES_WRITTEN.reset();
+        SEARCH_CACHE_HITS.reset();
+        SEARCH_CACHE_MISSES.reset();
+        SEARCH_CACHE_EVICTIONS.reset();
+        SEARCH_CACHE_INVALIDATIONS.reset();
+        HOLDS_PLACED.reset();
+        HOLDS_CONFIRMED.reset();
+        HOLDS_EXPIRED.reset();
+        WAITLIST_JOINED.reset();
+        WAITLIST_PROMOTED.reset();
+        CHANGE_EVENTS_PUBLISHED.reset();
+        CHANGE_FEED_OVERRUNS.reset();
+        SEATS_SOLD_BY_FLIGHT.clear();
+    }
+
+    private static List<Map.Entry<String, Long>> topFlights() {
+        List<Map.Entry<String, Long>> flights = new ArrayList<>(SEATS_SOLD_BY_FLIGHT.size());
+        for (Map.Entry<String, LongAdder> entry : SEATS_SOLD_BY_FLIGHT.entrySet()) {
+            flights.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+        }
+        flights.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return flights.size() > TOP_FLIGHTS ? flights.subList(0, TOP_FLIGHTS) : flights;
+    }
+
+    private static void counter(StringBuilder sb, String name, LongAdder value) {
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(value.sum()).append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
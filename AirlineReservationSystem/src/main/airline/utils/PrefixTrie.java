@@ -0,0 +1,293 @@
+package main.airline.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact trie from terms to values, for typeahead: terms that start with a
+ * prefix, or with something within a few edits of it.
+ *
+ * Nodes live in parallel arrays (label, first child, next sibling, values)
+ * rather than as objects, about 14 bytes a node; siblings are kept in label
+ * order, so results come back alphabetically, shorter terms first. A term
+ * with one value stores it directly and only a shared term (a common
+ * surname) gets a set. Removing a term's last value leaves its nodes in
+ * place, to be reused if it comes back.
+ *
+ * Fuzzy search walks the trie with one row of the Levenshtein table per
+ * depth and prunes a branch as soon as every cell of its row exceeds the
+ * allowed edits, so it only visits the neighbourhood of the query. The
+ * first character must match exactly, and once closer matches fill the
+ * limit, farther ones stop being looked for.
+ *
+ * Thread-safe: searches share a read lock, changes take the write lock.
+ */
+public class PrefixTrie<V> {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private char[] labels = new char[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    // Null, a single value, or a Set of values
+    private Object[] values = new Object[64];
+    private int nodeCount;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PrefixTrie() {
+        nodeCount = 1;
+        firstChild[ROOT] = NONE;
+        nextSibling[ROOT] = NONE;
+    }
+
+    /** Adds {@code value} under {@code term}; returns false if it was there already. */
+    public boolean add(String term, V value) {
+        lock.writeLock().lock();
+        try {
+            int node = ROOT;
+            for (int i = 0; i < term.length(); i++) node = childOrCreate(node, term.charAt(i));
+            Object current = values[node];
+            if (current == null) {
+                values[node] = value;
+                return true;
+            }
+            if (current instanceof ValueSet) return ((ValueSet) current).add(value);
+            if (current.equals(value)) return false;
+            ValueSet set = new ValueSet();
+            set.add(current);
+            set.add(value);
+            values[node] = set;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes {@code value} from {@code term}; returns false if it was not there. */
+    public boolean remove(String term, V value) {
+        lock.writeLock().lock();
+        try {
+            int node = find(term);
+            if (node == NONE || values[node] == null) return false;
+            Object current = values[node];
+            if (current instanceof ValueSet) {
+                ValueSet set = (ValueSet) current;
+                if (!set.remove(value)) return false;
+                if (set.size() == 1) values[node] = set.iterator().next();
+                return true;
+            }
+            if (!current.equals(value)) return false;
+            values[node] = null;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(values, 0, nodeCount, null);
+            nodeCount = 1;
+            firstChild[ROOT] = NONE;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} distinct values of the terms starting with
+     * {@code prefix}, or with a string at most {@code maxEdits} insertions,
+     * deletions or substitutions away from it (keeping its first character).
+     * Closer matches come first;
+     * exact prefix matches alphabetically by term.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> search(String prefix, int maxEdits, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Search search = new Search(prefix, Math.max(0, maxEdits), limit);
+            // Exact matches first: often they fill the limit and no fuzzy walk is needed
+            int node = find(prefix);
+            if (node != NONE) collect(node, search.byDistance.get(0), limit);
+            if (search.cutoff() > 0) {
+                int[] row = new int[prefix.length() + 1];
+                for (int j = 0; j < row.length; j++) row[j] = j;
+                walkChildren(ROOT, search, row, row[prefix.length()] <= search.maxEdits ? row[prefix.length()] : NONE);
+            }
+            Set<Object> found = new LinkedHashSet<>();
+            for (Set<Object> bucket : search.byDistance) {
+                for (Object value : bucket) {
+                    if (found.size() == limit) break;
+                    found.add(value);
+                }
+            }
+            return new ArrayList<>((Set<V>) (Set<?>) found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** State of one fuzzy search: matches found so far, by distance. */
+    private static final class Search {
+        final String query;
+        final int maxEdits;
+        final int limit;
+        final List<Set<Object>> byDistance;
+        // One Levenshtein row per depth, reused as the walk moves between branches
+        private int[][] rows = new int[16][];
+
+        Search(String query, int maxEdits, int limit) {
+            this.query = query;
+            this.maxEdits = maxEdits;
+            this.limit = limit;
+            this.byDistance = new ArrayList<>(maxEdits + 1);
+            for (int d = 0; d <= maxEdits; d++) byDistance.add(new LinkedHashSet<>());
+        }
+
+        /**
+         * Matches at this distance or more can no longer make the result:
+         * closer ones found so far already fill it.
+         */
+        int cutoff() {
+            int closer = 0;
+            for (int d = 0; d <= maxEdits; d++) {
+                closer += byDistance.get(d).size();
+                if (closer >= limit) return d;
+            }
+            return maxEdits + 1;
+        }
+
+        int[] row(int depth) {
+            if (depth >= rows.length) rows = Arrays.copyOf(rows, Math.max(depth + 1, rows.length * 2));
+            if (rows[depth] == null) rows[depth] = new int[query.length() + 1];
+            return rows[depth];
+        }
+    }
+
+    /**
+     * Fuzzy step below {@code node}, whose Levenshtein row is {@code row}.
+     * {@code best} is the smallest distance between the query and a prefix
+     * ending at or above the node, or NONE; every term below such a prefix
+     * matches at that distance or less. The child the query continues with
+     * is tried first, so close matches are found early and tighten the cutoff.
+     */
+    private void walkChildren(int node, Search search, int[] row, int best) {
+        int depth = row[0];
+        char next = depth < search.query.length() ? search.query.charAt(depth) : 0;
+        int likely = next != 0 ? child(node, next) : NONE;
+        if (likely != NONE) walk(likely, search, row, best);
+        // People rarely mistype the first character, and trusting it keeps the walk to one branch
+        if (node == ROOT) return;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (child != likely) walk(child, search, row, best);
+        }
+    }
+
+    private void walk(int node, Search search, int[] previous, int best) {
+        int cutoff = search.cutoff();
+        String query = search.query;
+        int m = query.length();
+        char label = labels[node];
+        int[] row = search.row(previous[0] + 1);
+        row[0] = previous[0] + 1;
+        int rowMin = row[0];
+        for (int j = 1; j <= m; j++) {
+            int cost = query.charAt(j - 1) == label ? 0 : 1;
+            row[j] = Math.min(Math.min(row[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            rowMin = Math.min(rowMin, row[j]);
+        }
+        if (row[m] < cutoff && (best == NONE || row[m] < best)) best = row[m];
+        if (best != NONE && best >= cutoff) best = NONE;
+        if (best != NONE && rowMin >= best) {
+            // Nothing deeper can come closer; everything below matches at best
+            collect(node, search.byDistance.get(best), search.limit);
+            return;
+        }
+        if (best != NONE) addValues(values[node], search.byDistance.get(best), search.limit);
+        if (rowMin >= cutoff) return;
+        walkChildren(node, search, row, best);
+    }
+
+    /** Adds the values of {@code node} and its subtree, in term order, until {@code found} holds {@code limit}. */
+    private void collect(int node, Set<Object> found, int limit) {
+        if (found.size() >= limit) return;
+        addValues(values[node], found, limit);
+        for (int child = firstChild[node]; child != NONE && found.size() < limit; child = nextSibling[child]) {
+            collect(child, found, limit);
+        }
+    }
+
+    private static void addValues(Object value, Set<Object> found, int limit) {
+        if (value == null) return;
+        if (value instanceof ValueSet) {
+            for (Object v : (ValueSet) value) {
+                if (found.size() >= limit) return;
+                found.add(v);
+            }
+        } else if (found.size() < limit) {
+            found.add(value);
+        }
+    }
+
+    private int find(String term) {
+        int node = ROOT;
+        for (int i = 0; i < term.length() && node != NONE; i++) node = child(node, term.charAt(i));
+        return node;
+    }
+
+    private int child(int node, char label) {
+        for (int child = firstChild[node]; child != NONE && labels[child] <= label; child = nextSibling[child]) {
+            if (labels[child] == label) return child;
+        }
+        return NONE;
+    }
+
+    private int childOrCreate(int node, char label) {
+        int previous = NONE;
+        int child = firstChild[node];
+        while (child != NONE && labels[child] < label) {
+            previous = child;
+            child = nextSibling[child];
+        }
+        if (child != NONE && labels[child] == label) return child;
+
+        if (nodeCount == labels.length) grow();
+        int created = nodeCount++;
+        labels[created] = label;
+        firstChild[created] = NONE;
+        nextSibling[created] = child;
+        values[created] = null;
+        if (previous == NONE) firstChild[node] = created;
+        else nextSibling[previous] = created;
+        return created;
+    }
+
+    private void grow() {
+        int capacity = labels.length * 2;
+        labels = Arrays.copyOf(labels, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    // Distinguishes a shared term's values from a single value that happens to be a set
+    private static final class ValueSet extends LinkedHashSet<Object> {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,263 @@
+package main.airline.utils;
+
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Versioned binary snapshot format for flights, passengers, reservations and
+ * waitlisted requests.
+ *
+ * Layout:
+ * <pre>
+ *   int    magic "ARSB"
+ *   short  version
+ *   varint airport count, then each airport name (dictionary)
+ *   varint flight count, then flights    (airports stored as dictionary indexes)
+ *   varint passenger count, then passengers
+ *   varint reservation count, then reservations (flight number + passenger id references,
+ *          then the assigned seat labels)
+ *   varint waitlist count, then the requests still waiting (flight number + passenger id references)
+ * </pre>
+ * Reservations are resolved against the decoded flights and passengers, so
+ * a reservation shares its Flight instance with the flight list.
+ */
+public class RecordCodec {
+    private static final int MAGIC = 0x41525342; // "ARSB"
+    public static final short VERSION = 1;
+
+    private static final int FLAG_LISTED = 1;      // flight is part of the schedule (not only referenced)
+    private static final int FLAG_CONFIRMED = 1;
+    private static final int FLAG_CANCELLED = 2;
+    private static final int FLAG_HELD = 4;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /** Decoded contents of a snapshot, with references already resolved. */
+    public static class Snapshot {
+        public final List<Flight> flights;
+        public final List<Passenger> passengers;
+        public final List<Reservation> reservations;
+        public final List<WaitlistEntry> waitlist;
+
+        public Snapshot(List<Flight> flights, List<Passenger> passengers, List<Reservation> reservations,
+                        List<WaitlistEntry> waitlist) {
+            this.flights = flights;
+            this.passengers = passengers;
+            this.reservations = reservations;
+            this.waitlist = waitlist;
+        }
+    }
+
+    public static void write(OutputStream os, List<Flight> flights, List<Reservation> reservations,
+                             List<Passenger> passengers) throws IOException {
+        write(os, flights, reservations, passengers, List.of());
+    }
+
+    public static void write(OutputStream os, List<Flight> flights, List<Reservation> reservations,
+                             List<Passenger> passengers, List<WaitlistEntry> waitlist) throws IOException {
+        // Collect every flight and passenger a reservation points at, so references always resolve
+        Map<String, Flight> allFlights = new LinkedHashMap<>();
+        Set<String> listed = new HashSet<>();
+        for (Flight f : flights) {
+            if (f == null) continue;
+            allFlights.put(f.getFlightNumber(), f);
+            listed.add(f.getFlightNumber());
+        }
+        Map<String, Passenger> allPassengers = new LinkedHashMap<>();
+        for (Passenger p : passengers) {
+            if (p != null) allPassengers.put(p.getId(), p);
+        }
+        for (Reservation r : reservations) {
+            if (r == null) continue;
+            if (r.getFlight() != null) allFlights.putIfAbsent(r.getFlight().getFlightNumber(), r.getFlight());
+            if (r.getPassenger() != null) allPassengers.putIfAbsent(r.getPassenger().getId(), r.getPassenger());
+        }
+        for (WaitlistEntry e : waitlist) {
+            if (e != null && e.getPassenger() != null) allPassengers.putIfAbsent(e.getPassenger().getId(), e.getPassenger());
+        }
+
+        Map<String, Integer> airportIndex = new LinkedHashMap<>();
+        for (Flight f : allFlights.values()) {
+            airportIndex.putIfAbsent(f.getOrigin(), airportIndex.size());
+            airportIndex.putIfAbsent(f.getDestination(), airportIndex.size());
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        writeVarInt(out, airportIndex.size());
+        for (String airport : airportIndex.keySet()) writeString(out, airport);
+
+        writeVarInt(out, allFlights.size());
+        for (Flight f : allFlights.values()) {
+            out.writeByte(listed.contains(f.getFlightNumber()) ? FLAG_LISTED : 0);
+            writeString(out, f.getFlightNumber());
+            writeVarInt(out, airportIndex.get(f.getOrigin()));
+            writeVarInt(out, airportIndex.get(f.getDestination()));
+            out.writeLong(toEpoch(f.getDepartureTime()));
+            out.writeLong(toEpoch(f.getArrivalTime()));
+            writeVarInt(out, f.getTotalSeats());
+            writeVarInt(out, f.getAvailableSeats());
+            out.writeDouble(f.getPrice());
+        }
+
+        writeVarInt(out, allPassengers.size());
+        for (Passenger p : allPassengers.values()) {
+            writeString(out, p.getId());
+            writeString(out, p.getName());
+            writeString(out, p.getEmail());
+            writeString(out, p.getPhone());
+        }
+
+        int reservationCount = 0;
+        for (Reservation r : reservations) if (r != null) reservationCount++;
+        writeVarInt(out, reservationCount);
+        for (Reservation r : reservations) {
+            if (r == null) continue;
+            writeString(out, r.getReservationId());
+            writeString(out, r.getFlight() != null ? r.getFlight().getFlightNumber() : null);
+            writeString(out, r.getPassenger() != null ? r.getPassenger().getId() : null);
+            writeVarInt(out, r.getSeats());
+            out.writeByte((r.isConfirmed() ? FLAG_CONFIRMED : 0) | (r.isCancelled() ? FLAG_CANCELLED : 0)
+                    | (r.wasHeld() ? FLAG_HELD : 0));
+            writeVarInt(out, r.getSeatNumbers().size());
+            for (String seat : r.getSeatNumbers()) out.writeUTF(seat);
+        }
+
+        int waitlistCount = 0;
+        for (WaitlistEntry e : waitlist) if (e != null) waitlistCount++;
+        writeVarInt(out, waitlistCount);
+        for (WaitlistEntry e : waitlist) {
+            if (e == null) continue;
+            writeString(out, e.getEntryId());
+            writeString(out, e.getFlightNumber());
+            writeString(out, e.getPassenger() != null ? e.getPassenger().getId() : null);
+            writeVarInt(out, e.getSeats());
+            writeString(out, e.getFareClass().name());
+            out.writeLong(toEpoch(e.getRequestedAt()));
+            out.writeLong(e.getSequence());
+        }
+        out.flush();
+    }
+
+    public static Snapshot read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) throw new IOException("Not an airline snapshot");
+        short version = in.readShort();
+        if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+        String[] airports = new String[readVarInt(in)];
+        for (int i = 0; i < airports.length; i++) airports[i] = readString(in);
+
+        int flightCount = readVarInt(in);
+        List<Flight> flights = new ArrayList<>(flightCount);
+        Map<String, Flight> flightsByNumber = new HashMap<>(flightCount * 2);
+        for (int i = 0; i < flightCount; i++) {
+            int flags = in.readUnsignedByte();
+            String number = readString(in);
+            String origin = airports[readVarInt(in)];
+            String destination = airports[readVarInt(in)];
+            LocalDateTime departure = fromEpoch(in.readLong());
+            LocalDateTime arrival = fromEpoch(in.readLong());
+            int totalSeats = readVarInt(in);
+            int availableSeats = readVarInt(in);
+            double price = in.readDouble();
+
+            Flight flight = new Flight(number, origin, destination, departure, arrival, totalSeats, price);
+            flight.setAvailableSeats(availableSeats);
+            flightsByNumber.put(number, flight);
+            if ((flags & FLAG_LISTED) != 0) flights.add(flight);
+        }
+
+        int passengerCount = readVarInt(in);
+        List<Passenger> passengers = new ArrayList<>(passengerCount);
+        Map<String, Passenger> passengersById = new HashMap<>(passengerCount * 2);
+        for (int i = 0; i < passengerCount; i++) {
+            Passenger p = new Passenger(readString(in), readString(in), readString(in), readString(in));
+            passengers.add(p);
+            passengersById.put(p.getId(), p);
+        }
+
+        int reservationCount = readVarInt(in);
+        List<Reservation> reservations = new ArrayList<>(reservationCount);
+        for (int i = 0; i < reservationCount; i++) {
+            String id = readString(in);
+            String flightNumber = readString(in);
+            String passengerId = readString(in);
+            int seats = readVarInt(in);
+            int flags = in.readUnsignedByte();
+            int seatCount = readVarInt(in);
+            List<String> seatNumbers = new ArrayList<>(seatCount);
+            for (int s = 0; s < seatCount; s++) seatNumbers.add(in.readUTF());
+
+            Reservation r = new Reservation(id,
+                    flightNumber != null ? flightsByNumber.get(flightNumber) : null,
+                    passengerId != null ? passengersById.get(passengerId) : null,
+                    seats, seatNumbers);
+            if ((flags & FLAG_CONFIRMED) != 0) r.confirmReservation();
+            if ((flags & FLAG_CANCELLED) != 0) r.cancelReservation();
+            if ((flags & FLAG_HELD) != 0) r.holdReservation();
+            reservations.add(r);
+        }
+
+        int waitlistCount = readVarInt(in);
+        List<WaitlistEntry> waitlist = new ArrayList<>(waitlistCount);
+        for (int i = 0; i < waitlistCount; i++) {
+            String id = readString(in);
+            String flightNumber = readString(in);
+            String passengerId = readString(in);
+            int seats = readVarInt(in);
+            FareClass fareClass = FareClass.valueOf(readString(in));
+            LocalDateTime requestedAt = fromEpoch(in.readLong());
+            long sequence = in.readLong();
+            waitlist.add(new WaitlistEntry(id, flightNumber,
+                    passengerId != null ? passengersById.get(passengerId) : null,
+                    seats, fareClass, requestedAt, sequence));
+        }
+        return new Snapshot(flights, passengers, reservations, waitlist);
+    }
+
+    // ---- Primitive helpers ----
+    private static long toEpoch(LocalDateTime time) {
+        return time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpoch(long seconds) {
+        return seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,63 @@
+package main.airline.utils;
+
+import main.airline.models.Reservation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where ReservationService keeps reservations: a {@link ReservationTable} on
+ * the heap, or a {@link MappedReservationStore} file. Reservations come back
+ * as read-only copies ({@link Reservation#readOnly}), so status changes go
+ * through the store, which settles races between them.
+ */
+public interface ReservationStore {
+    int size();
+
+    boolean contains(String reservationId);
+
+    /** Adds a reservation unless one with the same id is already stored. */
+    boolean add(Reservation reservation) throws IOException;
+
+    Reservation get(String reservationId);
+
+    /** A passenger's reservations, oldest first. */
+    List<Reservation> findByPassenger(String passengerId);
+
+    /** A flight's reservations (including cancelled ones), oldest first. */
+    List<Reservation> findByFlight(String flightNumber);
+
+    /**
+     * Reservations whose ids fall in [fromId, toId) (a null bound is open),
+     * in id order. Cheap when ids are made in order, as time-ordered ones are.
+     */
+    List<Reservation> findByIdRange(String fromId, String toId);
+
+    /** Every reservation in booking order; O(history), for listings only. */
+    List<Reservation> readAll();
+
+    /** Sets the cancelled flag; returns false if the reservation is unknown or already cancelled. */
+    boolean markCancelled(String reservationId);
+
+    /** Sets the confirmed flag unless the reservation is cancelled or already confirmed. */
+    boolean markConfirmed(String reservationId);
+
+    /** Cancels a hold that is still unconfirmed; returns false otherwise. */
+    boolean markExpired(String reservationId);
+
+    /** Clears the cancelled flag again, undoing a cancellation or expiry that could not be persisted. */
+    boolean unmarkCancelled(String reservationId);
+
+    /** Clears the confirmed flag again, undoing a confirmation that could not be persisted. */
+    boolean unmarkConfirmed(String reservationId);
+
+    /** Drops a reservation added by a booking that then failed. */
+    void discard(String reservationId);
+
+    /** Ids of holds that are neither confirmed nor cancelled. */
+    List<String> findPendingHolds();
+
+    /** Seats held by reservations that are not cancelled, per flight number. */
+    Map<String, Integer> countBookedSeats();
+}
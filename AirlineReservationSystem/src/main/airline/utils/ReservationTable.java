@@ -0,0 +1,361 @@
+package main.airline.utils;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Reservations kept on the heap in columns of primitive arrays, for when
+ * there is no mapped store (the JDBC backend, or a store that failed to
+ * open). Rows are appended in pages; each row is its flags, seat count and
+ * flight (a code in a {@link SymbolTable}), plus one byte array holding the
+ * id, passenger and seat numbers as UTF-8. Reservation objects are built on
+ * demand and the indexes are {@link SlotIndex}es, so a reservation costs a
+ * little over the size of its text instead of a graph of objects.
+ *
+ * Like the mapped store, rows become visible once their VALID flag is set,
+ * and status changes lock one of a few stripes.
+ */
+public class ReservationTable implements ReservationStore {
+    private static final int PAGE_ROWS = 1 << 14;
+    private static final int LOCK_STRIPES = 64;
+    private static final int FLAG_CONFIRMED = 1;
+    private static final int FLAG_CANCELLED = 2;
+    private static final int FLAG_HELD = 4;
+    private static final int FLAG_VALID = 0x80;
+    // Release/acquire access to the flag column publishes the rest of a row
+    private static final VarHandle FLAGS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final class Page {
+        final byte[] flags = new byte[PAGE_ROWS];
+        final int[] seats = new int[PAGE_ROWS];
+        final int[] flights = new int[PAGE_ROWS];
+        final byte[][] text = new byte[PAGE_ROWS][];
+    }
+
+    private final AtomicReferenceArray<Page> pages = new AtomicReferenceArray<>(Integer.MAX_VALUE / PAGE_ROWS + 1);
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private final SymbolTable flightNumbers = new SymbolTable();
+    private final Function<String, Flight> flightResolver;
+    private final SlotIndex rowsById = new SlotIndex(row -> key(textField(row, 0)));
+    private final SlotIndex rowsByPassenger = new SlotIndex(row -> key(textField(row, 1)));
+    private final SlotIndex rowsByFlight = new SlotIndex(row -> key(flightNumbers.symbol(page(row).flights[row % PAGE_ROWS])));
+    private final BlockRangeIndex idRanges = new BlockRangeIndex();
+    private final AtomicInteger nextRow = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** Flights are resolved through {@code flightResolver} when a reservation is read back. */
+    public ReservationTable(Function<String, Flight> flightResolver) {
+        this.flightResolver = flightResolver;
+        for (int i = 0; i < LOCK_STRIPES; i++) stripes[i] = new Object();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean contains(String reservationId) {
+        return rowOf(reservationId) >= 0;
+    }
+
+    @Override
+    public boolean add(Reservation reservation) {
+        String id = reservation.getReservationId();
+        if (id == null || rowsById.find(key(id)) >= 0) return false;
+        Passenger passenger = reservation.getPassenger();
+        String flightNumber = reservation.getFlight() != null ? reservation.getFlight().getFlightNumber() : null;
+
+        int row = nextRow.getAndIncrement();
+        Page page = page(row);
+        int index = row % PAGE_ROWS;
+        page.seats[index] = reservation.getSeats();
+        page.flights[index] = flightNumbers.code(flightNumber);
+        page.text[index] = encode(reservation);
+
+        idRanges.include(row, key(id));
+        // Claim the id once the row holds it; a racing duplicate leaves this row as a never-valid hole
+        if (!rowsById.addUnique(key(id), row)) return false;
+        FLAGS.setRelease(page.flags, index, (byte) (flags(reservation) | FLAG_VALID));
+        if (passenger != null && passenger.getId() != null) rowsByPassenger.add(key(passenger.getId()), row);
+        if (flightNumber != null) rowsByFlight.add(key(flightNumber), row);
+        size.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public Reservation get(String reservationId) {
+        int row = rowOf(reservationId);
+        return row < 0 ? null : decode(row);
+    }
+
+    @Override
+    public List<Reservation> findByPassenger(String passengerId) {
+        if (passengerId == null) return Collections.emptyList();
+        return decodeAll(rowsByPassenger.findAll(key(passengerId)));
+    }
+
+    @Override
+    public List<Reservation> findByFlight(String flightNumber) {
+        if (flightNumber == null) return Collections.emptyList();
+        return decodeAll(rowsByFlight.findAll(key(flightNumber)));
+    }
+
+    @Override
+    public List<Reservation> findByIdRange(String fromId, String toId) {
+        String from = fromId == null ? null : key(fromId);
+        String to = toId == null ? null : key(toId);
+        int rows = nextRow.get();
+        List<Reservation> result = new ArrayList<>();
+        for (int block : idRanges.blocksOverlapping(from, to, rows)) {
+            int end = Math.min(rows, (block + 1) * BlockRangeIndex.BLOCK_SLOTS);
+            for (int row = block * BlockRangeIndex.BLOCK_SLOTS; row < end; row++) {
+                if ((flagsOf(row) & FLAG_VALID) == 0) continue;
+                String id = key(textField(row, 0));
+                if ((from != null && id.compareTo(from) < 0) || (to != null && id.compareTo(to) >= 0)) continue;
+                Reservation reservation = decode(row);
+                if (reservation != null) result.add(reservation);
+            }
+        }
+        result.sort(Comparator.comparing(r -> key(r.getReservationId())));
+        return result;
+    }
+
+    @Override
+    public List<Reservation> readAll() {
+        int rows = nextRow.get();
+        List<Reservation> result = new ArrayList<>(size.get());
+        for (int row = 0; row < rows; row++) {
+            Reservation reservation = decode(row);
+            if (reservation != null) result.add(reservation);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean markCancelled(String reservationId) {
+        return transition(reservationId, 0, FLAG_CANCELLED, FLAG_CANCELLED);
+    }
+
+    @Override
+    public boolean markConfirmed(String reservationId) {
+        return transition(reservationId, 0, FLAG_CONFIRMED | FLAG_CANCELLED, FLAG_CONFIRMED);
+    }
+
+    @Override
+    public boolean markExpired(String reservationId) {
+        return transition(reservationId, FLAG_HELD, FLAG_CONFIRMED | FLAG_CANCELLED, FLAG_CANCELLED);
+    }
+
+    @Override
+    public boolean unmarkCancelled(String reservationId) {
+        return transition(reservationId, FLAG_CANCELLED, 0, 0, FLAG_CANCELLED);
+    }
+
+    @Override
+    public boolean unmarkConfirmed(String reservationId) {
+        return transition(reservationId, FLAG_CONFIRMED, FLAG_CANCELLED, 0, FLAG_CONFIRMED);
+    }
+
+    /** Hides the row; its id stays claimed, so it cannot be reused. */
+    @Override
+    public void discard(String reservationId) {
+        int row = rowOf(reservationId);
+        if (row < 0) return;
+        Page page = page(row);
+        synchronized (stripes[row & (LOCK_STRIPES - 1)]) {
+            if (((byte) FLAGS.getVolatile(page.flags, row % PAGE_ROWS) & FLAG_VALID) == 0) return;
+            FLAGS.setRelease(page.flags, row % PAGE_ROWS, (byte) 0);
+        }
+        size.decrementAndGet();
+    }
+
+    @Override
+    public List<String> findPendingHolds() {
+        List<String> ids = new ArrayList<>();
+        int rows = nextRow.get();
+        for (int row = 0; row < rows; row++) {
+            int flags = flagsOf(row);
+            if ((flags & (FLAG_VALID | FLAG_HELD | FLAG_CONFIRMED | FLAG_CANCELLED)) == (FLAG_VALID | FLAG_HELD)) {
+                ids.add(textField(row, 0));
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public Map<String, Integer> countBookedSeats() {
+        Map<String, Integer> booked = new HashMap<>();
+        int rows = nextRow.get();
+        for (int row = 0; row < rows; row++) {
+            if ((flagsOf(row) & (FLAG_VALID | FLAG_CANCELLED)) != FLAG_VALID) continue;
+            Page page = page(row);
+            String flightNumber = flightNumbers.symbol(page.flights[row % PAGE_ROWS]);
+            if (flightNumber != null) booked.merge(flightNumber, page.seats[row % PAGE_ROWS], Integer::sum);
+        }
+        return booked;
+    }
+
+    // Atomically sets flags in a valid row whose requireSet bits are all set and requireClear bits all clear
+    private boolean transition(String reservationId, int requireSet, int requireClear, int set) {
+        return transition(reservationId, requireSet, requireClear, set, 0);
+    }
+
+    private boolean transition(String reservationId, int requireSet, int requireClear, int set, int clear) {
+        int row = rowOf(reservationId);
+        if (row < 0) return false;
+        Page page = page(row);
+        int index = row % PAGE_ROWS;
+        synchronized (stripes[row & (LOCK_STRIPES - 1)]) {
+            int flags = (byte) FLAGS.getVolatile(page.flags, index);
+            if ((flags & FLAG_VALID) == 0 || (flags & requireSet) != requireSet || (flags & requireClear) != 0) return false;
+            FLAGS.setRelease(page.flags, index, (byte) ((flags | set) & ~clear));
+        }
+        return true;
+    }
+
+    // Row of a visible reservation, or -1
+    private int rowOf(String reservationId) {
+        if (reservationId == null) return -1;
+        int row = rowsById.find(key(reservationId));
+        return row >= 0 && (flagsOf(row) & FLAG_VALID) != 0 ? row : -1;
+    }
+
+    private int flagsOf(int row) {
+        return (byte) FLAGS.getAcquire(page(row).flags, row % PAGE_ROWS);
+    }
+
+    private List<Reservation> decodeAll(int[] rows) {
+        List<Reservation> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            Reservation reservation = decode(row);
+            if (reservation != null) result.add(reservation);
+        }
+        return result;
+    }
+
+    // Returns null for rows not yet published, or discarded
+    private Reservation decode(int row) {
+        int flags = flagsOf(row);
+        if ((flags & FLAG_VALID) == 0) return null;
+        Page page = page(row);
+        int index = row % PAGE_ROWS;
+        String flightNumber = flightNumbers.symbol(page.flights[index]);
+
+        Text text = new Text(page.text[index]);
+        String id = text.next();
+        Passenger passenger = new Passenger(text.next(), text.next(), text.next(), text.next());
+        int seatCount = text.nextCount();
+        List<String> seatNumbers = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) seatNumbers.add(text.next());
+
+        return Reservation.readOnly(id, flightNumber != null ? flightResolver.apply(flightNumber) : null,
+                passenger, page.seats[index], seatNumbers, (flags & FLAG_CONFIRMED) != 0,
+                (flags & FLAG_CANCELLED) != 0, (flags & FLAG_HELD) != 0);
+    }
+
+    // Field n of a row's text: 0 is the reservation id, 1 the passenger id
+    private String textField(int row, int field) {
+        Text text = new Text(page(row).text[row % PAGE_ROWS]);
+        for (int i = 0; i < field; i++) text.skip();
+        return text.next();
+    }
+
+    private Page page(int row) {
+        int index = row / PAGE_ROWS;
+        Page page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new Page());
+            page = pages.get(index);
+        }
+        return page;
+    }
+
+    /*
+     * Row text: reservation id, passenger id, name, email and phone, then the
+     * seat count and each seat number. A string is a varint of its UTF-8
+     * length plus one (0 for null) followed by the bytes.
+     */
+    private static byte[] encode(Reservation reservation) {
+        Passenger passenger = reservation.getPassenger();
+        List<String> seatNumbers = reservation.getSeatNumbers();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        writeString(out, reservation.getReservationId());
+        writeString(out, passenger != null ? passenger.getId() : null);
+        writeString(out, passenger != null ? passenger.getName() : null);
+        writeString(out, passenger != null ? passenger.getEmail() : null);
+        writeString(out, passenger != null ? passenger.getPhone() : null);
+        writeVarInt(out, seatNumbers.size());
+        for (String seat : seatNumbers) writeString(out, seat);
+        return out.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Cursor over a row's text
+    private static final class Text {
+        private final byte[] bytes;
+        private int position;
+
+        Text(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        String next() {
+            int length = nextCount() - 1;
+            if (length < 0) return null;
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skip() {
+            int length = nextCount() - 1;
+            if (length > 0) position += length;
+        }
+
+        int nextCount() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+
+    private static int flags(Reservation reservation) {
+        return (reservation.isConfirmed() ? FLAG_CONFIRMED : 0) | (reservation.isCancelled() ? FLAG_CANCELLED : 0)
+                | (reservation.wasHeld() ? FLAG_HELD : 0);
+    }
+
+    private static String key(String id) {
+        return id.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,154 @@
+package main.airline.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Index from string keys to the slots (record numbers) of a store whose
+ * records hold their own keys. Only int arrays are kept: an open-addressed
+ * table of key hash and newest slot per distinct key, and a chain through one
+ * int per slot linking each slot to the previous one with the same key.
+ * Candidates are confirmed by reading the key back from the record, so no key
+ * strings, boxed slots or per-key collections live on the heap.
+ *
+ * Keys are split over lock stripes by hash; the slot chain is only read and
+ * written under the stripe of the slot's key.
+ */
+final class SlotIndex {
+    private static final int STRIPES = 64;
+    private static final int PAGE_SLOTS = 1 << 16;
+    private static final int[] NO_SLOTS = new int[0];
+
+    // Slot -> normalised key of its record
+    private final IntFunction<String> keyOf;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // Slot -> previous slot with the same key, plus one (0 ends the chain); paged so it grows without copying
+    private final AtomicReferenceArray<int[]> previous = new AtomicReferenceArray<>(Integer.MAX_VALUE / PAGE_SLOTS + 1);
+
+    private static final class Stripe {
+        int[] hashes = new int[16];
+        // Newest slot plus one; 0 marks a free entry
+        int[] heads = new int[16];
+        int keys;
+    }
+
+    SlotIndex(IntFunction<String> keyOf) {
+        this.keyOf = keyOf;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /** Indexes {@code slot} under {@code key}, unless the key is already indexed; returns false then. */
+    boolean addUnique(String key, int slot) {
+        return add(key, slot, true);
+    }
+
+    /** Indexes {@code slot} under {@code key}, after any slots already there. */
+    void add(String key, int slot) {
+        add(key, slot, false);
+    }
+
+    /** The newest slot indexed under {@code key}, or -1. */
+    int find(String key) {
+        int hash = hash(key);
+        Stripe stripe = stripe(hash);
+        synchronized (stripe) {
+            int entry = locate(stripe, hash, key);
+            return entry < 0 ? -1 : stripe.heads[entry] - 1;
+        }
+    }
+
+    /** Every slot indexed under {@code key}, oldest first. */
+    int[] findAll(String key) {
+        int hash = hash(key);
+        Stripe stripe = stripe(hash);
+        synchronized (stripe) {
+            int entry = locate(stripe, hash, key);
+            if (entry < 0) return NO_SLOTS;
+            int[] slots = new int[4];
+            int count = 0;
+            for (int slot = stripe.heads[entry] - 1; slot >= 0; slot = previousOf(slot) - 1) {
+                if (count == slots.length) slots = Arrays.copyOf(slots, count * 2);
+                slots[count++] = slot;
+            }
+            // The chain runs newest first
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                int swap = slots[i];
+                slots[i] = slots[j];
+                slots[j] = swap;
+            }
+            return count == slots.length ? slots : Arrays.copyOf(slots, count);
+        }
+    }
+
+    private boolean add(String key, int slot, boolean unique) {
+        int hash = hash(key);
+        Stripe stripe = stripe(hash);
+        synchronized (stripe) {
+            int entry = locate(stripe, hash, key);
+            if (entry >= 0) {
+                if (unique) return false;
+                setPrevious(slot, stripe.heads[entry]);
+                stripe.heads[entry] = slot + 1;
+                return true;
+            }
+            if (2 * (stripe.keys + 1) > stripe.heads.length) grow(stripe);
+            int mask = stripe.heads.length - 1;
+            int i = hash & mask;
+            while (stripe.heads[i] != 0) i = (i + 1) & mask;
+            stripe.hashes[i] = hash;
+            stripe.heads[i] = slot + 1;
+            stripe.keys++;
+            return true;
+        }
+    }
+
+    // Entry holding key, or -1; reads a record's key only when the hashes match
+    private int locate(Stripe stripe, int hash, String key) {
+        int mask = stripe.heads.length - 1;
+        for (int i = hash & mask; stripe.heads[i] != 0; i = (i + 1) & mask) {
+            if (stripe.hashes[i] == hash && key.equals(keyOf.apply(stripe.heads[i] - 1))) return i;
+        }
+        return -1;
+    }
+
+    private static void grow(Stripe stripe) {
+        int[] hashes = new int[stripe.heads.length * 2];
+        int[] heads = new int[hashes.length];
+        int mask = heads.length - 1;
+        for (int e = 0; e < stripe.heads.length; e++) {
+            if (stripe.heads[e] == 0) continue;
+            int i = stripe.hashes[e] & mask;
+            while (heads[i] != 0) i = (i + 1) & mask;
+            hashes[i] = stripe.hashes[e];
+            heads[i] = stripe.heads[e];
+        }
+        stripe.hashes = hashes;
+        stripe.heads = heads;
+    }
+
+    private int previousOf(int slot) {
+        int[] page = previous.get(slot / PAGE_SLOTS);
+        return page == null ? 0 : page[slot % PAGE_SLOTS];
+    }
+
+    private void setPrevious(int slot, int value) {
+        int index = slot / PAGE_SLOTS;
+        int[] page = previous.get(index);
+        if (page == null) {
+            previous.compareAndSet(index, null, new int[PAGE_SLOTS]);
+            page = previous.get(index);
+        }
+        page[slot % PAGE_SLOTS] = value;
+    }
+
+    private Stripe stripe(int hash) {
+        // Low bits pick the table entry, so pick the stripe with high ones
+        return stripes[hash >>> 26];
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
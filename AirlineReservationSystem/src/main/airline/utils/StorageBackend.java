@@ -0,0 +1,28 @@
+package main.airline.utils;
+
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+
+import java.io.Closeable;
+
+/**
+ * A place the system's state lives between runs. {@link DataStorage#openStorage}
+ * picks the implementation: snapshot + journal files by default, or a JDBC
+ * database when a URL is configured.
+ */
+public interface StorageBackend extends ChangeLog, Closeable {
+    /**
+     * Loads persisted flights and reservations into the services. Call before
+     * attaching the backend as the services' change log, so loading is not re-logged.
+     */
+    void load(FlightService flightService, ReservationService reservationService);
+
+    /** Whether enough has changed since the last checkpoint that one should be taken. */
+    boolean needsCheckpoint();
+
+    /** Consolidates the state of the services into the backend's long-term form. */
+    void checkpoint(FlightService flightService, ReservationService reservationService);
+
+    /** Writes a consistent backup into {@code backupFolder}; returns false if it failed or the backend cannot. */
+    boolean backup(String backupFolder, ReservationService reservationService);
+}
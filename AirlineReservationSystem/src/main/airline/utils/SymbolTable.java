@@ -0,0 +1,40 @@
+package main.airline.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns strings as dense int codes, so a value shared by many records (an
+ * airport, a flight number) is held once and a record keeps only its code.
+ * Codes are never reused; -1 stands for null.
+ */
+public final class SymbolTable {
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Grown by copying under the lock; a code is only handed out after its symbol is stored
+    private volatile String[] symbols = new String[16];
+    private int size;
+
+    public int code(String symbol) {
+        if (symbol == null) return -1;
+        Integer code = codes.get(symbol);
+        if (code != null) return code;
+        synchronized (this) {
+            code = codes.get(symbol);
+            if (code != null) return code;
+            String[] current = symbols;
+            if (size == current.length) symbols = current = Arrays.copyOf(current, size * 2);
+            current[size] = symbol;
+            codes.put(symbol, size);
+            return size++;
+        }
+    }
+
+    public String symbol(int code) {
+        return code < 0 ? null : symbols[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
@@ -0,0 +1,106 @@
+package main.airline.utils;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ids that sort by creation time, e.g. {@code RES-01HV7Q2K8M0003A4}: a prefix
+ * and 16 Crockford base-32 digits of an 80-bit number made of
+ *
+ * <pre>
+ *   44 bits  milliseconds since 1970 (until the year 2527)
+ *   12 bits  node, so generators on different machines or shards never clash
+ *    8 bits  lane
+ *   16 bits  sequence within the millisecond
+ * </pre>
+ *
+ * The digits are in ascending ASCII order, so ids compare as strings in the
+ * order they were made, and {@link #firstIdAt} gives the bound for a time range.
+ *
+ * There is no shared lock or counter. Each thread draws from one of
+ * {@value #LANES} lanes, picked by thread id, and each lane keeps its own
+ * millisecond and sequence in one word (on its own cache line) advanced by a
+ * CAS that, in practice, only its own thread attempts. A lane that uses up a
+ * millisecond's sequences, or sees the clock go backwards, carries on from
+ * its last millisecond, so its ids never repeat or go backwards.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+    public static final int MAX_NODE = (1 << 12) - 1;
+    private static final int LANES = 256;
+    // Longs per lane, so lanes do not share a cache line
+    private static final int LANE_STRIDE = 8;
+    private static final int SEQUENCE_BITS = 16;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_MILLIS = (1L << 44) - 1;
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_DIGITS = 16;
+
+    private final String prefix;
+    private final int node;
+    // Per lane: millisecond << SEQUENCE_BITS | sequence of the lane's last id
+    private final AtomicLongArray lanes = new AtomicLongArray(LANES * LANE_STRIDE);
+
+    public TimeOrderedIdGenerator(String prefix, int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.prefix = prefix;
+        this.node = node;
+    }
+
+    @Override
+    public String nextId() {
+        int lane = (int) Thread.currentThread().getId() & (LANES - 1);
+        int index = lane * LANE_STRIDE;
+        long now = System.currentTimeMillis();
+        for (;;) {
+            long last = lanes.get(index);
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long next;
+            if (now > lastMillis) next = now << SEQUENCE_BITS;
+            else if ((last & MAX_SEQUENCE) < MAX_SEQUENCE) next = last + 1;
+            else next = (lastMillis + 1) << SEQUENCE_BITS;
+            if (lanes.compareAndSet(index, last, next)) {
+                long low = (long) node << 24 | (long) lane << SEQUENCE_BITS | (next & MAX_SEQUENCE);
+                return format(next >>> SEQUENCE_BITS, low);
+            }
+        }
+    }
+
+    /** The smallest id this generator could make at {@code time}; ids made from then on compare at or above it. */
+    public String firstIdAt(Instant time) {
+        return format(Math.max(0, Math.min(time.toEpochMilli(), MAX_MILLIS)), 0);
+    }
+
+    /** The node field of an id made by a generator of this kind, or -1 if {@code id} is not one. */
+    public static int nodeOf(String id) {
+        if (id == null) return -1;
+        String digits = id.trim().toUpperCase(Locale.ROOT);
+        if (digits.length() < ID_DIGITS) return -1;
+        // The node sits in the last 8 digits (40 bits): above the lane and sequence, below the time
+        long tail = 0;
+        for (int i = digits.length() - ID_DIGITS; i < digits.length(); i++) {
+            int digit = Arrays.binarySearch(DIGITS, digits.charAt(i));
+            if (digit < 0) return -1;
+            if (i >= digits.length() - 8) tail = tail << 5 | digit;
+        }
+        return (int) (tail >>> 24) & MAX_NODE;
+    }
+
+    // 44 bits of milliseconds, then the 36 low bits, as 16 five-bit digits, most significant first
+    private String format(long millis, long low) {
+        char[] chars = new char[prefix.length() + ID_DIGITS];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = 0; i < ID_DIGITS; i++) {
+            int shift = 75 - 5 * i;
+            long digit;
+            if (shift >= 36) digit = millis >>> (shift - 36);
+            else if (shift + 5 <= 36) digit = low >>> shift;
+            else digit = millis << (36 - shift) | low >>> shift;
+            chars[prefix.length() + i] = DIGITS[(int) (digit & 31)];
+        }
+        return new String(chars);
+    }
+}
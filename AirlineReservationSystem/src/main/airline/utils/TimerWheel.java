@@ -0,0 +1,221 @@
+package main.airline.utils;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck) for large numbers of
+ * timeouts that are mostly cancelled before they fire, such as seat holds.
+ *
+ * Time advances in fixed ticks. Level 0 has one slot per tick for the next
+ * {@value #SLOTS} ticks; each higher level has slots {@value #SLOTS} times
+ * coarser. A timeout goes into the finest level that covers its deadline and
+ * is moved down a level when the wheel reaches its slot, so scheduling and
+ * cancelling are O(1) and each timeout is moved at most {@value #LEVELS} - 1
+ * times. One daemon thread advances the wheel and runs due tasks; it only
+ * starts once the first timeout is scheduled.
+ */
+public class TimerWheel implements Closeable {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final Duration MAX_DELAY = Duration.ofNanos(Long.MAX_VALUE);
+
+    /** A scheduled task; cancelling it before it runs is O(1). */
+    public static final class Timeout {
+        private final Runnable task;
+        private long deadline;
+        private Timeout prev;
+        private Timeout next;
+        private volatile TimerWheel wheel;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /** Returns false if the task already ran or was cancelled. */
+        public boolean cancel() {
+            TimerWheel owner = wheel;
+            if (owner == null) return false;
+            synchronized (owner) {
+                if (wheel == null) return false;
+                owner.unlink(this);
+                return true;
+            }
+        }
+    }
+
+    private final String name;
+    private final long tickNanos;
+    private final long origin = System.nanoTime();
+    // Sentinel heads of circular lists, one per slot per level
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+
+    // Guarded by this
+    private long currentTick;
+    private int pending;
+    private Thread worker;
+    private boolean closed;
+
+    public TimerWheel(String name, Duration tick) {
+        if (tick.isNegative() || tick.isZero()) throw new IllegalArgumentException("Tick must be positive");
+        this.name = name;
+        this.tickNanos = tick.toNanos();
+        for (Timeout[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                Timeout head = new Timeout(null, 0);
+                head.prev = head;
+                head.next = head;
+                level[i] = head;
+            }
+        }
+    }
+
+    /** Runs {@code task} on the wheel's thread once {@code delay} has passed, rounded up to a tick. */
+    public Timeout schedule(Duration delay, Runnable task) {
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Timer wheel " + name + " is closed");
+            // An idle wheel stops ticking; catch up before filing against the current tick
+            long now = Math.max(currentTick, elapsedTicks());
+            if (pending == 0) currentTick = now;
+            // First tick boundary at or after the due time; delays too long to count in nanoseconds saturate
+            long elapsed = System.nanoTime() - origin;
+            long delayNanos = delay.isNegative() ? 0 : delay.compareTo(MAX_DELAY) >= 0 ? Long.MAX_VALUE : delay.toNanos();
+            long due = delayNanos >= Long.MAX_VALUE - elapsed - tickNanos
+                    ? Long.MAX_VALUE / tickNanos
+                    : (elapsed + delayNanos + tickNanos - 1) / tickNanos;
+            Timeout timeout = new Timeout(task, Math.max(now + 1, due));
+            insert(timeout);
+            pending++;
+            if (worker == null) startWorker();
+            notifyAll();
+            return timeout;
+        }
+    }
+
+    /** Number of scheduled tasks that have neither run nor been cancelled. */
+    public synchronized int size() {
+        return pending;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Processes every tick up to {@code tick} and returns the tasks that fell
+     * due, without running them.
+     */
+    synchronized List<Runnable> advanceTo(long tick) {
+        List<Runnable> due = new ArrayList<>();
+        if (pending == 0) {
+            currentTick = Math.max(currentTick, tick);
+            return due;
+        }
+        while (currentTick < tick) {
+            currentTick++;
+            // Pull down coarser slots that start at this tick, coarsest first
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    cascade(slots[level][slotIndex(currentTick, level)]);
+                }
+            }
+            Timeout head = slots[0][slotIndex(currentTick, 0)];
+            while (head.next != head) {
+                Timeout timeout = head.next;
+                unlink(timeout);
+                due.add(timeout.task);
+            }
+            if (pending == 0) {
+                currentTick = tick;
+                break;
+            }
+        }
+        return due;
+    }
+
+    private void startWorker() {
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        while (true) {
+            List<Runnable> due;
+            long wait;
+            synchronized (this) {
+                if (closed) return;
+                due = advanceTo(elapsedTicks());
+                wait = pending == 0 ? Long.MAX_VALUE : (currentTick + 1) * tickNanos - (System.nanoTime() - origin);
+                if (due.isEmpty() && wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, Math.min(wait, TimeUnit.DAYS.toNanos(1)));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            for (Runnable task : due) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error running timer task on " + name + ": " + e);
+                }
+            }
+        }
+    }
+
+    private long elapsedTicks() {
+        return (System.nanoTime() - origin) / tickNanos;
+    }
+
+    // ---- Slot lists (guarded by this) ----
+    private void insert(Timeout timeout) {
+        // Zero only while cascading: the current level-0 slot is processed right after
+        long delta = Math.max(0, timeout.deadline - currentTick);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * SLOT_BITS)) level++;
+        // Beyond the wheel's range: park in the coarsest slot visited last, to be re-filed from there
+        long tick = delta >= 1L << (LEVELS * SLOT_BITS) ? currentTick : timeout.deadline;
+        Timeout head = slots[level][slotIndex(tick, level)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+        timeout.wheel = this;
+    }
+
+    private void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        pending--;
+    }
+
+    private void cascade(Timeout head) {
+        Timeout timeout = head.next;
+        head.next = head;
+        head.prev = head;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) (tick >>> (level * SLOT_BITS)) & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,134 @@
+package main.airline.api;
+
+import main.airline.models.ChangeEvent;
+import main.airline.models.Flight;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import main.airline.utils.ChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingHttpServerTest {
+    private static final int IMPORT_LIMIT = 4096;
+
+    private final FlightService flightService = new FlightService();
+    private final ReservationService reservationService = new ReservationService(flightService);
+    private final ChangeFeed changeFeed = new ChangeFeed();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private BookingHttpServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        // One request thread and one stream, so a stream holding a request thread would stall everything else
+        System.setProperty("airline.http.threads", "1");
+        System.setProperty("airline.http.streams", "1");
+        System.setProperty("airline.http.importLimit", String.valueOf(IMPORT_LIMIT));
+        try {
+            server = new BookingHttpServer(0, flightService, reservationService, changeFeed, null);
+        } finally {
+            System.clearProperty("airline.http.threads");
+            System.clearProperty("airline.http.streams");
+            System.clearProperty("airline.http.importLimit");
+        }
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        changeFeed.close();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .timeout(Duration.ofSeconds(10)).build();
+    }
+
+    private HttpRequest post(String path, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .timeout(Duration.ofSeconds(10)).POST(body).build();
+    }
+
+    private static String schedule(int flights) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < flights; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"flightNumber\":\"IM").append(i).append("\",\"origin\":\"Boston\",")
+                    .append("\"destination\":\"Denver\",\"departureTime\":\"2031-03-14T09:30\",")
+                    .append("\"arrivalTime\":\"2031-03-14T13:30\",\"totalSeats\":100,\"price\":199.0}");
+        }
+        return json.append(']').toString();
+    }
+
+    @Test
+    void postedScheduleWithinTheLimitIsImported() throws Exception {
+        HttpResponse<String> response = client.send(post("/flights", HttpRequest.BodyPublishers.ofString(schedule(3))),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"imported\":3"));
+        assertNotNull(flightService.findFlightByNumber("IM2"));
+    }
+
+    @Test
+    void declaredOversizedScheduleIsRefusedBeforeImporting() throws Exception {
+        String body = schedule(100);
+        assertTrue(body.length() > IMPORT_LIMIT);
+        HttpResponse<String> response = client.send(post("/flights", HttpRequest.BodyPublishers.ofString(body)),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, response.statusCode());
+        assertNull(flightService.findFlightByNumber("IM0"));
+    }
+
+    @Test
+    void chunkedScheduleIsCutOffAtTheLimit() throws Exception {
+        byte[] body = schedule(100).getBytes(StandardCharsets.UTF_8);
+        // No Content-Length, so the server only finds out while reading
+        HttpResponse<String> response = client.send(post("/flights",
+                        HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body))),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, response.statusCode());
+        assertTrue(response.body().contains("\"complete\":false"));
+        assertNull(flightService.findFlightByNumber("IM99"));
+    }
+
+    @Test
+    void openStreamLeavesRequestThreadsFreeAndExtraStreamsAreRefused() throws Exception {
+        CompletableFuture<HttpResponse<Stream<String>>> streaming =
+                client.sendAsync(get("/changes"), HttpResponse.BodyHandlers.ofLines());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (changeFeed.getSubscriberCount() == 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(1, changeFeed.getSubscriberCount());
+
+        HttpResponse<String> flight = client.send(get("/flights/AA123"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, flight.statusCode());
+        assertTrue(flight.body().contains("AA123"));
+
+        HttpResponse<String> refused = client.send(get("/changes"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(503, refused.statusCode());
+
+        changeFeed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, new Flight("TS100", "Boston", "Denver",
+                LocalDateTime.of(2031, 3, 14, 9, 30), LocalDateTime.of(2031, 3, 14, 13, 30), 100, 199.0));
+        HttpResponse<Stream<String>> stream = streaming.get(10, TimeUnit.SECONDS);
+        assertEquals(200, stream.statusCode());
+        Iterator<String> lines = stream.body().iterator();
+        assertTrue(lines.next().contains("TS100"));
+        stream.body().close();
+    }
+}
@@ -0,0 +1,123 @@
+package main.airline.api;
+
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import main.airline.utils.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRouterTest {
+    private static final int NODES = 2;
+    private static final int FLIGHTS = 8;
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 6, 0);
+
+    private final List<FlightService> flightServices = new ArrayList<>();
+    private final List<ReservationService> reservationServices = new ArrayList<>();
+    private final List<BookingHttpServer> nodes = new ArrayList<>();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private ClusterRouter router;
+
+    @BeforeEach
+    void start() throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            FlightService flightService = new FlightService();
+            ReservationService reservationService = new ReservationService(flightService);
+            // Each node stamps its number into the ids it makes, as -Dairline.node would
+            reservationService.setIdGenerator(new TimeOrderedIdGenerator("RES-", i));
+            BookingHttpServer node = new BookingHttpServer(0, flightService, reservationService);
+            node.start();
+            flightServices.add(flightService);
+            reservationServices.add(reservationService);
+            nodes.add(node);
+            urls.add("http://localhost:" + node.getPort());
+        }
+        router = new ClusterRouter(0, urls);
+        router.start();
+    }
+
+    @AfterEach
+    void stop() {
+        router.stop();
+        for (BookingHttpServer node : nodes) node.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + router.getPort() + path))
+                .timeout(Duration.ofSeconds(10))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> importSchedule() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < FLIGHTS; i++) {
+            LocalDateTime departure = DEPARTURE.plusHours(FLIGHTS - i);
+            if (i > 0) json.append(',');
+            json.append("{\"flightNumber\":\"TS30").append(i).append("\",\"origin\":\"Reno\",\"destination\":\"Tulsa\",")
+                    .append("\"departureTime\":\"").append(departure).append("\",\"arrivalTime\":\"")
+                    .append(departure.plusHours(3)).append("\",\"totalSeats\":50,\"price\":99.0}");
+        }
+        return send("POST", "/flights", json.append(']').toString());
+    }
+
+    @Test
+    void scheduleIsSplitByOwnerAndSearchesMergeEveryNode() throws Exception {
+        HttpResponse<String> imported = importSchedule();
+        assertEquals(200, imported.statusCode(), imported.body());
+        assertEquals(String.valueOf(FLIGHTS), Json.parseObject(imported.body()).get("imported"));
+        for (int i = 0; i < FLIGHTS; i++) {
+            String number = "TS30" + i;
+            int owner = router.nodeFor(number);
+            for (int node = 0; node < NODES; node++) {
+                assertEquals(node == owner, flightServices.get(node).findFlightByNumber(number) != null, number);
+            }
+        }
+
+        HttpResponse<String> search = send("GET", "/flights?origin=Reno&destination=Tulsa", null);
+        assertEquals(200, search.statusCode());
+        List<String> numbers = new ArrayList<>();
+        for (String flight : Json.elements(search.body())) numbers.add(Json.stringField(flight, "flightNumber"));
+        // Later flight numbers depart earlier
+        assertEquals(List.of("TS307", "TS306", "TS305", "TS304", "TS303", "TS302", "TS301", "TS300"), numbers);
+
+        HttpResponse<String> single = send("GET", "/flights/ts303", null);
+        assertEquals(200, single.statusCode());
+        assertEquals("TS303", Json.stringField(single.body(), "flightNumber"));
+    }
+
+    @Test
+    void bookingsGoToTheOwningNodeAndAreFoundByTheirId() throws Exception {
+        assertEquals(200, importSchedule().statusCode());
+        HttpResponse<String> booked = send("POST", "/reservations", "{\"flightNumber\":\"TS303\",\"seats\":2,"
+                + "\"passengerId\":\"P-ALICE\",\"name\":\"Alice Example\",\"email\":\"alice@example.com\"}");
+        assertEquals(201, booked.statusCode(), booked.body());
+        String id = Json.stringField(booked.body(), "reservationId");
+        int owner = router.nodeFor("TS303");
+        assertEquals(owner, TimeOrderedIdGenerator.nodeOf(id));
+        assertNotNull(reservationServices.get(owner).findReservationById(id));
+        assertNull(reservationServices.get(1 - owner).findReservationById(id));
+
+        HttpResponse<String> found = send("GET", "/reservations/" + id, null);
+        assertEquals(200, found.statusCode());
+        assertEquals(id, Json.stringField(found.body(), "reservationId"));
+        assertEquals(200, send("DELETE", "/reservations/" + id, null).statusCode());
+        assertEquals(50, flightServices.get(owner).findFlightByNumber("TS303").getAvailableSeats());
+        assertEquals(404, send("GET", "/reservations/RES-00000000000000000", null).statusCode());
+        assertEquals(501, send("GET", "/itineraries?origin=Reno&destination=Tulsa&date=2031-03-14", null).statusCode());
+    }
+}
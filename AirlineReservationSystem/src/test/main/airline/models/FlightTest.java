@@ -0,0 +1,84 @@
+package main.airline.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightTest {
+    private static Flight flight(int seats) {
+        return new Flight("TS100", "Boston", "Denver",
+                LocalDateTime.of(2031, 3, 14, 9, 30), LocalDateTime.of(2031, 3, 14, 13, 30), seats, 199.0);
+    }
+
+    @Test
+    void reserveRefusesMoreThanIsLeft() {
+        Flight flight = flight(5);
+        assertTrue(flight.tryReserve(3));
+        assertFalse(flight.tryReserve(3));
+        assertFalse(flight.tryReserve(0));
+        assertTrue(flight.tryReserve(2));
+        assertEquals(0, flight.getAvailableSeats());
+    }
+
+    @Test
+    void releaseStopsAtCapacityEvenForHugeCounts() {
+        Flight flight = flight(100);
+        assertTrue(flight.tryReserve(10));
+        flight.release(Integer.MAX_VALUE);
+        assertEquals(100, flight.getAvailableSeats());
+
+        assertTrue(flight.tryReserve(10));
+        flight.release(4);
+        assertEquals(94, flight.getAvailableSeats());
+        flight.release(50);
+        assertEquals(100, flight.getAvailableSeats());
+    }
+
+    @Test
+    void concurrentReservationsSellEverySeatExactlyOnce() throws InterruptedException {
+        int seats = 1000;
+        Flight flight = flight(seats);
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Each thread tries for more than its share; together they ask for four times the capacity
+                for (int i = 0; i < seats / 2; i++) {
+                    if (flight.tryReserve(1)) sold.incrementAndGet();
+                    if (i % 10 == 0 && flight.tryReserve(1)) {
+                        flight.release(1);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(seats, sold.get());
+        assertEquals(0, flight.getAvailableSeats());
+    }
+
+    @Test
+    void snapshotRefusesSeatChanges() {
+        Flight flight = flight(10);
+        Flight snapshot = flight.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.tryReserve(1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.release(1));
+        assertTrue(flight.tryReserve(1));
+        assertEquals(10, snapshot.getAvailableSeats());
+    }
+}
@@ -0,0 +1,68 @@
+package main.airline.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapTest {
+    // Ten seats: rows 1 and 2 are AB CD, row 3 only AB
+    private final SeatMap seatMap = new SeatMap(SeatLayout.forSeats(10));
+
+    @Test
+    void pairsSitOnOneSideOfTheAisleAndLargerGroupsInOneRow() {
+        assertEquals(List.of("1A", "1B"), seatMap.assignAdjacent(2));
+        assertEquals(List.of("1C", "1D"), seatMap.assignAdjacent(2));
+        List<String> three = seatMap.assignAdjacent(3);
+        assertEquals(3, three.size());
+        for (String seat : three) assertTrue(seat.startsWith("2"), seat);
+        assertEquals(3, seatMap.getFreeSeats());
+        assertNull(seatMap.assignAdjacent(4));
+    }
+
+    @Test
+    void groupsTooLargeForARowTakeTheFewestConsecutiveRows() {
+        assertNotNull(seatMap.hold(List.of("1A", "2B")));
+        // No row has five free seats, but any two neighbouring rows do
+        List<String> five = seatMap.assignAdjacent(5);
+        assertEquals(5, five.size());
+        assertEquals(3, seatMap.getFreeSeats());
+        int first = Integer.MAX_VALUE;
+        int last = 0;
+        for (String seat : five) {
+            assertFalse(seat.equals("1A") || seat.equals("2B"), seat);
+            int row = Integer.parseInt(seat.substring(0, seat.length() - 1));
+            first = Math.min(first, row);
+            last = Math.max(last, row);
+        }
+        assertEquals(1, last - first);
+    }
+
+    @Test
+    void holdTakesExactlyTheNamedSeatsOrNone() {
+        assertEquals(List.of("3A", "1C"), seatMap.hold(List.of("3a ", "1c")));
+        assertNull(seatMap.hold(List.of("2A", "1C")));      // 1C is taken
+        assertFalse(seatMap.isOccupied("2A"));
+        assertNull(seatMap.hold(List.of("3C")));            // row 3 has no C
+        assertNull(seatMap.hold(List.of("2A", "2a")));      // the same seat twice
+        assertNull(seatMap.hold(List.of("0A")));
+        assertEquals(8, seatMap.getFreeSeats());
+
+        seatMap.release(List.of("1C", "1C", "2D", "nonsense"));
+        assertFalse(seatMap.isOccupied("1C"));
+        assertTrue(seatMap.isOccupied("3A"));
+        assertEquals(9, seatMap.getFreeSeats());
+    }
+
+    @Test
+    void widebodyLayoutsStartWithBusinessRows() {
+        SeatLayout layout = SeatLayout.forSeats(180);
+        assertSame(layout, SeatLayout.forSeats(180));
+        assertEquals(SeatLayout.Cabin.BUSINESS, layout.cabin(0));
+        assertEquals("1F", layout.normalize("1f"));
+        assertNull(layout.normalize("1B"));
+        assertEquals(180, new SeatMap(layout).getFreeSeats());
+        assertFalse(SeatLayout.fits(SeatLayout.MAX_SEATS + 1));
+    }
+}
@@ -0,0 +1,55 @@
+package main.airline.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistTest {
+    private static final LocalDateTime REQUESTED = LocalDateTime.of(2031, 3, 1, 12, 0);
+
+    private final Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+
+    private WaitlistEntry entry(String id, FareClass fareClass, long sequence) {
+        return new WaitlistEntry(id, "TS100", alice, 1, fareClass, REQUESTED.plusMinutes(sequence), sequence);
+    }
+
+    @Test
+    void higherFareClassesGoFirstThenEarlierRequests() {
+        Waitlist waitlist = new Waitlist();
+        waitlist.add(entry("E1", FareClass.ECONOMY, 0));
+        waitlist.add(entry("B1", FareClass.BUSINESS, 1));
+        waitlist.add(entry("E2", FareClass.ECONOMY, 2));
+        waitlist.add(entry("F1", FareClass.FIRST, 3));
+        waitlist.add(entry("B2", FareClass.BUSINESS, 4));
+
+        assertEquals(List.of("F1", "B1", "B2", "E1", "E2"),
+                waitlist.getEntries().stream().map(WaitlistEntry::getEntryId).toList());
+        assertEquals("F1", waitlist.peek().getEntryId());
+        assertEquals(5, waitlist.size());
+    }
+
+    @Test
+    void promotedAndWithdrawnEntriesLeaveTheQueue() {
+        Waitlist waitlist = new Waitlist();
+        WaitlistEntry first = entry("E1", FareClass.ECONOMY, 0);
+        WaitlistEntry second = entry("E2", FareClass.ECONOMY, 1);
+        waitlist.add(first);
+        waitlist.add(second);
+
+        assertTrue(waitlist.promote(first, "R1"));
+        assertEquals(WaitlistEntry.Status.PROMOTED, first.getStatus());
+        assertEquals("R1", first.getReservationId());
+        assertFalse(waitlist.withdraw(first));
+        assertSame(second, waitlist.peek());
+
+        assertTrue(waitlist.withdraw(second));
+        assertFalse(waitlist.promote(second, "R2"));
+        assertEquals(WaitlistEntry.Status.WITHDRAWN, second.getStatus());
+        assertNull(waitlist.peek());
+        assertTrue(waitlist.isEmpty());
+        assertEquals(0, waitlist.size());
+    }
+}
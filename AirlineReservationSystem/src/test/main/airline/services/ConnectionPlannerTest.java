@@ -0,0 +1,68 @@
+package main.airline.services;
+
+import main.airline.models.Flight;
+import main.airline.models.Itinerary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPlannerTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2031, 3, 14, 0, 0);
+
+    private final FlightService flightService = new FlightService();
+    private final ConnectionPlanner planner = new ConnectionPlanner(flightService);
+
+    private void add(String number, String origin, String destination, int departureHour, int departureMinute,
+                     int minutes, int seats) {
+        LocalDateTime departure = DAY.plusHours(departureHour).plusMinutes(departureMinute);
+        assertTrue(flightService.addFlight(new Flight(number, origin, destination, departure,
+                departure.plusMinutes(minutes), seats, 100.0)));
+    }
+
+    @BeforeEach
+    void schedule() {
+        add("TS1", "Reno", "Tulsa", 8, 0, 120, 100);
+        add("TS2", "Tulsa", "Omaha", 10, 30, 90, 100);   // 30 minutes after TS1 lands: too tight
+        add("TS3", "Tulsa", "Omaha", 11, 0, 90, 100);
+        add("TS4", "Reno", "Omaha", 9, 0, 240, 100);
+        add("TS5", "Reno", "Boise", 8, 30, 60, 1);
+        add("TS6", "Boise", "Omaha", 10, 30, 60, 100);
+        add("TS7", "Tulsa", "Reno", 11, 0, 120, 100);
+        add("TS8", "Reno", "Omaha", 14, 0, 120, 100);
+    }
+
+    private List<List<String>> search(int seats, int maxLegs, int limit) {
+        List<List<String>> routes = new ArrayList<>();
+        for (Itinerary itinerary : planner.findItineraries("Reno", "Omaha", DAY, DAY.plusDays(1), seats, maxLegs, limit)) {
+            List<String> legs = new ArrayList<>();
+            for (Flight leg : itinerary.getLegs()) legs.add(leg.getFlightNumber());
+            routes.add(legs);
+        }
+        return routes;
+    }
+
+    @Test
+    void itinerariesComeInArrivalOrderWithEnoughTimeToConnect() {
+        // TS1 then TS7 back to Reno and TS8 would visit Reno twice
+        assertEquals(List.of(List.of("TS5", "TS6"), List.of("TS1", "TS3"), List.of("TS4"), List.of("TS8")),
+                search(1, 3, 10));
+    }
+
+    @Test
+    void legsWithoutEnoughSeatsAreSkipped() {
+        assertEquals(List.of(List.of("TS1", "TS3"), List.of("TS4"), List.of("TS8")), search(2, 3, 10));
+    }
+
+    @Test
+    void legAndResultLimitsAreRespected() {
+        assertEquals(List.of(List.of("TS4"), List.of("TS8")), search(1, 1, 10));
+        assertEquals(List.of(List.of("TS5", "TS6")), search(1, 3, 1));
+        assertTrue(planner.findItineraries("Reno", "reno", DAY, DAY.plusDays(1), 1, 3, 10).isEmpty());
+        assertTrue(search(1, 0, 10).isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+package main.airline.services;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightServiceTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    private final FlightService flightService = new FlightService();
+    private final ReservationService reservationService = new ReservationService(flightService);
+    private final Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+
+    private static Flight flight(int seats) {
+        return new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), seats, 199.0);
+    }
+
+    private static Flight flight(String number, String destination, LocalDateTime departure) {
+        return new Flight(number, "Reno", destination, departure, departure.plusHours(3), 50, 99.0);
+    }
+
+    private static List<String> numbers(Collection<Flight> flights) {
+        List<String> numbers = new ArrayList<>();
+        for (Flight flight : flights) numbers.add(flight.getFlightNumber());
+        return numbers;
+    }
+
+    @Test
+    void flightsAreFoundByNumberAndRouteIgnoringCaseAndSpaces() {
+        assertTrue(flightService.addFlight(flight("TS300", "Tulsa", DEPARTURE)));
+        assertEquals(1, flightService.addFlights(List.of(flight("TS301", "Omaha", DEPARTURE))));
+
+        assertEquals("TS300", flightService.findFlightByNumber(" ts300 ").getFlightNumber());
+        assertNull(flightService.findFlightByNumber("TS302"));
+        assertEquals(List.of("TS300"), numbers(flightService.searchFlights(" RENO", "tulsa ")));
+        assertEquals(List.of("TS301"), numbers(flightService.searchFlights("Reno", "Omaha")));
+        assertTrue(flightService.searchFlights("Tulsa", "Reno").isEmpty());
+
+        // Replacing a flight moves it to its new route
+        assertTrue(flightService.addFlight(flight("ts300", "Omaha", DEPARTURE.plusHours(1))));
+        assertTrue(flightService.searchFlights("Reno", "Tulsa").isEmpty());
+        assertEquals(List.of("TS301", "ts300"), numbers(flightService.searchFlights("Reno", "Omaha")));
+        assertFalse(flightService.deleteFlight("TS302"));
+        assertTrue(flightService.deleteFlight("TS300"));
+        assertEquals(List.of("TS301"), numbers(flightService.searchFlights("Reno", "Omaha")));
+    }
+
+    @Test
+    void timeIndexFollowsRescheduledAndDeletedFlights() {
+        LocalDateTime day = DEPARTURE.toLocalDate().atStartOfDay();
+        assertTrue(flightService.addFlight(flight("TS300", "Tulsa", DEPARTURE)));
+        assertTrue(flightService.addFlight(flight("TS301", "Tulsa", DEPARTURE.plusHours(2))));
+        assertEquals(List.of("TS300", "TS301"), numbers(flightService.searchFlightsBetween("Reno", "Tulsa", day, day.plusDays(1))));
+        assertEquals(List.of("TS301"), numbers(flightService.searchFlightsBetween("reno", "TULSA",
+                DEPARTURE.plusSeconds(1), day.plusDays(1))));
+
+        // Moved earlier and to another destination
+        assertTrue(flightService.updateFlight(flight("TS301", "Omaha", DEPARTURE.minusHours(2))));
+        assertEquals(List.of("TS300"), numbers(flightService.searchFlightsBetween("Reno", "Tulsa", day, day.plusDays(1))));
+        assertEquals(List.of("TS301", "TS300"), numbers(flightService.departuresFrom("Reno", day, day.plusDays(1))));
+
+        assertTrue(flightService.deleteFlight("TS300"));
+        assertTrue(flightService.searchFlights("Reno", "Tulsa").isEmpty());
+        assertEquals(List.of("TS301"), numbers(flightService.departuresFrom("Reno", day, day.plusDays(1))));
+    }
+
+    @Test
+    void prunedFlightsLeaveTheIndexesButStayReachableByNumber() {
+        LocalDateTime day = DEPARTURE.toLocalDate().atStartOfDay();
+        assertTrue(flightService.addFlight(flight("TS300", "Tulsa", DEPARTURE)));
+        assertTrue(flightService.addFlight(flight("TS301", "Tulsa", DEPARTURE.plusHours(2))));
+
+        // The sample schedule departs earlier and is pruned as well
+        assertTrue(flightService.pruneDepartedFlights(DEPARTURE.plusHours(1)) > 0);
+        assertEquals(List.of("TS301"), numbers(flightService.searchFlights("Reno", "Tulsa")));
+        assertEquals(List.of("TS301"), numbers(flightService.departuresFrom("Reno", day, day.plusDays(1))));
+        assertNotNull(flightService.findFlightByNumber("TS300"));
+
+        // Deleting the pruned flight must still clear the other indexes for the flight left
+        assertTrue(flightService.deleteFlight("TS301"));
+        assertTrue(flightService.deleteFlight("TS300"));
+        assertTrue(flightService.searchFlights("Reno", "Tulsa").isEmpty());
+        assertTrue(flightService.departuresFrom("Reno", day, day.plusDays(1)).isEmpty());
+
+        assertTrue(flightService.addFlight(flight("TS300", "Tulsa", DEPARTURE)));
+        assertEquals(List.of("TS300"), numbers(flightService.departuresFrom("Reno", day, day.plusDays(1))));
+    }
+
+    @Test
+    void replacementKeepsSeatsAlreadySold() {
+        assertTrue(flightService.addFlight(flight(10)));
+        assertNotNull(reservationService.createReservation(flight(10), alice, 4));
+
+        assertTrue(flightService.updateFlight(flight(6)));
+        assertEquals(2, flightService.findFlightByNumber("TS100").getAvailableSeats());
+        assertFalse(flightService.addFlight(flight(3)));
+        assertEquals(6, flightService.findFlightByNumber("ts100").getTotalSeats());
+    }
+
+    @Test
+    void seatsReturnedAfterAReplacementGoToTheNewFlight() {
+        assertTrue(flightService.addFlight(flight(10)));
+        Flight original = flightService.findFlightByNumber("TS100");
+        Reservation reservation = reservationService.createReservation(original, alice, 4);
+
+        assertTrue(flightService.addFlight(flight(10)));
+        assertTrue(reservationService.cancelReservation(reservation.getReservationId()));
+        assertEquals(10, flightService.findFlightByNumber("TS100").getAvailableSeats());
+        assertNull(flightService.reserveSeats("TS999", 1));
+        assertNull(flightService.releaseSeats("TS999", 1));
+    }
+
+    @Test
+    void bookingsRacingReplacementsNeverOversell() throws InterruptedException {
+        int seats = 2000;
+        assertTrue(flightService.addFlight(flight(seats)));
+        AtomicBoolean replacing = new AtomicBoolean(true);
+        AtomicInteger booked = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> bookers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread booker = new Thread(() -> {
+                await(start);
+                // Each thread books until the flight it finds is full
+                while (reservationService.createReservation(flight(seats), alice, 1) != null) booked.incrementAndGet();
+            });
+            bookers.add(booker);
+            booker.start();
+        }
+        Thread admin = new Thread(() -> {
+            await(start);
+            while (replacing.get()) {
+                flightService.addFlight(flight(seats));
+                Thread.yield();
+            }
+        });
+        admin.start();
+
+        start.countDown();
+        for (Thread booker : bookers) booker.join();
+        replacing.set(false);
+        admin.join();
+
+        Flight current = flightService.findFlightByNumber("TS100");
+        assertEquals(seats, booked.get());
+        assertEquals(0, current.getAvailableSeats());
+        assertEquals(seats, (int) reservationService.countBookedSeats().get("TS100"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package main.airline.services;
+
+import main.airline.models.BookingRequest;
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.utils.ChangeLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationServiceTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    private final FlightService flightService = new FlightService();
+    private final ReservationService reservationService = new ReservationService(flightService);
+    private final Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+    private final Passenger bob = new Passenger("P-BOB", "Bob Example", null, null);
+
+    private Flight flight(int seats) {
+        Flight flight = new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), seats, 199.0);
+        assertTrue(flightService.addFlight(flight));
+        return flightService.findFlightByNumber("TS100");
+    }
+
+    private List<Reservation> fillUp(Flight flight) {
+        List<Reservation> booked = new ArrayList<>();
+        for (int i = flight.getAvailableSeats(); i > 0; i--) {
+            booked.add(reservationService.createReservation(flight, alice, 1));
+        }
+        assertEquals(0, flight.getAvailableSeats());
+        return booked;
+    }
+
+    // ---- Read-only reservations ----
+    @Test
+    void returnedReservationsAreReadOnlySnapshots() {
+        Flight flight = flight(10);
+        Reservation booked = reservationService.holdReservation(flight, alice, 2);
+        assertTrue(booked.isReadOnly());
+        assertThrows(UnsupportedOperationException.class, booked::confirmReservation);
+        assertThrows(UnsupportedOperationException.class, booked::cancelReservation);
+
+        Reservation found = reservationService.findReservationById(booked.getReservationId());
+        assertThrows(UnsupportedOperationException.class, found::markCancelled);
+        assertThrows(UnsupportedOperationException.class,
+                () -> reservationService.getReservationsByPassenger("P-ALICE").get(0).confirmReservation());
+        assertTrue(reservationService.findReservationById(booked.getReservationId()).isHeld());
+
+        // Changes go through the service; earlier snapshots keep the state they were read in
+        assertTrue(reservationService.confirmReservation(booked.getReservationId()));
+        assertTrue(booked.isHeld());
+        assertTrue(reservationService.findReservationById(booked.getReservationId()).isConfirmed());
+        assertTrue(reservationService.cancelReservation(booked.getReservationId()));
+        assertFalse(found.isCancelled());
+        assertTrue(reservationService.findReservationById(booked.getReservationId()).isCancelled());
+        assertEquals(10, flight.getAvailableSeats());
+    }
+
+    @Test
+    void reservationsBuiltByStorageStayWritable() {
+        Flight flight = flight(10);
+        Reservation loaded = new Reservation("R1", flight, alice, 1);
+        assertFalse(loaded.isReadOnly());
+        loaded.confirmReservation();
+        reservationService.addReservationFromStorage(loaded);
+        Reservation stored = reservationService.findReservationById("r1");
+        assertTrue(stored.isReadOnly());
+        assertTrue(stored.isConfirmed());
+    }
+
+    // ---- Waitlist ----
+    @Test
+    void cancellationsPromoteWaitingRequestsInPriorityOrder() {
+        Flight flight = flight(2);
+        List<Reservation> booked = fillUp(flight);
+        WaitlistEntry economy = reservationService.joinWaitlist(flight, bob, 1, FareClass.ECONOMY);
+        WaitlistEntry first = reservationService.joinWaitlist(flight, bob, 1, FareClass.FIRST);
+        assertEquals(WaitlistEntry.Status.WAITING, economy.getStatus());
+
+        assertTrue(reservationService.cancelReservation(booked.get(0).getReservationId()));
+        assertEquals(WaitlistEntry.Status.PROMOTED, first.getStatus());
+        assertEquals(WaitlistEntry.Status.WAITING, economy.getStatus());
+        Reservation promoted = reservationService.findReservationById(first.getReservationId());
+        assertEquals("P-BOB", promoted.getPassenger().getId());
+        assertTrue(promoted.isConfirmed());
+
+        assertTrue(reservationService.cancelReservation(booked.get(1).getReservationId()));
+        assertEquals(WaitlistEntry.Status.PROMOTED, economy.getStatus());
+        assertFalse(reservationService.hasWaitingRequests("TS100"));
+        assertEquals(0, flight.getAvailableSeats());
+    }
+
+    @Test
+    void freedSeatsAreNotSoldAheadOfTheWaitlist() {
+        Flight flight = flight(3);
+        List<Reservation> booked = fillUp(flight);
+        WaitlistEntry party = reservationService.joinWaitlist(flight, bob, 2, FareClass.ECONOMY);
+
+        // One seat is free, but the party at the head of the queue needs two
+        assertTrue(reservationService.cancelReservation(booked.get(0).getReservationId()));
+        assertEquals(1, flight.getAvailableSeats());
+        assertTrue(reservationService.hasWaitingRequests("ts100"));
+        assertNull(reservationService.createReservation(flight, alice, 1));
+        assertNull(reservationService.holdReservation(flight, alice, 1));
+
+        assertTrue(reservationService.cancelReservation(booked.get(1).getReservationId()));
+        assertEquals(WaitlistEntry.Status.PROMOTED, party.getStatus());
+        assertEquals(2, reservationService.findReservationById(party.getReservationId()).getSeats());
+        assertEquals(0, flight.getAvailableSeats());
+
+        // With nobody waiting, freed seats go on sale again
+        assertTrue(reservationService.cancelReservation(booked.get(2).getReservationId()));
+        assertNotNull(reservationService.createReservation(flight, alice, 1));
+    }
+
+    @Test
+    void withdrawnRequestsStopHoldingUpBookings() {
+        Flight flight = flight(1);
+        Reservation booked = fillUp(flight).get(0);
+        WaitlistEntry entry = reservationService.joinWaitlist(flight, bob, 1, FareClass.BUSINESS);
+        assertTrue(reservationService.leaveWaitlist(entry.getEntryId()));
+        assertFalse(reservationService.leaveWaitlist(entry.getEntryId()));
+        assertEquals(WaitlistEntry.Status.WITHDRAWN, reservationService.getWaitlistEntry(entry.getEntryId()).getStatus());
+
+        assertTrue(reservationService.cancelReservation(booked.getReservationId()));
+        assertEquals(1, flight.getAvailableSeats());
+        assertNotNull(reservationService.createReservation(flight, alice, 1));
+    }
+
+    @Test
+    void concurrentCancellationsServeTheWaitlistInOrderBeforeAnyNewBooking() throws InterruptedException {
+        int seats = 120;
+        int waiting = 60;
+        Flight flight = flight(seats);
+        List<Reservation> booked = fillUp(flight);
+        Recorder recorder = new Recorder();
+        reservationService.setChangeLog(recorder);
+
+        Random random = new Random(42);
+        List<WaitlistEntry> entries = new ArrayList<>();
+        for (int i = 0; i < waiting; i++) {
+            FareClass fareClass = FareClass.values()[random.nextInt(FareClass.values().length)];
+            entries.add(reservationService.joinWaitlist(flight, bob, 1, fareClass));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            List<Reservation> share = booked.subList(t * seats / 3, (t + 1) * seats / 3);
+            threads.add(new Thread(() -> {
+                await(start);
+                for (Reservation reservation : share) reservationService.cancelReservation(reservation.getReservationId());
+            }));
+        }
+        Thread walkUp = new Thread(() -> {
+            await(start);
+            while (!done.get()) {
+                if (reservationService.createReservation(flight, alice, 1) == null) Thread.yield();
+            }
+        });
+        threads.forEach(Thread::start);
+        walkUp.start();
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        done.set(true);
+        walkUp.join();
+
+        List<WaitlistEntry> expected = new ArrayList<>(entries);
+        expected.sort(Comparator.comparing(WaitlistEntry::getFareClass).thenComparingLong(WaitlistEntry::getSequence));
+        assertEquals(expected, recorder.promoted);
+        // Nothing was sold to a walk-up until the last waiting request had been booked
+        assertEquals(waiting, recorder.events.lastIndexOf("promoted") + 1);
+
+        int sold = reservationService.countBookedSeats().getOrDefault("TS100", 0);
+        assertEquals(seats - flight.getAvailableSeats(), sold);
+        assertTrue(sold <= seats);
+    }
+
+    // ---- Holds ----
+    @Test
+    void unconfirmedHoldsExpireAndReturnTheirSeats() throws InterruptedException {
+        Flight flight = flight(10);
+        reservationService.setHoldDuration(Duration.ofMillis(1));
+        Reservation held = reservationService.holdReservation(flight, alice, List.of("1A", "1B"));
+        assertEquals(8, flight.getAvailableSeats());
+        assertNotNull(reservationService.getHoldExpiry(held.getReservationId()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flight.getAvailableSeats() < 10 && System.nanoTime() < deadline) Thread.sleep(20);
+        assertEquals(10, flight.getAvailableSeats());
+        assertTrue(reservationService.findReservationById(held.getReservationId()).isCancelled());
+        assertFalse(reservationService.getSeatMap(flight).isOccupied("1A"));
+        assertEquals(0, reservationService.getPendingHoldCount());
+        assertFalse(reservationService.confirmReservation(held.getReservationId()));
+    }
+
+    @Test
+    void confirmedHoldsAreKept() {
+        Flight flight = flight(10);
+        Reservation held = reservationService.holdReservation(flight, alice, 2);
+        assertTrue(held.isHeld());
+        assertFalse(held.isConfirmed());
+        assertEquals(1, reservationService.getPendingHoldCount());
+
+        assertTrue(reservationService.confirmReservation(held.getReservationId()));
+        assertFalse(reservationService.confirmReservation(held.getReservationId()));
+        assertEquals(0, reservationService.getPendingHoldCount());
+        assertNull(reservationService.getHoldExpiry(held.getReservationId()));
+        assertTrue(reservationService.findReservationById(held.getReservationId()).isConfirmed());
+        assertEquals(8, flight.getAvailableSeats());
+
+        // A cancelled hold cannot be confirmed afterwards
+        Reservation dropped = reservationService.holdReservation(flight, bob, 1);
+        assertTrue(reservationService.cancelReservation(dropped.getReservationId()));
+        assertFalse(reservationService.confirmReservation(dropped.getReservationId()));
+        assertEquals(8, flight.getAvailableSeats());
+    }
+
+    // ---- Seat selection ----
+    @Test
+    void chosenSeatsCanOnlyBeSoldOnceAndComeBackOnCancellation() {
+        Flight flight = flight(10);
+        Reservation booked = reservationService.createReservation(flight, alice, List.of("2c", "2D"));
+        assertEquals(List.of("2C", "2D"), booked.getSeatNumbers());
+        assertNull(reservationService.createReservation(flight, bob, List.of("2D", "3A")));
+        assertNull(reservationService.createReservation(flight, bob, List.of("9Z")));
+        assertEquals(8, flight.getAvailableSeats());
+        assertFalse(reservationService.getSeatMap(flight).isOccupied("3A"));
+
+        assertTrue(reservationService.cancelReservation(booked.getReservationId()));
+        assertEquals(List.of("2D", "3A"),
+                reservationService.createReservation(flight, bob, List.of("2D", "3A")).getSeatNumbers());
+        assertEquals(List.of("1A", "1B"), reservationService.createReservation(flight, alice, 2).getSeatNumbers());
+    }
+
+    // ---- Group bookings ----
+    @Test
+    void groupBookingTakesEveryFlightOrNone() {
+        Flight first = flight(10);
+        assertTrue(flightService.addFlight(new Flight("TS200", "Denver", "Reno", DEPARTURE.plusHours(6),
+                DEPARTURE.plusHours(8), 3, 99.0)));
+        Flight second = flightService.findFlightByNumber("TS200");
+
+        // Two requests on TS200 need four seats together; it has three
+        assertNull(reservationService.createReservations(List.of(new BookingRequest(first, alice, 2),
+                new BookingRequest(second, alice, 2), new BookingRequest(second, bob, 2))));
+        assertEquals(10, first.getAvailableSeats());
+        assertEquals(3, second.getAvailableSeats());
+        assertTrue(reservationService.getAllReservations().isEmpty());
+
+        List<Reservation> group = reservationService.createReservations(List.of(new BookingRequest(first, alice, 2),
+                new BookingRequest(second, alice, 1), new BookingRequest(second, bob, 2)));
+        assertEquals(3, group.size());
+        assertEquals(8, first.getAvailableSeats());
+        assertEquals(0, second.getAvailableSeats());
+        assertEquals("P-BOB", group.get(2).getPassenger().getId());
+        assertEquals(2, group.get(2).getSeatNumbers().size());
+        assertTrue(group.get(0).isConfirmed());
+    }
+
+    @Test
+    void groupBookingRejectsInvalidRequestsWithoutTakingSeats() {
+        Flight flight = flight(10);
+        Flight unknown = new Flight("TS999", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 10, 199.0);
+
+        assertNull(reservationService.createReservations(List.of()));
+        assertNull(reservationService.createReservations(List.of(new BookingRequest(flight, alice, 2),
+                new BookingRequest(flight, bob, 0))));
+        assertNull(reservationService.createReservations(List.of(new BookingRequest(flight, alice, 2),
+                new BookingRequest(unknown, bob, 1))));
+        assertEquals(10, flight.getAvailableSeats());
+        assertTrue(reservationService.getAllReservations().isEmpty());
+    }
+
+    // ---- Concurrent bookings ----
+    @Test
+    void concurrentBookingsAndCancellationsNeverOverbook() throws InterruptedException {
+        int seats = 180;
+        Flight flight = flight(seats);
+        AtomicInteger failedCancellations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                List<Reservation> mine = new ArrayList<>();
+                await(start);
+                for (int i = 0; i < 400; i++) {
+                    Reservation booked = reservationService.createReservation(flight, alice, 1 + random.nextInt(4));
+                    if (booked != null) mine.add(booked);
+                    // Cancel about a third, so seats keep coming back while other threads book
+                    if (!mine.isEmpty() && random.nextInt(3) == 0) {
+                        Reservation cancelled = mine.remove(random.nextInt(mine.size()));
+                        if (!reservationService.cancelReservation(cancelled.getReservationId())) {
+                            failedCancellations.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(0, failedCancellations.get());
+        int sold = reservationService.countBookedSeats().getOrDefault("TS100", 0);
+        assertTrue(sold <= seats);
+        assertEquals(seats - flight.getAvailableSeats(), sold);
+        Set<String> taken = new HashSet<>();
+        for (Reservation reservation : reservationService.getReservationsByFlight("TS100")) {
+            if (reservation.isCancelled()) continue;
+            for (String seat : reservation.getSeatNumbers()) assertTrue(taken.add(seat), seat + " sold twice");
+        }
+        assertEquals(sold, taken.size());
+        assertEquals(seats - sold, reservationService.getSeatMap(flight).getFreeSeats());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Records bookings and promotions in the order they are persisted. */
+    private static final class Recorder implements ChangeLog {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final List<WaitlistEntry> promoted = Collections.synchronizedList(new ArrayList<>());
+
+        @Override public boolean flightUpserted(Flight flight) { return true; }
+        @Override public boolean flightsUpserted(List<Flight> flights) { return true; }
+        @Override public boolean flightDeleted(String flightNumber) { return true; }
+        @Override public boolean cancelled(Reservation reservation) { return true; }
+        @Override public boolean confirmed(Reservation reservation) { return true; }
+        @Override public boolean waitlisted(WaitlistEntry entry) { return true; }
+        @Override public boolean waitlistWithdrawn(WaitlistEntry entry) { return true; }
+
+        @Override
+        public boolean booked(Reservation reservation) {
+            events.add("booked");
+            return true;
+        }
+
+        @Override
+        public boolean booked(List<Reservation> reservations) {
+            events.add("booked");
+            return true;
+        }
+
+        @Override
+        public boolean promoted(WaitlistEntry entry, Reservation reservation) {
+            events.add("promoted");
+            promoted.add(entry);
+            return true;
+        }
+    }
+}
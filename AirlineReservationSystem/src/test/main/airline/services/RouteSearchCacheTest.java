@@ -0,0 +1,77 @@
+package main.airline.services;
+
+import main.airline.models.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSearchCacheTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    private final RouteSearchCache cache = new RouteSearchCache(100);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private RouteSearchCache.Result search(String route, LocalDate date) {
+        return cache.get(route, date, () -> {
+            loads.incrementAndGet();
+            return new ArrayList<>();
+        });
+    }
+
+    @Test
+    void changesOnOneRouteOnlyInvalidateThatRoute() {
+        RouteSearchCache.Result first = search("reno|tulsa", null);
+        RouteSearchCache.Result other = search("reno|omaha", null);
+        assertSame(first, search("reno|tulsa", null));
+        assertEquals(2, loads.get());
+
+        cache.invalidate("reno|tulsa");
+        assertNotSame(first, search("reno|tulsa", null));
+        assertSame(other, search("reno|omaha", null));
+        assertEquals(3, loads.get());
+
+        // Dated searches are cached apart from the undated one, and invalidated with it
+        RouteSearchCache.Result dated = search("reno|tulsa", DEPARTURE.toLocalDate());
+        assertSame(dated, search("reno|tulsa", DEPARTURE.toLocalDate()));
+        cache.invalidate("reno|tulsa");
+        assertNotSame(dated, search("reno|tulsa", DEPARTURE.toLocalDate()));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void renderingsAreMadeOncePerFormat() {
+        RouteSearchCache.Result result = search("reno|tulsa", null);
+        AtomicInteger renders = new AtomicInteger();
+        assertEquals("[]", result.render("json", flights -> {
+            renders.incrementAndGet();
+            return "[]";
+        }));
+        assertEquals("[]", result.render("json", flights -> "changed"));
+        assertEquals("", result.render("csv", flights -> ""));
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void flightServiceDropsCachedSearchesWhenTheRouteChanges() {
+        FlightService flightService = new FlightService();
+        assertTrue(flightService.addFlight(new Flight("TS300", "Reno", "Tulsa", DEPARTURE, DEPARTURE.plusHours(3), 50, 99.0)));
+        assertTrue(flightService.addFlight(new Flight("TS400", "Reno", "Omaha", DEPARTURE, DEPARTURE.plusHours(3), 50, 99.0)));
+        RouteSearchCache.Result tulsa = flightService.searchCached("Reno", "Tulsa", null);
+        RouteSearchCache.Result omaha = flightService.searchCached("Reno", "Omaha", null);
+        assertSame(tulsa, flightService.searchCached("reno", "tulsa", null));
+
+        assertTrue(flightService.addFlight(new Flight("TS301", "Reno", "Tulsa", DEPARTURE.plusHours(2),
+                DEPARTURE.plusHours(5), 50, 99.0)));
+        List<Flight> flights = flightService.searchCached("Reno", "Tulsa", null).getFlights();
+        assertEquals(2, flights.size());
+        assertSame(omaha, flightService.searchCached("Reno", "Omaha", null));
+        // Routes without flights are answered without being cached
+        assertTrue(flightService.searchCached("Reno", "Nowhere", null).getFlights().isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package main.airline.services;
+
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.utils.ChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeaheadIndexTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    private final FlightService flightService = new FlightService();
+    private final ReservationService reservationService = new ReservationService(flightService);
+    // Delivers on the publishing thread, so the index is current as soon as a change returns
+    private final ChangeFeed changeFeed = new ChangeFeed(1024, 64, Runnable::run);
+    private final TypeaheadIndex index = new TypeaheadIndex(flightService, reservationService);
+
+    @BeforeEach
+    void attach() {
+        flightService.setChangeFeed(changeFeed);
+        reservationService.setChangeFeed(changeFeed);
+        assertTrue(flightService.addFlight(flight("ZZ100", "Zagreb", "Zurich")));
+        index.attach(changeFeed);
+    }
+
+    @AfterEach
+    void close() {
+        changeFeed.close();
+    }
+
+    private static Flight flight(String number, String origin, String destination) {
+        return new Flight(number, origin, destination, DEPARTURE, DEPARTURE.plusHours(2), 100, 99.0);
+    }
+
+    private static List<String> ids(List<Passenger> passengers) {
+        List<String> ids = new ArrayList<>();
+        for (Passenger passenger : passengers) ids.add(passenger.getId());
+        return ids;
+    }
+
+    @Test
+    void airportsAndFlightNumbersFollowTheSchedule() {
+        // Flights present when the index attached
+        assertEquals(List.of("Zagreb", "Zurich"), index.suggestAirports("z", 10));
+        assertEquals(List.of("ZZ100"), index.suggestFlightNumbers(" zz1", 10));
+
+        assertTrue(flightService.addFlight(flight("ZZ200", "Zanzibar", "Zagreb")));
+        assertEquals(List.of("Zagreb", "Zanzibar", "Zurich"), index.suggestAirports("Z", 10));
+        assertEquals(List.of("ZZ100", "ZZ200"), index.suggestFlightNumbers("zz", 10));
+
+        // Zurich leaves with the last flight that uses it; Zagreb is still served by ZZ200
+        assertTrue(flightService.deleteFlight("ZZ100"));
+        assertEquals(List.of("Zagreb", "Zanzibar"), index.suggestAirports("z", 10));
+        assertEquals(List.of("ZZ200"), index.suggestFlightNumbers("zz", 10));
+    }
+
+    @Test
+    void typosAreToleratedOnceEnoughHasBeenTyped() {
+        assertEquals(List.of("Zurich"), index.suggestAirports("zurch", 10));
+        // Three characters must match exactly
+        assertTrue(index.suggestAirports("zur", 10).contains("Zurich"));
+        assertTrue(index.suggestAirports("zyr", 10).isEmpty());
+        assertTrue(index.suggestAirports("  ", 10).isEmpty());
+    }
+
+    @Test
+    void passengersAreFoundByNameWordOrEmail() {
+        Flight flight = flightService.findFlightByNumber("ZZ100");
+        Passenger mary = new Passenger("P-MARY", "Mary Ann Smith", "mary@example.com", null);
+        Passenger john = new Passenger("P-JOHN", "John Smith", "john@example.com", null);
+        assertNotNull(reservationService.createReservation(flight, mary, 1));
+        assertNotNull(reservationService.createReservation(flight, john, 1));
+
+        assertEquals(List.of("P-JOHN", "P-MARY"), ids(index.suggestPassengers("smith", 10)).stream().sorted().toList());
+        assertEquals(List.of("P-MARY"), ids(index.suggestPassengers("mary  ann", 10)));
+        assertEquals(List.of("P-JOHN"), ids(index.suggestPassengers("john@ex", 10)));
+
+        // A later booking under a new email replaces the old details
+        assertNotNull(reservationService.createReservation(flight,
+                new Passenger("P-JOHN", "John Smith", "jsmith@example.com", null), 1));
+        assertTrue(index.suggestPassengers("john@ex", 10).isEmpty());
+        assertEquals("jsmith@example.com", index.suggestPassengers("jsmith", 10).get(0).getEmail());
+    }
+}
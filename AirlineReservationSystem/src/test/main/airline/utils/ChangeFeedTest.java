@@ -0,0 +1,163 @@
+package main.airline.utils;
+
+import main.airline.models.ChangeEvent;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    private final Flight flight = new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 100, 199.0);
+    private final Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+
+    // Delivers on the publishing thread, so each test sees deliveries as soon as they are due
+    private ChangeFeed feed(int capacity, int maxBatch) {
+        return new ChangeFeed(capacity, maxBatch, Runnable::run);
+    }
+
+    @Test
+    void eventsKeepOneReadOnlySnapshotOfWhatChanged() {
+        ChangeFeed feed = feed(16, 16);
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        feed.subscribe(recorder);
+        Reservation reservation = new Reservation("R1", flight, alice, 2, List.of("1A", "1B"));
+        reservation.confirmReservation();
+        feed.reservationChanged(ChangeEvent.Type.BOOKED, reservation);
+        flight.tryReserve(2);
+        reservation.cancelReservation();
+
+        ChangeEvent event = recorder.events().get(0);
+        assertEquals("TS100", event.getFlightNumber());
+        Reservation published = event.getReservation();
+        assertSame(published, event.getReservation());
+        assertFalse(published.isCancelled());
+        assertTrue(published.isConfirmed());
+        assertEquals(List.of("1A", "1B"), published.getSeatNumbers());
+        assertEquals(100, published.getFlight().getAvailableSeats());
+        assertThrows(UnsupportedOperationException.class, published::cancelReservation);
+        assertThrows(UnsupportedOperationException.class, () -> published.getFlight().tryReserve(1));
+        assertThrows(UnsupportedOperationException.class, () -> published.getPassenger().setEmail(null));
+    }
+
+    @Test
+    void deliversOneBatchPerRequestedItem() {
+        ChangeFeed feed = feed(16, 2);
+        Recorder recorder = new Recorder(1);
+        feed.subscribe(recorder);
+        for (int i = 0; i < 5; i++) feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+
+        // The first event met the one outstanding request; the rest wait for demand
+        assertEquals(List.of(List.of(0L)), recorder.sequences());
+        recorder.subscription.request(1);
+        recorder.subscription.request(1);
+        assertEquals(List.of(List.of(0L), List.of(1L, 2L), List.of(3L, 4L)), recorder.sequences());
+        assertEquals(5, feed.getNextSequence());
+    }
+
+    @Test
+    void subscriberThatFallsBehindTheRingGetsAnError() {
+        ChangeFeed feed = feed(4, 16);
+        Recorder recorder = new Recorder(0);
+        feed.subscribe(recorder);
+        // Publishing never waits for a subscriber without demand
+        for (int i = 0; i < 6; i++) feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+
+        recorder.subscription.request(1);
+        assertTrue(recorder.batches.isEmpty());
+        assertInstanceOf(IllegalStateException.class, recorder.error);
+        assertTrue(recorder.error.getMessage().contains("#0"));
+        assertEquals(0, feed.getSubscriberCount());
+    }
+
+    @Test
+    void subscribersCanReplayBufferedEvents() {
+        ChangeFeed feed = feed(16, 16);
+        for (int i = 0; i < 3; i++) feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        feed.subscribe(recorder, 1);
+        feed.flightChanged(ChangeEvent.Type.FLIGHT_DELETED, flight);
+
+        assertEquals(List.of(1L, 2L, 3L), recorder.events().stream().map(ChangeEvent::getSequence).toList());
+        assertEquals(ChangeEvent.Type.FLIGHT_DELETED, recorder.events().get(2).getType());
+    }
+
+    @Test
+    void closeCompletesSubscribersOnceTheyHaveEverything() {
+        ChangeFeed feed = feed(16, 16);
+        Recorder recorder = new Recorder(0);
+        feed.subscribe(recorder);
+        feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+        feed.close();
+        feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+        assertFalse(recorder.completed);
+
+        recorder.subscription.request(5);
+        assertEquals(List.of(List.of(0L)), recorder.sequences());
+        assertTrue(recorder.completed);
+        assertEquals(0, feed.getSubscriberCount());
+    }
+
+    @Test
+    void cancelledSubscribersReceiveNothingMore() {
+        ChangeFeed feed = feed(16, 16);
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        feed.subscribe(recorder);
+        feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+        recorder.subscription.cancel();
+        feed.flightChanged(ChangeEvent.Type.FLIGHT_UPDATED, flight);
+
+        assertEquals(1, recorder.events().size());
+        assertEquals(0, feed.getSubscriberCount());
+    }
+
+    /** Requests {@code initial} batches on subscribing and records what arrives. */
+    private static final class Recorder implements Flow.Subscriber<List<ChangeEvent>> {
+        private final long initial;
+        final List<List<ChangeEvent>> batches = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        Recorder(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initial > 0) subscription.request(initial);
+        }
+
+        @Override
+        public void onNext(List<ChangeEvent> batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        List<ChangeEvent> events() {
+            return batches.stream().flatMap(List::stream).toList();
+        }
+
+        List<List<Long>> sequences() {
+            return batches.stream().map(batch -> batch.stream().map(ChangeEvent::getSequence).toList()).toList();
+        }
+    }
+}
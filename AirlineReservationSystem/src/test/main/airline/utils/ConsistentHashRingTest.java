@@ -0,0 +1,47 @@
+package main.airline.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+    private static final int KEYS = 20_000;
+
+    @Test
+    void everySpellingOfAFlightNumberLandsOnTheSameNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(5);
+        for (int i = 0; i < 100; i++) {
+            int node = ring.nodeFor("TS" + i);
+            assertTrue(node >= 0 && node < 5);
+            assertEquals(node, ring.nodeFor(" ts" + i + " "));
+        }
+        assertEquals(0, new ConsistentHashRing(1).nodeFor("TS100"));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0));
+    }
+
+    @Test
+    void keysSpreadEvenlyOverTheNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(4);
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) counts[ring.nodeFor("TS" + i)]++;
+        for (int count : counts) {
+            assertTrue(count > KEYS * 0.15 && count < KEYS * 0.35, "node has " + count + " of " + KEYS + " keys");
+        }
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysOntoTheNewNode() {
+        ConsistentHashRing before = new ConsistentHashRing(4);
+        ConsistentHashRing after = new ConsistentHashRing(5);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "TS" + i;
+            int owner = after.nodeFor(key);
+            if (owner == before.nodeFor(key)) continue;
+            assertEquals(4, owner, key);
+            moved++;
+        }
+        // About a fifth of the keys should move
+        assertTrue(moved > KEYS * 0.1 && moved < KEYS * 0.3, moved + " of " + KEYS + " keys moved");
+    }
+}
@@ -0,0 +1,212 @@
+package main.airline.utils;
+
+import main.airline.models.BookingRequest;
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The JDBC backend against an in-memory H2 database, reloaded the way a restart would. */
+class JdbcStorageTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final LocalDateTime DEPARTURE = LocalDateTime.now().plusDays(10).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+    private String url;
+    private JdbcStorage storage;
+    private FlightService flightService;
+    private ReservationService reservationService;
+    private final Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+    private final Passenger bob = new Passenger("P-BOB", "Bob Example", "bob@example.com", "555-0101");
+
+    @BeforeEach
+    void open() {
+        // Kept until the JVM exits, so a second pool sees what the first one wrote
+        url = "jdbc:h2:mem:airline" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        start();
+        flightService.addFlight(new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 100, 199.0));
+        flightService.addFlight(new Flight("TS200", "Denver", "Austin", DEPARTURE.plusHours(6), DEPARTURE.plusHours(8), 50, 99.0));
+    }
+
+    @AfterEach
+    void close() {
+        storage.close();
+    }
+
+    @Test
+    void bookingSurvivesReload() {
+        Reservation booked = reservationService.createReservation(flight("TS100"), alice, 3);
+        assertNotNull(booked);
+
+        restart();
+
+        Reservation loaded = reservationService.findReservationById(booked.getReservationId());
+        assertNotNull(loaded);
+        assertEquals("TS100", loaded.getFlight().getFlightNumber());
+        assertEquals(3, loaded.getSeats());
+        assertEquals("alice@example.com", loaded.getPassenger().getEmail());
+        assertEquals(booked.getSeatNumbers(), loaded.getSeatNumbers());
+        assertEquals(97, flight("TS100").getAvailableSeats());
+        assertEquals(97, availableSeatsInDatabase("TS100"));
+    }
+
+    @Test
+    void groupIsRolledBackWhenTheDatabaseCannotCoverOneMember() throws SQLException {
+        // Another process took TS200's seats; this one still thinks they are free
+        execute("UPDATE flights SET available_seats = 1 WHERE flight_number = 'TS200'");
+
+        List<Reservation> group = reservationService.createReservations(List.of(
+                new BookingRequest(flight("TS100"), alice, 2),
+                new BookingRequest(flight("TS200"), bob, 2)));
+
+        assertNull(group);
+        assertEquals(100, flight("TS100").getAvailableSeats());
+        assertEquals(100, availableSeatsInDatabase("TS100"));
+        assertEquals(1, availableSeatsInDatabase("TS200"));
+        assertEquals(0, countRows("SELECT COUNT(*) FROM reservations"));
+    }
+
+    @Test
+    void cancellationReturnsSeatsAcrossReload() {
+        Reservation booked = reservationService.createReservation(flight("TS100"), alice, 4);
+        assertNotNull(booked);
+        assertTrue(reservationService.cancelReservation(booked.getReservationId()));
+
+        restart();
+
+        Reservation loaded = reservationService.findReservationById(booked.getReservationId());
+        assertNotNull(loaded);
+        assertTrue(loaded.isCancelled());
+        assertEquals(100, flight("TS100").getAvailableSeats());
+        assertEquals(100, availableSeatsInDatabase("TS100"));
+        assertFalse(reservationService.cancelReservation(booked.getReservationId()));
+    }
+
+    @Test
+    void cancellationTheDatabaseRejectsIsUndone() throws SQLException {
+        Reservation booked = reservationService.createReservation(flight("TS100"), alice, 3);
+        assertNotNull(booked);
+        // Cancelled behind this process's back, so the update finds nothing to cancel
+        execute("UPDATE reservations SET cancelled = TRUE WHERE reservation_id = '" + booked.getReservationId() + "'");
+
+        assertFalse(reservationService.cancelReservation(booked.getReservationId()));
+        assertFalse(reservationService.findReservationById(booked.getReservationId()).isCancelled());
+        assertEquals(97, flight("TS100").getAvailableSeats());
+    }
+
+    @Test
+    void flightUpdateKeepsSeatsAlreadyTaken() {
+        assertNotNull(reservationService.createReservation(flight("TS100"), alice, 5));
+        // Same flight re-sent with more seats: the 5 taken must not be handed out again
+        assertTrue(flightService.addFlight(new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 120, 219.0)));
+        assertEquals(115, flight("TS100").getAvailableSeats());
+        assertEquals(115, availableSeatsInDatabase("TS100"));
+        // Fewer seats than are sold is refused, in a batch too
+        assertFalse(flightService.addFlight(new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 4, 219.0)));
+        assertEquals(0, flightService.addFlights(List.of(
+                new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 3, 219.0))));
+        assertEquals(120, flight("TS100").getTotalSeats());
+
+        assertNotNull(reservationService.createReservation(flight("TS100"), bob, 2));
+        assertEquals(113, availableSeatsInDatabase("TS100"));
+
+        restart();
+
+        assertEquals(120, flight("TS100").getTotalSeats());
+        assertEquals(113, flight("TS100").getAvailableSeats());
+    }
+
+    @Test
+    void waitlistSurvivesReloadUntilPromoted() throws SQLException {
+        Reservation full = reservationService.createReservation(flight("TS200"), alice, 50);
+        assertNotNull(full);
+        WaitlistEntry entry = reservationService.joinWaitlist(flight("TS200"), bob, 2, FareClass.BUSINESS);
+        assertNotNull(entry);
+        assertEquals(WaitlistEntry.Status.WAITING, entry.getStatus());
+
+        restart();
+
+        List<WaitlistEntry> waiting = reservationService.getWaitlist("TS200");
+        assertEquals(1, waiting.size());
+        assertEquals(entry.getEntryId(), waiting.get(0).getEntryId());
+        assertEquals(FareClass.BUSINESS, waiting.get(0).getFareClass());
+        assertEquals("bob@example.com", waiting.get(0).getPassenger().getEmail());
+
+        reservationService.resumeWaitlists();
+        assertTrue(reservationService.cancelReservation(full.getReservationId()));
+        WaitlistEntry promoted = reservationService.getWaitlistEntry(entry.getEntryId());
+        assertEquals(WaitlistEntry.Status.PROMOTED, promoted.getStatus());
+        assertEquals(0, countRows("SELECT COUNT(*) FROM waitlist"));
+
+        restart();
+
+        assertTrue(reservationService.getWaitlist("TS200").isEmpty());
+        Reservation booked = reservationService.findReservationById(promoted.getReservationId());
+        assertNotNull(booked);
+        assertEquals(2, booked.getSeats());
+        assertEquals(48, flight("TS200").getAvailableSeats());
+    }
+
+    private void start() {
+        flightService = new FlightService();
+        reservationService = new ReservationService(flightService);
+        storage = new JdbcStorage(new JdbcConnectionPool(url, null, null, 4));
+        storage.load(flightService, reservationService);
+        flightService.setChangeLog(storage);
+        reservationService.setChangeLog(storage);
+    }
+
+    private void restart() {
+        storage.close();
+        start();
+    }
+
+    private Flight flight(String flightNumber) {
+        Flight flight = flightService.findFlightByNumber(flightNumber);
+        assertNotNull(flight, flightNumber);
+        return flight;
+    }
+
+    private int availableSeatsInDatabase(String flightNumber) {
+        try (Connection connection = DriverManager.getConnection(url);
+             PreparedStatement ps = connection.prepareStatement("SELECT available_seats FROM flights WHERE flight_number = ?")) {
+            ps.setString(1, flightNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next(), flightNumber);
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private int countRows(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             ResultSet rs = connection.createStatement().executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url)) {
+            connection.createStatement().executeUpdate(sql);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package main.airline.utils;
+
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import main.airline.services.FlightService;
+import main.airline.services.ReservationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    @TempDir
+    Path directory;
+
+    private final Flight flight = new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 100, 199.0);
+    private final Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+    private final Passenger bob = new Passenger("P-BOB", "Bob Example", null, null);
+
+    @Test
+    void everyRecordTypeRoundTrips() throws IOException {
+        Path path = directory.resolve("journal.log");
+        Reservation held = new Reservation("R1", flight, alice, 2, List.of("1A", "1B"));
+        held.holdReservation();
+        Reservation second = new Reservation("R2", flight, bob, 1);
+        Reservation third = new Reservation("R3", flight, bob, 3);
+        third.confirmReservation();
+        WaitlistEntry entry = new WaitlistEntry("WL-1", "TS100", alice, 1, FareClass.BUSINESS, DEPARTURE, 7);
+        try (Journal journal = new Journal(path)) {
+            assertTrue(journal.flightUpserted(flight));
+            assertTrue(journal.booked(held));
+            assertTrue(journal.booked(List.of(second, third)));
+            assertTrue(journal.confirmed(held));
+            assertTrue(journal.cancelled(second));
+            assertTrue(journal.flightDeleted("TS999"));
+            assertTrue(journal.waitlisted(entry));
+            assertTrue(journal.waitlistWithdrawn(entry));
+            assertTrue(journal.promoted(entry, new Reservation("R4", flight, alice, 1)));
+            assertEquals(Files.size(path), journal.durableSize());
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = new Journal(path)) {
+            assertEquals(9, journal.replay(recorder));
+        }
+        assertEquals(List.of("flight TS100", "booked R1", "booked R2", "booked R3", "confirmed R1",
+                "cancelled R2", "deleted TS999", "waitlisted WL-1", "withdrawn WL-1", "promoted WL-1 as R4"),
+                recorder.events);
+
+        Flight replayed = recorder.flights.get(0);
+        assertEquals("Boston", replayed.getOrigin());
+        assertEquals("Denver", replayed.getDestination());
+        assertEquals(DEPARTURE, replayed.getDepartureTime());
+        assertEquals(DEPARTURE.plusHours(4), replayed.getArrivalTime());
+        assertEquals(100, replayed.getTotalSeats());
+        assertEquals(199.0, replayed.getPrice());
+
+        Journal.Booking booking = recorder.bookings.get(0);
+        assertEquals("TS100", booking.flightNumber);
+        assertEquals(2, booking.seats);
+        assertEquals(List.of("1A", "1B"), booking.seatNumbers);
+        assertEquals("alice@example.com", booking.passenger.getEmail());
+        assertTrue(booking.held);
+        assertFalse(booking.confirmed);
+        assertTrue(recorder.bookings.get(2).confirmed);
+        assertNull(recorder.bookings.get(1).passenger.getEmail());
+    }
+
+    @Test
+    void tornTailIsTruncatedAndAppendsCarryOn() throws IOException {
+        Path path = directory.resolve("journal.log");
+        try (Journal journal = new Journal(path)) {
+            journal.flightUpserted(flight);
+            journal.booked(new Reservation("R1", flight, alice, 2));
+        }
+        long intact = Files.size(path);
+        // A record cut short by a crash: a header promising more bytes than follow
+        Files.write(path, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        try (Journal journal = new Journal(path)) {
+            assertEquals(2, journal.replay(new Recorder()));
+            assertEquals(intact, Files.size(path));
+            journal.cancelled(new Reservation("R1", flight, alice, 2));
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = new Journal(path)) {
+            assertEquals(3, journal.replay(recorder));
+        }
+        assertEquals(List.of("flight TS100", "booked R1", "cancelled R1"), recorder.events);
+    }
+
+    @Test
+    void corruptRecordEndsReplay() throws IOException {
+        Path path = directory.resolve("journal.log");
+        long first;
+        try (Journal journal = new Journal(path)) {
+            journal.flightUpserted(flight);
+            first = journal.durableSize();
+            journal.flightDeleted("TS100");
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(path, bytes);
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = new Journal(path)) {
+            assertEquals(1, journal.replay(recorder));
+            assertEquals(first, journal.durableSize());
+        }
+        assertEquals(List.of("flight TS100"), recorder.events);
+    }
+
+    @Test
+    void interruptedAppendStillWritesItsRecord() throws IOException {
+        Path path = directory.resolve("journal.log");
+        try (Journal journal = new Journal(path)) {
+            Thread.currentThread().interrupt();
+            try {
+                assertTrue(journal.booked(new Reservation("R1", flight, alice, 2)));
+                assertTrue(Thread.currentThread().isInterrupted());
+            } finally {
+                Thread.interrupted();
+            }
+            assertTrue(journal.cancelled(new Reservation("R1", flight, alice, 2)));
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = new Journal(path)) {
+            assertEquals(2, journal.replay(recorder));
+        }
+        assertEquals(List.of("booked R1", "cancelled R1"), recorder.events);
+    }
+
+    @Test
+    void writeThatCannotBeRolledBackRefusesLaterAppends() throws IOException {
+        Path path = directory.resolve("journal.log");
+        Journal journal = new Journal(path);
+        assertTrue(journal.flightUpserted(flight));
+        journal.close();
+
+        assertFalse(journal.booked(new Reservation("R1", flight, alice, 2)));
+        assertFalse(journal.flightDeleted("TS100"));
+        assertThrows(IOException.class, () -> journal.discardBefore(journal.durableSize()));
+    }
+
+    @Test
+    void discardBeforeKeepsLaterRecords() throws IOException {
+        Path path = directory.resolve("journal.log");
+        try (Journal journal = new Journal(path)) {
+            journal.flightUpserted(flight);
+            journal.booked(new Reservation("R1", flight, alice, 2));
+            long checkpoint = journal.durableSize();
+            journal.booked(new Reservation("R2", flight, bob, 1));
+
+            journal.discardBefore(checkpoint);
+            journal.cancelled(new Reservation("R1", flight, alice, 2));
+        }
+
+        Recorder recorder = new Recorder();
+        try (Journal journal = new Journal(path)) {
+            journal.replay(recorder);
+            journal.discardBefore(journal.durableSize());
+            assertEquals(0, Files.size(path));
+        }
+        assertEquals(List.of("booked R2", "cancelled R1"), recorder.events);
+    }
+
+    @Test
+    void recoveryRebuildsSeatsAndReservations() throws IOException {
+        Path path = directory.resolve("journal.log");
+        try (Journal journal = new Journal(path)) {
+            journal.flightUpserted(flight);
+            journal.booked(new Reservation("R1", flight, alice, 2, List.of("1A", "1B")));
+            journal.booked(List.of(new Reservation("R2", flight, bob, 3), new Reservation("R3", flight, bob, 1)));
+            journal.cancelled(new Reservation("R2", flight, bob, 3));
+        }
+
+        FlightService flightService = new FlightService();
+        ReservationService reservationService = new ReservationService(flightService);
+        try (Journal journal = new Journal(path)) {
+            DataStorage.recover(journal, flightService, reservationService);
+        }
+
+        assertEquals(97, flightService.findFlightByNumber("TS100").getAvailableSeats());
+        assertEquals(List.of("1A", "1B"), reservationService.findReservationById("R1").getSeatNumbers());
+        assertTrue(reservationService.findReservationById("R2").isCancelled());
+        assertFalse(reservationService.findReservationById("R3").isCancelled());
+        assertEquals(3, reservationService.getReservationsByPassenger("P-BOB").size()
+                + reservationService.getReservationsByPassenger("P-ALICE").size());
+    }
+
+    @Test
+    void recoveryRebuildsWaitlists() throws IOException {
+        Path path = directory.resolve("journal.log");
+        WaitlistEntry first = new WaitlistEntry("WL-1", "TS100", alice, 2, FareClass.ECONOMY, DEPARTURE.minusDays(3), 0);
+        WaitlistEntry second = new WaitlistEntry("WL-2", "TS100", bob, 1, FareClass.FIRST, DEPARTURE.minusDays(2), 1);
+        WaitlistEntry third = new WaitlistEntry("WL-3", "TS100", bob, 4, FareClass.ECONOMY, DEPARTURE.minusDays(1), 2);
+        try (Journal journal = new Journal(path)) {
+            journal.flightUpserted(flight);
+            journal.waitlisted(first);
+            journal.waitlisted(second);
+            journal.waitlisted(third);
+            journal.promoted(second, new Reservation("R1", flight, bob, 1));
+            journal.waitlistWithdrawn(first);
+        }
+
+        FlightService flightService = new FlightService();
+        ReservationService reservationService = new ReservationService(flightService);
+        try (Journal journal = new Journal(path)) {
+            DataStorage.recover(journal, flightService, reservationService);
+        }
+
+        List<WaitlistEntry> waiting = reservationService.getWaitlist("TS100");
+        assertEquals(List.of("WL-3"), waiting.stream().map(WaitlistEntry::getEntryId).toList());
+        assertEquals(4, waiting.get(0).getSeats());
+        assertEquals(FareClass.ECONOMY, waiting.get(0).getFareClass());
+        assertEquals(WaitlistEntry.Status.PROMOTED, reservationService.getWaitlistEntry("WL-2").getStatus());
+        assertEquals("R1", reservationService.getWaitlistEntry("WL-2").getReservationId());
+        assertEquals(WaitlistEntry.Status.WITHDRAWN, reservationService.getWaitlistEntry("WL-1").getStatus());
+        assertEquals(1, reservationService.findReservationById("R1").getSeats());
+        assertEquals(1, reservationService.getWaitingEntries().size());
+
+        // The remaining request is booked once promotions resume
+        reservationService.resumeWaitlists();
+        assertEquals(WaitlistEntry.Status.PROMOTED, reservationService.getWaitlistEntry("WL-3").getStatus());
+        assertTrue(reservationService.getWaitlist("TS100").isEmpty());
+    }
+
+    /** Records replayed changes in order. */
+    private static final class Recorder implements Journal.Replayer {
+        final List<String> events = new ArrayList<>();
+        final List<Flight> flights = new ArrayList<>();
+        final List<Journal.Booking> bookings = new ArrayList<>();
+
+        @Override
+        public void flightUpserted(Flight flight) {
+            events.add("flight " + flight.getFlightNumber());
+            flights.add(flight);
+        }
+
+        @Override
+        public void flightDeleted(String flightNumber) {
+            events.add("deleted " + flightNumber);
+        }
+
+        @Override
+        public void booked(Journal.Booking booking) {
+            events.add("booked " + booking.reservationId);
+            bookings.add(booking);
+        }
+
+        @Override
+        public void cancelled(String reservationId) {
+            events.add("cancelled " + reservationId);
+        }
+
+        @Override
+        public void confirmed(String reservationId) {
+            events.add("confirmed " + reservationId);
+        }
+
+        @Override
+        public void waitlisted(WaitlistEntry entry) {
+            events.add("waitlisted " + entry.getEntryId());
+        }
+
+        @Override
+        public void waitlistWithdrawn(String entryId) {
+            events.add("withdrawn " + entryId);
+        }
+
+        @Override
+        public void promoted(String entryId, Journal.Booking booking) {
+            events.add("promoted " + entryId + " as " + booking.reservationId);
+            bookings.add(booking);
+        }
+    }
+}
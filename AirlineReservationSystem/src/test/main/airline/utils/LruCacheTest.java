@@ -0,0 +1,39 @@
+package main.airline.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+    // Small Integer keys hash to themselves, so keys 16 apart share one of the 16 segments
+    @Test
+    void evictsTheLeastRecentlyUsedEntryOfAFullSegment() {
+        LruCache<Integer, String> cache = new LruCache<>(32); // two entries per segment
+        cache.put(0, "a");
+        cache.put(16, "b");
+        assertEquals("a", cache.get(0));
+        cache.put(32, "c");
+
+        assertNull(cache.get(16));
+        assertEquals("a", cache.get(0));
+        assertEquals("c", cache.get(32));
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void segmentsFillIndependently() {
+        LruCache<Integer, String> cache = new LruCache<>(32);
+        for (int i = 0; i < 32; i++) cache.put(i, "v" + i);
+        assertEquals(32, cache.size());
+        assertEquals(0, cache.evictions());
+
+        cache.put(1, "updated");
+        assertEquals("updated", cache.get(1));
+        assertEquals("updated", cache.remove(1));
+        assertNull(cache.get(1));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<Integer, String>(0));
+    }
+}
@@ -0,0 +1,60 @@
+package main.airline.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTest {
+    private final PrefixTrie<String> trie = new PrefixTrie<>();
+
+    private void airports() {
+        for (String name : List.of("Boston", "Boise", "Bozeman", "Baston", "Denver", "Bo")) {
+            trie.add(name.toLowerCase(), name);
+        }
+    }
+
+    @Test
+    void prefixMatchesComeBackShorterTermsFirstThenAlphabetically() {
+        airports();
+        assertEquals(List.of("Bo", "Boise", "Boston", "Bozeman"), trie.search("bo", 0, 10));
+        assertEquals(List.of("Bo", "Boise"), trie.search("bo", 0, 2));
+        assertEquals(List.of("Denver"), trie.search("denver", 0, 10));
+        assertTrue(trie.search("denvers", 0, 10).isEmpty());
+        assertTrue(trie.search("bo", 0, 0).isEmpty());
+    }
+
+    @Test
+    void fuzzyMatchesFollowTheExactOnesAndKeepTheFirstCharacter() {
+        airports();
+        // "bostn" is one insertion from "boston"
+        assertEquals(List.of("Boston"), trie.search("bostn", 1, 10));
+        // "bast" is one substitution from "bost"; "boise" and "bozeman" are two edits away
+        assertEquals(List.of("Boston", "Baston"), trie.search("bost", 1, 10));
+        assertTrue(trie.search("dostn", 1, 10).isEmpty());
+        assertEquals(List.of("Boston"), trie.search("bost", 1, 1));
+    }
+
+    @Test
+    void sharedTermsKeepEveryValueUntilEachIsRemoved() {
+        assertTrue(trie.add("smith", "P1"));
+        assertTrue(trie.add("smith", "P2"));
+        assertFalse(trie.add("smith", "P2"));
+        assertEquals(2, trie.search("smi", 0, 10).size());
+
+        assertTrue(trie.remove("smith", "P1"));
+        assertFalse(trie.remove("smith", "P1"));
+        assertFalse(trie.remove("smythe", "P2"));
+        assertEquals(List.of("P2"), trie.search("smith", 0, 10));
+        assertTrue(trie.remove("smith", "P2"));
+        assertTrue(trie.search("s", 0, 10).isEmpty());
+
+        int nodes = trie.getNodeCount();
+        trie.add("smith", "P3");
+        assertEquals(nodes, trie.getNodeCount());
+        trie.clear();
+        assertEquals(1, trie.getNodeCount());
+        assertTrue(trie.search("smith", 0, 10).isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package main.airline.utils;
+
+import main.airline.models.FareClass;
+import main.airline.models.Flight;
+import main.airline.models.Passenger;
+import main.airline.models.Reservation;
+import main.airline.models.WaitlistEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordCodecTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2031, 3, 14, 9, 30);
+
+    @Test
+    void snapshotRoundTrips() throws IOException {
+        Flight listed = new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 100, 199.5);
+        listed.setAvailableSeats(94);
+        // Deleted from the schedule but still booked; stored so the reservation resolves
+        Flight unlisted = new Flight("TS200", "Denver", "Boston", DEPARTURE.plusDays(1), DEPARTURE.plusDays(1).plusHours(4), 80, 149.0);
+        Flight untimed = new Flight("TS300", "Austin", "Boston", null, null, 10, 0.0);
+        Passenger alice = new Passenger("P-ALICE", "Alice Example", "alice@example.com", "555-0100");
+        Passenger bob = new Passenger("P-BOB", "Bob Example", null, null);
+        Passenger carol = new Passenger("P-CAROL", "Carol Example", "carol@example.com", null);
+
+        Reservation seated = new Reservation("R1", listed, alice, 2, List.of("12A", "12B"));
+        seated.holdReservation();
+        seated.confirmReservation();
+        Reservation cancelled = new Reservation("R2", unlisted, bob, 4);
+        cancelled.cancelReservation();
+
+        RecordCodec.Snapshot snapshot = roundTrip(List.of(listed, untimed), List.of(seated, cancelled), List.of(alice, carol));
+
+        assertEquals(List.of("TS100", "TS300"), snapshot.flights.stream().map(Flight::getFlightNumber).toList());
+        Flight flight = snapshot.flights.get(0);
+        assertEquals("Boston", flight.getOrigin());
+        assertEquals("Denver", flight.getDestination());
+        assertEquals(DEPARTURE, flight.getDepartureTime());
+        assertEquals(DEPARTURE.plusHours(4), flight.getArrivalTime());
+        assertEquals(100, flight.getTotalSeats());
+        assertEquals(94, flight.getAvailableSeats());
+        assertEquals(199.5, flight.getPrice());
+        assertNull(snapshot.flights.get(1).getDepartureTime());
+
+        assertEquals(3, snapshot.passengers.size());
+        assertEquals(2, snapshot.reservations.size());
+        Reservation first = snapshot.reservations.get(0);
+        assertEquals("R1", first.getReservationId());
+        assertSame(flight, first.getFlight());
+        assertEquals("alice@example.com", first.getPassenger().getEmail());
+        assertEquals(List.of("12A", "12B"), first.getSeatNumbers());
+        assertTrue(first.isConfirmed());
+        assertTrue(first.wasHeld());
+        assertFalse(first.isCancelled());
+
+        Reservation second = snapshot.reservations.get(1);
+        assertEquals("TS200", second.getFlight().getFlightNumber());
+        assertEquals(4, second.getSeats());
+        assertTrue(second.isCancelled());
+        assertTrue(second.getSeatNumbers().isEmpty());
+        assertNull(second.getPassenger().getEmail());
+    }
+
+    @Test
+    void emptySnapshotRoundTrips() throws IOException {
+        RecordCodec.Snapshot snapshot = roundTrip(List.of(), List.of(), List.of());
+        assertTrue(snapshot.flights.isEmpty());
+        assertTrue(snapshot.passengers.isEmpty());
+        assertTrue(snapshot.reservations.isEmpty());
+        assertTrue(snapshot.waitlist.isEmpty());
+    }
+
+    @Test
+    void waitlistRoundTrips() throws IOException {
+        Flight flight = new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 100, 199.0);
+        Passenger dave = new Passenger("P-DAVE", "Dave Example", "dave@example.com", null);
+        WaitlistEntry entry = new WaitlistEntry("WL-1", "TS100", dave, 3, FareClass.BUSINESS, DEPARTURE.minusDays(2), 41);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordCodec.write(out, List.of(flight), List.of(), List.of(), List.of(entry));
+        RecordCodec.Snapshot snapshot = RecordCodec.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(1, snapshot.waitlist.size());
+        WaitlistEntry read = snapshot.waitlist.get(0);
+        assertEquals("WL-1", read.getEntryId());
+        assertEquals("TS100", read.getFlightNumber());
+        assertEquals(3, read.getSeats());
+        assertEquals(FareClass.BUSINESS, read.getFareClass());
+        assertEquals(DEPARTURE.minusDays(2), read.getRequestedAt());
+        assertEquals(41, read.getSequence());
+        assertEquals(WaitlistEntry.Status.WAITING, read.getStatus());
+        // The passenger is stored once and shared with the passenger list
+        assertSame(snapshot.passengers.get(0), read.getPassenger());
+        assertEquals("dave@example.com", read.getPassenger().getEmail());
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        byte[] notASnapshot = {(byte) 0xAC, (byte) 0xED, 0, 5, 0x73, 0x72};
+        assertThrows(IOException.class, () -> RecordCodec.read(new ByteArrayInputStream(notASnapshot)));
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() throws IOException {
+        Flight flight = new Flight("TS100", "Boston", "Denver", DEPARTURE, DEPARTURE.plusHours(4), 100, 199.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordCodec.write(out, List.of(flight), List.of(), List.of());
+        byte[] bytes = out.toByteArray();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 5);
+        assertThrows(IOException.class, () -> RecordCodec.read(new ByteArrayInputStream(truncated)));
+    }
+
+    private static RecordCodec.Snapshot roundTrip(List<Flight> flights, List<Reservation> reservations,
+                                                  List<Passenger> passengers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordCodec.write(out, flights, reservations, passengers);
+        return RecordCodec.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,66 @@
+package main.airline.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator("RES-", 1234);
+
+    @Test
+    void idsFromOneThreadIncreaseAndFitTheStore() {
+        String previous = generator.nextId();
+        assertTrue(previous.startsWith("RES-"));
+        assertTrue(previous.getBytes(StandardCharsets.UTF_8).length <= 23);
+        // More than one millisecond's worth of sequence numbers, if the machine is fast enough
+        for (int i = 0; i < 200_000; i++) {
+            String id = generator.nextId();
+            assertTrue(id.compareTo(previous) > 0, id + " after " + previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void concurrentThreadsNeverGetTheSameId() throws InterruptedException {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) ids.add(generator.nextId());
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        assertEquals(8 * 20_000, ids.size());
+    }
+
+    @Test
+    void idsCarryTheirNodeAndSortAgainstTimeBounds() {
+        Instant before = Instant.now();
+        String id = generator.nextId();
+        assertEquals(1234, TimeOrderedIdGenerator.nodeOf(id));
+        assertEquals(1234, TimeOrderedIdGenerator.nodeOf(id.toLowerCase()));
+        assertEquals(7, TimeOrderedIdGenerator.nodeOf(new TimeOrderedIdGenerator("", 7).nextId()));
+        assertEquals(-1, TimeOrderedIdGenerator.nodeOf("RES-short"));
+        assertEquals(-1, TimeOrderedIdGenerator.nodeOf("RES-ILLEGALDIGITSUU"));
+
+        assertTrue(id.compareTo(generator.firstIdAt(before)) >= 0);
+        assertTrue(id.compareTo(generator.firstIdAt(Instant.now().plusSeconds(1))) < 0);
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator("RES-", TimeOrderedIdGenerator.MAX_NODE + 1));
+    }
+}
@@ -0,0 +1,89 @@
+package main.airline.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    // With minute-long ticks the wheel's own thread stays at tick 0 for the length of a test, so the tests drive it
+    private final TimerWheel wheel = new TimerWheel("test-wheel", Duration.ofMinutes(1));
+
+    @AfterEach
+    void close() {
+        wheel.close();
+    }
+
+    private static Duration ticks(long ticks) {
+        return Duration.ofMinutes(ticks);
+    }
+
+    @Test
+    void tasksFallDueOnceTheirTickIsReached() {
+        Runnable soon = () -> { };
+        Runnable later = () -> { };
+        wheel.schedule(ticks(3), later);
+        wheel.schedule(ticks(1), soon);
+        assertEquals(2, wheel.size());
+
+        // A delay is rounded up to the next tick boundary, so it falls due one tick late at most
+        assertTrue(wheel.advanceTo(0).isEmpty());
+        assertEquals(List.of(soon), wheel.advanceTo(2));
+        assertTrue(wheel.advanceTo(2).isEmpty());
+        assertEquals(List.of(later), wheel.advanceTo(4));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void distantTimeoutsCascadeDownToTheirTick() {
+        Runnable level2 = () -> { };
+        Runnable beyondTheWheel = () -> { };
+        long near = 64 * 64 + 5;
+        long far = 64L * 64 * 64 * 64 + 100;
+        wheel.schedule(ticks(near), level2);
+        wheel.schedule(ticks(far), beyondTheWheel);
+
+        assertTrue(wheel.advanceTo(near - 1).isEmpty());
+        assertEquals(List.of(level2), wheel.advanceTo(near + 1));
+        assertTrue(wheel.advanceTo(far - 1).isEmpty());
+        assertEquals(List.of(beyondTheWheel), wheel.advanceTo(far + 1));
+    }
+
+    @Test
+    void delaysTooLongForNanosecondsAreStillScheduled() {
+        TimerWheel.Timeout forever = wheel.schedule(Duration.ofDays(365L * 1000), () -> fail("ran"));
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advanceTo(64L * 64 * 64 * 64 * 2).isEmpty());
+        assertTrue(forever.cancel());
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFallDue() {
+        Runnable kept = () -> { };
+        TimerWheel.Timeout cancelled = wheel.schedule(ticks(2), () -> fail("cancelled task ran"));
+        wheel.schedule(ticks(2), kept);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(kept), wheel.advanceTo(3));
+    }
+
+    @Test
+    void workerRunsDueTasksInRealTime() throws InterruptedException {
+        try (TimerWheel fast = new TimerWheel("fast-wheel", Duration.ofMillis(10))) {
+            CountDownLatch ran = new CountDownLatch(2);
+            fast.schedule(Duration.ofMillis(30), ran::countDown);
+            fast.schedule(Duration.ZERO, ran::countDown);
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertEquals(0, fast.size());
+            fast.close();
+            assertThrows(IllegalStateException.class, () -> fast.schedule(Duration.ZERO, () -> { }));
+        }
+    }
+}